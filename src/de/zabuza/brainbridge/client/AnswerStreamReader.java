@@ -0,0 +1,137 @@
+package de.zabuza.brainbridge.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Thread that reads the stream of answers of a chat instance, sent by the
+ * server as Server-Sent Events, and hands every answer to a listener. Call
+ * {@link #start()} to start reading and {@link #stopReading()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AnswerStreamReader extends Thread {
+	/**
+	 * Prefix of every data line of an event.
+	 */
+	private static final String DATA_PREFIX = "data:";
+	/**
+	 * The charset to use for encoding and decoding text.
+	 */
+	private static final Charset TEXT_CHARSET = StandardCharsets.UTF_8;
+
+	/**
+	 * The connection to the stream or <tt>null</tt> if not connected yet.
+	 */
+	private volatile HttpURLConnection mConnection;
+	/**
+	 * Internal flag whether the reader should run or not. If set to
+	 * <tt>false</tt> the reader will stop.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The listener to hand answers to.
+	 */
+	private final IAnswerListener mListener;
+	/**
+	 * The URL of the stream.
+	 */
+	private final String mStreamUrl;
+
+	/**
+	 * Creates a new reader of the stream at the given URL. Call
+	 * {@link #start()} to start reading and {@link #stopReading()} to stop
+	 * it.
+	 * 
+	 * @param streamUrl
+	 *            The URL of the stream
+	 * @param listener
+	 *            The listener to hand answers to
+	 */
+	public AnswerStreamReader(final String streamUrl, final IAnswerListener listener) {
+		super(AnswerStreamReader.class.getSimpleName());
+		this.mStreamUrl = streamUrl;
+		this.mListener = listener;
+		this.mConnection = null;
+		this.mDoRun = true;
+		setDaemon(true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			this.mConnection = (HttpURLConnection) new URL(this.mStreamUrl).openConnection();
+		} catch (final IOException e) {
+			// Just ignore the exception, the stream ends
+			this.mDoRun = false;
+			this.mListener.streamEnded();
+			return;
+		}
+
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(this.mConnection.getInputStream(), TEXT_CHARSET))) {
+			StringBuilder data = null;
+			while (this.mDoRun) {
+				final String line = reader.readLine();
+				if (line == null) {
+					break;
+				}
+
+				// An empty line dispatches the event
+				if (line.isEmpty()) {
+					if (data != null) {
+						this.mListener.answerReceived(StringEscapeUtils.unescapeHtml4(data.toString()));
+						data = null;
+					}
+					continue;
+				}
+
+				// Other fields and comments are not used
+				if (!line.startsWith(DATA_PREFIX)) {
+					continue;
+				}
+				String value = line.substring(DATA_PREFIX.length());
+				if (value.startsWith(" ")) {
+					value = value.substring(1);
+				}
+				if (data == null) {
+					data = new StringBuilder(value);
+				} else {
+					data.append('\n').append(value);
+				}
+			}
+		} catch (final IOException e) {
+			// Just ignore the exception, the stream ends
+		} finally {
+			this.mDoRun = false;
+			this.mConnection.disconnect();
+			this.mListener.streamEnded();
+		}
+	}
+
+	/**
+	 * Requests the reader to stop. The stream gets closed and the listener is
+	 * notified that it ended.
+	 */
+	public void stopReading() {
+		this.mDoRun = false;
+		final HttpURLConnection connection = this.mConnection;
+		if (connection != null) {
+			// Unblocks the reader if it waits for the next event
+			connection.disconnect();
+		}
+	}
+}
@@ -23,6 +23,14 @@ import de.zabuza.brainbridge.client.exceptions.UnexpectedUnsupportedEncodingExce
  *
  */
 public final class BrainBridgeAPI {
+	/**
+	 * The keyword which every ask request begins with.
+	 */
+	private static final String ASK_REQUEST = "/ask?";
+	/**
+	 * The keyword which every await message request begins with.
+	 */
+	private static final String AWAIT_MESSAGE_REQUEST = "/await?";
 	/**
 	 * If a message starts with this indicator it will be interpreted as brain
 	 * chat command.
@@ -56,15 +64,46 @@ public final class BrainBridgeAPI {
 	 * The keyword which every shutdown request begins with.
 	 */
 	private static final String SHUTDOWN_REQUEST = "/shutdown?";
+	/**
+	 * The name of the parameter that holds the already known message.
+	 */
+	private static final String SINCE_PARAMETER = "since=";
 	/**
 	 * The charset to use for encoding and decoding text.
 	 */
 	private static final Charset TEXT_CHARSET = StandardCharsets.UTF_8;
+	/**
+	 * The keyword which every stream request begins with.
+	 */
+	private static final String STREAM_REQUEST = "/stream?";
+	/**
+	 * The name of the timeout parameter.
+	 */
+	private static final String TIMEOUT_PARAMETER = "timeout=";
 	/**
 	 * Delimiter between an URL and a port.
 	 */
 	private static final String URL_PORT_DELIMITER = ":";
 
+	/**
+	 * Encodes the given text such that it can be used as value of a parameter
+	 * in an URL.
+	 * 
+	 * @param text
+	 *            The text to encode
+	 * @return The encoded text
+	 * @throws UnexpectedUnsupportedEncodingException
+	 *             If the UTF-8 char-set is unexpectedly not supported
+	 */
+	private static String encodeParameterValue(final String text) throws UnexpectedUnsupportedEncodingException {
+		try {
+			return URLEncoder.encode(text, TEXT_CHARSET.name());
+		} catch (final UnsupportedEncodingException e) {
+			// Re-throw new exception
+			throw new UnexpectedUnsupportedEncodingException(e);
+		}
+	}
+
 	/**
 	 * Gets the content of a web site and returns it as list of lines.
 	 * 
@@ -89,6 +128,21 @@ public final class BrainBridgeAPI {
 		}
 	}
 
+	/**
+	 * Removes the indicator of brain chat commands from the given message.
+	 * Chat commands are thus posted as regular messages.
+	 * 
+	 * @param message
+	 *            The message to adjust
+	 * @return The message without chat command indicator
+	 */
+	static String removeCommandIndicator(final String message) {
+		if (message.startsWith(COMMAND_INDICATOR)) {
+			return message.substring(1);
+		}
+		return message;
+	}
+
 	/**
 	 * The full URL to the service that runs the server.
 	 */
@@ -109,6 +163,84 @@ public final class BrainBridgeAPI {
 		this.mServiceUrl = serverAddress + URL_PORT_DELIMITER + port;
 	}
 
+	/**
+	 * Posts the given message for the instance with the given id and returns
+	 * the answer of the chat bot to it. The server posts the message and waits
+	 * for the answer itself, it thus only needs one request.
+	 * 
+	 * @param id
+	 *            The id of the instance to post with
+	 * @param message
+	 *            The message to post
+	 * @return The answer of the chat bot or <tt>null</tt> if there was no in
+	 *         time or the server experienced an error
+	 */
+	public String ask(final String id, final String message) {
+		// Remove chat commands from the message
+		final String encodedMessage = encodeParameterValue(removeCommandIndicator(message));
+		final String query = this.mServiceUrl + ASK_REQUEST + ID_PARAMETER + id + PARAMETER_SEPARATOR
+				+ MESSAGE_PARAMETER + encodedMessage;
+		try {
+			final List<String> content = getWebContent(query);
+			// If the answer is empty there was no answer in time
+			if (content.isEmpty()) {
+				return null;
+			}
+
+			// The first line contains the message
+			final String firstLine = content.iterator().next();
+			if (firstLine.trim().isEmpty()) {
+				return null;
+			}
+			return StringEscapeUtils.unescapeHtml4(firstLine);
+		} catch (final IOException e) {
+			// Ignore the exception and return null
+			return null;
+		}
+	}
+
+	/**
+	 * Waits for a new answer of the chat bot for the instance with the given
+	 * id. The server parks the request until an answer that differs from the
+	 * given known answer appears, the answer is thus returned as soon as it is
+	 * available.
+	 * 
+	 * @param id
+	 *            The id of the instance
+	 * @param since
+	 *            The last answer known, as returned by
+	 *            {@link #getLastMessage(String)}, or <tt>null</tt> if there is
+	 *            no. Only answers that differ from it are accepted.
+	 * @param timeout
+	 *            The maximal time to wait for a new answer in milliseconds
+	 * @return The new answer of the chat bot or <tt>null</tt> if there was no
+	 *         in time or the server experienced an error
+	 */
+	public String awaitMessage(final String id, final String since, final long timeout) {
+		String query = this.mServiceUrl + AWAIT_MESSAGE_REQUEST + ID_PARAMETER + id + PARAMETER_SEPARATOR
+				+ TIMEOUT_PARAMETER + timeout;
+		if (since != null) {
+			query += PARAMETER_SEPARATOR + SINCE_PARAMETER + encodeParameterValue(since);
+		}
+		try {
+			final List<String> content = getWebContent(query);
+			// If the answer is empty there was no new answer in time
+			if (content.isEmpty()) {
+				return null;
+			}
+
+			// The first line contains the message
+			final String firstLine = content.iterator().next();
+			if (firstLine.trim().isEmpty()) {
+				return null;
+			}
+			return StringEscapeUtils.unescapeHtml4(firstLine);
+		} catch (final IOException e) {
+			// Ignore the exception and return null
+			return null;
+		}
+	}
+
 	/**
 	 * Creates a new chat instance.
 	 * 
@@ -164,6 +296,30 @@ public final class BrainBridgeAPI {
 		}
 	}
 
+	/**
+	 * Opens a persistent connection to the instance with the given id. Messages
+	 * are posted over it and every new answer of the chat bot is handed to the
+	 * given listener as soon as it appears. This avoids establishing a new
+	 * connection per message. Close it by {@link BrainSocket#close()}.
+	 * 
+	 * @param id
+	 *            The id of the instance
+	 * @param listener
+	 *            The listener to hand new answers to
+	 * @return The opened socket or <tt>null</tt> if it could not be opened
+	 */
+	public BrainSocket openSocket(final String id, final IAnswerListener listener) {
+		try {
+			final URL serviceUrl = new URL(this.mServiceUrl);
+			final BrainSocket socket = new BrainSocket(serviceUrl.getHost(), serviceUrl.getPort(), id, listener);
+			socket.open();
+			return socket;
+		} catch (final IOException e) {
+			// Just ignore the exception and continue
+			return null;
+		}
+	}
+
 	/**
 	 * Posts the given message for the instance with the given id.
 	 * 
@@ -174,20 +330,7 @@ public final class BrainBridgeAPI {
 	 */
 	public void postMessage(final String id, final String message) {
 		// Remove chat commands from the message
-		final String adjustedMessage;
-		if (message.startsWith(COMMAND_INDICATOR)) {
-			adjustedMessage = message.substring(1);
-		} else {
-			adjustedMessage = message;
-		}
-
-		String encodedMessage;
-		try {
-			encodedMessage = URLEncoder.encode(adjustedMessage, TEXT_CHARSET.name());
-		} catch (final UnsupportedEncodingException e) {
-			// Re-throw new exception
-			throw new UnexpectedUnsupportedEncodingException(e);
-		}
+		final String encodedMessage = encodeParameterValue(removeCommandIndicator(message));
 		final String query = this.mServiceUrl + POST_MESSAGE_REQUEST + ID_PARAMETER + id + PARAMETER_SEPARATOR
 				+ MESSAGE_PARAMETER + encodedMessage;
 		try {
@@ -213,4 +356,23 @@ public final class BrainBridgeAPI {
 			// Just ignore the exception and continue
 		}
 	}
+
+	/**
+	 * Streams the answers of the chat bot for the instance with the given id to
+	 * the given listener. The server pushes every new answer as soon as it
+	 * appears. The returned reader is already started, stop it by
+	 * {@link AnswerStreamReader#stopReading()}.
+	 * 
+	 * @param id
+	 *            The id of the instance
+	 * @param listener
+	 *            The listener to hand new answers to
+	 * @return The reader of the stream
+	 */
+	public AnswerStreamReader streamAnswers(final String id, final IAnswerListener listener) {
+		final AnswerStreamReader reader = new AnswerStreamReader(
+				this.mServiceUrl + STREAM_REQUEST + ID_PARAMETER + id, listener);
+		reader.start();
+		return reader;
+	}
 }
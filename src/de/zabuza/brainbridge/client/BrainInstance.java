@@ -7,14 +7,6 @@ package de.zabuza.brainbridge.client;
  *
  */
 public final class BrainInstance {
-	/**
-	 * The time to wait until trying to access an answer in milliseconds.
-	 */
-	private static final long WAIT_FOR_ANSWER_INTERVAL = 1_000;
-	/**
-	 * The maximal time to wait for trying to access an answer in milliseconds.
-	 */
-	private static final long WAIT_FOR_ANSWER_MAXIMAL = 15_000;
 	/**
 	 * The client-side API to use for interaction with the server-side API.
 	 */
@@ -39,6 +31,19 @@ public final class BrainInstance {
 		this.mApi = api;
 	}
 
+	/**
+	 * Opens a persistent connection to this instance. Messages are posted
+	 * over it and every new answer of the chat bot is handed to the given
+	 * listener as soon as it appears. Close it by {@link BrainSocket#close()}.
+	 * 
+	 * @param listener
+	 *            The listener to hand new answers to
+	 * @return The opened socket or <tt>null</tt> if it could not be opened
+	 */
+	public BrainSocket openSocket(final IAnswerListener listener) {
+		return this.mApi.openSocket(this.mId, listener);
+	}
+
 	/**
 	 * Posts the given message to the chat and returns the answer of the chat
 	 * bot.
@@ -50,27 +55,9 @@ public final class BrainInstance {
 	 *         was exceeded.
 	 */
 	public String post(final String message) {
-		final String answerBefore = this.mApi.getLastMessage(this.mId);
-
-		this.mApi.postMessage(this.mId, message);
-
-		final long waitForAnswerStartingTime = System.currentTimeMillis();
-		while (true) {
-			final String answerAfter = this.mApi.getLastMessage(this.mId);
-			if (answerAfter != null && !answerAfter.equals(answerBefore)) {
-				return answerAfter;
-			}
-
-			try {
-				Thread.sleep(WAIT_FOR_ANSWER_INTERVAL);
-			} catch (final InterruptedException e) {
-				// Simply ignore the interrupt and continue
-			}
-			final long waitForAnswerCurrentTime = System.currentTimeMillis();
-			if (waitForAnswerCurrentTime - waitForAnswerStartingTime >= WAIT_FOR_ANSWER_MAXIMAL) {
-				return null;
-			}
-		}
+		// The server posts the message and returns the answer as soon as it
+		// appears
+		return this.mApi.ask(this.mId, message);
 	}
 
 	/**
@@ -80,4 +67,17 @@ public final class BrainInstance {
 	public void shutdown() {
 		this.mApi.shutdownInstance(this.mId);
 	}
+
+	/**
+	 * Streams the answers of the chat bot to the given listener as soon as
+	 * they appear. The returned reader is already started, stop it by
+	 * {@link AnswerStreamReader#stopReading()}.
+	 * 
+	 * @param listener
+	 *            The listener to hand new answers to
+	 * @return The reader of the stream
+	 */
+	public AnswerStreamReader streamAnswers(final IAnswerListener listener) {
+		return this.mApi.streamAnswers(this.mId, listener);
+	}
 }
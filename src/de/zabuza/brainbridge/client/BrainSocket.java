@@ -0,0 +1,402 @@
+package de.zabuza.brainbridge.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Persistent, full-duplex connection to a chat instance by the WebSocket
+ * protocol. Messages are posted over the connection and every new answer of
+ * the chat bot is handed to a listener as soon as it appears. Compared to
+ * single requests no connection needs to be established per message. Call
+ * {@link #open()} to connect and {@link #close()} to disconnect.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrainSocket extends Thread {
+	/**
+	 * The algorithm used to compute the accept key of a handshake.
+	 */
+	private static final String ACCEPT_KEY_ALGORITHM = "SHA-1";
+	/**
+	 * The globally unique identifier that is appended to the key in order to
+	 * compute the accept key of a handshake.
+	 */
+	private static final String ACCEPT_KEY_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	/**
+	 * The name of the header field that carries the accept key of a
+	 * handshake, in lower case.
+	 */
+	private static final String ACCEPT_KEY_HEADER = "sec-websocket-accept:";
+	/**
+	 * Status code of close frames for connections that are closed normally.
+	 */
+	private static final int CLOSE_NORMAL = 1000;
+	/**
+	 * Flag of the first byte of a frame that marks it as final fragment of a
+	 * message.
+	 */
+	private static final int FINAL_FRAGMENT_FLAG = 0x80;
+	/**
+	 * Flag of the second byte of a frame that marks its payload as masked.
+	 */
+	private static final int MASK_FLAG = 0x80;
+	/**
+	 * The maximal length of a handshake answer head in bytes.
+	 */
+	private static final int MAX_HANDSHAKE_HEAD_LENGTH = 8_192;
+	/**
+	 * The maximal length of a message of the server in bytes.
+	 */
+	private static final int MAX_MESSAGE_LENGTH = 1_048_576;
+	/**
+	 * Opcode of frames that close the connection.
+	 */
+	private static final int OPCODE_CLOSE = 0x8;
+	/**
+	 * Opcode of frames that continue a fragmented message.
+	 */
+	private static final int OPCODE_CONTINUATION = 0x0;
+	/**
+	 * Mask of the first byte of a frame that extracts the opcode.
+	 */
+	private static final int OPCODE_MASK = 0x0F;
+	/**
+	 * Opcode of frames that request a pong.
+	 */
+	private static final int OPCODE_PING = 0x9;
+	/**
+	 * Opcode of frames that answer a ping.
+	 */
+	private static final int OPCODE_PONG = 0xA;
+	/**
+	 * Opcode of frames that carry text.
+	 */
+	private static final int OPCODE_TEXT = 0x1;
+	/**
+	 * Payload length indicating that the actual length follows as unsigned
+	 * 16-bit number.
+	 */
+	private static final int PAYLOAD_LENGTH_16_BIT = 126;
+	/**
+	 * Payload length indicating that the actual length follows as unsigned
+	 * 64-bit number.
+	 */
+	private static final int PAYLOAD_LENGTH_64_BIT = 127;
+	/**
+	 * Mask of the second byte of a frame that extracts the payload length.
+	 */
+	private static final int PAYLOAD_LENGTH_MASK = 0x7F;
+	/**
+	 * The path of socket requests.
+	 */
+	private static final String SOCKET_REQUEST = "/socket?id=";
+	/**
+	 * The status code of answers that switch the protocol.
+	 */
+	private static final String STATUS_SWITCHING_PROTOCOLS = " 101 ";
+	/**
+	 * The charset to use for encoding and decoding text.
+	 */
+	private static final Charset TEXT_CHARSET = StandardCharsets.UTF_8;
+
+	/**
+	 * Computes the key that accepts a handshake which was requested with the
+	 * given key.
+	 * 
+	 * @param key
+	 *            The key of the handshake request
+	 * @return The expected accept key
+	 * @throws IOException
+	 *             If the SHA-1 algorithm is unexpectedly not supported
+	 */
+	private static String computeAcceptKey(final String key) throws IOException {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance(ACCEPT_KEY_ALGORITHM);
+			return Base64.getEncoder().encodeToString(digest.digest((key + ACCEPT_KEY_GUID).getBytes(TEXT_CHARSET)));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Internal flag whether the socket should run or not. If set to
+	 * <tt>false</tt> the socket will stop reading.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The host of the server.
+	 */
+	private final String mHost;
+	/**
+	 * The id of the instance to connect to.
+	 */
+	private final String mId;
+	/**
+	 * The stream to read frames of the server from or <tt>null</tt> if not
+	 * connected yet.
+	 */
+	private DataInputStream mInput;
+	/**
+	 * The listener to hand answers to.
+	 */
+	private final IAnswerListener mListener;
+	/**
+	 * The stream to write frames to or <tt>null</tt> if not connected yet.
+	 */
+	private OutputStream mOutput;
+	/**
+	 * The port of the server.
+	 */
+	private final int mPort;
+	/**
+	 * Random generator for keys and masks.
+	 */
+	private final Random mRandom;
+	/**
+	 * The connection to the server or <tt>null</tt> if not connected yet.
+	 */
+	private Socket mSocket;
+
+	/**
+	 * Creates a new socket that connects to the given instance. Call
+	 * {@link #open()} to connect and {@link #close()} to disconnect.
+	 * 
+	 * @param host
+	 *            The host of the server that offers the BrainBridge API
+	 * @param port
+	 *            The port of the server that offers the BrainBridge API
+	 * @param id
+	 *            The id of the instance to connect to
+	 * @param listener
+	 *            The listener to hand new answers to
+	 */
+	public BrainSocket(final String host, final int port, final String id, final IAnswerListener listener) {
+		super(BrainSocket.class.getSimpleName());
+		this.mHost = host;
+		this.mPort = port;
+		this.mId = id;
+		this.mListener = listener;
+		this.mRandom = new Random();
+		this.mDoRun = true;
+		this.mSocket = null;
+		this.mInput = null;
+		this.mOutput = null;
+		setDaemon(true);
+	}
+
+	/**
+	 * Closes the connection. The listener is notified that the stream of
+	 * answers ended.
+	 */
+	public void close() {
+		this.mDoRun = false;
+		try {
+			sendFrame(OPCODE_CLOSE, new byte[] { (byte) (CLOSE_NORMAL >>> 8), (byte) CLOSE_NORMAL });
+		} catch (final IOException e) {
+			// Just ignore the exception, the connection gets closed anyway
+		}
+		closeSocket();
+	}
+
+	/**
+	 * Connects to the instance and starts reading its answers.
+	 * 
+	 * @throws IOException
+	 *             If the connection could not be established or the server
+	 *             rejected it
+	 */
+	public void open() throws IOException {
+		this.mSocket = new Socket(this.mHost, this.mPort);
+		try {
+			this.mInput = new DataInputStream(new BufferedInputStream(this.mSocket.getInputStream()));
+			this.mOutput = new BufferedOutputStream(this.mSocket.getOutputStream());
+
+			final byte[] keyBytes = new byte[16];
+			this.mRandom.nextBytes(keyBytes);
+			final String key = Base64.getEncoder().encodeToString(keyBytes);
+			final String request = "GET " + SOCKET_REQUEST + this.mId + " HTTP/1.1\r\nHost: " + this.mHost + ":"
+					+ this.mPort + "\r\nUpgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Key: " + key
+					+ "\r\nSec-WebSocket-Version: 13\r\n\r\n";
+			this.mOutput.write(request.getBytes(TEXT_CHARSET));
+			this.mOutput.flush();
+
+			// Read the head byte by byte, frames may directly follow it
+			final ByteArrayOutputStream head = new ByteArrayOutputStream();
+			int lastBytes = 0;
+			while (lastBytes != 0x0D0A0D0A) {
+				final int nextByte = this.mInput.read();
+				if (nextByte == -1 || head.size() >= MAX_HANDSHAKE_HEAD_LENGTH) {
+					throw new IOException("Handshake was not answered");
+				}
+				head.write(nextByte);
+				lastBytes = (lastBytes << 8) | nextByte;
+			}
+
+			final String[] lines = new String(head.toByteArray(), TEXT_CHARSET).split("\r\n");
+			if (!lines[0].contains(STATUS_SWITCHING_PROTOCOLS)) {
+				throw new IOException("Handshake was rejected: " + lines[0]);
+			}
+			final String acceptKey = computeAcceptKey(key);
+			boolean isAccepted = false;
+			for (int i = 1; i < lines.length; i++) {
+				if (lines[i].toLowerCase().startsWith(ACCEPT_KEY_HEADER)
+						&& lines[i].substring(ACCEPT_KEY_HEADER.length()).trim().equals(acceptKey)) {
+					isAccepted = true;
+				}
+			}
+			if (!isAccepted) {
+				throw new IOException("Handshake was not accepted");
+			}
+		} catch (final IOException e) {
+			closeSocket();
+			throw e;
+		}
+
+		start();
+	}
+
+	/**
+	 * Posts the given message to the instance. The answer is handed to the
+	 * listener once it appears.
+	 * 
+	 * @param message
+	 *            The message to post
+	 * @return <tt>True</tt> if the message was sent, <tt>false</tt> if the
+	 *         connection is closed
+	 */
+	public boolean post(final String message) {
+		try {
+			sendFrame(OPCODE_TEXT, BrainBridgeAPI.removeCommandIndicator(message).getBytes(TEXT_CHARSET));
+			return true;
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			ByteArrayOutputStream message = null;
+			while (this.mDoRun) {
+				final int firstByte = this.mInput.readUnsignedByte();
+				final int secondByte = this.mInput.readUnsignedByte();
+				final boolean isFinalFragment = (firstByte & FINAL_FRAGMENT_FLAG) != 0;
+				final int opcode = firstByte & OPCODE_MASK;
+
+				// Frames of the server are not masked
+				long payloadLength = secondByte & PAYLOAD_LENGTH_MASK;
+				if (payloadLength == PAYLOAD_LENGTH_16_BIT) {
+					payloadLength = this.mInput.readUnsignedShort();
+				} else if (payloadLength == PAYLOAD_LENGTH_64_BIT) {
+					payloadLength = this.mInput.readLong();
+				}
+				if ((secondByte & MASK_FLAG) != 0 || payloadLength < 0 || payloadLength > MAX_MESSAGE_LENGTH) {
+					break;
+				}
+				final byte[] payload = new byte[(int) payloadLength];
+				this.mInput.readFully(payload);
+
+				if (opcode == OPCODE_CLOSE) {
+					break;
+				}
+				if (opcode == OPCODE_PING) {
+					sendFrame(OPCODE_PONG, payload);
+					continue;
+				}
+				if (opcode != OPCODE_TEXT && opcode != OPCODE_CONTINUATION) {
+					continue;
+				}
+
+				if (message == null) {
+					message = new ByteArrayOutputStream(payload.length);
+				}
+				message.write(payload, 0, payload.length);
+				if (isFinalFragment) {
+					final String answer = new String(message.toByteArray(), TEXT_CHARSET);
+					message = null;
+					this.mListener.answerReceived(StringEscapeUtils.unescapeHtml4(answer));
+				}
+			}
+		} catch (final IOException e) {
+			// Just ignore the exception, the stream ends
+		} finally {
+			this.mDoRun = false;
+			closeSocket();
+			this.mListener.streamEnded();
+		}
+	}
+
+	/**
+	 * Closes the connection to the server.
+	 */
+	private void closeSocket() {
+		if (this.mSocket == null) {
+			return;
+		}
+		try {
+			this.mSocket.close();
+		} catch (final IOException e) {
+			// Just ignore the exception and continue
+		}
+	}
+
+	/**
+	 * Sends an unfragmented and masked frame with the given opcode and payload
+	 * to the server. The method is thread-safe.
+	 * 
+	 * @param opcode
+	 *            The opcode of the frame
+	 * @param payload
+	 *            The payload of the frame
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private synchronized void sendFrame(final int opcode, final byte[] payload) throws IOException {
+		if (this.mOutput == null) {
+			throw new IOException("Socket is not connected");
+		}
+
+		this.mOutput.write(FINAL_FRAGMENT_FLAG | opcode);
+		if (payload.length < PAYLOAD_LENGTH_16_BIT) {
+			this.mOutput.write(MASK_FLAG | payload.length);
+		} else if (payload.length <= 0xFFFF) {
+			this.mOutput.write(MASK_FLAG | PAYLOAD_LENGTH_16_BIT);
+			this.mOutput.write(payload.length >>> 8);
+			this.mOutput.write(payload.length);
+		} else {
+			this.mOutput.write(MASK_FLAG | PAYLOAD_LENGTH_64_BIT);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				this.mOutput.write((int) ((long) payload.length >>> shift));
+			}
+		}
+
+		final byte[] mask = new byte[4];
+		this.mRandom.nextBytes(mask);
+		this.mOutput.write(mask);
+		final byte[] maskedPayload = new byte[payload.length];
+		for (int i = 0; i < payload.length; i++) {
+			maskedPayload[i] = (byte) (payload[i] ^ mask[i % 4]);
+		}
+		this.mOutput.write(maskedPayload);
+		this.mOutput.flush();
+	}
+}
@@ -0,0 +1,24 @@
+package de.zabuza.brainbridge.client;
+
+/**
+ * Interface for listeners that receive the answers of a chat instance as soon
+ * as they appear, by using an {@link AnswerStreamReader}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IAnswerListener {
+	/**
+	 * Called whenever a new answer of the chat bot appeared.
+	 * 
+	 * @param answer
+	 *            The new answer of the chat bot
+	 */
+	public void answerReceived(final String answer);
+
+	/**
+	 * Called once the stream of answers ended. Afterwards no further answers
+	 * are received.
+	 */
+	public void streamEnded();
+}
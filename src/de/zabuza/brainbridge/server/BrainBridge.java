@@ -1,9 +1,12 @@
 package de.zabuza.brainbridge.server;
 
 import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
@@ -19,12 +22,22 @@ import org.openqa.selenium.remote.DesiredCapabilities;
 import de.zabuza.brainbridge.server.logging.ILogger;
 import de.zabuza.brainbridge.server.logging.LoggerFactory;
 import de.zabuza.brainbridge.server.logging.LoggerUtil;
+import de.zabuza.brainbridge.server.service.BrowserChatBackend;
+import de.zabuza.brainbridge.server.service.BrowserRecyclingPolicy;
+import de.zabuza.brainbridge.server.service.ChatPageUtil;
+import de.zabuza.brainbridge.server.service.EChatBackend;
+import de.zabuza.brainbridge.server.service.EServiceMode;
+import de.zabuza.brainbridge.server.service.FakeChatBackend;
+import de.zabuza.brainbridge.server.service.HttpChatBackend;
+import de.zabuza.brainbridge.server.service.IChatBackend;
 import de.zabuza.brainbridge.server.service.Service;
 import de.zabuza.brainbridge.server.settings.IBrowserSettingsProvider;
 import de.zabuza.brainbridge.server.settings.SettingsController;
 import de.zabuza.brainbridge.server.tray.TrayManager;
 import de.zabuza.brainbridge.server.webdriver.EBrowser;
-import de.zabuza.brainbridge.server.webdriver.StaleRefresherWebDriver;
+import de.zabuza.brainbridge.server.webdriver.IWebDriverFactory;
+import de.zabuza.brainbridge.server.webdriver.ResourceBlockingUtil;
+import de.zabuza.brainbridge.server.webdriver.WebDriverFactory;
 
 /**
  * The entry class of the BrainBridge service. After creation and initialization
@@ -35,15 +48,72 @@ import de.zabuza.brainbridge.server.webdriver.StaleRefresherWebDriver;
  *
  */
 public final class BrainBridge {
+	/**
+	 * The default chat backend to use for the instances.
+	 */
+	private static final EChatBackend DEFAULT_BACKEND = EChatBackend.BROWSER;
+	/**
+	 * Whether browsers block resources not needed for chatting by default.
+	 */
+	private static final boolean DEFAULT_BLOCK_RESOURCES = true;
+	/**
+	 * The default amount of drivers the service distributes its instances
+	 * over.
+	 */
+	private static final int DEFAULT_DRIVER_POOL_SIZE = 1;
+	/**
+	 * The default amount of HTTP backends the service distributes its
+	 * instances over. Every backend serves its instances one call at a time,
+	 * so the pool is larger than for browsers, which are expensive.
+	 */
+	private static final int DEFAULT_HTTP_DRIVER_POOL_SIZE = 32;
+	/**
+	 * The default time in milliseconds after which kept alive connections
+	 * without activity get closed.
+	 */
+	private static final long DEFAULT_IDLE_TIMEOUT = 15_000L;
 	/**
 	 * The default port to use.
 	 */
 	private static final int DEFAULT_PORT = 8110;
+	/**
+	 * The default resident memory in megabytes after which a browser gets
+	 * replaced by a fresh one.
+	 */
+	private static final int DEFAULT_RECYCLE_AFTER_MEMORY = 2_048;
+	/**
+	 * The default uptime in minutes after which a browser gets replaced by a
+	 * fresh one.
+	 */
+	private static final int DEFAULT_RECYCLE_AFTER_MINUTES = 1_440;
+	/**
+	 * The default amount of served chat windows after which a browser gets
+	 * replaced by a fresh one.
+	 */
+	private static final int DEFAULT_RECYCLE_AFTER_WINDOWS = 1_000;
+	/**
+	 * The default mode the service uses for accepting clients and reading
+	 * their requests.
+	 */
+	private static final EServiceMode DEFAULT_SERVICE_MODE = EServiceMode.BLOCKING;
+	/**
+	 * The default amount of already initialized instances every driver keeps
+	 * in spare.
+	 */
+	private static final int DEFAULT_SPARE_INSTANCES = 2;
 
 	/**
 	 * The file path to the image of the icon to use.
 	 */
 	private static final String IMAGE_PATH_ICON = "res/img/icon.png";
+	/**
+	 * Factor to convert megabytes to bytes, if multiplied with.
+	 */
+	private static final long MEGABYTES_TO_BYTES = 1_024L * 1_024L;
+	/**
+	 * Factor to convert minutes to milliseconds, if multiplied with.
+	 */
+	private static final long MINUTES_TO_MILLIS = 60_000L;
 
 	/**
 	 * Starts the BrainBridge service and ensures that all thrown and not caught
@@ -79,10 +149,16 @@ public final class BrainBridge {
 	 * @param userProfile
 	 *            The name or the path to the user profile, depending on the
 	 *            browser, or <tt>null</tt> if not set
+	 * @param headless
+	 *            Whether the browser should run without a window, only
+	 *            supported by Firefox and Chrome
+	 * @param blockResources
+	 *            Whether the browser should block resources not needed for
+	 *            chatting, only supported by Firefox and Chrome
 	 * @return The capabilities to use or <tt>null</tt> if there are no
 	 */
 	private static DesiredCapabilities createCapabilities(final EBrowser browser, final String driverPath,
-			final String binaryPath, final String userProfile) {
+			final String binaryPath, final String userProfile, final boolean headless, final boolean blockResources) {
 		DesiredCapabilities capabilities = null;
 
 		if (browser == EBrowser.FIREFOX) {
@@ -109,6 +185,13 @@ public final class BrainBridge {
 				options.setProfile(profile);
 			}
 
+			if (headless) {
+				options.addArguments("-headless");
+			}
+			if (blockResources) {
+				ResourceBlockingUtil.blockResources(options, ChatPageUtil.CHAT_SERVICE);
+			}
+
 			options.addTo(capabilities);
 		} else if (browser == EBrowser.CHROME) {
 			capabilities = DesiredCapabilities.chrome();
@@ -129,6 +212,12 @@ public final class BrainBridge {
 				options.addArguments("user-data-dir=" + userProfile);
 			}
 			options.addArguments("disable-infobars");
+			if (headless) {
+				options.addArguments("headless", "disable-gpu");
+			}
+			if (blockResources) {
+				ResourceBlockingUtil.blockResources(options, ChatPageUtil.CHAT_SERVICE);
+			}
 
 			capabilities.setCapability(ChromeOptions.CAPABILITY, options);
 		} else if (browser == EBrowser.SAFARI) {
@@ -192,43 +281,19 @@ public final class BrainBridge {
 	}
 
 	/**
-	 * Creates a {@link WebDriver} that uses the given browser.
-	 * 
-	 * @param browser
-	 *            Browser to use for the driver
-	 * @param capabilities
-	 *            The desired capabilities for the driver or <tt>null</tt> if
-	 *            not used
-	 * @return Webdriver that uses the given browser
-	 */
-	private static WebDriver createWebDriver(final EBrowser browser, final DesiredCapabilities capabilities) {
-		WebDriver driver;
-		if (browser == EBrowser.FIREFOX) {
-			if (capabilities != null) {
-				driver = new FirefoxDriver(capabilities);
-			} else {
-				driver = new FirefoxDriver();
-			}
-		} else {
-			throw new IllegalArgumentException("The given browser is not supported: " + browser);
-		}
-
-		// Wrap a stale refresher driver around
-		driver = new StaleRefresherWebDriver(driver);
-
-		return driver;
-
-	}
-
-	/**
-	 * The driver to use for interaction with the browser.
+	 * The pool of drivers to use for interaction with the browser.
 	 */
-	private WebDriver mDriver;
+	private List<WebDriver> mDrivers;
 
 	/**
 	 * The image of the icon to use.
 	 */
 	private Image mIconImage;
+	/**
+	 * Whether the tool runs headless, i.e. without system tray and with
+	 * browsers that run without a window.
+	 */
+	private boolean mIsHeadless;
 	/**
 	 * The logger to use for logging.
 	 */
@@ -263,10 +328,14 @@ public final class BrainBridge {
 		this.mSettingsController = new SettingsController();
 		this.mLogger = LoggerFactory.getLogger();
 		this.mWasShutdown = false;
+		this.mIsHeadless = false;
 	}
 
 	/**
-	 * Initializes the service. Call this method prior to {@link #start()}.
+	 * Initializes the service. Call this method prior to {@link #start()}. If
+	 * the tool runs headless the icon image and the system tray are not used.
+	 * Unless set otherwise the tool runs headless if the environment does not
+	 * support a display.
 	 * 
 	 * @throws IOException
 	 *             If an I/O-Exception occurs when reading the icon image
@@ -282,6 +351,18 @@ public final class BrainBridge {
 
 		this.mSettingsController.initialize();
 
+		final Boolean headlessFromSettings = this.mSettingsController.getHeadless();
+		if (headlessFromSettings == null) {
+			this.mIsHeadless = GraphicsEnvironment.isHeadless();
+		} else {
+			this.mIsHeadless = headlessFromSettings.booleanValue();
+		}
+
+		if (this.mIsHeadless) {
+			this.mLogger.logInfo("Running headless, system tray is not used");
+			return;
+		}
+
 		this.mIconImage = ImageIO.read(new File(IMAGE_PATH_ICON));
 		this.mTrayManager = new TrayManager(this, this.mIconImage);
 		this.mTrayManager.addTrayIcon();
@@ -332,7 +413,50 @@ public final class BrainBridge {
 		} else {
 			port = portFromSettings.intValue();
 		}
-		startService(port, this.mSettingsController);
+
+		final EServiceMode serviceModeFromSettings = this.mSettingsController.getServiceMode();
+		final EServiceMode serviceMode;
+		if (serviceModeFromSettings == null) {
+			serviceMode = DEFAULT_SERVICE_MODE;
+		} else {
+			serviceMode = serviceModeFromSettings;
+		}
+
+		final Long idleTimeoutFromSettings = this.mSettingsController.getIdleTimeout();
+		final long idleTimeout;
+		if (idleTimeoutFromSettings == null) {
+			idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		} else {
+			idleTimeout = idleTimeoutFromSettings.longValue();
+		}
+
+		final Integer spareInstancesFromSettings = this.mSettingsController.getSpareInstances();
+		final int spareInstances;
+		if (spareInstancesFromSettings == null) {
+			spareInstances = DEFAULT_SPARE_INSTANCES;
+		} else {
+			spareInstances = spareInstancesFromSettings.intValue();
+		}
+
+		final EChatBackend backendFromSettings = this.mSettingsController.getBackend();
+		final EChatBackend backend;
+		if (backendFromSettings == null) {
+			backend = DEFAULT_BACKEND;
+		} else {
+			backend = backendFromSettings;
+		}
+
+		final Integer driverPoolSizeFromSettings = this.mSettingsController.getDriverPoolSize();
+		final int driverPoolSize;
+		if (driverPoolSizeFromSettings != null) {
+			driverPoolSize = driverPoolSizeFromSettings.intValue();
+		} else if (backend == EChatBackend.HTTP) {
+			driverPoolSize = DEFAULT_HTTP_DRIVER_POOL_SIZE;
+		} else {
+			driverPoolSize = DEFAULT_DRIVER_POOL_SIZE;
+		}
+		startService(port, serviceMode, idleTimeout, backend, driverPoolSize, spareInstances, this.mIsHeadless,
+				this.mSettingsController);
 	}
 
 	/**
@@ -341,31 +465,104 @@ public final class BrainBridge {
 	 * 
 	 * @param port
 	 *            The port to use for communication
+	 * @param serviceMode
+	 *            The mode the service uses for accepting clients and reading
+	 *            their requests
+	 * @param idleTimeout
+	 *            The time in milliseconds after which kept alive connections
+	 *            without activity get closed
+	 * @param backend
+	 *            The chat backend to use for the instances
+	 * @param driverPoolSize
+	 *            The amount of backends to distribute the instances over, each
+	 *            browser backend uses its own browser and each backend serves
+	 *            its instances one call at a time
+	 * @param spareInstances
+	 *            The amount of already initialized instances every backend
+	 *            keeps in spare
+	 * @param headless
+	 *            Whether the browsers should run without a window
 	 * @param browserSettingsProvider
 	 *            Object that provides settings about the browser to use for the
-	 *            tool
+	 *            tool, it is only used by the browser backend
 	 */
-	public void startService(final int port, final IBrowserSettingsProvider browserSettingsProvider) {
+	public void startService(final int port, final EServiceMode serviceMode, final long idleTimeout,
+			final EChatBackend backend, final int driverPoolSize, final int spareInstances, final boolean headless,
+			final IBrowserSettingsProvider browserSettingsProvider) {
 		try {
-			this.mLogger.logInfo("Starting service");
-
-			// Set options
-			final EBrowser browser = browserSettingsProvider.getBrowser();
-			final DesiredCapabilities capabilities = createCapabilities(browserSettingsProvider.getBrowser(),
-					browserSettingsProvider.getDriverForBrowser(browser), browserSettingsProvider.getBrowserBinary(),
-					browserSettingsProvider.getUserProfile());
-
-			// Create an instance of a web driver
-			this.mDriver = createWebDriver(browser, capabilities);
+			this.mLogger.logInfo("Starting service with backend " + backend);
+
+			// Create the pool of backends
+			final List<IChatBackend> backends = new ArrayList<>(driverPoolSize);
+			if (backend == EChatBackend.HTTP) {
+				for (int i = 0; i < driverPoolSize; i++) {
+					backends.add(new HttpChatBackend(ChatPageUtil.CHAT_SERVICE));
+				}
+			} else if (backend == EChatBackend.FAKE) {
+				for (int i = 0; i < driverPoolSize; i++) {
+					backends.add(new FakeChatBackend());
+				}
+			} else {
+				// Set options
+				final Boolean blockResourcesFromSettings = browserSettingsProvider.getBlockResources();
+				final boolean blockResources;
+				if (blockResourcesFromSettings == null) {
+					blockResources = DEFAULT_BLOCK_RESOURCES;
+				} else {
+					blockResources = blockResourcesFromSettings.booleanValue();
+				}
+				final EBrowser browser = browserSettingsProvider.getBrowser();
+				final DesiredCapabilities capabilities = createCapabilities(browserSettingsProvider.getBrowser(),
+						browserSettingsProvider.getDriverForBrowser(browser),
+						browserSettingsProvider.getBrowserBinary(), browserSettingsProvider.getUserProfile(), headless,
+						blockResources);
+
+				final IWebDriverFactory factory = new WebDriverFactory(browser, capabilities);
+
+				// Set the limits after which browsers are recycled
+				final Integer recycleAfterWindowsFromSettings = browserSettingsProvider.getRecycleAfterWindows();
+				final int recycleAfterWindows;
+				if (recycleAfterWindowsFromSettings == null) {
+					recycleAfterWindows = DEFAULT_RECYCLE_AFTER_WINDOWS;
+				} else {
+					recycleAfterWindows = recycleAfterWindowsFromSettings.intValue();
+				}
+				final Integer recycleAfterMinutesFromSettings = browserSettingsProvider.getRecycleAfterMinutes();
+				final int recycleAfterMinutes;
+				if (recycleAfterMinutesFromSettings == null) {
+					recycleAfterMinutes = DEFAULT_RECYCLE_AFTER_MINUTES;
+				} else {
+					recycleAfterMinutes = recycleAfterMinutesFromSettings.intValue();
+				}
+				final Integer recycleAfterMemoryFromSettings = browserSettingsProvider.getRecycleAfterMemory();
+				final int recycleAfterMemory;
+				if (recycleAfterMemoryFromSettings == null) {
+					recycleAfterMemory = DEFAULT_RECYCLE_AFTER_MEMORY;
+				} else {
+					recycleAfterMemory = recycleAfterMemoryFromSettings.intValue();
+				}
+				final BrowserRecyclingPolicy policy = new BrowserRecyclingPolicy(recycleAfterWindows,
+						recycleAfterMinutes * MINUTES_TO_MILLIS, recycleAfterMemory * MEGABYTES_TO_BYTES);
+
+				// Create the pool of web drivers
+				this.mDrivers = new ArrayList<>(driverPoolSize);
+				for (int i = 0; i < driverPoolSize; i++) {
+					final WebDriver driver = factory.createWebDriver();
+					this.mDrivers.add(driver);
+					backends.add(new BrowserChatBackend(driver, factory, policy));
+				}
+			}
 
 			// Create and start all services
-			this.mService = new Service(port, this.mDriver, this);
+			this.mService = new Service(port, serviceMode, idleTimeout, backends, spareInstances, this);
 			this.mService.start();
 		} catch (final Exception e) {
 			this.mLogger.logError("Error while starting service, shutting down: " + LoggerUtil.getStackTrace(e));
 			// Try to shutdown and free all resources
-			if (this.mDriver != null) {
-				this.mDriver.quit();
+			if (this.mDrivers != null) {
+				for (final WebDriver driver : this.mDrivers) {
+					driver.quit();
+				}
 			}
 
 			shutdown();
@@ -0,0 +1,43 @@
+package de.zabuza.brainbridge.server.exceptions;
+
+/**
+ * Exception that is thrown whenever a chat backend failed to execute an
+ * operation, for example because its browser or the chat service did not
+ * react as expected. It is the only error the service expects from backends,
+ * backends translate their specific errors into it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public class ChatBackendException extends IllegalStateException {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever a chat
+	 * backend failed to execute an operation.
+	 * 
+	 * @param message
+	 *            A description of the failed operation
+	 */
+	public ChatBackendException(final String message) {
+		super(message);
+	}
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever a chat
+	 * backend failed to execute an operation.
+	 * 
+	 * @param message
+	 *            A description of the failed operation
+	 * @param cause
+	 *            The exact cause that lead to this problem
+	 */
+	public ChatBackendException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,41 @@
+package de.zabuza.brainbridge.server.exceptions;
+
+/**
+ * Exception that is thrown whenever the communication with the chat service
+ * failed or its pages did not have the expected structure.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ChatProtocolException extends ChatBackendException {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever the chat
+	 * service answered not as expected.
+	 * 
+	 * @param message
+	 *            A description of what was not as expected
+	 */
+	public ChatProtocolException(final String message) {
+		super(message);
+	}
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever the
+	 * communication with the chat service failed.
+	 * 
+	 * @param message
+	 *            A description of the failed communication
+	 * @param cause
+	 *            The exact cause that lead to this problem
+	 */
+	public ChatProtocolException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,27 @@
+package de.zabuza.brainbridge.server.exceptions;
+
+/**
+ * Exception that is thrown whenever a brain instance could not be found.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class InstanceNotFoundException extends IllegalStateException {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever a brain
+	 * instance could not be found.
+	 * 
+	 * @param id
+	 *            The id of the instance that could not be found
+	 */
+	public InstanceNotFoundException(final String id) {
+		super("Instance not found: " + id);
+	}
+
+}
@@ -0,0 +1,31 @@
+package de.zabuza.brainbridge.server.exceptions;
+
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Exception that is thrown whenever trying to use an algorithm that is
+ * unsupported though it was expected to be supported.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class UnexpectedNoSuchAlgorithmException extends IllegalStateException {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates a new instance of this exception to be thrown whenever trying to
+	 * use an algorithm that is unsupported though it was expected to be
+	 * supported.
+	 * 
+	 * @param cause
+	 *            The exact cause that lead to this problem
+	 */
+	public UnexpectedNoSuchAlgorithmException(final NoSuchAlgorithmException cause) {
+		super(cause);
+	}
+
+}
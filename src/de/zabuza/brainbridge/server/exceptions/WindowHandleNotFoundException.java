@@ -6,11 +6,19 @@ package de.zabuza.brainbridge.server.exceptions;
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
  */
-public final class WindowHandleNotFoundException extends IllegalStateException {
+public final class WindowHandleNotFoundException extends ChatBackendException {
 
 	/**
 	 * Serial version UID.
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Creates a new instance of this exception to be thrown whenever a window
+	 * handle could not be found.
+	 */
+	public WindowHandleNotFoundException() {
+		super("The window handle could not be found");
+	}
+
 }
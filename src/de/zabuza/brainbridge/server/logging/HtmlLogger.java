@@ -18,7 +18,7 @@ import de.zabuza.brainbridge.server.exceptions.LoggerCanNotWriteException;
  * for humans. The output is in a log-file specified by {@link #FILEPATH}. The
  * logger automatically buffers queries, a write action can be enforced by using
  * {@link #flush()}. Note that the buffer is automatically flushed when calling
- * {@link #close()}.
+ * {@link #close()}. The logger is thread-safe.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
@@ -243,7 +243,7 @@ public final class HtmlLogger implements ILogger {
 	 * @see de.zabuza.beedlebot.logging.ILogger#close()
 	 */
 	@Override
-	public void close() {
+	public synchronized void close() {
 		flush();
 	}
 
@@ -253,7 +253,7 @@ public final class HtmlLogger implements ILogger {
 	 * @see de.zabuza.beedlebot.logging.ILogger#flush()
 	 */
 	@Override
-	public void flush() {
+	public synchronized void flush() {
 		if (this.mMessageBuffer.isEmpty()) {
 			return;
 		}
@@ -297,7 +297,7 @@ public final class HtmlLogger implements ILogger {
 	 * de.zabuza.beedlebot.logging.ELogLevel)
 	 */
 	@Override
-	public void log(final String message, final ELogLevel level) {
+	public synchronized void log(final String message, final ELogLevel level) {
 		// Do not log debug if not enabled
 		if (level == ELogLevel.DEBUG && !isDebugEnabled()) {
 			return;
@@ -20,7 +20,7 @@ public final class LoggerFactory {
 	 * @return The reference to a global logger instance that can be used for
 	 *         logging messages
 	 */
-	public static ILogger getLogger() {
+	public static synchronized ILogger getLogger() {
 		if (loggerInstance == null) {
 			loggerInstance = new HtmlLogger();
 		}
@@ -0,0 +1,214 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Watcher that parks the request of a client until a new answer of a brain
+ * instance is observed or the request times out. A new answer is an answer
+ * that arrives after the await started. If accepted, the answer present when
+ * the await starts is new too, given that it differs from the answer the
+ * client already knows. The client gets the new answer or, after the timeout,
+ * an answer without content.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AnswerAwait implements IAnswerWatcher {
+	/**
+	 * The time in milliseconds to wait additionally to the timeout in
+	 * {@link #awaitEnd()} before the await gets ended by the waiting thread
+	 * itself.
+	 */
+	private static final long END_GRACE_PERIOD = 1_000L;
+
+	/**
+	 * The request of the client that awaits the answer.
+	 */
+	private final ClientRequest mClientRequest;
+	/**
+	 * Timestamp of when the await expires in milliseconds.
+	 */
+	private final long mDeadline;
+	/**
+	 * Whether the client was already answered.
+	 */
+	private final AtomicBoolean mEnded;
+	/**
+	 * Signal that is released once the client was answered.
+	 */
+	private final CountDownLatch mEndSignal;
+	/**
+	 * The id of the instance whose answer is awaited.
+	 */
+	private final String mId;
+	/**
+	 * Whether the answer present when the await starts is accepted as new
+	 * answer if it differs from the answer the client already knows.
+	 */
+	private final boolean mIsCurrentAnswerAccepted;
+	/**
+	 * The service to answer the client with.
+	 */
+	private final Service mService;
+	/**
+	 * The answer the client already knows, as text without HTML entities, or
+	 * <tt>null</tt> if it knows no answer.
+	 */
+	private final String mSince;
+
+	/**
+	 * Creates a new await for the answer of the given instance.
+	 * 
+	 * @param id
+	 *            The id of the instance whose answer is awaited
+	 * @param since
+	 *            The answer the client already knows, as text without HTML
+	 *            entities, or <tt>null</tt> if it knows no answer
+	 * @param isCurrentAnswerAccepted
+	 *            Whether the answer present when the await starts is accepted
+	 *            as new answer if it differs from the answer the client already
+	 *            knows. Otherwise only answers that arrive afterwards are new.
+	 * @param timeout
+	 *            The maximal time to wait for a new answer in milliseconds
+	 * @param clientRequest
+	 *            The request of the client that awaits the answer
+	 * @param service
+	 *            The service to answer the client with
+	 */
+	public AnswerAwait(final String id, final String since, final boolean isCurrentAnswerAccepted, final long timeout,
+			final ClientRequest clientRequest, final Service service) {
+		this.mId = id;
+		this.mSince = since;
+		this.mIsCurrentAnswerAccepted = isCurrentAnswerAccepted;
+		this.mDeadline = System.currentTimeMillis() + timeout;
+		this.mClientRequest = clientRequest;
+		this.mService = service;
+		this.mEnded = new AtomicBoolean(false);
+		this.mEndSignal = new CountDownLatch(1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#answersObserved(java.
+	 * util.List)
+	 */
+	@Override
+	public boolean answersObserved(final List<String> answers) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+		final String answer = AnswerObserver.getLatestAnswer(answers);
+		if (answer == null) {
+			return false;
+		}
+		answer(answer, EHttpStatus.OK);
+		return true;
+	}
+
+	/**
+	 * Blocks until the client was answered. If that does not happen in time
+	 * the await gets ended by the calling thread.
+	 */
+	public void awaitEnd() {
+		final long timeUntilDeadline = this.mDeadline - System.currentTimeMillis();
+		try {
+			if (!this.mEndSignal.await(Math.max(0L, timeUntilDeadline) + END_GRACE_PERIOD, TimeUnit.MILLISECONDS)) {
+				end();
+			}
+		} catch (final InterruptedException e) {
+			end();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Cancels the await without answering the client, such that the caller
+	 * can answer it instead. Does nothing if the client was already answered.
+	 * 
+	 * @return <tt>True</tt> if the await was cancelled, <tt>false</tt> if the
+	 *         client was already answered
+	 */
+	public boolean cancel() {
+		if (!this.mEnded.compareAndSet(false, true)) {
+			return false;
+		}
+		this.mEndSignal.countDown();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#end()
+	 */
+	@Override
+	public void end() {
+		answer("", EHttpStatus.NO_CONTENT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#getInstanceId()
+	 */
+	@Override
+	public String getInstanceId() {
+		return this.mId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#isExpired(long)
+	 */
+	@Override
+	public boolean isExpired(final long timeNow) {
+		return timeNow >= this.mDeadline;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#watchStarted(java.
+	 * lang.String)
+	 */
+	@Override
+	public boolean watchStarted(final String latestAnswer) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+		if (!this.mIsCurrentAnswerAccepted || latestAnswer == null
+				|| (this.mSince != null && this.mSince.equals(StringEscapeUtils.unescapeHtml4(latestAnswer)))) {
+			return false;
+		}
+		answer(latestAnswer, EHttpStatus.OK);
+		return true;
+	}
+
+	/**
+	 * Answers the client, unless it was already answered.
+	 * 
+	 * @param answerText
+	 *            The answer to send
+	 * @param status
+	 *            The status of the answer to send
+	 */
+	private void answer(final String answerText, final EHttpStatus status) {
+		if (!this.mEnded.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.mService.answerClientRequest(answerText, status, this.mClientRequest);
+		} finally {
+			this.mEndSignal.countDown();
+		}
+	}
+}
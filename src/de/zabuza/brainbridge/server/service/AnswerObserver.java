@@ -0,0 +1,354 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+import de.zabuza.brainbridge.server.exceptions.InstanceNotFoundException;
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Thread that observes the answers of brain instances for registered
+ * {@link IAnswerWatcher}s. The answers of every watched instance are read once
+ * per check, regardless of how many watchers it has, and handed to all of
+ * them. When a watcher gets added, the answers that arrived before are handed
+ * to the other watchers of the instance, such that the new watcher only
+ * receives the answers that arrive afterwards. The observer only reads answers
+ * as long as there are watchers, it waits for new ones otherwise. Call
+ * {@link #start()} to start the observer and {@link #stopObserver()} to stop
+ * it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AnswerObserver extends Thread {
+	/**
+	 * The time in milliseconds between two reads of the answers of a watched
+	 * instance.
+	 */
+	private static final long CHECK_INTERVAL = 250L;
+
+	/**
+	 * Gets the latest answer of a read.
+	 * 
+	 * @param answers
+	 *            The answers of the read, as handed to
+	 *            {@link IAnswerWatcher#answersObserved(List)}
+	 * @return The latest answer of the read or <tt>null</tt> if it contains no
+	 *         answers
+	 */
+	public static String getLatestAnswer(final List<String> answers) {
+		if (answers.isEmpty()) {
+			return null;
+		}
+		return answers.get(answers.size() - 1);
+	}
+
+	/**
+	 * Internal flag whether the observer should run or not. If set to
+	 * <tt>false</tt> the observer will stop and end all watchers.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * Data-structure that maps ids to the driver shards their corresponding
+	 * brain instances are placed on.
+	 */
+	private final Map<String, DriverShard> mIdToShard;
+	/**
+	 * Data-structure that maps ids of watched instances to their watchers. It
+	 * is only accessed by the observer thread.
+	 */
+	private final Map<String, List<IAnswerWatcher>> mIdToWatchers;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * Queue of watchers that were registered and wait for getting added by the
+	 * observer thread, together with the futures that are completed once their
+	 * watching started.
+	 */
+	private final BlockingQueue<Entry<IAnswerWatcher, CompletableFuture<Void>>> mNewWatchers;
+	/**
+	 * Timestamp of when the next read of the latest answers is due in
+	 * milliseconds.
+	 */
+	private long mNextCheck;
+
+	/**
+	 * Creates a new observer for the given instances. Call {@link #start()} to
+	 * start the observer and {@link #stopObserver()} to stop it.
+	 * 
+	 * @param idToShard
+	 *            Data-structure that maps ids to the driver shards their
+	 *            corresponding brain instances are placed on
+	 */
+	public AnswerObserver(final Map<String, DriverShard> idToShard) {
+		super(AnswerObserver.class.getSimpleName());
+		this.mIdToShard = idToShard;
+		this.mIdToWatchers = new HashMap<>();
+		this.mNewWatchers = new LinkedBlockingQueue<>();
+		this.mLogger = LoggerFactory.getLogger();
+		this.mNextCheck = 0L;
+		this.mDoRun = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (this.mDoRun) {
+				final long timeUntilCheck = this.mNextCheck - System.currentTimeMillis();
+				if (!this.mIdToWatchers.isEmpty() && timeUntilCheck <= 0) {
+					checkAnswers();
+					this.mNextCheck = System.currentTimeMillis() + CHECK_INTERVAL;
+					continue;
+				}
+
+				// Wait for new watchers, without any there is nothing to check
+				final Entry<IAnswerWatcher, CompletableFuture<Void>> newWatcher;
+				if (this.mIdToWatchers.isEmpty()) {
+					newWatcher = this.mNewWatchers.take();
+				} else {
+					newWatcher = this.mNewWatchers.poll(timeUntilCheck, TimeUnit.MILLISECONDS);
+				}
+				if (newWatcher != null) {
+					try {
+						addWatcher(newWatcher.getKey());
+					} finally {
+						newWatcher.getValue().complete(null);
+					}
+				}
+			}
+		} catch (final InterruptedException e) {
+			// The observer was requested to stop while waiting
+		} catch (final Exception e) {
+			this.mLogger.logError("Error while observing answers, stopping: " + LoggerUtil.getStackTrace(e));
+		} finally {
+			this.mDoRun = false;
+			endAllWatchers();
+		}
+	}
+
+	/**
+	 * Requests the observer to stop. It will end all watchers. If the observer
+	 * currently waits it gets interrupted.
+	 */
+	public void stopObserver() {
+		this.mDoRun = false;
+		interrupt();
+	}
+
+	/**
+	 * Registers the given watcher. Once its watching started it will receive
+	 * the new answers of its instance until it is finished or ended. The
+	 * method is thread-safe.
+	 * 
+	 * @param watcher
+	 *            The watcher to register
+	 * @return The future that is completed once the watching started, or once
+	 *         the watcher was ended instead
+	 */
+	public CompletableFuture<Void> watch(final IAnswerWatcher watcher) {
+		final CompletableFuture<Void> started = new CompletableFuture<>();
+		if (!this.mDoRun) {
+			watcher.end();
+			started.complete(null);
+			return started;
+		}
+		final Entry<IAnswerWatcher, CompletableFuture<Void>> newWatcher = new SimpleImmutableEntry<>(watcher,
+				started);
+		this.mNewWatchers.add(newWatcher);
+
+		// The observer may have stopped meanwhile without ending the watcher
+		if (!this.mDoRun && this.mNewWatchers.remove(newWatcher)) {
+			watcher.end();
+			started.complete(null);
+		}
+		return started;
+	}
+
+	/**
+	 * Adds the given watcher to the watchers of its instance and starts its
+	 * watching. The answers that arrived before are read and handed to the
+	 * other watchers of the instance first.
+	 * 
+	 * @param watcher
+	 *            The watcher to add
+	 */
+	private void addWatcher(final IAnswerWatcher watcher) {
+		final String id = watcher.getInstanceId();
+		final DriverShard shard = this.mIdToShard.get(id);
+		if (shard == null) {
+			watcher.end();
+			return;
+		}
+
+		// Both reads are submitted at once, the shard executes them in order
+		final CompletableFuture<String> latestAnswerResult = shard.readAnswer(id);
+		final List<String> answers = awaitAnswers(id, shard.readAnswers(id));
+		if (answers == null) {
+			watcher.end();
+			return;
+		}
+
+		List<IAnswerWatcher> watchers = this.mIdToWatchers.get(id);
+		if (watchers == null) {
+			watchers = new ArrayList<>();
+			this.mIdToWatchers.put(id, watchers);
+		} else {
+			handAnswers(answers, watchers);
+		}
+
+		// The answers that arrived after the first read are part of the second
+		String latestAnswer = getLatestAnswer(answers);
+		if (latestAnswer == null) {
+			try {
+				latestAnswer = DriverShard.awaitResult(latestAnswerResult);
+			} catch (final InstanceNotFoundException | CancellationException e) {
+				// The instance was removed or its shard stopped meanwhile
+				watcher.end();
+				return;
+			} catch (final ChatBackendException e) {
+				// Log the error but continue, the watching starts without the
+				// latest answer
+				this.mLogger.logError(
+						"Error while reading the latest answer of " + id + ": " + LoggerUtil.getStackTrace(e));
+			}
+		}
+
+		if (!watcher.watchStarted(latestAnswer)) {
+			watchers.add(watcher);
+		}
+		if (watchers.isEmpty()) {
+			this.mIdToWatchers.remove(id);
+		}
+	}
+
+	/**
+	 * Waits for the given read of the answers of the instance with the given
+	 * id. Errors of the backend are logged, the next read may succeed.
+	 * 
+	 * @param id
+	 *            The id of the instance that is read
+	 * @param answersResult
+	 *            The future of the read
+	 * @return The answers that arrived since the previous read, empty if the
+	 *         read failed, or <tt>null</tt> if the instance does not exist
+	 *         anymore
+	 */
+	private List<String> awaitAnswers(final String id, final CompletableFuture<List<String>> answersResult) {
+		try {
+			return DriverShard.awaitResult(answersResult);
+		} catch (final InstanceNotFoundException | CancellationException e) {
+			// The instance was removed or its shard stopped
+			return null;
+		} catch (final ChatBackendException e) {
+			// Log the error but continue, the next read may succeed
+			this.mLogger.logError("Error while reading answers of " + id + ": " + LoggerUtil.getStackTrace(e));
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Reads the answers of every watched instance and hands them to its
+	 * watchers. Finished and expired watchers are removed.
+	 */
+	private void checkAnswers() {
+		// Submit all reads first such that different shards read in parallel
+		final Map<String, CompletableFuture<List<String>>> idToAnswersResult = new HashMap<>();
+		for (final String id : this.mIdToWatchers.keySet()) {
+			final DriverShard shard = this.mIdToShard.get(id);
+			if (shard != null) {
+				idToAnswersResult.put(id, shard.readAnswers(id));
+			}
+		}
+
+		final Iterator<Entry<String, List<IAnswerWatcher>>> entries = this.mIdToWatchers.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Entry<String, List<IAnswerWatcher>> entry = entries.next();
+			final List<IAnswerWatcher> watchers = entry.getValue();
+
+			List<String> answers = null;
+			final CompletableFuture<List<String>> answersResult = idToAnswersResult.get(entry.getKey());
+			if (answersResult != null) {
+				answers = awaitAnswers(entry.getKey(), answersResult);
+			}
+
+			if (answers == null) {
+				for (final IAnswerWatcher watcher : watchers) {
+					watcher.end();
+				}
+				entries.remove();
+				continue;
+			}
+
+			handAnswers(answers, watchers);
+			if (watchers.isEmpty()) {
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Ends all watchers, including the ones that were not added yet.
+	 */
+	private void endAllWatchers() {
+		for (final List<IAnswerWatcher> watchers : this.mIdToWatchers.values()) {
+			for (final IAnswerWatcher watcher : watchers) {
+				watcher.end();
+			}
+		}
+		this.mIdToWatchers.clear();
+
+		Entry<IAnswerWatcher, CompletableFuture<Void>> newWatcher = this.mNewWatchers.poll();
+		while (newWatcher != null) {
+			try {
+				newWatcher.getKey().end();
+			} finally {
+				newWatcher.getValue().complete(null);
+			}
+			newWatcher = this.mNewWatchers.poll();
+		}
+	}
+
+	/**
+	 * Hands the given answers to the given watchers of an instance. Finished
+	 * and expired watchers are removed.
+	 * 
+	 * @param answers
+	 *            The answers that arrived since the previous read
+	 * @param watchers
+	 *            The watchers to hand the answers to
+	 */
+	private void handAnswers(final List<String> answers, final List<IAnswerWatcher> watchers) {
+		final long timeNow = System.currentTimeMillis();
+		final Iterator<IAnswerWatcher> watcherIterator = watchers.iterator();
+		while (watcherIterator.hasNext()) {
+			final IAnswerWatcher watcher = watcherIterator.next();
+			if (watcher.answersObserved(answers)) {
+				watcherIterator.remove();
+			} else if (watcher.isExpired(timeNow)) {
+				watcher.end();
+				watcherIterator.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Watcher that streams every new answer of a brain instance to a client as
+ * Server-Sent Event. The head of the stream is sent once the watching
+ * started, such that every answer that arrives afterwards is sent. The stream
+ * ends if the client is gone, the instance does not exist anymore or the
+ * observer stops, the connection gets closed then.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class AnswerStream implements IAnswerWatcher {
+	/**
+	 * The time in milliseconds after which a heartbeat is sent if no answer
+	 * was sent meanwhile. It is used to detect clients that are gone.
+	 */
+	private static final long HEARTBEAT_INTERVAL = 15_000L;
+
+	/**
+	 * The request of the client that receives the stream.
+	 */
+	private final ClientRequest mClientRequest;
+	/**
+	 * Whether the stream already ended.
+	 */
+	private final AtomicBoolean mEnded;
+	/**
+	 * Signal that is released once the stream ended.
+	 */
+	private final CountDownLatch mEndSignal;
+	/**
+	 * The id of the instance whose answers are streamed.
+	 */
+	private final String mId;
+	/**
+	 * Timestamp of when something was last sent to the client in
+	 * milliseconds.
+	 */
+	private long mLastSent;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The service that finishes the request once the stream ended.
+	 */
+	private final Service mService;
+
+	/**
+	 * Creates a new stream of the answers of the given instance. Let the
+	 * {@link AnswerObserver} watch it to send the head of the stream.
+	 * 
+	 * @param id
+	 *            The id of the instance whose answers are streamed
+	 * @param clientRequest
+	 *            The request of the client that receives the stream
+	 * @param service
+	 *            The service that finishes the request once the stream ended
+	 */
+	public AnswerStream(final String id, final ClientRequest clientRequest, final Service service) {
+		this.mId = id;
+		this.mClientRequest = clientRequest;
+		this.mService = service;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mEnded = new AtomicBoolean(false);
+		this.mEndSignal = new CountDownLatch(1);
+		this.mLastSent = System.currentTimeMillis();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#answersObserved(java.
+	 * util.List)
+	 */
+	@Override
+	public boolean answersObserved(final List<String> answers) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+
+		final long timeNow = System.currentTimeMillis();
+		try {
+			if (!answers.isEmpty()) {
+				for (final String answer : answers) {
+					HttpUtil.sendEvent(answer, this.mClientRequest.getOutput());
+				}
+				this.mLastSent = timeNow;
+			} else if (timeNow - this.mLastSent >= HEARTBEAT_INTERVAL) {
+				HttpUtil.sendEventStreamHeartbeat(this.mClientRequest.getOutput());
+				this.mLastSent = timeNow;
+			}
+		} catch (final IOException e) {
+			// The client is gone
+			if (this.mLogger.isDebugEnabled()) {
+				this.mLogger.logDebug("Stream of " + this.mId + " ended: " + LoggerUtil.getStackTrace(e));
+			}
+			end();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Blocks until the stream ended.
+	 */
+	public void awaitEnd() {
+		try {
+			this.mEndSignal.await();
+		} catch (final InterruptedException e) {
+			end();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#end()
+	 */
+	@Override
+	public void end() {
+		if (!this.mEnded.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.mService.closeClientRequest(this.mClientRequest);
+		} finally {
+			this.mEndSignal.countDown();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#getInstanceId()
+	 */
+	@Override
+	public String getInstanceId() {
+		return this.mId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#isExpired(long)
+	 */
+	@Override
+	public boolean isExpired(final long timeNow) {
+		// Streams do not expire, they end once the client is gone
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#watchStarted(java.
+	 * lang.String)
+	 */
+	@Override
+	public boolean watchStarted(final String latestAnswer) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+
+		try {
+			HttpUtil.sendEventStreamHead(this.mClientRequest.getOutput());
+		} catch (final IOException e) {
+			// The client is gone
+			if (this.mLogger.isDebugEnabled()) {
+				this.mLogger.logDebug("Stream of " + this.mId + " ended: " + LoggerUtil.getStackTrace(e));
+			}
+			end();
+			return true;
+		}
+		this.mLastSent = System.currentTimeMillis();
+		this.mLogger.logInfo("Streaming answers of " + this.mId);
+		return false;
+	}
+}
@@ -1,78 +1,163 @@
 package de.zabuza.brainbridge.server.service;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
+import org.openqa.selenium.NoSuchFrameException;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
 import de.zabuza.brainbridge.server.webdriver.wait.CSSSelectorPresenceWait;
 import de.zabuza.brainbridge.server.webdriver.wait.FramePresenceWait;
 import de.zabuza.brainbridge.server.webdriver.wait.NamePresenceWait;
 
 /**
- * Instance for an active chat with brain. Once created use
- * {@link #initialize()} to initialize it. Afterwards get the assigned unique id
- * of the instance by {@link #getId()} and use the provided methods for chat
- * interaction. Always use {@link #shutdown()} when not using this instance
- * anymore.
+ * Instance for an active chat with brain that uses a window of a browser. Once
+ * created use {@link #initialize()} to initialize it. Afterwards get the
+ * assigned unique id of the instance by {@link #getId()} and use the provided
+ * methods for chat interaction. Always use {@link #shutdown()} when not using
+ * this instance anymore. Errors of the browser are thrown as
+ * {@link ChatBackendException}.<br>
+ * <br>
+ * If the driver can execute scripts, the instance installs a capture into the
+ * output frame which collects every new line in the page. Reading the latest
+ * answer then only transfers the lines that are new since the last read. The
+ * answers among them are kept until they are read by
+ * {@link #getLatestAnswers()}, such that no answer is missed if several arrive
+ * between two reads.<br>
+ * <br>
+ * The frames and the chat input are located once and reused until they are
+ * detected as staled, for example because the page was reloaded.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
  */
-public final class BrainInstance {
+public final class BrainInstance implements IBrainInstance {
 	/**
-	 * The pattern every answer from the chat service matches. The message
-	 * content can be accessed by group 1.
+	 * Script that drains the lines the capture in the output frame collected
+	 * since the last drain. It returns them as pairs of sequence number and
+	 * content, in order of their appearance, or <tt>null</tt> if the frame has
+	 * no capture, for example because it was reloaded.
 	 */
-	private static final String CHAT_ANSWER_PATTERN = "^.*<font color=\"(?:#\\d{3,6}|[A-Za-z]+)\"><b>Brain\\s*:\\s*<\\/b><\\/font>(.+)$";
+	private final static String DRAIN_CAPTURE_SCRIPT = "var capture = window.brainBridgeCapture;"
+			+ "if (!capture) { return null; }"
+			+ "capture.collect();"
+			+ "var lines = capture.lines;"
+			+ "capture.lines = [];"
+			+ "return lines;";
 	/**
-	 * Name of the frame that contains the chat input.
+	 * Script that installs a capture into the output frame. A mutation
+	 * observer appends every line that gets completed by a line separator,
+	 * together with an increasing sequence number, to a buffer in the page.
+	 * Lines that exist at installation are not captured, instead the script
+	 * returns the content of the latest one or <tt>null</tt> if there is no.
 	 */
-	private final static String CHAT_INPUT_FRAME_NAME = "frin";
+	private final static String INSTALL_CAPTURE_SCRIPT = "var separators = document.getElementsByTagName('br');"
+			+ "var lineBefore = function(index) {"
+			+ "  var line = document.createRange();"
+			+ "  if (index === 0) { line.setStart(document.body, 0); }"
+			+ "  else { line.setStartAfter(separators[index - 1]); }"
+			+ "  line.setEndBefore(separators[index]);"
+			+ "  var container = document.createElement('div');"
+			+ "  container.appendChild(line.cloneContents());"
+			+ "  return container.innerHTML;"
+			+ "};"
+			+ "if (!window.brainBridgeCapture) {"
+			+ "  var capture = { lines: [], processed: separators.length, sequence: 0 };"
+			+ "  capture.collect = function() {"
+			+ "    var amount = separators.length;"
+			+ "    for (var i = capture.processed; i < amount; i++) {"
+			+ "      capture.sequence++;"
+			+ "      capture.lines.push([capture.sequence, lineBefore(i)]);"
+			+ "    }"
+			+ "    capture.processed = amount;"
+			+ "  };"
+			+ "  new MutationObserver(capture.collect).observe(document.body, { childList: true, subtree: true });"
+			+ "  window.brainBridgeCapture = capture;"
+			+ "}"
+			+ "if (separators.length === 0) { return null; }"
+			+ "return lineBefore(separators.length - 1);";
 	/**
-	 * The name of the input element that allows inputting chat messages.
+	 * CSS selector of the anchor that logs in to the chat service.
 	 */
-	private static final String CHAT_INPUT_NAME = "editMsg";
+	private final static String LOGIN_ANCHOR = "a." + ChatPageUtil.LOGIN_ANCHOR_CLASS;
 	/**
-	 * Pattern that matches line separators in the chat content.
+	 * CSS selector of the anchor that logs out from the chat service.
 	 */
-	private static final String CHAT_LINE_SEPARATOR = "<br[\\s\\/]*>";
+	private final static String LOGOUT_ANCHOR = "a." + ChatPageUtil.LOGOUT_ANCHOR_CLASS;
 	/**
-	 * Name of the frame that contains the chat output.
+	 * The maximal amount of captured answers kept until they are read, older
+	 * ones are dropped.
 	 */
-	private final static String CHAT_OUTPUT_FRAME_NAME = "frout";
+	private final static int MAX_NEW_ANSWERS = 100;
+
 	/**
-	 * The URL to the chat service.
+	 * The driver to use for accessing browser contents.
 	 */
-	private final static String CHAT_SERVICE = "http://www.thebot.de/";
+	private final WebDriver mDriver;
 	/**
-	 * The pattern which matches the id argument in an URL. It can be accessed
-	 * by the group 1.
+	 * The executor to use for running scripts in the browser or <tt>null</tt>
+	 * if the driver does not support it.
 	 */
-	private static final String ID_PATTERN = "(?:^|.+&|.+\\?)id=([A-Za-z0-9]+)(?:$|&.+)";
+	private final JavascriptExecutor mExecutor;
 	/**
-	 * Class of the anchor that logs in to the chat service.
+	 * The sequence number of the latest line read from the capture of the
+	 * output frame, <tt>0</tt> if there is no.
 	 */
-	private final static String LOGIN_ANCHOR = "a.btnAls_Gast";
+	private long mLastSequence;
 	/**
-	 * Class of the anchor that logs out from the chat service.
+	 * The unique id assigned to this instance.
 	 */
-	private final static String LOGOUT_ANCHOR = "a.btnChat_beenden";
+	private String mId;
 	/**
-	 * The driver to use for accessing browser contents.
+	 * The input element of the chat or <tt>null</tt> if not located yet.
 	 */
-	private final WebDriver mDriver;
+	private WebElement mInput;
 	/**
-	 * The unique id assigned to this instance.
+	 * The element of the frame that contains the chat input or <tt>null</tt>
+	 * if not located yet.
 	 */
-	private String mId;
+	private WebElement mInputFrame;
 	/**
 	 * Timestamp of when the instance was last used in milliseconds.
 	 */
 	private long mLastUsage;
+	/**
+	 * The content of the latest line of the output frame or <tt>null</tt> if
+	 * there is no. Only used if the driver can execute scripts.
+	 */
+	private String mLatestLine;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The captured answers that arrived since the last read by
+	 * {@link #getLatestAnswers()}, in order of their arrival. Only used if the
+	 * driver can execute scripts.
+	 */
+	private final List<String> mNewAnswers;
+	/**
+	 * The element of the frame that contains the chat output or <tt>null</tt>
+	 * if not located yet.
+	 */
+	private WebElement mOutputFrame;
+	/**
+	 * The answer that was returned last by {@link #getLatestAnswers()} or
+	 * <tt>null</tt> if there was no. Only used if the driver can not execute
+	 * scripts, answers can not be told apart then.
+	 */
+	private String mReportedAnswer;
 	/**
 	 * The unique window handle assigned to this instance.
 	 */
@@ -87,62 +172,102 @@ public final class BrainInstance {
 	 * 
 	 * @param driver
 	 *            The driver to use for accessing browser contents
+	 * @param executor
+	 *            The executor to use for running scripts in the browser, the
+	 *            given driver or the raw driver behind it, or <tt>null</tt> if
+	 *            not supported. Without it answers are read by parsing the whole
+	 *            page source.
 	 * @param windowHandle
 	 *            The unique window handle assigned to this instance
 	 */
-	public BrainInstance(final WebDriver driver, final String windowHandle) {
+	public BrainInstance(final WebDriver driver, final JavascriptExecutor executor, final String windowHandle) {
 		this.mDriver = driver;
+		this.mExecutor = executor;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mLastSequence = 0L;
+		this.mLatestLine = null;
+		this.mNewAnswers = new ArrayList<>();
 		this.mWindowHandle = windowHandle;
 		this.mId = null;
+		this.mInput = null;
+		this.mInputFrame = null;
+		this.mOutputFrame = null;
+		this.mReportedAnswer = null;
 
 		updateLastUsage();
 	}
 
-	/**
-	 * Gets the unique id assigned to this chat instance.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @return The unique id assigned to this chat instance or <tt>null</tt> if
-	 *         not yet initialized with {@link #initialize()}
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getId()
 	 */
+	@Override
 	public String getId() {
 		return this.mId;
 	}
 
-	/**
-	 * Gets the timestamp of when the instance was last used in milliseconds.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @return The timestamp of when the instance was last used in milliseconds
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getLastUsage()
 	 */
+	@Override
 	public long getLastUsage() {
 		return this.mLastUsage;
 	}
 
-	/**
-	 * Gets the latest answer of brain in the chat.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @return The latest answer of brain in the chat or <tt>null</tt> if there
-	 *         is no
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswer()
 	 */
+	@Override
 	public String getLatestAnswer() {
 		updateLastUsage();
-		switchToWindow();
-		switchToFrame(CHAT_OUTPUT_FRAME_NAME);
-		final String pageContent = this.mDriver.getPageSource();
+		try {
+			switchToWindow();
+			this.mOutputFrame = switchToFrame(this.mOutputFrame, ChatPageUtil.CHAT_OUTPUT_FRAME_NAME);
+			if (this.mExecutor == null) {
+				return ChatPageUtil.extractLatestAnswer(this.mDriver.getPageSource());
+			}
 
-		final String[] lines = pageContent.split(CHAT_LINE_SEPARATOR);
-		// Latest message is always the second to last entry
-		if (lines.length < 2) {
-			return null;
+			readCapturedLines();
+			if (this.mLatestLine == null) {
+				return null;
+			}
+			return ChatPageUtil.extractAnswer(this.mLatestLine);
+		} catch (final WebDriverException e) {
+			throw new ChatBackendException("The browser failed while reading the latest answer", e);
 		}
-		final String latestMessage = lines[lines.length - 2].trim();
+	}
 
-		final Pattern answerPattern = Pattern.compile(CHAT_ANSWER_PATTERN);
-		final Matcher answerMatcher = answerPattern.matcher(latestMessage);
-		if (answerMatcher.matches()) {
-			return answerMatcher.group(1);
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswers()
+	 */
+	@Override
+	public List<String> getLatestAnswers() {
+		final String latestAnswer = getLatestAnswer();
+		if (this.mExecutor == null) {
+			// Without a capture an answer is only new if it differs from the
+			// previous one
+			if (latestAnswer == null || latestAnswer.equals(this.mReportedAnswer)) {
+				return Collections.emptyList();
+			}
+			this.mReportedAnswer = latestAnswer;
+			return Collections.singletonList(latestAnswer);
 		}
 
-		return null;
+		if (this.mNewAnswers.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final List<String> newAnswers = new ArrayList<>(this.mNewAnswers);
+		this.mNewAnswers.clear();
+		return newAnswers;
 	}
 
 	/**
@@ -154,84 +279,236 @@ public final class BrainInstance {
 		return this.mWindowHandle;
 	}
 
-	/**
-	 * Initializes the instance. Call this method prior to chat interaction.
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#initialize()
 	 */
+	@Override
 	public void initialize() {
-		switchToWindow();
-		this.mDriver.get(CHAT_SERVICE);
-		final WebElement loginAnchor = new CSSSelectorPresenceWait(this.mDriver, LOGIN_ANCHOR).waitUntilCondition();
 		try {
-			loginAnchor.click();
-		} catch (final TimeoutException e) {
-			// Ignore the error as it comes from the aborted page load
-		}
+			switchToWindow();
+			this.mDriver.get(ChatPageUtil.CHAT_SERVICE);
+			final WebElement loginAnchor = new CSSSelectorPresenceWait(this.mDriver, LOGIN_ANCHOR)
+					.waitUntilCondition();
+			try {
+				loginAnchor.click();
+			} catch (final TimeoutException e) {
+				// Ignore the error as it comes from the aborted page load
+			}
 
-		final WebElement outputFrame = new FramePresenceWait(this.mDriver, CHAT_OUTPUT_FRAME_NAME).waitUntilCondition();
-		final String frameSrc = outputFrame.getAttribute("src");
+			this.mOutputFrame = new FramePresenceWait(this.mDriver, ChatPageUtil.CHAT_OUTPUT_FRAME_NAME)
+					.waitUntilCondition();
+			this.mInputFrame = null;
+			this.mInput = null;
+			this.mId = ChatPageUtil.extractId(this.mOutputFrame.getAttribute("src"));
 
-		final Pattern idPattern = Pattern.compile(ID_PATTERN);
-		final Matcher idMatcher = idPattern.matcher(frameSrc);
-		if (idMatcher.matches()) {
-			this.mId = idMatcher.group(1);
+			if (this.mExecutor != null) {
+				this.mOutputFrame = switchToFrame(this.mOutputFrame, ChatPageUtil.CHAT_OUTPUT_FRAME_NAME);
+				installCapture();
+			}
+		} catch (final WebDriverException e) {
+			throw new ChatBackendException("The browser failed while initializing the instance", e);
 		}
 	}
 
-	/**
-	 * Posts the given message to the brain chat.
+	/*
+	 * (non-Javadoc)
 	 * 
-	 * @param message
-	 *            The message to post
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#postMessage(String)
 	 */
+	@Override
 	public void postMessage(final String message) {
 		updateLastUsage();
-		switchToWindow();
-		switchToFrame(CHAT_INPUT_FRAME_NAME);
+		try {
+			switchToWindow();
+			switchToInputFrame();
 
-		final WebElement input = new NamePresenceWait(this.mDriver, CHAT_INPUT_NAME).waitUntilCondition();
-		input.sendKeys(message);
-		input.sendKeys(Keys.ENTER);
+			if (this.mInput == null) {
+				this.mInput = locateInput();
+			}
+			try {
+				this.mInput.sendKeys(message, Keys.ENTER);
+			} catch (final StaleElementReferenceException e) {
+				// The frame was reloaded, locate the input again
+				this.mInput = locateInput();
+				this.mInput.sendKeys(message, Keys.ENTER);
+			}
+		} catch (final WebDriverException e) {
+			throw new ChatBackendException("The browser failed while posting a message", e);
+		}
 	}
 
-	/**
-	 * Shuts this instance down and frees all used resources.
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#shutdown()
 	 */
+	@Override
 	public void shutdown() {
-		switchToWindow();
-		switchToFrame(CHAT_INPUT_FRAME_NAME);
+		try {
+			switchToWindow();
+			switchToInputFrame();
+
+			WebElement logoutAnchor = findPresentElement(By.cssSelector(LOGOUT_ANCHOR));
+			if (logoutAnchor == null) {
+				logoutAnchor = new CSSSelectorPresenceWait(this.mDriver, LOGOUT_ANCHOR).waitUntilCondition();
+			}
+			logoutAnchor.click();
+
+			this.mDriver.close();
+			this.mInput = null;
+			this.mInputFrame = null;
+			this.mOutputFrame = null;
+		} catch (final WebDriverException e) {
+			throw new ChatBackendException("The browser failed while shutting the instance down", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#updateLastUsage()
+	 */
+	@Override
+	public void updateLastUsage() {
+		this.mLastUsage = System.currentTimeMillis();
+	}
+
+	/**
+	 * Finds the first element that matches the given locator in the current
+	 * frame without waiting for it to appear.
+	 * 
+	 * @param by
+	 *            The locator of the element
+	 * @return The first matching element or <tt>null</tt> if there is no
+	 */
+	private WebElement findPresentElement(final By by) {
+		final List<WebElement> elements = this.mDriver.findElements(by);
+		if (elements.isEmpty()) {
+			return null;
+		}
+		return elements.get(0);
+	}
+
+	/**
+	 * Installs a capture into the output frame if it has none yet and sets the
+	 * latest line to the latest one of the frame. The output frame must be the
+	 * current frame.
+	 */
+	private void installCapture() {
+		final Object latestLine = this.mExecutor.executeScript(INSTALL_CAPTURE_SCRIPT);
+		if (latestLine instanceof String) {
+			this.mLatestLine = (String) latestLine;
+		} else {
+			this.mLatestLine = null;
+		}
+		this.mLastSequence = 0L;
+	}
+
+	/**
+	 * Locates the chat input in the current frame. Only waits for it to appear
+	 * if it is not present already.
+	 * 
+	 * @return The chat input
+	 */
+	private WebElement locateInput() {
+		final WebElement input = findPresentElement(By.name(ChatPageUtil.CHAT_INPUT_NAME));
+		if (input != null) {
+			return input;
+		}
+		return new NamePresenceWait(this.mDriver, ChatPageUtil.CHAT_INPUT_NAME).waitUntilCondition();
+	}
+
+	/**
+	 * Reads the lines that were captured in the output frame since the last
+	 * read, updates the latest line and keeps the answers among them. If the
+	 * frame has no capture, for example because it was reloaded, a new capture
+	 * is installed. The output frame must be the current frame.
+	 */
+	private void readCapturedLines() {
+		final Object capturedLines = this.mExecutor.executeScript(DRAIN_CAPTURE_SCRIPT);
+		if (!(capturedLines instanceof List)) {
+			installCapture();
+			return;
+		}
 
-		final WebElement logoutAnchor = new CSSSelectorPresenceWait(this.mDriver, LOGOUT_ANCHOR).waitUntilCondition();
-		logoutAnchor.click();
+		for (final Object capturedLine : (List<?>) capturedLines) {
+			final List<?> sequenceAndContent = (List<?>) capturedLine;
+			final long sequence = ((Number) sequenceAndContent.get(0)).longValue();
+			if (sequence <= this.mLastSequence) {
+				// The line was already read
+				continue;
+			}
+			this.mLastSequence = sequence;
+			this.mLatestLine = (String) sequenceAndContent.get(1);
 
-		this.mDriver.close();
+			final String answer = ChatPageUtil.extractAnswer(this.mLatestLine);
+			if (answer == null) {
+				continue;
+			}
+			if (this.mNewAnswers.size() >= MAX_NEW_ANSWERS) {
+				if (this.mLogger.isDebugEnabled()) {
+					this.mLogger.logDebug("Dropping an unread answer of " + this.mId);
+				}
+				this.mNewAnswers.remove(0);
+			}
+			this.mNewAnswers.add(answer);
+		}
 	}
 
 	/**
-	 * Switches the context of the driver instance to the frame with the given
-	 * name. The frame is always searched in the context of the whole document
-	 * instead of the current set context.
+	 * Switches the context of the driver instance to the given frame. The frame
+	 * is always searched in the context of the whole document instead of the
+	 * current set context. If the frame element is not given or staled, the
+	 * frame is located by its name.
 	 * 
+	 * @param frame
+	 *            The element of the frame to switch to or <tt>null</tt> if not
+	 *            located yet
 	 * @param name
 	 *            The name of the frame to switch to
+	 * @return The element of the frame that was switched to
 	 */
-	private void switchToFrame(final String name) {
-		this.mDriver.switchTo().parentFrame();
-		this.mDriver.switchTo().frame(name);
+	private WebElement switchToFrame(final WebElement frame, final String name) {
+		this.mDriver.switchTo().defaultContent();
+		if (frame != null) {
+			try {
+				this.mDriver.switchTo().frame(frame);
+				return frame;
+			} catch (final StaleElementReferenceException | NoSuchFrameException e) {
+				// The page was reloaded, locate the frame again
+				this.mDriver.switchTo().defaultContent();
+			}
+		}
+
+		WebElement locatedFrame = findPresentElement(By.name(name));
+		if (locatedFrame == null) {
+			locatedFrame = new FramePresenceWait(this.mDriver, name).waitUntilCondition();
+		}
+		this.mDriver.switchTo().frame(locatedFrame);
+		return locatedFrame;
 	}
 
 	/**
-	 * Switches the driver instance to the window of this chat instance.
+	 * Switches the context of the driver instance to the frame that contains
+	 * the chat input. The input is located again if the frame was.
 	 */
-	private void switchToWindow() {
-		this.mDriver.switchTo().window(this.mWindowHandle);
+	private void switchToInputFrame() {
+		final WebElement inputFrame = switchToFrame(this.mInputFrame, ChatPageUtil.CHAT_INPUT_FRAME_NAME);
+		if (inputFrame != this.mInputFrame) {
+			this.mInputFrame = inputFrame;
+			this.mInput = null;
+		}
 	}
 
 	/**
-	 * Updates the value of the last usage timestamp by setting it to the
-	 * current time.
+	 * Switches the driver instance to the window of this chat instance.
 	 */
-	private void updateLastUsage() {
-		this.mLastUsage = System.currentTimeMillis();
+	private void switchToWindow() {
+		this.mDriver.switchTo().window(this.mWindowHandle);
 	}
 
 }
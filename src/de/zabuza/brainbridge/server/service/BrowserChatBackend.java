@@ -0,0 +1,377 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+import de.zabuza.brainbridge.server.exceptions.DriverNewWindowUnsupportedException;
+import de.zabuza.brainbridge.server.exceptions.WindowHandleNotFoundException;
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+import de.zabuza.brainbridge.server.webdriver.IWebDriverFactory;
+import de.zabuza.brainbridge.server.webdriver.IWrapsWebDriver;
+
+/**
+ * Backend that drives a browser with Selenium. Every instance uses its own
+ * window of the browser, new windows are opened from a blank control window.
+ * Errors of the browser are thrown as {@link ChatBackendException}.<br>
+ * <br>
+ * If created with a factory the browser is recycled once it crosses the
+ * limits of a {@link BrowserRecyclingPolicy}. A fresh browser is started in
+ * the background and serves all new instances once it is ready. The old
+ * browser is retired, it keeps serving its remaining instances and is quit
+ * after all of their windows were closed. A crashed browser is replaced the
+ * same way by {@link #recover()}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrowserChatBackend implements IChatBackend {
+	/**
+	 * Time in milliseconds after which a retired browser is quit even if
+	 * instances still use it. The instances are handed back to get created
+	 * again on the current browser.
+	 */
+	private final static long DRAIN_TIMEOUT = 3_600_000L;
+	/**
+	 * The maximal amount of instances that can use the browser at the same
+	 * time.
+	 */
+	private final static int MAX_INSTANCES = 20;
+
+	/**
+	 * The browser that serves new instances.
+	 */
+	private BrowserDriver mBrowser;
+	/**
+	 * The factory to create fresh browsers with or <tt>null</tt> if browsers
+	 * are not recycled.
+	 */
+	private final IWebDriverFactory mFactory;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The policy that decides when browsers are recycled or <tt>null</tt> if
+	 * browsers are not recycled.
+	 */
+	private final BrowserRecyclingPolicy mPolicy;
+	/**
+	 * Browsers that do not serve new instances anymore but still have
+	 * instances using them.
+	 */
+	private final List<BrowserDriver> mRetiredBrowsers;
+	/**
+	 * The starter of the browser that replaces the current one or
+	 * <tt>null</tt> if no replacement is being started.
+	 */
+	private BrowserStarter mStarter;
+
+	/**
+	 * Creates a new backend that drives the browser of the given driver. The
+	 * browser is never recycled. Call {@link #initialize()} before using it.
+	 * 
+	 * @param driver
+	 *            The driver to use for accessing browsers contents
+	 */
+	public BrowserChatBackend(final WebDriver driver) {
+		this(driver, null, null);
+	}
+
+	/**
+	 * Creates a new backend that drives the browser of the given driver. The
+	 * browser is replaced by one of the given factory once it crosses the
+	 * limits of the given policy. Call {@link #initialize()} before using it.
+	 * 
+	 * @param driver
+	 *            The driver to use for accessing browsers contents
+	 * @param factory
+	 *            The factory to create fresh browsers with or <tt>null</tt> if
+	 *            browsers should not be recycled
+	 * @param policy
+	 *            The policy that decides when browsers are recycled or
+	 *            <tt>null</tt> if browsers should not be recycled
+	 */
+	public BrowserChatBackend(final WebDriver driver, final IWebDriverFactory factory,
+			final BrowserRecyclingPolicy policy) {
+		this.mBrowser = new BrowserDriver(driver);
+		this.mFactory = factory;
+		this.mPolicy = policy;
+		this.mRetiredBrowsers = new ArrayList<>();
+		this.mStarter = null;
+		this.mLogger = LoggerFactory.getLogger();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#createInstance()
+	 */
+	@Override
+	public IBrainInstance createInstance() throws ChatBackendException {
+		// The memory is only checked by maintenance, reading it is expensive
+		recycleIfNeeded(false);
+
+		final WebDriver driver = this.mBrowser.getDriver();
+		// Create a new blank window
+		WebDriver rawDriver = driver;
+		while (rawDriver instanceof IWrapsWebDriver) {
+			rawDriver = ((IWrapsWebDriver) rawDriver).getRawDriver();
+		}
+
+		if (!(rawDriver instanceof JavascriptExecutor)) {
+			throw new DriverNewWindowUnsupportedException(rawDriver);
+		}
+		// Prefer the driver itself, wrappers that track its context must see
+		// the scripts as well
+		final JavascriptExecutor executor;
+		if (driver instanceof JavascriptExecutor) {
+			executor = (JavascriptExecutor) driver;
+		} else {
+			executor = (JavascriptExecutor) rawDriver;
+		}
+		String windowHandle = null;
+		try {
+			final Set<String> windowHandlesBefore = driver.getWindowHandles();
+			driver.switchTo().window(this.mBrowser.getControlWindowHandle());
+			executor.executeScript("window.open();");
+
+			// Find the window, it is the only one that did not exist before
+			for (final String windowHandleCandidate : driver.getWindowHandles()) {
+				if (!windowHandlesBefore.contains(windowHandleCandidate)) {
+					windowHandle = windowHandleCandidate;
+					break;
+				}
+			}
+		} catch (final WebDriverException e) {
+			throw new ChatBackendException("The browser failed while opening a window", e);
+		}
+
+		if (windowHandle == null) {
+			throw new WindowHandleNotFoundException();
+		}
+		final BrainInstance instance = new BrainInstance(driver, executor, windowHandle);
+		this.mBrowser.recordServedInstance(instance);
+		return instance;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#getMaxInstances()
+	 */
+	@Override
+	public int getMaxInstances() {
+		return MAX_INSTANCES;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#initialize()
+	 */
+	@Override
+	public void initialize() {
+		this.mBrowser.initialize();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#isHealthy()
+	 */
+	@Override
+	public boolean isHealthy() {
+		try {
+			// Fails if the browser crashed or the driver lost connection to it
+			this.mBrowser.getDriver().getWindowHandles();
+			return true;
+		} catch (final WebDriverException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#maintain()
+	 */
+	@Override
+	public Collection<IBrainInstance> maintain() {
+		final List<IBrainInstance> invalidInstances = new ArrayList<>();
+		try {
+			this.mBrowser.removeClosedInstances();
+		} catch (final WebDriverException e) {
+			// The browser crashed, the health check detects it
+		}
+
+		// Quit retired browsers whose instances are gone or did not go in time
+		final Iterator<BrowserDriver> retiredBrowsers = this.mRetiredBrowsers.iterator();
+		while (retiredBrowsers.hasNext()) {
+			final BrowserDriver retiredBrowser = retiredBrowsers.next();
+			try {
+				if (!retiredBrowser.isDrained()) {
+					if (retiredBrowser.getRetiredTime() < DRAIN_TIMEOUT) {
+						continue;
+					}
+					// The instances are created again on the current browser
+					this.mLogger.logInfo("Retired browser did not drain in time, moving its instances: "
+							+ retiredBrowser);
+					invalidInstances.addAll(retiredBrowser.getInstances());
+				}
+			} catch (final WebDriverException e) {
+				// The browser crashed, its instances need to be created again
+				this.mLogger.logError("Retired browser crashed: " + retiredBrowser);
+				invalidInstances.addAll(retiredBrowser.getInstances());
+			}
+
+			retiredBrowsers.remove();
+			this.mLogger.logInfo("Quitting retired browser: " + retiredBrowser);
+			quitQuietly(retiredBrowser);
+		}
+
+		recycleIfNeeded(true);
+
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Browser: " + this.mBrowser + ", retired browsers: " + this.mRetiredBrowsers.size());
+		}
+		return invalidInstances;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#quit()
+	 */
+	@Override
+	public void quit() {
+		if (this.mStarter != null) {
+			// Wait for the replacement, it would be left running otherwise
+			try {
+				quitQuietly(this.mStarter.getBrowser().get());
+			} catch (final ExecutionException e) {
+				// The replacement did not start, nothing to quit
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.mStarter = null;
+		}
+		for (final BrowserDriver retiredBrowser : this.mRetiredBrowsers) {
+			quitQuietly(retiredBrowser);
+		}
+		this.mRetiredBrowsers.clear();
+
+		this.mBrowser.quit();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#recover()
+	 */
+	@Override
+	public void recover() throws ChatBackendException {
+		if (this.mFactory == null) {
+			throw new ChatBackendException("The browser can not be replaced since no factory is given");
+		}
+
+		// Take the replacement if one is started already
+		if (this.mStarter == null) {
+			this.mStarter = new BrowserStarter(this.mFactory);
+			this.mStarter.start();
+		}
+		final BrowserDriver browser;
+		try {
+			browser = this.mStarter.getBrowser().get();
+		} catch (final ExecutionException e) {
+			this.mStarter = null;
+			throw new ChatBackendException("The browser could not be replaced", e.getCause());
+		} catch (final InterruptedException e) {
+			// Keep the starter, quitting waits for it
+			Thread.currentThread().interrupt();
+			throw new ChatBackendException("Interrupted while replacing the browser", e);
+		}
+		this.mStarter = null;
+
+		// All instances get created again, the old browsers are not needed
+		// anymore even if they still work
+		this.mLogger.logInfo("Replacing crashed browser: " + this.mBrowser);
+		quitQuietly(this.mBrowser);
+		for (final BrowserDriver retiredBrowser : this.mRetiredBrowsers) {
+			quitQuietly(retiredBrowser);
+		}
+		this.mRetiredBrowsers.clear();
+		this.mBrowser = browser;
+	}
+
+	/**
+	 * Quits the given browser, errors are logged and ignored.
+	 * 
+	 * @param browser
+	 *            The browser to quit
+	 */
+	private void quitQuietly(final BrowserDriver browser) {
+		try {
+			browser.quit();
+		} catch (final WebDriverException e) {
+			this.mLogger.logError("Error while quitting browser: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Starts a replacement of the current browser if it crosses the limits of
+	 * the policy. The replacement takes over once it is started, the current
+	 * browser is retired then.
+	 * 
+	 * @param checkMemory
+	 *            Whether the memory of the browser should be checked too
+	 */
+	private void recycleIfNeeded(final boolean checkMemory) {
+		if (this.mFactory == null || this.mPolicy == null) {
+			return;
+		}
+
+		if (this.mStarter == null) {
+			final String reason = this.mPolicy.getRecycleReason(this.mBrowser, checkMemory);
+			if (reason != null) {
+				this.mLogger.logInfo("Recycling browser, it " + reason + ": " + this.mBrowser);
+				this.mStarter = new BrowserStarter(this.mFactory);
+				this.mStarter.start();
+			}
+			return;
+		}
+
+		final CompletableFuture<BrowserDriver> replacement = this.mStarter.getBrowser();
+		if (!replacement.isDone()) {
+			// Keep serving with the current browser until the replacement is
+			// ready
+			return;
+		}
+		this.mStarter = null;
+
+		final BrowserDriver browser;
+		try {
+			browser = replacement.get();
+		} catch (final ExecutionException | InterruptedException e) {
+			// The next check tries again
+			this.mLogger.logError("Error while starting replacement browser: " + LoggerUtil.getStackTrace(e));
+			return;
+		}
+
+		this.mBrowser.retire();
+		this.mRetiredBrowsers.add(this.mBrowser);
+		this.mBrowser = browser;
+		this.mLogger.logInfo("Replacement browser took over: " + browser);
+	}
+}
@@ -0,0 +1,237 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import de.zabuza.brainbridge.server.webdriver.BrowserProcessUtil;
+
+/**
+ * A browser used by a {@link BrowserChatBackend}, together with the
+ * statistics that decide when it gets recycled. Call {@link #initialize()}
+ * before using it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrowserDriver {
+	/**
+	 * Time in seconds a driver waits for a page to fully load until throwing a
+	 * {@link TimeoutException}.
+	 */
+	private final static int DRIVER_PAGE_LOAD_TIMEOUT = 3;
+
+	/**
+	 * The unique window handle for the blank control window.
+	 */
+	private String mControlWindowHandle;
+	/**
+	 * The driver to use for accessing browsers contents.
+	 */
+	private final WebDriver mDriver;
+	/**
+	 * The instances the driver opened a window for, as long as the window is
+	 * not known to be closed.
+	 */
+	private final List<BrainInstance> mInstances;
+	/**
+	 * The id of the process of the browser or <tt>-1</tt> if unknown.
+	 */
+	private long mProcessId;
+	/**
+	 * Timestamp of when the driver got retired or <tt>0</tt> if it is not
+	 * retired.
+	 */
+	private long mRetiredSince;
+	/**
+	 * The amount of windows the driver opened for instances.
+	 */
+	private int mServedWindows;
+	/**
+	 * Timestamp of when the driver was created.
+	 */
+	private final long mStartedAt;
+
+	/**
+	 * Creates a new browser for the given driver.
+	 * 
+	 * @param driver
+	 *            The driver to use for accessing browsers contents
+	 */
+	public BrowserDriver(final WebDriver driver) {
+		this.mDriver = driver;
+		this.mControlWindowHandle = null;
+		this.mInstances = new ArrayList<>();
+		this.mProcessId = -1L;
+		this.mRetiredSince = 0L;
+		this.mServedWindows = 0;
+		this.mStartedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the unique window handle for the blank control window.
+	 * 
+	 * @return The handle of the control window
+	 */
+	public String getControlWindowHandle() {
+		return this.mControlWindowHandle;
+	}
+
+	/**
+	 * Gets the driver to use for accessing browsers contents.
+	 * 
+	 * @return The driver to use
+	 */
+	public WebDriver getDriver() {
+		return this.mDriver;
+	}
+
+	/**
+	 * Gets the instances the driver opened a window for and whose window is
+	 * not known to be closed. Use {@link #removeClosedInstances()} to forget
+	 * instances whose window was closed.
+	 * 
+	 * @return The instances that use the driver
+	 */
+	public List<BrainInstance> getInstances() {
+		return new ArrayList<>(this.mInstances);
+	}
+
+	/**
+	 * Gets the resident memory of the browser, including its child processes.
+	 * Reading it scans the process file system, do not use it for every
+	 * operation.
+	 * 
+	 * @return The resident memory in bytes or <tt>-1</tt> if unknown
+	 */
+	public long getResidentMemory() {
+		return BrowserProcessUtil.getResidentMemory(this.mProcessId);
+	}
+
+	/**
+	 * Gets the time in milliseconds since the driver got retired.
+	 * 
+	 * @return The time since the driver got retired or <tt>0</tt> if it is not
+	 *         retired
+	 */
+	public long getRetiredTime() {
+		if (this.mRetiredSince == 0L) {
+			return 0L;
+		}
+		return System.currentTimeMillis() - this.mRetiredSince;
+	}
+
+	/**
+	 * Gets the amount of windows the driver opened for instances.
+	 * 
+	 * @return The amount of served windows
+	 */
+	public int getServedWindows() {
+		return this.mServedWindows;
+	}
+
+	/**
+	 * Gets the time in milliseconds since the driver was created.
+	 * 
+	 * @return The uptime of the driver
+	 */
+	public long getUptime() {
+		return System.currentTimeMillis() - this.mStartedAt;
+	}
+
+	/**
+	 * Initializes the driver. Call this method prior to using the driver.
+	 */
+	public void initialize() {
+		try {
+			this.mDriver.manage().timeouts().pageLoadTimeout(DRIVER_PAGE_LOAD_TIMEOUT, TimeUnit.SECONDS);
+		} catch (final WebDriverException e) {
+			// Page load timeouts are not supported by the driver, simply
+			// ignore it and try to continue without
+		}
+
+		this.mControlWindowHandle = this.mDriver.getWindowHandle();
+		this.mProcessId = BrowserProcessUtil.getProcessId(this.mDriver);
+	}
+
+	/**
+	 * Whether all windows of instances were closed, only the control window
+	 * is left. Instances whose window was closed are forgotten.
+	 * 
+	 * @return <tt>True</tt> if the driver is drained, <tt>false</tt> otherwise
+	 * @throws WebDriverException
+	 *             If the browser crashed or the driver lost connection to it
+	 */
+	public boolean isDrained() throws WebDriverException {
+		removeClosedInstances();
+		return this.mInstances.isEmpty();
+	}
+
+	/**
+	 * Whether the driver got retired, it does not serve new windows anymore.
+	 * 
+	 * @return <tt>True</tt> if the driver is retired, <tt>false</tt> otherwise
+	 */
+	public boolean isRetired() {
+		return this.mRetiredSince != 0L;
+	}
+
+	/**
+	 * Quits the driver and closes the browser.
+	 */
+	public void quit() {
+		this.mDriver.quit();
+	}
+
+	/**
+	 * Records that the driver opened a window for the given instance.
+	 * 
+	 * @param instance
+	 *            The instance the window was opened for
+	 */
+	public void recordServedInstance(final BrainInstance instance) {
+		this.mServedWindows++;
+		this.mInstances.add(instance);
+	}
+
+	/**
+	 * Forgets the instances whose window was closed, for example because they
+	 * were shut down.
+	 * 
+	 * @throws WebDriverException
+	 *             If the browser crashed or the driver lost connection to it
+	 */
+	public void removeClosedInstances() throws WebDriverException {
+		final Set<String> windowHandles = this.mDriver.getWindowHandles();
+		final Iterator<BrainInstance> instances = this.mInstances.iterator();
+		while (instances.hasNext()) {
+			if (!windowHandles.contains(instances.next().getWindowHandle())) {
+				instances.remove();
+			}
+		}
+	}
+
+	/**
+	 * Retires the driver, it does not serve new windows anymore.
+	 */
+	public void retire() {
+		this.mRetiredSince = System.currentTimeMillis();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "processId=" + this.mProcessId + ", servedWindows=" + this.mServedWindows + ", uptime=" + getUptime()
+				+ ", retired=" + isRetired();
+	}
+}
@@ -0,0 +1,70 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * Policy that decides when a {@link BrowserDriver} has to be replaced by a
+ * fresh browser. Long-lived browsers grow in memory and slow down as many
+ * windows are opened and closed. A limit of <tt>0</tt> disables the
+ * corresponding check.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrowserRecyclingPolicy {
+	/**
+	 * The resident memory in bytes after which a browser is recycled.
+	 */
+	private final long mMaxMemory;
+	/**
+	 * The amount of served windows after which a browser is recycled.
+	 */
+	private final int mMaxServedWindows;
+	/**
+	 * The uptime in milliseconds after which a browser is recycled.
+	 */
+	private final long mMaxUptime;
+
+	/**
+	 * Creates a new policy with the given limits, <tt>0</tt> disables a limit.
+	 * 
+	 * @param maxServedWindows
+	 *            The amount of served windows after which a browser is
+	 *            recycled
+	 * @param maxUptime
+	 *            The uptime in milliseconds after which a browser is recycled
+	 * @param maxMemory
+	 *            The resident memory in bytes after which a browser is
+	 *            recycled
+	 */
+	public BrowserRecyclingPolicy(final int maxServedWindows, final long maxUptime, final long maxMemory) {
+		this.mMaxServedWindows = maxServedWindows;
+		this.mMaxUptime = maxUptime;
+		this.mMaxMemory = maxMemory;
+	}
+
+	/**
+	 * Gets the reason why the given browser needs to be recycled.
+	 * 
+	 * @param driver
+	 *            The browser to check
+	 * @param checkMemory
+	 *            Whether the memory of the browser should be checked too.
+	 *            Reading it is expensive, it should only be done periodically.
+	 * @return The reason why the browser needs to be recycled or <tt>null</tt>
+	 *         if it does not
+	 */
+	public String getRecycleReason(final BrowserDriver driver, final boolean checkMemory) {
+		if (this.mMaxServedWindows > 0 && driver.getServedWindows() >= this.mMaxServedWindows) {
+			return "served " + driver.getServedWindows() + " windows";
+		}
+		if (this.mMaxUptime > 0 && driver.getUptime() >= this.mMaxUptime) {
+			return "up for " + driver.getUptime() + " ms";
+		}
+		if (checkMemory && this.mMaxMemory > 0) {
+			final long residentMemory = driver.getResidentMemory();
+			if (residentMemory >= this.mMaxMemory) {
+				return "uses " + residentMemory + " bytes of memory";
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,75 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.openqa.selenium.WebDriver;
+
+import de.zabuza.brainbridge.server.webdriver.IWebDriverFactory;
+
+/**
+ * Thread that starts and initializes a new browser in the background.
+ * Starting a browser takes several seconds, the thread of the
+ * {@link DriverShard} meanwhile keeps serving its instances. The browser is
+ * delivered by {@link #getBrowser()}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrowserStarter extends Thread {
+	/**
+	 * The future of the started browser.
+	 */
+	private final CompletableFuture<BrowserDriver> mBrowser;
+	/**
+	 * The factory to create the driver of the browser with.
+	 */
+	private final IWebDriverFactory mFactory;
+
+	/**
+	 * Creates a new starter that creates the browser with the given factory.
+	 * Call {@link #start()} to start the browser.
+	 * 
+	 * @param factory
+	 *            The factory to create the driver of the browser with
+	 */
+	public BrowserStarter(final IWebDriverFactory factory) {
+		super(BrowserStarter.class.getSimpleName());
+		this.mFactory = factory;
+		this.mBrowser = new CompletableFuture<>();
+	}
+
+	/**
+	 * Gets the future of the started browser. It completes exceptionally if
+	 * the browser could not be started.
+	 * 
+	 * @return The future of the started and initialized browser
+	 */
+	public CompletableFuture<BrowserDriver> getBrowser() {
+		return this.mBrowser;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		WebDriver driver = null;
+		try {
+			driver = this.mFactory.createWebDriver();
+			final BrowserDriver browser = new BrowserDriver(driver);
+			browser.initialize();
+			this.mBrowser.complete(browser);
+		} catch (final Exception e) {
+			if (driver != null) {
+				try {
+					driver.quit();
+				} catch (final Exception e2) {
+					// Ignore and continue, the browser is not used anyway
+				}
+			}
+			this.mBrowser.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class that provides the structure of the pages of the chat service
+ * and methods for extracting content from them. It is shared by all
+ * {@link IBrainInstance} implementations.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ChatPageUtil {
+	/**
+	 * Name of the frame that contains the chat input.
+	 */
+	public static final String CHAT_INPUT_FRAME_NAME = "frin";
+	/**
+	 * The name of the input element that allows inputting chat messages.
+	 */
+	public static final String CHAT_INPUT_NAME = "editMsg";
+	/**
+	 * Name of the frame that contains the chat output.
+	 */
+	public static final String CHAT_OUTPUT_FRAME_NAME = "frout";
+	/**
+	 * The URL to the chat service.
+	 */
+	public static final String CHAT_SERVICE = "http://www.thebot.de/";
+	/**
+	 * Class of the anchor that logs in to the chat service.
+	 */
+	public static final String LOGIN_ANCHOR_CLASS = "btnAls_Gast";
+	/**
+	 * Class of the anchor that logs out from the chat service.
+	 */
+	public static final String LOGOUT_ANCHOR_CLASS = "btnChat_beenden";
+	/**
+	 * The pattern every answer from the chat service matches. The message
+	 * content can be accessed by group 1.
+	 */
+	private static final Pattern CHAT_ANSWER_PATTERN = Pattern
+			.compile("^.*<font color=\"(?:#\\d{3,6}|[A-Za-z]+)\"><b>Brain\\s*:\\s*<\\/b><\\/font>(.+)$");
+	/**
+	 * Pattern that matches line separators in the chat content.
+	 */
+	private static final Pattern CHAT_LINE_SEPARATOR = Pattern.compile("<br[\\s\\/]*>");
+	/**
+	 * The pattern which matches the id argument in an URL. It can be accessed
+	 * by the group 1.
+	 */
+	private static final Pattern ID_PATTERN = Pattern.compile("(?:^|.+&|.+\\?)id=([A-Za-z0-9]+)(?:$|&.+)");
+
+	/**
+	 * Extracts the answer of brain from the given line of the output frame.
+	 * 
+	 * @param line
+	 *            The content of the line
+	 * @return The answer of brain or <tt>null</tt> if the line is no answer of
+	 *         brain
+	 */
+	public static String extractAnswer(final String line) {
+		final Matcher answerMatcher = CHAT_ANSWER_PATTERN.matcher(line.trim());
+		if (answerMatcher.matches()) {
+			return answerMatcher.group(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Extracts the id of a chat from the given URL of its output frame.
+	 * 
+	 * @param outputFrameSrc
+	 *            The URL of the output frame
+	 * @return The id of the chat or <tt>null</tt> if the URL contains no id
+	 */
+	public static String extractId(final String outputFrameSrc) {
+		final Matcher idMatcher = ID_PATTERN.matcher(outputFrameSrc);
+		if (idMatcher.matches()) {
+			return idMatcher.group(1);
+		}
+		return null;
+	}
+
+	/**
+	 * Extracts the latest answer of brain from the given content of the output
+	 * frame.
+	 * 
+	 * @param outputPageContent
+	 *            The content of the output frame
+	 * @return The latest answer of brain in the chat or <tt>null</tt> if there
+	 *         is no
+	 */
+	public static String extractLatestAnswer(final String outputPageContent) {
+		final List<String> lines = extractLines(outputPageContent);
+		if (lines.isEmpty()) {
+			return null;
+		}
+		return extractAnswer(lines.get(lines.size() - 1));
+	}
+
+	/**
+	 * Extracts the lines of the chat from the given content of the output
+	 * frame.
+	 * 
+	 * @param outputPageContent
+	 *            The content of the output frame
+	 * @return The lines of the chat in order of their appearance
+	 */
+	public static List<String> extractLines(final String outputPageContent) {
+		final String[] lines = CHAT_LINE_SEPARATOR.split(outputPageContent);
+		// The last entry is the rest of the page after the latest line
+		if (lines.length < 2) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(lines).subList(0, lines.length - 1);
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ChatPageUtil() {
+
+	}
+}
@@ -0,0 +1,178 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of a connection that is managed by the {@link RequestSelector}. It
+ * buffers the data read from the client until a request is complete, queues the
+ * data written to the client and keeps track of the activity on the
+ * connection.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ClientConnection {
+	/**
+	 * Buffer that holds the data read from the client which does not form a
+	 * complete request yet.
+	 */
+	private final ByteBuffer mBuffer;
+	/**
+	 * Whether no further requests are read from the client, for example
+	 * because it does not keep the connection alive. Only accessed by the
+	 * selector thread.
+	 */
+	private boolean mIsReadingEnded;
+	/**
+	 * Timestamp of the last activity on the connection in milliseconds.
+	 */
+	private volatile long mLastActivity;
+	/**
+	 * The output that queues the data written to the client.
+	 */
+	private final ClientOutput mOutput;
+	/**
+	 * The amount of requests of the client that wait for getting served.
+	 */
+	private final AtomicInteger mPendingRequests;
+	/**
+	 * Signal that is released once the connection was released from the
+	 * selector.
+	 */
+	private final CountDownLatch mReleaseSignal;
+
+	/**
+	 * Creates a new state of a connection.
+	 * 
+	 * @param bufferSize
+	 *            The size of the buffer in bytes, requests can not be bigger
+	 *            than that
+	 * @param output
+	 *            The output that queues the data written to the client
+	 */
+	public ClientConnection(final int bufferSize, final ClientOutput output) {
+		this.mBuffer = ByteBuffer.allocate(bufferSize);
+		this.mOutput = output;
+		this.mIsReadingEnded = false;
+		this.mPendingRequests = new AtomicInteger(0);
+		this.mReleaseSignal = new CountDownLatch(1);
+		updateLastActivity();
+	}
+
+	/**
+	 * Blocks until the connection was released from the selector or the given
+	 * time passed.
+	 * 
+	 * @param timeout
+	 *            The maximal time to wait in milliseconds
+	 * @return <tt>True</tt> if the connection was released, <tt>false</tt> if
+	 *         the time passed or the thread was interrupted before
+	 */
+	public boolean awaitRelease(final long timeout) {
+		try {
+			return this.mReleaseSignal.await(timeout, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Ends reading from the client, no further requests are read from it.
+	 */
+	public void endReading() {
+		this.mIsReadingEnded = true;
+	}
+
+	/**
+	 * Gets the buffer that holds the data read from the client which does not
+	 * form a complete request yet.
+	 * 
+	 * @return The buffer of the connection
+	 */
+	public ByteBuffer getBuffer() {
+		return this.mBuffer;
+	}
+
+	/**
+	 * Gets the output that queues the data written to the client.
+	 * 
+	 * @return The output of the connection
+	 */
+	public ClientOutput getOutput() {
+		return this.mOutput;
+	}
+
+	/**
+	 * Whether requests of the client wait for getting served.
+	 * 
+	 * @return <tt>True</tt> if requests of the client wait for getting served,
+	 *         <tt>false</tt> otherwise
+	 */
+	public boolean hasPendingRequests() {
+		return this.mPendingRequests.get() > 0;
+	}
+
+	/**
+	 * Whether the connection is idle for longer than the given time. A
+	 * connection is not idle while requests of it wait for getting served.
+	 * 
+	 * @param idleTimeout
+	 *            The time in milliseconds after which an inactive connection is
+	 *            idle
+	 * @param timeNow
+	 *            The current time in milliseconds
+	 * @return <tt>True</tt> if the connection is idle, <tt>false</tt> otherwise
+	 */
+	public boolean isIdle(final long idleTimeout, final long timeNow) {
+		return !hasPendingRequests() && timeNow - this.mLastActivity > idleTimeout;
+	}
+
+	/**
+	 * Whether no further requests are read from the client.
+	 * 
+	 * @return <tt>True</tt> if reading from the client ended, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isReadingEnded() {
+		return this.mIsReadingEnded;
+	}
+
+	/**
+	 * Notifies the connection that it was released from the selector. The
+	 * buffer is flipped such that the data which was read from the client but
+	 * does not form a complete request can be read by the new owner.
+	 */
+	public void released() {
+		this.mBuffer.flip();
+		this.mReleaseSignal.countDown();
+	}
+
+	/**
+	 * Notifies the connection that a request of it was handed over for getting
+	 * served.
+	 */
+	public void requestQueued() {
+		this.mPendingRequests.incrementAndGet();
+		updateLastActivity();
+	}
+
+	/**
+	 * Notifies the connection that a request of it was served.
+	 */
+	public void requestServed() {
+		this.mPendingRequests.decrementAndGet();
+		updateLastActivity();
+	}
+
+	/**
+	 * Updates the timestamp of the last activity by setting it to the current
+	 * time.
+	 */
+	public void updateLastActivity() {
+		this.mLastActivity = System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,182 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Output of a connection that is managed by the {@link RequestSelector}. Data
+ * the client does not accept right away is queued and written by the selector
+ * once the client is ready again, such that writers never wait for slow
+ * clients. Closing the output closes the client once all queued data was
+ * written. The output is thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ClientOutput implements GatheringByteChannel {
+	/**
+	 * The maximal amount of bytes that are queued for a client. Clients that
+	 * do not read their data fast enough are considered gone.
+	 */
+	private static final int MAX_QUEUED_BYTES = 1_048_576;
+
+	/**
+	 * The channel of the client to write to.
+	 */
+	private final SocketChannel mClient;
+	/**
+	 * Whether the output was closed. The client is closed once all queued data
+	 * was written.
+	 */
+	private boolean mIsClosed;
+	/**
+	 * Data that waits for getting written to the client, in order.
+	 */
+	private final Queue<ByteBuffer> mQueue;
+	/**
+	 * The amount of bytes that wait for getting written to the client.
+	 */
+	private long mQueuedBytes;
+	/**
+	 * The selector that writes queued data once the client is ready.
+	 */
+	private final RequestSelector mSelector;
+
+	/**
+	 * Creates a new output for the given client.
+	 * 
+	 * @param client
+	 *            The channel of the client to write to
+	 * @param selector
+	 *            The selector that writes queued data once the client is
+	 *            ready
+	 */
+	public ClientOutput(final SocketChannel client, final RequestSelector selector) {
+		this.mClient = client;
+		this.mSelector = selector;
+		this.mQueue = new ArrayDeque<>();
+		this.mQueuedBytes = 0L;
+		this.mIsClosed = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.mIsClosed = true;
+		if (this.mQueue.isEmpty()) {
+			this.mClient.close();
+		}
+	}
+
+	/**
+	 * Writes queued data to the client as far as it accepts it. If all data
+	 * was written and the output was closed, the client is closed. Used by the
+	 * selector once the client is ready.
+	 * 
+	 * @return <tt>True</tt> if all queued data was written, <tt>false</tt> if
+	 *         data is left
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public synchronized boolean flush() throws IOException {
+		ByteBuffer data = this.mQueue.peek();
+		while (data != null) {
+			this.mQueuedBytes -= this.mClient.write(data);
+			if (data.hasRemaining()) {
+				return false;
+			}
+			this.mQueue.poll();
+			data = this.mQueue.peek();
+		}
+
+		if (this.mIsClosed) {
+			this.mClient.close();
+		}
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.nio.channels.Channel#isOpen()
+	 */
+	@Override
+	public synchronized boolean isOpen() {
+		return !this.mIsClosed && this.mClient.isOpen();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[])
+	 */
+	@Override
+	public long write(final ByteBuffer[] sources) throws IOException {
+		return write(sources, 0, sources.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[],
+	 * int, int)
+	 */
+	@Override
+	public synchronized long write(final ByteBuffer[] sources, final int offset, final int length)
+			throws IOException {
+		if (!isOpen()) {
+			throw new ClosedChannelException();
+		}
+
+		long total = 0L;
+		for (int i = offset; i < offset + length; i++) {
+			total += sources[i].remaining();
+		}
+
+		// Data must not overtake queued data
+		long written = 0L;
+		if (this.mQueue.isEmpty()) {
+			written = this.mClient.write(sources, offset, length);
+		}
+		final long remaining = total - written;
+		if (remaining == 0L) {
+			return total;
+		}
+
+		if (this.mQueuedBytes + remaining > MAX_QUEUED_BYTES) {
+			throw new IOException("Client does not read its data, " + this.mQueuedBytes + " bytes are queued");
+		}
+		final ByteBuffer data = ByteBuffer.allocate((int) remaining);
+		for (int i = offset; i < offset + length; i++) {
+			data.put(sources[i]);
+		}
+		data.flip();
+
+		final boolean wasEmpty = this.mQueue.isEmpty();
+		this.mQueue.add(data);
+		this.mQueuedBytes += remaining;
+		if (wasEmpty) {
+			this.mSelector.outputQueued(this.mClient);
+		}
+		return total;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int write(final ByteBuffer source) throws IOException {
+		return (int) write(new ByteBuffer[] { source }, 0, 1);
+	}
+}
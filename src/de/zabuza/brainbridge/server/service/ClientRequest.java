@@ -0,0 +1,132 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+
+/**
+ * A request of a client that was read completely and waits for getting served.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ClientRequest {
+	/**
+	 * The channel of the client that sent the request.
+	 */
+	private final SocketChannel mClient;
+	/**
+	 * The header fields sent by the client with their names in lower case.
+	 */
+	private final Map<String, String> mHeaders;
+	/**
+	 * Whether the connection to the client is kept alive after the request
+	 * was served.
+	 */
+	private final boolean mKeepAlive;
+	/**
+	 * The channel to write the answers for the client to.
+	 */
+	private final GatheringByteChannel mOutput;
+	/**
+	 * The request line sent by the client.
+	 */
+	private final String mRequest;
+
+	/**
+	 * Creates a new request of a client that waits for getting served.
+	 * 
+	 * @param request
+	 *            The request line sent by the client
+	 * @param headers
+	 *            The header fields sent by the client with their names in
+	 *            lower case
+	 * @param keepAlive
+	 *            Whether the connection to the client is kept alive after the
+	 *            request was served
+	 * @param client
+	 *            The channel of the client that sent the request, it must be in
+	 *            blocking mode. Answers are written to it directly.
+	 */
+	public ClientRequest(final String request, final Map<String, String> headers, final boolean keepAlive,
+			final SocketChannel client) {
+		this(request, headers, keepAlive, client, client);
+	}
+
+	/**
+	 * Creates a new request of a client that waits for getting served.
+	 * 
+	 * @param request
+	 *            The request line sent by the client
+	 * @param headers
+	 *            The header fields sent by the client with their names in
+	 *            lower case
+	 * @param keepAlive
+	 *            Whether the connection to the client is kept alive after the
+	 *            request was served
+	 * @param client
+	 *            The channel of the client that sent the request
+	 * @param output
+	 *            The channel to write the answers for the client to, it accepts
+	 *            all data written to it. Closing it finishes the connection.
+	 */
+	public ClientRequest(final String request, final Map<String, String> headers, final boolean keepAlive,
+			final SocketChannel client, final GatheringByteChannel output) {
+		this.mRequest = request;
+		this.mHeaders = headers;
+		this.mKeepAlive = keepAlive;
+		this.mClient = client;
+		this.mOutput = output;
+	}
+
+	/**
+	 * Gets the channel of the client that sent the request.
+	 * 
+	 * @return The channel of the client that sent the request
+	 */
+	public SocketChannel getClient() {
+		return this.mClient;
+	}
+
+	/**
+	 * Gets the value of the header field with the given name.
+	 * 
+	 * @param name
+	 *            The name of the header field in lower case
+	 * @return The value of the header field or <tt>null</tt> if the client did
+	 *         not send it
+	 */
+	public String getHeader(final String name) {
+		return this.mHeaders.get(name);
+	}
+
+	/**
+	 * Gets the channel to write the answers for the client to. Closing it
+	 * finishes the connection once all answers were written.
+	 * 
+	 * @return The channel to write the answers for the client to
+	 */
+	public GatheringByteChannel getOutput() {
+		return this.mOutput;
+	}
+
+	/**
+	 * Gets the request line sent by the client.
+	 * 
+	 * @return The request line sent by the client
+	 */
+	public String getRequest() {
+		return this.mRequest;
+	}
+
+	/**
+	 * Whether the connection to the client is kept alive after the request was
+	 * served.
+	 * 
+	 * @return <tt>True</tt> if the connection is kept alive, <tt>false</tt> if
+	 *         it gets closed
+	 */
+	public boolean isKeepAlive() {
+		return this.mKeepAlive;
+	}
+}
@@ -0,0 +1,193 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Task that reads the requests of a connected client and serves them in order
+ * by using a {@link Service}. The client is closed once it does not want to
+ * keep the connection alive anymore or is idle for too long. While the client
+ * of a kept alive connection has not sent its next request the worker hands
+ * the connection to an {@link IdleConnectionWatcher} and returns, the watcher
+ * runs the worker again once the request arrives.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ConnectionWorker implements Runnable {
+	/**
+	 * The connected client to serve.
+	 */
+	private final Socket mClientSocket;
+	/**
+	 * The time in milliseconds after which the connection gets closed if the
+	 * client does not send a request.
+	 */
+	private final long mIdleTimeout;
+	/**
+	 * The time in milliseconds at which the last request of the client was
+	 * served.
+	 */
+	private volatile long mLastActivity;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The reader used to read the requests of the client, <tt>null</tt> until
+	 * the worker runs the first time. It buffers pipelined requests across
+	 * runs.
+	 */
+	private BufferedReader mReader;
+	/**
+	 * The service to serve the requests with.
+	 */
+	private final Service mService;
+	/**
+	 * The watcher to hand the connection to while the client has not sent its
+	 * next request.
+	 */
+	private final IdleConnectionWatcher mWatcher;
+
+	/**
+	 * Creates a new task that serves the given client by using the given
+	 * service.
+	 * 
+	 * @param clientSocket
+	 *            The connected client to serve
+	 * @param idleTimeout
+	 *            The time in milliseconds after which the connection gets
+	 *            closed if the client does not send a request
+	 * @param service
+	 *            The service to serve the requests with
+	 * @param watcher
+	 *            The watcher to hand the connection to while the client has
+	 *            not sent its next request
+	 */
+	public ConnectionWorker(final Socket clientSocket, final long idleTimeout, final Service service,
+			final IdleConnectionWatcher watcher) {
+		this.mClientSocket = clientSocket;
+		this.mIdleTimeout = idleTimeout;
+		this.mService = service;
+		this.mWatcher = watcher;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mLastActivity = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the channel of the connected client.
+	 * 
+	 * @return The channel of the connected client
+	 */
+	public SocketChannel getChannel() {
+		return this.mClientSocket.getChannel();
+	}
+
+	/**
+	 * Gets the time in milliseconds at which the last request of the client
+	 * was served. It is the time of creation if no request was served yet.
+	 * 
+	 * @return The time in milliseconds at which the last request of the client
+	 *         was served
+	 */
+	public long getLastActivity() {
+		return this.mLastActivity;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		if (this.mReader == null) {
+			try {
+				this.mClientSocket.setSoTimeout((int) Math.min(this.mIdleTimeout, Integer.MAX_VALUE));
+				// The reader is not closed as this would close the client which
+				// still needs to get served
+				this.mReader = new BufferedReader(
+						new InputStreamReader(this.mClientSocket.getInputStream(), HttpUtil.TEXT_CHARSET));
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeClient();
+				return;
+			}
+		}
+
+		// Serve requests until the connection is not kept alive anymore, the
+		// reader buffers pipelined requests
+		while (true) {
+			final Map<String, String> headers = new HashMap<>();
+			final String request;
+			try {
+				request = HttpUtil.readRequestHead(this.mReader, headers);
+			} catch (final SocketTimeoutException e) {
+				// Connection is idle for too long
+				closeClient();
+				return;
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeClient();
+				return;
+			}
+			if (request == null) {
+				// Client closed the connection
+				closeClient();
+				return;
+			}
+
+			final boolean keepAlive = HttpUtil.isKeepAliveRequested(request, headers);
+			try {
+				this.mService.serveClientRequest(
+						new ClientRequest(request, headers, keepAlive, this.mClientSocket.getChannel()));
+			} catch (final RuntimeException e) {
+				this.mLogger.logError("Error while serving client: " + LoggerUtil.getStackTrace(e));
+				closeClient();
+				return;
+			}
+			if (!keepAlive || this.mClientSocket.isClosed()) {
+				return;
+			}
+			this.mLastActivity = System.currentTimeMillis();
+
+			// Release the thread until the client sends its next request
+			// unless it was already received
+			try {
+				if (!this.mReader.ready()) {
+					this.mWatcher.watch(this);
+					return;
+				}
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeClient();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Closes the client.
+	 */
+	private void closeClient() {
+		try {
+			this.mClientSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command that is queued at a {@link DriverShard} and executed by it on its
+ * driver. The result of the command is delivered by a future.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ * @param <T>
+ *            The type of the result of the command
+ */
+public final class DriverCommand<T> {
+	/**
+	 * The id of the instance the command refers to or <tt>null</tt> if it does
+	 * not refer to an instance.
+	 */
+	private final String mId;
+	/**
+	 * The message to post or <tt>null</tt> if the command does not post.
+	 */
+	private final String mMessage;
+	/**
+	 * The future that delivers the result of the command.
+	 */
+	private final CompletableFuture<T> mResult;
+	/**
+	 * The type of the command.
+	 */
+	private final EDriverCommandType mType;
+
+	/**
+	 * Creates a new command of the given type.
+	 * 
+	 * @param type
+	 *            The type of the command
+	 * @param id
+	 *            The id of the instance the command refers to or <tt>null</tt>
+	 *            if it does not refer to an instance
+	 * @param message
+	 *            The message to post or <tt>null</tt> if the command does not
+	 *            post
+	 */
+	public DriverCommand(final EDriverCommandType type, final String id, final String message) {
+		this.mType = type;
+		this.mId = id;
+		this.mMessage = message;
+		this.mResult = new CompletableFuture<>();
+	}
+
+	/**
+	 * Gets the id of the instance the command refers to.
+	 * 
+	 * @return The id of the instance or <tt>null</tt> if the command does not
+	 *         refer to an instance
+	 */
+	public String getId() {
+		return this.mId;
+	}
+
+	/**
+	 * Gets the message to post.
+	 * 
+	 * @return The message to post or <tt>null</tt> if the command does not
+	 *         post
+	 */
+	public String getMessage() {
+		return this.mMessage;
+	}
+
+	/**
+	 * Gets the future that delivers the result of the command.
+	 * 
+	 * @return The future that delivers the result of the command
+	 */
+	public CompletableFuture<T> getResult() {
+		return this.mResult;
+	}
+
+	/**
+	 * Gets the type of the command.
+	 * 
+	 * @return The type of the command
+	 */
+	public EDriverCommandType getType() {
+		return this.mType;
+	}
+
+	/**
+	 * Completes the command with the given result. The result must be of the
+	 * type the command was created for, as documented by its
+	 * {@link EDriverCommandType}.
+	 * 
+	 * @param result
+	 *            The result of the command
+	 */
+	@SuppressWarnings("unchecked")
+	void complete(final Object result) {
+		this.mResult.complete((T) result);
+	}
+
+	/**
+	 * Completes the command exceptionally with the given error.
+	 * 
+	 * @param error
+	 *            The error that occurred while executing the command
+	 */
+	void fail(final Throwable error) {
+		this.mResult.completeExceptionally(error);
+	}
+}
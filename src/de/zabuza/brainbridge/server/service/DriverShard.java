@@ -0,0 +1,814 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.zabuza.brainbridge.server.exceptions.InstanceNotFoundException;
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Shard of the driver pool of the {@link Service}. It consists of a chat
+ * backend, for example a browser, and the brain instances placed on it.<br>
+ * <br>
+ * The shard is an actor, it is the only thread that accesses its backend, which
+ * is not thread-safe. Other threads submit commands which get queued and
+ * executed in order of arrival, their results are delivered by futures.
+ * Commands of different shards are executed in parallel. Reads of the latest
+ * answer of an instance that are queued at the same time are coalesced into a
+ * single read.<br>
+ * <br>
+ * Since initializing an instance takes seconds the shard keeps a configurable
+ * amount of already initialized spare instances. New instances are handed out
+ * from them, the shard refills them whenever it is idle.<br>
+ * <br>
+ * If a command fails because the backend became unhealthy, for example since
+ * its browser crashed, the shard recovers the backend and re-creates all of
+ * its instances under their existing ids before retrying the command. Commands
+ * submitted meanwhile stay queued and run on the recovered backend.<br>
+ * <br>
+ * Call {@link #start()} to start the shard and submit {@link #initialize()}
+ * before any other command. The shard stops after executing {@link #quit()}.
+ * All public methods are thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class DriverShard extends Thread {
+	/**
+	 * Time in milliseconds the shard waits before trying to recover its
+	 * backend again after recovering failed.
+	 */
+	private final static long RECOVERY_RETRY_DELAY = 10_000L;
+	/**
+	 * Time in milliseconds the shard waits before trying to refill spare
+	 * instances again after refilling failed.
+	 */
+	private final static long REFILL_RETRY_DELAY = 10_000L;
+
+	/**
+	 * Waits for the result of the given command future. Errors that occurred
+	 * while executing the command are rethrown as they are.
+	 * 
+	 * @param <T>
+	 *            The type of the result
+	 * @param result
+	 *            The future of the command
+	 * @return The result of the command
+	 */
+	public static <T> T awaitResult(final CompletableFuture<T> result) {
+		try {
+			return result.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Time after when an instance is declared as abandoned in milliseconds.
+	 */
+	private final long mAbandonedInstanceInterval;
+	/**
+	 * The backend that creates the instances of this shard.
+	 */
+	private final IChatBackend mBackend;
+	/**
+	 * Queue of commands that wait for getting executed.
+	 */
+	private final BlockingQueue<DriverCommand<?>> mCommands;
+	/**
+	 * Internal flag whether the shard accepts commands or not. It is only
+	 * changed while holding the monitor of the command queue.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * Data-structure that maps ids to their corresponding brain instances
+	 * placed on this shard. It is only accessed by the shard thread.
+	 */
+	private final Map<String, IBrainInstance> mIdToBrainInstance;
+	/**
+	 * Data-structure that maps ids of instances to the read of their latest
+	 * answer that is queued and did not start yet. Further reads are coalesced
+	 * into it.
+	 */
+	private final Map<String, DriverCommand<String>> mIdToPendingRead;
+	/**
+	 * Whether the backend of the shard is initialized. It is only accessed by
+	 * the shard thread.
+	 */
+	private boolean mIsInitialized;
+	/**
+	 * Whether the backend was healthy at its last check or recovery.
+	 */
+	private volatile boolean mIsHealthy;
+	/**
+	 * The amount of instances placed on this shard, including the ones that
+	 * are currently getting created.
+	 */
+	private final AtomicInteger mLoad;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * Ids of instances that could not be re-created while recovering the
+	 * backend and were not reported as removed yet. It is only accessed by the
+	 * shard thread.
+	 */
+	private final List<String> mLostIds;
+	/**
+	 * The maximal amount of instances that can be placed on this shard at the
+	 * same time, including spare instances.
+	 */
+	private final int mMaxInstances;
+	/**
+	 * Timestamp of when the next try to recover the backend is due in
+	 * milliseconds.
+	 */
+	private long mNextRecovery;
+	/**
+	 * Timestamp of when the next try to refill spare instances is due in
+	 * milliseconds.
+	 */
+	private long mNextRefill;
+	/**
+	 * The metrics of the recoveries of the backend.
+	 */
+	private final RecoveryMetrics mRecoveryMetrics;
+	/**
+	 * Already initialized instances that wait for getting handed out. It is
+	 * only accessed by the shard thread.
+	 */
+	private final Queue<IBrainInstance> mSpareInstances;
+	/**
+	 * The amount of spare instances the shard keeps.
+	 */
+	private final int mSpareInstancesTarget;
+	/**
+	 * The metrics of the spare instances.
+	 */
+	private final SpareInstanceMetrics mSpareMetrics;
+
+	/**
+	 * Creates a new shard that places instances on the given backend. The
+	 * maximal amount of instances placed on the shard at the same time is the
+	 * one of the backend. Call {@link #start()} to start it.
+	 * 
+	 * @param backend
+	 *            The backend that creates the instances of this shard
+	 * @param spareInstances
+	 *            The amount of already initialized instances to keep in spare
+	 * @param abandonedInstanceInterval
+	 *            Time after when an instance is declared as abandoned in
+	 *            milliseconds
+	 */
+	public DriverShard(final IChatBackend backend, final int spareInstances, final long abandonedInstanceInterval) {
+		super(DriverShard.class.getSimpleName());
+		this.mBackend = backend;
+		this.mMaxInstances = backend.getMaxInstances();
+		this.mSpareInstancesTarget = spareInstances;
+		this.mAbandonedInstanceInterval = abandonedInstanceInterval;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mCommands = new LinkedBlockingQueue<>();
+		this.mIdToBrainInstance = new HashMap<>();
+		this.mIdToPendingRead = new ConcurrentHashMap<>();
+		this.mSpareInstances = new ArrayDeque<>();
+		this.mSpareMetrics = new SpareInstanceMetrics();
+		this.mLoad = new AtomicInteger(0);
+		this.mRecoveryMetrics = new RecoveryMetrics();
+		this.mLostIds = new ArrayList<>();
+		this.mNextRecovery = 0L;
+		this.mNextRefill = 0L;
+		this.mIsInitialized = false;
+		this.mIsHealthy = true;
+		this.mDoRun = true;
+	}
+
+	/**
+	 * Submits maintaining the backend of this shard and checking whether it is
+	 * healthy. The outcome is also remembered, see {@link #isHealthy()}.
+	 * 
+	 * @return The future of whether the backend is healthy
+	 */
+	public CompletableFuture<Boolean> checkHealth() {
+		return submit(new DriverCommand<Boolean>(EDriverCommandType.CHECK_HEALTH, null, null));
+	}
+
+	/**
+	 * Submits the creation of a new brain instance on this shard.
+	 * 
+	 * @return The future of the id of the created instance, the id is
+	 *         <tt>null</tt> if the instance could not be created. The future
+	 *         itself is <tt>null</tt> if the limit of instances is reached.
+	 */
+	public CompletableFuture<String> createInstance() {
+		// Reserve the place of the instance until it is created
+		int load = this.mLoad.get();
+		do {
+			if (load >= this.mMaxInstances) {
+				return null;
+			}
+		} while (!this.mLoad.compareAndSet(load, load + 1));
+
+		return submit(new DriverCommand<String>(EDriverCommandType.CREATE_INSTANCE, null, null));
+	}
+
+	/**
+	 * Gets the amount of instances placed on this shard, including the ones
+	 * that are currently getting created.
+	 * 
+	 * @return The amount of instances placed on this shard
+	 */
+	public int getLoad() {
+		return this.mLoad.get();
+	}
+
+	/**
+	 * Gets the metrics of the recoveries of the backend of this shard.
+	 * 
+	 * @return The metrics of the recoveries
+	 */
+	public RecoveryMetrics getRecoveryMetrics() {
+		return this.mRecoveryMetrics;
+	}
+
+	/**
+	 * Gets the metrics of the spare instances of this shard.
+	 * 
+	 * @return The metrics of the spare instances
+	 */
+	public SpareInstanceMetrics getSpareMetrics() {
+		return this.mSpareMetrics;
+	}
+
+	/**
+	 * Submits the preparation of the backend. It must be the first submitted
+	 * command.
+	 * 
+	 * @return The future of the preparation, it delivers <tt>null</tt>
+	 */
+	public CompletableFuture<Void> initialize() {
+		return submit(new DriverCommand<Void>(EDriverCommandType.INITIALIZE, null, null));
+	}
+
+	/**
+	 * Whether the backend of this shard was healthy at its last check, see
+	 * {@link #checkHealth()}. It is assumed to be healthy until checked.
+	 * 
+	 * @return <tt>True</tt> if the backend was healthy, <tt>false</tt>
+	 *         otherwise
+	 */
+	public boolean isHealthy() {
+		return this.mIsHealthy;
+	}
+
+	/**
+	 * Submits posting the given message to the instance with the given id.
+	 * 
+	 * @param id
+	 *            The id of the instance to post to
+	 * @param message
+	 *            The message to post
+	 * @return The future of whether the message was posted, it delivers
+	 *         <tt>false</tt> if there is no instance with the given id on this
+	 *         shard
+	 */
+	public CompletableFuture<Boolean> postMessage(final String id, final String message) {
+		return submitChange(new DriverCommand<Boolean>(EDriverCommandType.POST_MESSAGE, id, message));
+	}
+
+	/**
+	 * Submits quitting the backend. Commands submitted afterwards are
+	 * cancelled and the shard stops once the backend has quit.
+	 * 
+	 * @return The future of quitting, it delivers <tt>null</tt>
+	 */
+	public CompletableFuture<Void> quit() {
+		final DriverCommand<Void> command = new DriverCommand<>(EDriverCommandType.QUIT, null, null);
+		synchronized (this.mCommands) {
+			if (!this.mDoRun) {
+				command.getResult().cancel(false);
+			} else {
+				this.mDoRun = false;
+				this.mCommands.add(command);
+			}
+		}
+		return command.getResult();
+	}
+
+	/**
+	 * Submits reading the latest answer of the instance with the given id. If
+	 * a read of the same instance is already queued and did not start yet, its
+	 * future is returned instead of queuing another read.
+	 * 
+	 * @param id
+	 *            The id of the instance to read
+	 * @return The future of the latest answer, it delivers <tt>null</tt> if
+	 *         there is no answer yet. It fails with an
+	 *         {@link InstanceNotFoundException} if there is no instance with
+	 *         the given id on this shard.
+	 */
+	public CompletableFuture<String> readAnswer(final String id) {
+		final DriverCommand<String> command = new DriverCommand<>(EDriverCommandType.READ_ANSWER, id, null);
+		final DriverCommand<String> pendingRead = this.mIdToPendingRead.putIfAbsent(id, command);
+		if (pendingRead != null) {
+			return pendingRead.getResult();
+		}
+		return submit(command);
+	}
+
+	/**
+	 * Submits reading the answers of the instance with the given id that
+	 * arrived since the last read of this kind. Unlike
+	 * {@link #readAnswer(String)} reads are not shared, as every read consumes
+	 * the answers it delivers.
+	 * 
+	 * @param id
+	 *            The id of the instance to read
+	 * @return The future of the answers that arrived since the last read in
+	 *         order of their arrival, empty if none arrived. It fails with an
+	 *         {@link InstanceNotFoundException} if there is no instance with
+	 *         the given id on this shard.
+	 */
+	public CompletableFuture<List<String>> readAnswers(final String id) {
+		return submit(new DriverCommand<List<String>>(EDriverCommandType.READ_ANSWERS, id, null));
+	}
+
+	/**
+	 * Submits the removal of all instances of this shard that are abandoned.
+	 * 
+	 * @return The future of the ids of the removed instances
+	 */
+	public CompletableFuture<Collection<String>> removeAbandonedInstances() {
+		return submit(new DriverCommand<Collection<String>>(EDriverCommandType.REMOVE_ABANDONED_INSTANCES, null,
+				null));
+	}
+
+	/**
+	 * Submits shutting the instance with the given id down and removing it
+	 * from this shard.
+	 * 
+	 * @param id
+	 *            The id of the instance to remove
+	 * @return The future of whether the instance was removed, it delivers
+	 *         <tt>false</tt> if there is no instance with the given id on this
+	 *         shard
+	 */
+	public CompletableFuture<Boolean> removeInstance(final String id) {
+		return submitChange(new DriverCommand<Boolean>(EDriverCommandType.REMOVE_INSTANCE, id, null));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				// Refill spare instances while there are no commands
+				DriverCommand<?> command = this.mCommands.poll();
+				while (command == null) {
+					final long timeUntilRefill = this.mNextRefill - System.currentTimeMillis();
+					if (!needsSpareInstance()) {
+						command = this.mCommands.take();
+					} else if (timeUntilRefill <= 0) {
+						refillSpareInstance();
+						command = this.mCommands.poll();
+					} else {
+						command = this.mCommands.poll(timeUntilRefill, TimeUnit.MILLISECONDS);
+					}
+				}
+
+				execute(command);
+				if (command.getType() == EDriverCommandType.QUIT) {
+					break;
+				}
+			}
+		} catch (final InterruptedException e) {
+			// The shard was interrupted while waiting, stop accepting commands
+			synchronized (this.mCommands) {
+				this.mDoRun = false;
+			}
+		} finally {
+			// No commands are added anymore, cancel the remaining ones
+			DriverCommand<?> command = this.mCommands.poll();
+			while (command != null) {
+				command.getResult().cancel(false);
+				command = this.mCommands.poll();
+			}
+		}
+	}
+
+	/**
+	 * Creates a new brain instance with the backend and initializes it.
+	 * 
+	 * @return The created instance or <tt>null</tt> if the instance could not
+	 *         be created
+	 */
+	private IBrainInstance createBrainInstance() {
+		final long startTime = System.currentTimeMillis();
+		final IBrainInstance instance = this.mBackend.createInstance();
+		instance.initialize();
+		final String id = instance.getId();
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug(
+					"Initialized instance " + id + " in " + (System.currentTimeMillis() - startTime) + " ms");
+		}
+
+		if (id == null) {
+			// Instance is invalid, throw it away
+			instance.shutdown();
+
+			this.mLogger.logError("Instance can not be created since id is null: " + id);
+			return null;
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Places a new brain instance on this shard. A spare instance is handed out
+	 * if available, otherwise the instance is created on demand.
+	 * 
+	 * @return The id of the placed instance or <tt>null</tt> if the instance
+	 *         could not be created
+	 */
+	private String executeCreateInstance() {
+		IBrainInstance instance = this.mSpareInstances.poll();
+		if (instance != null) {
+			this.mSpareMetrics.recordHit();
+			instance.updateLastUsage();
+		} else {
+			this.mSpareMetrics.recordMiss();
+			instance = createBrainInstance();
+			if (instance == null) {
+				return null;
+			}
+		}
+
+		final String id = instance.getId();
+		this.mIdToBrainInstance.put(id, instance);
+		return id;
+	}
+
+	/**
+	 * Executes the given command and delivers its result. If the command fails
+	 * because the backend became unhealthy, the backend is recovered and the
+	 * command is retried once.
+	 * 
+	 * @param command
+	 *            The command to execute
+	 */
+	private void execute(final DriverCommand<?> command) {
+		final EDriverCommandType type = command.getType();
+		Exception error;
+		try {
+			executeCommand(command);
+			return;
+		} catch (final Exception e) {
+			error = e;
+		}
+
+		final boolean isRetryable = type == EDriverCommandType.CREATE_INSTANCE
+				|| type == EDriverCommandType.POST_MESSAGE || type == EDriverCommandType.READ_ANSWER
+				|| type == EDriverCommandType.READ_ANSWERS;
+		boolean isRecovered = false;
+		if (isRetryable && !(error instanceof InstanceNotFoundException)) {
+			if (this.mBackend.isHealthy()) {
+				// The instance may use a resource of the backend that failed
+				// on its own, like a retired browser
+				isRecovered = maintainBackend();
+			} else {
+				isRecovered = recoverBackend();
+			}
+		}
+		if (isRecovered) {
+			try {
+				executeCommand(command);
+				return;
+			} catch (final Exception e) {
+				error = e;
+			}
+		}
+
+		if (type == EDriverCommandType.CREATE_INSTANCE) {
+			// Release the reserved place
+			this.mLoad.decrementAndGet();
+		}
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Error while executing " + type + ": " + LoggerUtil.getStackTrace(error));
+		}
+		command.fail(error);
+	}
+
+	/**
+	 * Executes the given command and delivers its result if it succeeds.
+	 * 
+	 * @param command
+	 *            The command to execute
+	 */
+	private void executeCommand(final DriverCommand<?> command) {
+		final EDriverCommandType type = command.getType();
+		final String id = command.getId();
+		if (type == EDriverCommandType.CHECK_HEALTH) {
+			maintainBackend();
+			this.mIsHealthy = this.mBackend.isHealthy();
+			if (!this.mIsHealthy) {
+				// Recover the backend even if none of its instances is in use
+				recoverBackend();
+			}
+			command.complete(Boolean.valueOf(this.mIsHealthy));
+		} else if (type == EDriverCommandType.CREATE_INSTANCE) {
+			final String createdId = executeCreateInstance();
+			if (createdId == null) {
+				// Release the reserved place
+				this.mLoad.decrementAndGet();
+			}
+			command.complete(createdId);
+		} else if (type == EDriverCommandType.INITIALIZE) {
+			executeInitialize();
+			command.complete(null);
+		} else if (type == EDriverCommandType.POST_MESSAGE) {
+			final IBrainInstance instance = this.mIdToBrainInstance.get(id);
+			if (instance != null) {
+				instance.postMessage(command.getMessage());
+			}
+			command.complete(Boolean.valueOf(instance != null));
+		} else if (type == EDriverCommandType.QUIT) {
+			this.mBackend.quit();
+			command.complete(null);
+		} else if (type == EDriverCommandType.READ_ANSWER) {
+			// Reads queued from now on need to read again
+			this.mIdToPendingRead.remove(id, command);
+
+			final IBrainInstance instance = this.mIdToBrainInstance.get(id);
+			if (instance == null) {
+				throw new InstanceNotFoundException(id);
+			}
+			command.complete(instance.getLatestAnswer());
+		} else if (type == EDriverCommandType.READ_ANSWERS) {
+			final IBrainInstance instance = this.mIdToBrainInstance.get(id);
+			if (instance == null) {
+				throw new InstanceNotFoundException(id);
+			}
+			command.complete(instance.getLatestAnswers());
+		} else if (type == EDriverCommandType.REMOVE_ABANDONED_INSTANCES) {
+			command.complete(executeRemoveAbandonedInstances());
+		} else if (type == EDriverCommandType.REMOVE_INSTANCE) {
+			command.complete(Boolean.valueOf(executeRemoveInstance(id)));
+		} else {
+			throw new AssertionError("Unknown driver command type: " + type);
+		}
+	}
+
+	/**
+	 * Prepares the backend for use.
+	 */
+	private void executeInitialize() {
+		this.mBackend.initialize();
+		this.mIsInitialized = true;
+	}
+
+	/**
+	 * Shuts all abandoned instances of this shard down and removes them.
+	 * Instances that were lost while recovering the backend are reported as
+	 * removed as well.
+	 * 
+	 * @return The ids of the removed instances
+	 */
+	private Collection<String> executeRemoveAbandonedInstances() {
+		final long timeNow = System.currentTimeMillis();
+		final List<String> idsToRemove = new ArrayList<>();
+		// Instances are placed under the ids they had at their creation, a
+		// re-created instance has a different id itself
+		for (final Map.Entry<String, IBrainInstance> entry : this.mIdToBrainInstance.entrySet()) {
+			if (timeNow - entry.getValue().getLastUsage() > this.mAbandonedInstanceInterval) {
+				idsToRemove.add(entry.getKey());
+			}
+		}
+
+		for (final String id : idsToRemove) {
+			executeRemoveInstance(id);
+		}
+		idsToRemove.addAll(this.mLostIds);
+		this.mLostIds.clear();
+		return idsToRemove;
+	}
+
+	/**
+	 * Shuts the instance with the given id down and removes it from this
+	 * shard.
+	 * 
+	 * @param id
+	 *            The id of the instance to remove
+	 * @return <tt>True</tt> if the instance was removed, <tt>false</tt> if
+	 *         there is no such instance on this shard
+	 */
+	private boolean executeRemoveInstance(final String id) {
+		final IBrainInstance instance = this.mIdToBrainInstance.remove(id);
+		if (instance == null) {
+			return false;
+		}
+		this.mLoad.decrementAndGet();
+
+		instance.shutdown();
+		return true;
+	}
+
+	/**
+	 * Maintains the backend and re-creates the instances placed on this shard
+	 * that it can not serve anymore under their existing ids. Spare instances
+	 * it can not serve anymore are discarded.
+	 * 
+	 * @return <tt>True</tt> if instances were re-created, <tt>false</tt>
+	 *         otherwise
+	 */
+	private boolean maintainBackend() {
+		final long startTime = System.currentTimeMillis();
+		final Collection<IBrainInstance> invalidInstances = this.mBackend.maintain();
+		if (invalidInstances.isEmpty()) {
+			return false;
+		}
+
+		final Set<IBrainInstance> instancesToRecreate = new HashSet<>(invalidInstances);
+		this.mSpareInstances.removeAll(instancesToRecreate);
+		return recreateInstances(instancesToRecreate, startTime) > 0;
+	}
+
+	/**
+	 * Whether the shard should create another spare instance. That is the case
+	 * if the shard is initialized, has less spare instances than it keeps and
+	 * the limit of instances is not reached.
+	 * 
+	 * @return <tt>True</tt> if another spare instance should be created,
+	 *         <tt>false</tt> otherwise
+	 */
+	private boolean needsSpareInstance() {
+		final int spareInstances = this.mSpareInstances.size();
+		return this.mIsInitialized && spareInstances < this.mSpareInstancesTarget
+				&& this.mLoad.get() + spareInstances < this.mMaxInstances;
+	}
+
+	/**
+	 * Recovers the backend after it became unhealthy and re-creates all
+	 * instances placed on this shard under their existing ids. The chats of
+	 * re-created instances start over. Instances that can not be re-created
+	 * are removed and spare instances are discarded. If recovering fails the
+	 * next try is delayed.
+	 * 
+	 * @return <tt>True</tt> if the backend was recovered, <tt>false</tt> if
+	 *         recovering failed or the next try is not due yet
+	 */
+	private boolean recoverBackend() {
+		final long startTime = System.currentTimeMillis();
+		if (startTime < this.mNextRecovery) {
+			return false;
+		}
+
+		this.mLogger.logError("Backend is not healthy, recovering it with " + this.mIdToBrainInstance.size()
+				+ " instances");
+		try {
+			this.mBackend.recover();
+		} catch (final Exception e) {
+			this.mIsHealthy = false;
+			this.mRecoveryMetrics.recordFailedRecovery();
+			this.mNextRecovery = System.currentTimeMillis() + RECOVERY_RETRY_DELAY;
+			this.mLogger.logError("Error while recovering backend: " + LoggerUtil.getStackTrace(e));
+			return false;
+		}
+
+		this.mIsHealthy = true;
+
+		// Spare instances used the old resources of the backend
+		this.mSpareInstances.clear();
+		this.mNextRefill = 0L;
+
+		recreateInstances(new HashSet<>(this.mIdToBrainInstance.values()), startTime);
+		return true;
+	}
+
+	/**
+	 * Re-creates the given instances placed on this shard under their existing
+	 * ids. The chats of re-created instances start over. Instances that can not
+	 * be re-created are removed and reported as abandoned later.
+	 * 
+	 * @param instances
+	 *            The instances to re-create, instances not placed on this
+	 *            shard are ignored
+	 * @param startTime
+	 *            Timestamp of when the recovery that needs the instances to be
+	 *            re-created started in milliseconds
+	 * @return The amount of re-created instances
+	 */
+	private int recreateInstances(final Set<IBrainInstance> instances, final long startTime) {
+		int recreatedInstances = 0;
+		int lostInstances = 0;
+		final Iterator<Map.Entry<String, IBrainInstance>> entries = this.mIdToBrainInstance.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Map.Entry<String, IBrainInstance> entry = entries.next();
+			if (!instances.contains(entry.getValue())) {
+				continue;
+			}
+
+			IBrainInstance instance = null;
+			try {
+				instance = createBrainInstance();
+			} catch (final Exception e) {
+				this.mLogger.logError(
+						"Error while re-creating instance " + entry.getKey() + ": " + LoggerUtil.getStackTrace(e));
+			}
+
+			if (instance == null) {
+				entries.remove();
+				this.mLoad.decrementAndGet();
+				this.mLostIds.add(entry.getKey());
+				lostInstances++;
+			} else {
+				entry.setValue(instance);
+				recreatedInstances++;
+			}
+		}
+
+		final long recoveryTime = System.currentTimeMillis() - startTime;
+		this.mRecoveryMetrics.recordRecovery(recoveryTime, recreatedInstances, lostInstances);
+		this.mLogger.logInfo("Recovered in " + recoveryTime + " ms, re-created " + recreatedInstances
+				+ " instances, lost " + lostInstances + " instances");
+		return recreatedInstances;
+	}
+
+	/**
+	 * Creates a spare instance. If that fails the next try is delayed.
+	 */
+	private void refillSpareInstance() {
+		try {
+			final IBrainInstance instance = createBrainInstance();
+			if (instance != null) {
+				this.mSpareInstances.add(instance);
+				this.mSpareMetrics.recordRefill();
+				return;
+			}
+		} catch (final Exception e) {
+			this.mLogger.logError("Error while creating spare instance: " + LoggerUtil.getStackTrace(e));
+		}
+		this.mNextRefill = System.currentTimeMillis() + REFILL_RETRY_DELAY;
+	}
+
+	/**
+	 * Queues the given command for execution. If the shard does not accept
+	 * commands anymore the command is cancelled.
+	 * 
+	 * @param <T>
+	 *            The type of the result of the command
+	 * @param command
+	 *            The command to queue
+	 * @return The future of the result of the command
+	 */
+	private <T> CompletableFuture<T> submit(final DriverCommand<T> command) {
+		synchronized (this.mCommands) {
+			if (this.mDoRun) {
+				this.mCommands.add(command);
+			} else {
+				command.getResult().cancel(false);
+			}
+		}
+		return command.getResult();
+	}
+
+	/**
+	 * Queues the given command that changes the state of its instance. Reads
+	 * of the instance that are submitted afterwards are not coalesced into
+	 * reads that are queued before the command.
+	 * 
+	 * @param <T>
+	 *            The type of the result of the command
+	 * @param command
+	 *            The command to queue
+	 * @return The future of the result of the command
+	 */
+	private <T> CompletableFuture<T> submitChange(final DriverCommand<T> command) {
+		final CompletableFuture<T> result = submit(command);
+		this.mIdToPendingRead.remove(command.getId());
+		return result;
+	}
+}
@@ -0,0 +1,27 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * Enumeration of backends the {@link Service} can use for chatting with brain.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum EChatBackend {
+	/**
+	 * Drives browsers with Selenium, every instance uses its own window.
+	 * Supports every page of the chat service but instances are heavy, only a
+	 * few dozens fit on a driver.
+	 */
+	BROWSER,
+	/**
+	 * Keeps instances in memory and echoes every message without contacting
+	 * the chat service. Meant for measuring the service in isolation.
+	 */
+	FAKE,
+	/**
+	 * Speaks the HTTP form protocol of the chat service directly without a
+	 * browser. Instances are light, thousands of them can be served by one
+	 * JVM.
+	 */
+	HTTP
+}
@@ -0,0 +1,50 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * Enumeration of command types a {@link DriverShard} executes on its driver.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum EDriverCommandType {
+	/**
+	 * Command to maintain the backend and check whether it is healthy, results
+	 * in the outcome of the check.
+	 */
+	CHECK_HEALTH,
+	/**
+	 * Command to create a new brain instance, results in its id.
+	 */
+	CREATE_INSTANCE,
+	/**
+	 * Command to prepare the driver for use.
+	 */
+	INITIALIZE,
+	/**
+	 * Command to post a message to a brain instance, results in whether the
+	 * instance exists.
+	 */
+	POST_MESSAGE,
+	/**
+	 * Command to quit the driver, it is the last command that gets executed.
+	 */
+	QUIT,
+	/**
+	 * Command to read the latest answer of a brain instance.
+	 */
+	READ_ANSWER,
+	/**
+	 * Command to read the answers of a brain instance that arrived since its
+	 * last read of this kind.
+	 */
+	READ_ANSWERS,
+	/**
+	 * Command to remove abandoned brain instances, results in their ids.
+	 */
+	REMOVE_ABANDONED_INSTANCES,
+	/**
+	 * Command to remove a brain instance, results in whether the instance
+	 * existed.
+	 */
+	REMOVE_INSTANCE
+}
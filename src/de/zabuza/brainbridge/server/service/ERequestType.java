@@ -0,0 +1,43 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * Enumeration of request types the {@link Service} can serve.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum ERequestType {
+	/**
+	 * Request to post a message to a brain instance and wait for the answer.
+	 */
+	ASK,
+	/**
+	 * Request to wait for a new answer of a brain instance.
+	 */
+	AWAIT_MESSAGE,
+	/**
+	 * Request to create a new brain instance.
+	 */
+	CREATE,
+	/**
+	 * Request to get the latest answer of a brain instance.
+	 */
+	GET_MESSAGE,
+	/**
+	 * Request to post a message to a brain instance.
+	 */
+	POST_MESSAGE,
+	/**
+	 * Request to shutdown a brain instance.
+	 */
+	SHUTDOWN,
+	/**
+	 * Request to open a WebSocket session with a brain instance which carries
+	 * messages to post and answers of the instance.
+	 */
+	SOCKET,
+	/**
+	 * Request to stream the answers of a brain instance.
+	 */
+	STREAM
+}
@@ -0,0 +1,30 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * Enumeration of modes the {@link Service} can use for accepting clients and
+ * reading their requests.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public enum EServiceMode {
+	/**
+	 * Accepts one client at a time and blocks on reading its request before
+	 * accepting the next client. Connections are closed after every request.
+	 */
+	BLOCKING,
+	/**
+	 * Hands every accepted client to its own thread which reads and serves its
+	 * request. Virtual threads are used if the runtime supports them, a bounded
+	 * pool of threads otherwise. Clients only wait for each other when they
+	 * need the same driver. Connections are kept alive if the client wants it.
+	 */
+	POOLED,
+	/**
+	 * Accepts clients and reads their requests without blocking by using a
+	 * selector. Many clients can be connected at the same time, their requests
+	 * are queued and served in order of arrival. Connections are kept alive if
+	 * the client wants it, which allows pipelining requests.
+	 */
+	SELECTOR
+}
@@ -0,0 +1,183 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+
+/**
+ * Instance of a chat that lives in memory only and does not contact the chat
+ * service. Brain answers every message immediately by echoing it, escaped like
+ * the answers of the chat service. Once created use {@link #initialize()} to
+ * initialize it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FakeBrainInstance implements IBrainInstance {
+	/**
+	 * The maximal amount of answers kept until they are read, older ones are
+	 * dropped.
+	 */
+	private static final int MAX_NEW_ANSWERS = 100;
+
+	/**
+	 * The id the instance gets assigned on initialization.
+	 */
+	private final String mAssignedId;
+	/**
+	 * The unique id assigned to this chat instance or <tt>null</tt> if not yet
+	 * initialized.
+	 */
+	private String mId;
+	/**
+	 * Whether the instance was shut down.
+	 */
+	private boolean mIsShutdown;
+	/**
+	 * Timestamp of when the instance was last used in milliseconds.
+	 */
+	private long mLastUsage;
+	/**
+	 * The latest answer of brain or <tt>null</tt> if there is no.
+	 */
+	private String mLatestAnswer;
+	/**
+	 * The answers that arrived since the last read of them, in order of their
+	 * arrival.
+	 */
+	private final List<String> mNewAnswers;
+
+	/**
+	 * Creates a new instance of a chat that gets the given id assigned on
+	 * initialization. Call {@link #initialize()} prior to chat interaction.
+	 * 
+	 * @param id
+	 *            The unique id to assign to the instance
+	 */
+	public FakeBrainInstance(final String id) {
+		this.mAssignedId = id;
+		this.mId = null;
+		this.mLatestAnswer = null;
+		this.mNewAnswers = new ArrayList<>();
+		this.mIsShutdown = false;
+
+		updateLastUsage();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getId()
+	 */
+	@Override
+	public String getId() {
+		return this.mId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getLastUsage()
+	 */
+	@Override
+	public long getLastUsage() {
+		return this.mLastUsage;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswer()
+	 */
+	@Override
+	public String getLatestAnswer() {
+		updateLastUsage();
+		ensureNotShutdown();
+		return this.mLatestAnswer;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswers()
+	 */
+	@Override
+	public List<String> getLatestAnswers() {
+		updateLastUsage();
+		ensureNotShutdown();
+		if (this.mNewAnswers.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final List<String> newAnswers = new ArrayList<>(this.mNewAnswers);
+		this.mNewAnswers.clear();
+		return newAnswers;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#initialize()
+	 */
+	@Override
+	public void initialize() {
+		ensureNotShutdown();
+		this.mId = this.mAssignedId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#postMessage(String)
+	 */
+	@Override
+	public void postMessage(final String message) {
+		updateLastUsage();
+		ensureNotShutdown();
+		this.mLatestAnswer = StringEscapeUtils.escapeHtml4(message);
+		if (this.mNewAnswers.size() >= MAX_NEW_ANSWERS) {
+			this.mNewAnswers.remove(0);
+		}
+		this.mNewAnswers.add(this.mLatestAnswer);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		this.mIsShutdown = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#updateLastUsage()
+	 */
+	@Override
+	public void updateLastUsage() {
+		this.mLastUsage = System.currentTimeMillis();
+	}
+
+	/**
+	 * Ensures that the instance was not shut down yet.
+	 * 
+	 * @throws ChatBackendException
+	 *             If the instance was shut down
+	 */
+	private void ensureNotShutdown() throws ChatBackendException {
+		if (this.mIsShutdown) {
+			throw new ChatBackendException("The instance was shut down: " + this.mAssignedId);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backend that keeps its instances in memory only and does not contact the
+ * chat service, see {@link FakeBrainInstance}. It has no latency and allows
+ * measuring the service in isolation from browsers and the chat service.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FakeChatBackend implements IChatBackend {
+	/**
+	 * Prefix of the ids of instances, ids need to be alphanumeric.
+	 */
+	private final static String ID_PREFIX = "fake";
+	/**
+	 * The maximal amount of instances that can use the backend at the same
+	 * time.
+	 */
+	private final static int MAX_INSTANCES = 10_000;
+	/**
+	 * Counter of the created instances, shared by all backends such that the
+	 * ids of their instances are unique.
+	 */
+	private final static AtomicLong NEXT_ID = new AtomicLong(0L);
+
+	/**
+	 * Whether the backend quit.
+	 */
+	private boolean mHasQuit;
+
+	/**
+	 * Creates a new backend that keeps its instances in memory.
+	 */
+	public FakeChatBackend() {
+		this.mHasQuit = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#createInstance()
+	 */
+	@Override
+	public IBrainInstance createInstance() {
+		return new FakeBrainInstance(ID_PREFIX + NEXT_ID.incrementAndGet());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#getMaxInstances()
+	 */
+	@Override
+	public int getMaxInstances() {
+		return MAX_INSTANCES;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#initialize()
+	 */
+	@Override
+	public void initialize() {
+		// Nothing to initialize
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#isHealthy()
+	 */
+	@Override
+	public boolean isHealthy() {
+		return !this.mHasQuit;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#maintain()
+	 */
+	@Override
+	public Collection<IBrainInstance> maintain() {
+		// Nothing to maintain
+		return Collections.emptyList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#quit()
+	 */
+	@Override
+	public void quit() {
+		this.mHasQuit = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#recover()
+	 */
+	@Override
+	public void recover() {
+		// Nothing to recover, the backend is only unhealthy after quitting
+	}
+}
@@ -0,0 +1,633 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import de.zabuza.brainbridge.server.exceptions.ChatProtocolException;
+import de.zabuza.brainbridge.server.exceptions.UnexpectedUnsupportedEncodingException;
+
+/**
+ * Instance of an active chat with brain that speaks the HTTP form protocol of
+ * the chat service directly, without using a browser. It keeps the cookies of
+ * the chat session itself and extracts the frames, anchors and the input form
+ * from the pages. Once created use {@link #initialize()} to initialize it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HttpBrainInstance implements IBrainInstance {
+	/**
+	 * Pattern that matches the opening tag of an anchor. The attributes can be
+	 * accessed by group 1.
+	 */
+	private static final Pattern ANCHOR_PATTERN = Pattern.compile("<a\\s([^>]*)>", Pattern.CASE_INSENSITIVE);
+	/**
+	 * Pattern that matches an attribute of a tag. The name can be accessed by
+	 * group 1, the value by one of the groups 2, 3 or 4, depending on how it
+	 * is quoted.
+	 */
+	private static final Pattern ATTRIBUTE_PATTERN = Pattern
+			.compile("([A-Za-z_:][-A-Za-z0-9_:.]*)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+	/**
+	 * Pattern that matches the charset in a content type. It can be accessed
+	 * by group 1.
+	 */
+	private static final Pattern CHARSET_PATTERN = Pattern.compile("charset\\s*=\\s*\"?([^\\s;\"]+)",
+			Pattern.CASE_INSENSITIVE);
+	/**
+	 * Time in milliseconds to wait for a connection to the chat service to be
+	 * established.
+	 */
+	private static final int CONNECT_TIMEOUT = 3_000;
+	/**
+	 * The charset to use if the chat service does not declare one.
+	 */
+	private static final String DEFAULT_CHARSET = "ISO-8859-1";
+	/**
+	 * Pattern that matches a form. The attributes can be accessed by group 1,
+	 * the content by group 2.
+	 */
+	private static final Pattern FORM_PATTERN = Pattern.compile("<form(?:\\s([^>]*))?>(.*?)</form\\s*>",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	/**
+	 * Pattern that matches the tag of a frame or inline frame. The attributes
+	 * can be accessed by group 1.
+	 */
+	private static final Pattern FRAME_PATTERN = Pattern.compile("<i?frame\\s([^>]*)>", Pattern.CASE_INSENSITIVE);
+	/**
+	 * Pattern that matches the tag of an input element. The attributes can be
+	 * accessed by group 1.
+	 */
+	private static final Pattern INPUT_PATTERN = Pattern.compile("<input\\s([^>]*)>", Pattern.CASE_INSENSITIVE);
+	/**
+	 * The maximal amount of redirects to follow for a single request.
+	 */
+	private static final int MAX_REDIRECTS = 5;
+	/**
+	 * Time in milliseconds to wait for the chat service to answer once
+	 * connected.
+	 */
+	private static final int READ_TIMEOUT = 3_000;
+	/**
+	 * The request method for requesting data.
+	 */
+	private static final String REQUEST_METHOD_GET = "GET";
+	/**
+	 * The request method for submitting data.
+	 */
+	private static final String REQUEST_METHOD_POST = "POST";
+
+	/**
+	 * Gets the value of the attribute with the given name from the given
+	 * attributes of a tag.
+	 * 
+	 * @param attributes
+	 *            The attributes of the tag
+	 * @param name
+	 *            The name of the attribute
+	 * @return The unescaped value of the attribute or <tt>null</tt> if the tag
+	 *         has no such attribute
+	 */
+	private static String getAttribute(final String attributes, final String name) {
+		final Matcher attributeMatcher = ATTRIBUTE_PATTERN.matcher(attributes);
+		while (attributeMatcher.find()) {
+			if (!attributeMatcher.group(1).equalsIgnoreCase(name)) {
+				continue;
+			}
+			for (int i = 2; i <= 4; i++) {
+				final String value = attributeMatcher.group(i);
+				if (value != null) {
+					return StringEscapeUtils.unescapeHtml4(value);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the attributes of all tags of the given page that match the given
+	 * pattern and have an attribute with the given name which contains the
+	 * given value as whitespace separated word.
+	 * 
+	 * @param page
+	 *            The content of the page
+	 * @param tagPattern
+	 *            The pattern of the tags, the attributes of a tag are accessed
+	 *            by group 1
+	 * @param name
+	 *            The name of the attribute
+	 * @param value
+	 *            The value the attribute needs to contain
+	 * @return The attributes of all matching tags in order of their appearance
+	 */
+	private static List<String> getTagsWithAttribute(final String page, final Pattern tagPattern, final String name,
+			final String value) {
+		final List<String> tags = new LinkedList<>();
+		final Matcher tagMatcher = tagPattern.matcher(page);
+		while (tagMatcher.find()) {
+			final String attributes = tagMatcher.group(1);
+			if (attributes == null) {
+				continue;
+			}
+			final String attributeValue = getAttribute(attributes, name);
+			if (attributeValue == null) {
+				continue;
+			}
+			for (final String word : attributeValue.trim().split("\\s+")) {
+				if (word.equals(value)) {
+					tags.add(attributes);
+					break;
+				}
+			}
+		}
+		return tags;
+	}
+
+	/**
+	 * Creates an URL from the given link, resolved against the given context.
+	 * 
+	 * @param context
+	 *            The URL to resolve the link against or <tt>null</tt> if the
+	 *            link is absolute
+	 * @param link
+	 *            The link to resolve
+	 * @return The resolved URL
+	 * @throws ChatProtocolException
+	 *             If the link is malformed
+	 */
+	private static URL toUrl(final URL context, final String link) throws ChatProtocolException {
+		try {
+			return new URL(context, link);
+		} catch (final MalformedURLException e) {
+			throw new ChatProtocolException("The link is malformed: " + link, e);
+		}
+	}
+
+	/**
+	 * The URL to the chat service.
+	 */
+	private final String mChatServiceUrl;
+	/**
+	 * The cookies of the chat session, accessed by the host that set them and
+	 * their name. Cookies are only sent back to the host that set them.
+	 */
+	private final Map<String, Map<String, String>> mCookies;
+	/**
+	 * The URL the input form gets submitted to.
+	 */
+	private URL mFormAction;
+	/**
+	 * The charset the input form is encoded with, the one of the page that
+	 * contains it.
+	 */
+	private String mFormCharset;
+	/**
+	 * The request method of the input form.
+	 */
+	private String mFormMethod;
+	/**
+	 * The parameters of the input form besides the message, accessed by their
+	 * name.
+	 */
+	private final Map<String, String> mFormParameters;
+	/**
+	 * The unique id assigned to this chat instance or <tt>null</tt> if not yet
+	 * initialized.
+	 */
+	private String mId;
+	/**
+	 * Timestamp of when the instance was last used in milliseconds.
+	 */
+	private long mLastUsage;
+	/**
+	 * The URL that logs out from the chat service or <tt>null</tt> if not
+	 * known.
+	 */
+	private URL mLogoutUrl;
+	/**
+	 * The URL of the frame that contains the chat output.
+	 */
+	private URL mOutputFrameUrl;
+	/**
+	 * The amount of lines of the output frame that were already read by
+	 * {@link #getLatestAnswers()}.
+	 */
+	private int mReadLines;
+
+	/**
+	 * Creates a new instance of an active chat with brain that uses the chat
+	 * service at the given URL. Call {@link #initialize()} prior to chat
+	 * interaction.
+	 * 
+	 * @param chatServiceUrl
+	 *            The URL to the chat service
+	 */
+	public HttpBrainInstance(final String chatServiceUrl) {
+		this.mChatServiceUrl = chatServiceUrl;
+		this.mCookies = new LinkedHashMap<>();
+		this.mFormParameters = new LinkedHashMap<>();
+		this.mFormCharset = DEFAULT_CHARSET;
+		this.mId = null;
+		this.mReadLines = 0;
+
+		updateLastUsage();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getId()
+	 */
+	@Override
+	public String getId() {
+		return this.mId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getLastUsage()
+	 */
+	@Override
+	public long getLastUsage() {
+		return this.mLastUsage;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswer()
+	 */
+	@Override
+	public String getLatestAnswer() {
+		updateLastUsage();
+		return ChatPageUtil
+				.extractLatestAnswer(request(this.mOutputFrameUrl, REQUEST_METHOD_GET, null).getContent());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#getLatestAnswers()
+	 */
+	@Override
+	public List<String> getLatestAnswers() {
+		updateLastUsage();
+		final List<String> lines = ChatPageUtil
+				.extractLines(request(this.mOutputFrameUrl, REQUEST_METHOD_GET, null).getContent());
+		if (lines.size() < this.mReadLines) {
+			// The chat was cleared, all of its lines are new
+			this.mReadLines = 0;
+		}
+
+		final List<String> newAnswers = new ArrayList<>();
+		for (final String line : lines.subList(this.mReadLines, lines.size())) {
+			final String answer = ChatPageUtil.extractAnswer(line);
+			if (answer != null) {
+				newAnswers.add(answer);
+			}
+		}
+		this.mReadLines = lines.size();
+		return newAnswers;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#initialize()
+	 */
+	@Override
+	public void initialize() {
+		// Log in as guest
+		final HttpPage servicePage = request(toUrl(null, this.mChatServiceUrl), REQUEST_METHOD_GET, null);
+		final List<String> loginAnchors = getTagsWithAttribute(servicePage.getContent(), ANCHOR_PATTERN, "class",
+				ChatPageUtil.LOGIN_ANCHOR_CLASS);
+		if (loginAnchors.isEmpty()) {
+			throw new ChatProtocolException("The chat service has no login anchor");
+		}
+		final HttpPage chatPage = request(getLinkedUrl(servicePage, loginAnchors.get(0), "href"), REQUEST_METHOD_GET,
+				null);
+
+		// Find the frames of the chat
+		final List<String> outputFrames = getTagsWithAttribute(chatPage.getContent(), FRAME_PATTERN, "name",
+				ChatPageUtil.CHAT_OUTPUT_FRAME_NAME);
+		final List<String> inputFrames = getTagsWithAttribute(chatPage.getContent(), FRAME_PATTERN, "name",
+				ChatPageUtil.CHAT_INPUT_FRAME_NAME);
+		if (outputFrames.isEmpty() || inputFrames.isEmpty()) {
+			throw new ChatProtocolException("The chat page has no output or input frame");
+		}
+		final String outputFrameSrc = getAttribute(outputFrames.get(0), "src");
+		if (outputFrameSrc == null) {
+			throw new ChatProtocolException("The output frame has no source");
+		}
+		final String id = ChatPageUtil.extractId(outputFrameSrc);
+		if (id == null) {
+			throw new ChatProtocolException("The source of the output frame has no id: " + outputFrameSrc);
+		}
+		this.mOutputFrameUrl = toUrl(chatPage.getUrl(), outputFrameSrc);
+		final URL inputFrameUrl = getLinkedUrl(chatPage, inputFrames.get(0), "src");
+
+		// Read the input form and the logout anchor
+		final HttpPage inputPage = request(inputFrameUrl, REQUEST_METHOD_GET, null);
+		readInputForm(inputPage);
+		final List<String> logoutAnchors = getTagsWithAttribute(inputPage.getContent(), ANCHOR_PATTERN, "class",
+				ChatPageUtil.LOGOUT_ANCHOR_CLASS);
+		if (!logoutAnchors.isEmpty()) {
+			this.mLogoutUrl = getLinkedUrl(inputPage, logoutAnchors.get(0), "href");
+		}
+
+		this.mId = id;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IBrainInstance#postMessage(java.lang.
+	 * String)
+	 */
+	@Override
+	public void postMessage(final String message) {
+		updateLastUsage();
+
+		final Map<String, String> parameters = new LinkedHashMap<>(this.mFormParameters);
+		parameters.put(ChatPageUtil.CHAT_INPUT_NAME, message);
+		final StringBuilder query = new StringBuilder();
+		try {
+			for (final Entry<String, String> parameter : parameters.entrySet()) {
+				if (query.length() > 0) {
+					query.append('&');
+				}
+				query.append(URLEncoder.encode(parameter.getKey(), this.mFormCharset)).append('=')
+						.append(URLEncoder.encode(parameter.getValue(), this.mFormCharset));
+			}
+		} catch (final UnsupportedEncodingException e) {
+			throw new UnexpectedUnsupportedEncodingException(e);
+		}
+
+		final HttpPage answerPage;
+		if (this.mFormMethod.equals(REQUEST_METHOD_POST)) {
+			answerPage = request(this.mFormAction, REQUEST_METHOD_POST, query.toString());
+		} else {
+			final String actionWithoutQuery = this.mFormAction.toExternalForm().replaceFirst("\\?.*$", "");
+			answerPage = request(toUrl(null, actionWithoutQuery + "?" + query), REQUEST_METHOD_GET, null);
+		}
+
+		// The answer contains a fresh input form which may carry new state
+		if (FORM_PATTERN.matcher(answerPage.getContent()).find()) {
+			readInputForm(answerPage);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		if (this.mLogoutUrl != null) {
+			request(this.mLogoutUrl, REQUEST_METHOD_GET, null);
+		}
+		this.mCookies.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IBrainInstance#updateLastUsage()
+	 */
+	@Override
+	public void updateLastUsage() {
+		this.mLastUsage = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the URL an attribute of the given tag links to, resolved against
+	 * the given page which contains the tag.
+	 * 
+	 * @param page
+	 *            The page that contains the tag
+	 * @param attributes
+	 *            The attributes of the tag
+	 * @param name
+	 *            The name of the attribute that contains the link
+	 * @return The URL the attribute links to
+	 * @throws ChatProtocolException
+	 *             If the tag has no such attribute
+	 */
+	private URL getLinkedUrl(final HttpPage page, final String attributes, final String name)
+			throws ChatProtocolException {
+		final String link = getAttribute(attributes, name);
+		if (link == null) {
+			throw new ChatProtocolException("The tag has no attribute " + name + ": " + attributes);
+		}
+		return toUrl(page.getUrl(), link);
+	}
+
+	/**
+	 * Reads the form which contains the chat input from the given page and
+	 * remembers its action, method, charset and the values of its other
+	 * inputs.
+	 * 
+	 * @param page
+	 *            The page that contains the form
+	 * @throws ChatProtocolException
+	 *             If the page has no form containing the chat input
+	 */
+	private void readInputForm(final HttpPage page) throws ChatProtocolException {
+		final Matcher formMatcher = FORM_PATTERN.matcher(page.getContent());
+		while (formMatcher.find()) {
+			final String formContent = formMatcher.group(2);
+			if (getTagsWithAttribute(formContent, INPUT_PATTERN, "name", ChatPageUtil.CHAT_INPUT_NAME).isEmpty()) {
+				continue;
+			}
+
+			String formAttributes = formMatcher.group(1);
+			if (formAttributes == null) {
+				formAttributes = "";
+			}
+			final String action = getAttribute(formAttributes, "action");
+			final String method = getAttribute(formAttributes, "method");
+
+			final Map<String, String> parameters = new HashMap<>();
+			final Matcher inputMatcher = INPUT_PATTERN.matcher(formContent);
+			while (inputMatcher.find()) {
+				final String name = getAttribute(inputMatcher.group(1), "name");
+				if (name == null || name.equals(ChatPageUtil.CHAT_INPUT_NAME)) {
+					continue;
+				}
+				final String type = getAttribute(inputMatcher.group(1), "type");
+				if (type != null && (type.equalsIgnoreCase("submit") || type.equalsIgnoreCase("button")
+						|| type.equalsIgnoreCase("image") || type.equalsIgnoreCase("reset"))) {
+					continue;
+				}
+				final String value = getAttribute(inputMatcher.group(1), "value");
+				parameters.put(name, value == null ? "" : value);
+			}
+
+			if (action == null || action.isEmpty()) {
+				this.mFormAction = page.getUrl();
+			} else {
+				this.mFormAction = toUrl(page.getUrl(), action);
+			}
+			this.mFormCharset = page.getCharset();
+			if (method != null && method.equalsIgnoreCase(REQUEST_METHOD_POST)) {
+				this.mFormMethod = REQUEST_METHOD_POST;
+			} else {
+				this.mFormMethod = REQUEST_METHOD_GET;
+			}
+			this.mFormParameters.clear();
+			this.mFormParameters.putAll(parameters);
+			return;
+		}
+
+		throw new ChatProtocolException("The page has no form containing the chat input");
+	}
+
+	/**
+	 * Requests the given URL from the chat service. Redirects are followed and
+	 * cookies are remembered for the session. A body is sent with the charset
+	 * of the input form.
+	 * 
+	 * @param url
+	 *            The URL to request
+	 * @param method
+	 *            The request method to use
+	 * @param body
+	 *            The URL-encoded form data to send as body or <tt>null</tt>
+	 *            if there is no
+	 * @return The loaded page
+	 * @throws ChatProtocolException
+	 *             If the communication with the chat service failed
+	 */
+	private HttpPage request(final URL url, final String method, final String body) throws ChatProtocolException {
+		URL target = url;
+		String targetMethod = method;
+		String targetBody = body;
+		try {
+			for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+				final HttpURLConnection connection = (HttpURLConnection) target.openConnection();
+				connection.setInstanceFollowRedirects(false);
+				connection.setConnectTimeout(CONNECT_TIMEOUT);
+				connection.setReadTimeout(READ_TIMEOUT);
+				connection.setRequestMethod(targetMethod);
+				final Map<String, String> cookies = this.mCookies.get(target.getHost().toLowerCase(Locale.ROOT));
+				if (cookies != null && !cookies.isEmpty()) {
+					final StringBuilder cookieHeader = new StringBuilder();
+					for (final Entry<String, String> cookie : cookies.entrySet()) {
+						if (cookieHeader.length() > 0) {
+							cookieHeader.append("; ");
+						}
+						cookieHeader.append(cookie.getKey()).append('=').append(cookie.getValue());
+					}
+					connection.setRequestProperty("Cookie", cookieHeader.toString());
+				}
+				if (targetBody != null) {
+					connection.setDoOutput(true);
+					connection.setRequestProperty("Content-Type",
+							"application/x-www-form-urlencoded; charset=" + this.mFormCharset);
+					try (final OutputStream output = connection.getOutputStream()) {
+						output.write(targetBody.getBytes(this.mFormCharset));
+					}
+				}
+
+				final int responseCode = connection.getResponseCode();
+				rememberCookies(target, connection);
+
+				final String location = connection.getHeaderField("Location");
+				if (responseCode >= 300 && responseCode < 400 && location != null) {
+					connection.disconnect();
+					target = toUrl(target, location);
+					targetMethod = REQUEST_METHOD_GET;
+					targetBody = null;
+					continue;
+				}
+				if (responseCode >= 400) {
+					connection.disconnect();
+					throw new ChatProtocolException(
+							"The chat service answered with code " + responseCode + " for " + target);
+				}
+
+				String charset = DEFAULT_CHARSET;
+				final String contentType = connection.getContentType();
+				if (contentType != null) {
+					final Matcher charsetMatcher = CHARSET_PATTERN.matcher(contentType);
+					if (charsetMatcher.find()) {
+						charset = charsetMatcher.group(1);
+					}
+				}
+
+				final ByteArrayOutputStream content = new ByteArrayOutputStream();
+				try (final InputStream input = connection.getInputStream()) {
+					final byte[] buffer = new byte[8_192];
+					int read = input.read(buffer);
+					while (read != -1) {
+						content.write(buffer, 0, read);
+						read = input.read(buffer);
+					}
+				}
+
+				return new HttpPage(target, charset, content.toString(charset));
+			}
+		} catch (final UnsupportedEncodingException e) {
+			throw new UnexpectedUnsupportedEncodingException(e);
+		} catch (final IOException e) {
+			throw new ChatProtocolException("The communication with the chat service failed for " + target, e);
+		}
+
+		throw new ChatProtocolException("The chat service redirected too often for " + url);
+	}
+
+	/**
+	 * Remembers the cookies the chat service sets with the response of the
+	 * given connection. They are remembered for the host of the requested URL
+	 * only.
+	 * 
+	 * @param url
+	 *            The URL that was requested by the connection
+	 * @param connection
+	 *            The connection to read the cookies from
+	 */
+	private void rememberCookies(final URL url, final HttpURLConnection connection) {
+		final String host = url.getHost().toLowerCase(Locale.ROOT);
+		for (final Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+			if (header.getKey() == null || !header.getKey().equalsIgnoreCase("Set-Cookie")) {
+				continue;
+			}
+			for (final String cookie : header.getValue()) {
+				final String nameAndValue = cookie.split(";", 2)[0];
+				final int separator = nameAndValue.indexOf('=');
+				if (separator <= 0) {
+					continue;
+				}
+				Map<String, String> cookies = this.mCookies.get(host);
+				if (cookies == null) {
+					cookies = new LinkedHashMap<>();
+					this.mCookies.put(host, cookies);
+				}
+				cookies.put(nameAndValue.substring(0, separator).trim(), nameAndValue.substring(separator + 1).trim());
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Backend that speaks the HTTP form protocol of the chat service directly,
+ * without using a browser. Instances are lightweight, they only hold their
+ * session cookies and the state of the chat input form.<br>
+ * <br>
+ * The instances are served by the single thread of the {@link DriverShard}
+ * of the backend, one call to the chat service at a time. A call may block
+ * for the connect and read timeouts of {@link HttpBrainInstance}, while
+ * watched instances are additionally read periodically. The backend therefore
+ * only takes a small amount of instances, throughput is gained by a larger
+ * pool of backends instead.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HttpChatBackend implements IChatBackend {
+	/**
+	 * The maximal amount of instances that can use the backend at the same
+	 * time. It bounds how long a call waits behind the calls of the other
+	 * instances of the backend.
+	 */
+	private final static int MAX_INSTANCES = 50;
+
+	/**
+	 * The URL to the chat service.
+	 */
+	private final String mChatServiceUrl;
+
+	/**
+	 * Creates a new backend that uses the chat service at the given URL.
+	 * 
+	 * @param chatServiceUrl
+	 *            The URL to the chat service
+	 */
+	public HttpChatBackend(final String chatServiceUrl) {
+		this.mChatServiceUrl = chatServiceUrl;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#createInstance()
+	 */
+	@Override
+	public IBrainInstance createInstance() {
+		return new HttpBrainInstance(this.mChatServiceUrl);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#getMaxInstances()
+	 */
+	@Override
+	public int getMaxInstances() {
+		return MAX_INSTANCES;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#initialize()
+	 */
+	@Override
+	public void initialize() {
+		// Nothing to initialize, every instance opens its own connections
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#isHealthy()
+	 */
+	@Override
+	public boolean isHealthy() {
+		// There is no shared state that could break, failures of the chat
+		// service show up at the operations of the instances
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#maintain()
+	 */
+	@Override
+	public Collection<IBrainInstance> maintain() {
+		// Nothing to maintain, every instance manages its own connections
+		return Collections.emptyList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#quit()
+	 */
+	@Override
+	public void quit() {
+		// Nothing to free, every instance frees its own resources on shutdown
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IChatBackend#recover()
+	 */
+	@Override
+	public void recover() {
+		// Nothing to recover, the backend is always healthy
+	}
+}
@@ -0,0 +1,69 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.net.URL;
+
+/**
+ * A page loaded from the chat service by a {@link HttpBrainInstance}. Links
+ * of a page are resolved against its own URL and forms of it are encoded with
+ * its own charset.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HttpPage {
+	/**
+	 * The charset the page is encoded with.
+	 */
+	private final String mCharset;
+	/**
+	 * The content of the page.
+	 */
+	private final String mContent;
+	/**
+	 * The URL the page was loaded from, after following redirects.
+	 */
+	private final URL mUrl;
+
+	/**
+	 * Creates a new page.
+	 * 
+	 * @param url
+	 *            The URL the page was loaded from, after following redirects
+	 * @param charset
+	 *            The charset the page is encoded with
+	 * @param content
+	 *            The content of the page
+	 */
+	public HttpPage(final URL url, final String charset, final String content) {
+		this.mUrl = url;
+		this.mCharset = charset;
+		this.mContent = content;
+	}
+
+	/**
+	 * Gets the charset the page is encoded with.
+	 * 
+	 * @return The charset of the page
+	 */
+	public String getCharset() {
+		return this.mCharset;
+	}
+
+	/**
+	 * Gets the content of the page.
+	 * 
+	 * @return The content of the page
+	 */
+	public String getContent() {
+		return this.mContent;
+	}
+
+	/**
+	 * Gets the URL the page was loaded from, after following redirects.
+	 * 
+	 * @return The URL of the page
+	 */
+	public URL getUrl() {
+		return this.mUrl;
+	}
+}
@@ -1,12 +1,16 @@
 package de.zabuza.brainbridge.server.service;
 
-import java.io.DataOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.net.Socket;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 
 import de.zabuza.brainbridge.server.exceptions.UnexpectedUnsupportedEncodingException;
 
@@ -24,10 +28,103 @@ public final class HttpUtil {
 	 */
 	public static final Charset TEXT_CHARSET = StandardCharsets.UTF_8;
 
+	/**
+	 * Value of the connection header field requesting to close the connection.
+	 */
+	private static final String CONNECTION_CLOSE = "close";
+	/**
+	 * Pre-encoded end of an answer head for connections that get closed. That
+	 * is the connection header field followed by the empty line.
+	 */
+	private static final byte[] CONNECTION_CLOSE_HEAD_END;
+	/**
+	 * Value of the connection header field requesting to keep the connection
+	 * alive.
+	 */
+	private static final String CONNECTION_KEEP_ALIVE = "keep-alive";
+	/**
+	 * Pre-encoded end of an answer head for connections that are kept alive.
+	 * That is the connection header field followed by the empty line.
+	 */
+	private static final byte[] CONNECTION_KEEP_ALIVE_HEAD_END;
 	/**
 	 * Constant for an empty answer text.
 	 */
 	private static final String EMPTY_ANSWER = "";
+	/**
+	 * Prefix of every data line of an event in an event stream.
+	 */
+	private static final String EVENT_DATA_PREFIX = "data: ";
+	/**
+	 * Separator between lines of an event in an event stream.
+	 */
+	private static final String EVENT_NEXT_LINE = "\n";
+	/**
+	 * Pre-encoded head of answers that are event streams. The connection is
+	 * closed once the stream ends.
+	 */
+	private static final byte[] EVENT_STREAM_HEAD;
+	/**
+	 * Pre-encoded comment that is sent in event streams to detect clients that
+	 * are gone.
+	 */
+	private static final byte[] EVENT_STREAM_HEARTBEAT;
+	/**
+	 * Pre-encoded beginnings of answer heads for every status and content
+	 * type. That are the status line and the content type header field.
+	 */
+	private static final Map<EHttpStatus, Map<EHttpContentType, byte[]>> HEAD_PREFIXES;
+	/**
+	 * The name of the header field that controls the connection, in lower
+	 * case.
+	 */
+	private static final String HEADER_CONNECTION = "connection";
+	/**
+	 * Separator between the name and the value of a header field.
+	 */
+	private static final char HEADER_SEPARATOR = ':';
+	/**
+	 * Suffix of request lines that use the HTTP/1.0 protocol.
+	 */
+	private static final String HTTP_1_0_SUFFIX = "HTTP/1.0";
+	/**
+	 * Separator between lines of an answer head.
+	 */
+	private static final String NEXT_LINE = "\r\n";
+
+	static {
+		HEAD_PREFIXES = new EnumMap<>(EHttpStatus.class);
+		final String charset = TEXT_CHARSET.displayName().toLowerCase();
+		for (final EHttpStatus status : EHttpStatus.values()) {
+			final int statusNumber = getStatusNumber(status);
+			if (statusNumber == -1) {
+				continue;
+			}
+
+			final Map<EHttpContentType, byte[]> contentTypeToPrefix = new EnumMap<>(EHttpContentType.class);
+			for (final EHttpContentType contentType : EHttpContentType.values()) {
+				final String contentTypeText = getContentTypeText(contentType);
+				if (contentTypeText == null) {
+					continue;
+				}
+
+				final String prefix = "HTTP/1.1 " + statusNumber + " " + status + NEXT_LINE + "Content-Type: "
+						+ contentTypeText + "; charset=" + charset + NEXT_LINE;
+				contentTypeToPrefix.put(contentType, prefix.getBytes(TEXT_CHARSET));
+			}
+			HEAD_PREFIXES.put(status, contentTypeToPrefix);
+		}
+
+		CONNECTION_CLOSE_HEAD_END = ("Connection: " + CONNECTION_CLOSE + NEXT_LINE + NEXT_LINE)
+				.getBytes(TEXT_CHARSET);
+		CONNECTION_KEEP_ALIVE_HEAD_END = ("Connection: " + CONNECTION_KEEP_ALIVE + NEXT_LINE + NEXT_LINE)
+				.getBytes(TEXT_CHARSET);
+
+		EVENT_STREAM_HEAD = ("HTTP/1.1 200 " + EHttpStatus.OK + NEXT_LINE + "Content-Type: text/event-stream; charset="
+				+ charset + NEXT_LINE + "Cache-Control: no-cache" + NEXT_LINE + "Connection: " + CONNECTION_CLOSE
+				+ NEXT_LINE + NEXT_LINE).getBytes(TEXT_CHARSET);
+		EVENT_STREAM_HEARTBEAT = (":" + EVENT_NEXT_LINE + EVENT_NEXT_LINE).getBytes(TEXT_CHARSET);
+	}
 
 	/**
 	 * Decodes the given encoded URL into an UTF-8 text.
@@ -35,10 +132,13 @@ public final class HttpUtil {
 	 * @param encodedUrl
 	 *            The encoded URL to decode
 	 * @return The given URL decoded into an UTF-8 text
+	 * @throws IllegalArgumentException
+	 *             If the URL contains an invalid escape sequence
 	 * @throws UnexpectedUnsupportedEncodingException
 	 *             If the UTF-8 char-set is unexpectedly not supported
 	 */
-	public static String decodeUrlToUtf8(final String encodedUrl) throws UnexpectedUnsupportedEncodingException {
+	public static String decodeUrlToUtf8(final String encodedUrl)
+			throws IllegalArgumentException, UnexpectedUnsupportedEncodingException {
 		try {
 			return URLDecoder.decode(encodedUrl, TEXT_CHARSET.displayName());
 		} catch (final UnsupportedEncodingException e) {
@@ -47,122 +147,325 @@ public final class HttpUtil {
 	}
 
 	/**
-	 * Sends an error answer with the given status to the given client by using
-	 * the HTTP/1.0 protocol.
+	 * Whether the client of the given request wants to keep the connection
+	 * alive. That is the default for HTTP/1.1 unless the connection header
+	 * field requests to close it. HTTP/1.0 connections are only kept alive if
+	 * the header field explicitly requests it.
+	 * 
+	 * @param request
+	 *            The request line sent by the client
+	 * @param headers
+	 *            The header fields sent by the client with their names in
+	 *            lower case
+	 * @return <tt>True</tt> if the client wants to keep the connection alive,
+	 *         <tt>false</tt> otherwise
+	 */
+	public static boolean isKeepAliveRequested(final String request, final Map<String, String> headers) {
+		if (request == null) {
+			return false;
+		}
+		final String connection = headers.get(HEADER_CONNECTION);
+		if (request.endsWith(HTTP_1_0_SUFFIX)) {
+			return connection != null && connection.equalsIgnoreCase(CONNECTION_KEEP_ALIVE);
+		}
+		return connection == null || !connection.equalsIgnoreCase(CONNECTION_CLOSE);
+	}
+
+	/**
+	 * Parses the given header field line and puts it into the given headers.
+	 * The name of the field is put in lower case. Lines that are no valid
+	 * header fields are ignored.
+	 * 
+	 * @param line
+	 *            The header field line to parse
+	 * @param headers
+	 *            The headers to put the field into
+	 */
+	public static void parseHeaderField(final String line, final Map<String, String> headers) {
+		final int separatorIndex = line.indexOf(HEADER_SEPARATOR);
+		if (separatorIndex <= 0) {
+			return;
+		}
+		final String name = line.substring(0, separatorIndex).trim().toLowerCase(Locale.ROOT);
+		final String value = line.substring(separatorIndex + 1).trim();
+		headers.put(name, value);
+	}
+
+	/**
+	 * Reads the head of the next request from the given reader. That is the
+	 * request line followed by header fields up to the first empty line.
+	 * 
+	 * @param reader
+	 *            The reader to read from
+	 * @param headers
+	 *            The headers to put the read header fields into
+	 * @return The request line or <tt>null</tt> if the end of the stream was
+	 *         reached before a request line was read
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static String readRequestHead(final BufferedReader reader, final Map<String, String> headers)
+			throws IOException {
+		// Skip empty lines preceding the request line
+		String request = reader.readLine();
+		while (request != null && request.isEmpty()) {
+			request = reader.readLine();
+		}
+		if (request == null) {
+			return null;
+		}
+
+		String line = reader.readLine();
+		while (line != null && !line.isEmpty()) {
+			parseHeaderField(line, headers);
+			line = reader.readLine();
+		}
+		return request;
+	}
+
+	/**
+	 * Sends an error answer with the given status to the client of the given
+	 * request by using the HTTP/1.1 protocol.
 	 * 
 	 * @param status
 	 *            The status of the error answer to send
+	 * @param request
+	 *            The request of the client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static void sendError(final EHttpStatus status, final ClientRequest request) throws IOException {
+		sendHttpAnswer(status.toString(), EHttpContentType.TEXT, status, request);
+	}
+
+	/**
+	 * Sends the given data as event of an event stream to the given client.
+	 * Every line of the data is sent as separate data line of the event.
+	 * 
+	 * @param data
+	 *            The data of the event to send
 	 * @param client
 	 *            Client to send to
 	 * @throws IOException
 	 *             If an I/O-Exception occurred
 	 */
-	public static void sendError(final EHttpStatus status, final Socket client) throws IOException {
-		sendHttpAnswer(status.toString(), EHttpContentType.TEXT, status, client);
+	public static void sendEvent(final String data, final GatheringByteChannel client) throws IOException {
+		final StringBuilder event = new StringBuilder();
+		int lineStart = 0;
+		while (lineStart <= data.length()) {
+			int lineEnd = data.indexOf('\n', lineStart);
+			if (lineEnd == -1) {
+				lineEnd = data.length();
+			}
+			int lineContentEnd = lineEnd;
+			if (lineContentEnd > lineStart && data.charAt(lineContentEnd - 1) == '\r') {
+				lineContentEnd--;
+			}
+			event.append(EVENT_DATA_PREFIX).append(data, lineStart, lineContentEnd).append(EVENT_NEXT_LINE);
+			lineStart = lineEnd + 1;
+		}
+		event.append(EVENT_NEXT_LINE);
+
+		writeFully(new ByteBuffer[] { ByteBuffer.wrap(event.toString().getBytes(TEXT_CHARSET)) }, client);
 	}
 
 	/**
-	 * Sends an empty answer with the given parameters to the given client by
-	 * using the HTTP/1.0 protocol.
+	 * Sends the head of an event stream to the given client by using the
+	 * HTTP/1.1 protocol. Events can be sent afterwards by
+	 * {@link #sendEvent(String, GatheringByteChannel)}. The connection must be
+	 * closed once the stream ends.
 	 * 
 	 * @param client
 	 *            Client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static void sendEventStreamHead(final GatheringByteChannel client) throws IOException {
+		writeFully(new ByteBuffer[] { ByteBuffer.wrap(EVENT_STREAM_HEAD) }, client);
+	}
+
+	/**
+	 * Sends a heartbeat in an event stream to the given client. It is ignored
+	 * by the client but fails if the client is gone.
+	 * 
+	 * @param client
+	 *            Client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static void sendEventStreamHeartbeat(final GatheringByteChannel client) throws IOException {
+		writeFully(new ByteBuffer[] { ByteBuffer.wrap(EVENT_STREAM_HEARTBEAT) }, client);
+	}
+
+	/**
+	 * Sends an empty answer with the given parameters to the client of the
+	 * given request by using the HTTP/1.1 protocol.
+	 * 
 	 * @param contentType
 	 *            Type of the content to send
 	 * @param status
 	 *            The status of the answer to send
+	 * @param request
+	 *            The request of the client to send to
 	 * @throws IOException
 	 *             If an I/O-Exception occurred.
 	 */
-	public static void sendHttpAnswer(final EHttpContentType contentType, final EHttpStatus status, final Socket client)
-			throws IOException {
-		sendHttpAnswer(EMPTY_ANSWER, contentType, status, client);
+	public static void sendHttpAnswer(final EHttpContentType contentType, final EHttpStatus status,
+			final ClientRequest request) throws IOException {
+		sendHttpAnswer(EMPTY_ANSWER, contentType, status, request);
+	}
+
+	/**
+	 * Sends the given answer with the given parameters to the client of the
+	 * given request by using the HTTP/1.1 protocol. The connection is kept
+	 * alive if the request wants it.
+	 * 
+	 * @param answerText
+	 *            Answer to send
+	 * @param contentType
+	 *            Type of the content to send
+	 * @param status
+	 *            The status of the answer to send
+	 * @param request
+	 *            The request of the client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred.
+	 */
+	public static void sendHttpAnswer(final String answerText, final EHttpContentType contentType,
+			final EHttpStatus status, final ClientRequest request) throws IOException {
+		sendHttpAnswer(answerText, contentType, status, request.isKeepAlive(), request.getOutput());
 	}
 
 	/**
 	 * Sends the given answer with the given parameters to the given client by
-	 * using the HTTP/1.0 protocol.
+	 * using the HTTP/1.1 protocol. The head of the answer is assembled from
+	 * pre-encoded parts and written together with the body by a single
+	 * gathering write.
 	 * 
 	 * @param answerText
 	 *            Answer to send
-	 * @param client
-	 *            Client to send to
 	 * @param contentType
 	 *            Type of the content to send
 	 * @param status
 	 *            The status of the answer to send
+	 * @param keepAlive
+	 *            Whether the connection is kept alive after the answer or
+	 *            closed
+	 * @param client
+	 *            Client to send to
 	 * @throws IOException
 	 *             If an I/O-Exception occurred.
 	 */
 	public static void sendHttpAnswer(final String answerText, final EHttpContentType contentType,
-			final EHttpStatus status, final Socket client) throws IOException {
-		EHttpStatus statusToUse = status;
+			final EHttpStatus status, final boolean keepAlive, final GatheringByteChannel client) throws IOException {
 		String answerTextToUse = answerText;
 
-		final String contentTypeText;
+		byte[] headPrefix = null;
+		final Map<EHttpContentType, byte[]> contentTypeToPrefix = HEAD_PREFIXES.get(status);
+		if (contentTypeToPrefix != null) {
+			headPrefix = contentTypeToPrefix.get(contentType);
+		}
+		if (headPrefix == null) {
+			headPrefix = HEAD_PREFIXES.get(EHttpStatus.INTERNAL_SERVER_ERROR).get(EHttpContentType.TEXT);
+			// In case of an server error inside this method, don't send the
+			// intended message. It might contain sensible data.
+			answerTextToUse = EMPTY_ANSWER;
+		}
+
+		final byte[] answerTextAsBytes = answerTextToUse.getBytes(TEXT_CHARSET);
+		final byte[] contentLength = ("Content-Length: " + answerTextAsBytes.length + NEXT_LINE)
+				.getBytes(TEXT_CHARSET);
+		final byte[] headEnd;
+		if (keepAlive) {
+			headEnd = CONNECTION_KEEP_ALIVE_HEAD_END;
+		} else {
+			headEnd = CONNECTION_CLOSE_HEAD_END;
+		}
+
+		final ByteBuffer[] answer = { ByteBuffer.wrap(headPrefix), ByteBuffer.wrap(contentLength),
+				ByteBuffer.wrap(headEnd), ByteBuffer.wrap(answerTextAsBytes) };
+		writeFully(answer, client);
+	}
+
+	/**
+	 * Gets the text representing the given content type in the content type
+	 * header field.
+	 * 
+	 * @param contentType
+	 *            The content type to get the text for
+	 * @return The text representing the content type or <tt>null</tt> if the
+	 *         content type is not supported
+	 */
+	private static String getContentTypeText(final EHttpContentType contentType) {
 		if (contentType == EHttpContentType.TEXT) {
-			contentTypeText = "text/plain";
+			return "text/plain";
 		} else if (contentType == EHttpContentType.HTML) {
-			contentTypeText = "text/html";
+			return "text/html";
 		} else if (contentType == EHttpContentType.CSS) {
-			contentTypeText = "text/css";
+			return "text/css";
 		} else if (contentType == EHttpContentType.JS) {
-			contentTypeText = "application/javascript";
+			return "application/javascript";
 		} else if (contentType == EHttpContentType.JSON) {
-			contentTypeText = "application/json";
+			return "application/json";
 		} else if (contentType == EHttpContentType.PNG) {
-			contentTypeText = "image/png";
+			return "image/png";
 		} else if (contentType == EHttpContentType.JPG) {
-			contentTypeText = "image/jpeg";
-		} else {
-			contentTypeText = "text/plain";
-			statusToUse = EHttpStatus.INTERNAL_SERVER_ERROR;
-			// In case of an server error inside this method, don't send the
-			// intended message. It might contain sensible data.
-			answerTextToUse = "";
-		}
-
-		final int statusNumber;
-		if (statusToUse == EHttpStatus.OK) {
-			statusNumber = 200;
-		} else if (statusToUse == EHttpStatus.NO_CONTENT) {
-			statusNumber = 204;
-		} else if (statusToUse == EHttpStatus.BAD_REQUEST) {
-			statusNumber = 400;
-		} else if (statusToUse == EHttpStatus.FORBIDDEN) {
-			statusNumber = 403;
-		} else if (statusToUse == EHttpStatus.NOT_FOUND) {
-			statusNumber = 404;
-		} else if (statusToUse == EHttpStatus.UNPROCESSABLE_ENTITY) {
-			statusNumber = 422;
-		} else if (statusToUse == EHttpStatus.INTERNAL_SERVER_ERROR) {
-			statusNumber = 500;
-		} else if (statusToUse == EHttpStatus.NOT_IMPLEMENTED) {
-			statusNumber = 501;
-		} else if (statusToUse == EHttpStatus.SERVICE_UNAVAILABLE) {
-			statusNumber = 503;
-		} else {
-			statusToUse = EHttpStatus.INTERNAL_SERVER_ERROR;
-			statusNumber = 500;
-			// In case of an server error inside this method, don't send the
-			// intended message. It might contain sensible data.
-			answerTextToUse = "";
+			return "image/jpeg";
 		}
+		return null;
+	}
 
-		final byte[] answerTextAsBytes = answerTextToUse.getBytes(TEXT_CHARSET);
-		final String charset = TEXT_CHARSET.displayName().toLowerCase();
+	/**
+	 * Gets the number of the given status as used in the status line.
+	 * 
+	 * @param status
+	 *            The status to get the number of
+	 * @return The number of the status or <tt>-1</tt> if the status is not
+	 *         supported
+	 */
+	private static int getStatusNumber(final EHttpStatus status) {
+		if (status == EHttpStatus.OK) {
+			return 200;
+		} else if (status == EHttpStatus.NO_CONTENT) {
+			return 204;
+		} else if (status == EHttpStatus.BAD_REQUEST) {
+			return 400;
+		} else if (status == EHttpStatus.FORBIDDEN) {
+			return 403;
+		} else if (status == EHttpStatus.NOT_FOUND) {
+			return 404;
+		} else if (status == EHttpStatus.UNPROCESSABLE_ENTITY) {
+			return 422;
+		} else if (status == EHttpStatus.INTERNAL_SERVER_ERROR) {
+			return 500;
+		} else if (status == EHttpStatus.NOT_IMPLEMENTED) {
+			return 501;
+		} else if (status == EHttpStatus.SERVICE_UNAVAILABLE) {
+			return 503;
+		}
+		return -1;
+	}
 
-		final String nextLine = "\r\n";
-		final StringBuilder answer = new StringBuilder();
-		answer.append("HTTP/1.0 " + statusNumber + " " + statusToUse + nextLine);
-		answer.append("Content-Length: " + answerTextAsBytes.length + nextLine);
-		answer.append("Content-Type: " + contentTypeText + "; charset=" + charset + nextLine);
-		answer.append("Connection: close" + nextLine);
-		answer.append(nextLine);
-		answer.append(answerTextToUse);
-
-		try (final DataOutputStream output = new DataOutputStream(client.getOutputStream())) {
-			output.write(answer.toString().getBytes(TEXT_CHARSET));
+	/**
+	 * Writes the remaining content of the given buffers, in order, to the
+	 * given client. The client must be in blocking mode or accept all data,
+	 * like a {@link ClientOutput} does.
+	 * 
+	 * @param buffers
+	 *            The buffers to write
+	 * @param client
+	 *            Client to write to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred.
+	 */
+	private static void writeFully(final ByteBuffer[] buffers, final GatheringByteChannel client)
+			throws IOException {
+		long remaining = 0;
+		for (final ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= client.write(buffers);
 		}
 	}
 
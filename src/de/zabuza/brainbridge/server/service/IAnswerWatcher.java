@@ -0,0 +1,62 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.List;
+
+/**
+ * Interface for objects that watch the answers of a brain instance by using an
+ * {@link AnswerObserver}. The observer reads the answers of the instance once
+ * for all of its watchers and hands them to them. A watcher only receives the
+ * answers that arrive after its watching started.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IAnswerWatcher {
+	/**
+	 * Called by the observer whenever it read the answers of the watched
+	 * instance.
+	 * 
+	 * @param answers
+	 *            The answers of the instance that arrived since the previous
+	 *            read in order of their arrival, empty if none arrived
+	 * @return <tt>True</tt> if the watcher is finished and does not want to
+	 *         watch any further, <tt>false</tt> otherwise
+	 */
+	public boolean answersObserved(final List<String> answers);
+
+	/**
+	 * Ends the watching. Called by the observer if the watcher expired, the
+	 * watched instance does not exist anymore or the observer stops. The
+	 * watcher does not receive any further answers afterwards.
+	 */
+	public void end();
+
+	/**
+	 * Gets the id of the instance to watch.
+	 * 
+	 * @return The id of the instance to watch
+	 */
+	public String getInstanceId();
+
+	/**
+	 * Whether the watcher expired at the given time and should be ended.
+	 * 
+	 * @param timeNow
+	 *            The current time in milliseconds
+	 * @return <tt>True</tt> if the watcher expired, <tt>false</tt> otherwise
+	 */
+	public boolean isExpired(final long timeNow);
+
+	/**
+	 * Called by the observer once the watching started, before the watcher
+	 * receives any answers. Answers that arrived before are not handed to the
+	 * watcher.
+	 * 
+	 * @param latestAnswer
+	 *            The latest answer of the instance when the watching started
+	 *            or <tt>null</tt> if there is no
+	 * @return <tt>True</tt> if the watcher is finished and does not want to
+	 *         watch any further, <tt>false</tt> otherwise
+	 */
+	public boolean watchStarted(final String latestAnswer);
+}
@@ -0,0 +1,76 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.List;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+
+/**
+ * Interface for instances of an active chat with brain. Once created use
+ * {@link #initialize()} to initialize it. Afterwards get the assigned unique id
+ * of the instance by {@link #getId()} and use the provided methods for chat
+ * interaction. Always use {@link #shutdown()} when not using the instance
+ * anymore. Instances are not thread-safe. Failed operations are reported by
+ * throwing a {@link ChatBackendException}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IBrainInstance {
+	/**
+	 * Gets the unique id assigned to this chat instance.
+	 * 
+	 * @return The unique id assigned to this chat instance or <tt>null</tt> if
+	 *         not yet initialized with {@link #initialize()}
+	 */
+	public String getId();
+
+	/**
+	 * Gets the timestamp of when the instance was last used in milliseconds.
+	 * 
+	 * @return The timestamp of when the instance was last used in milliseconds
+	 */
+	public long getLastUsage();
+
+	/**
+	 * Gets the latest answer of brain in the chat.
+	 * 
+	 * @return The latest answer of brain in the chat or <tt>null</tt> if there
+	 *         is no
+	 */
+	public String getLatestAnswer();
+
+	/**
+	 * Gets the answers of brain that arrived in the chat since the last call
+	 * of this method, in order of their arrival. Every answer is returned
+	 * once, also if it equals a previous answer.
+	 * 
+	 * @return The answers that arrived since the last call, empty if none
+	 *         arrived
+	 */
+	public List<String> getLatestAnswers();
+
+	/**
+	 * Initializes the instance. Call this method prior to chat interaction.
+	 */
+	public void initialize();
+
+	/**
+	 * Posts the given message to the brain chat.
+	 * 
+	 * @param message
+	 *            The message to post
+	 */
+	public void postMessage(final String message);
+
+	/**
+	 * Shuts this instance down and frees all used resources.
+	 */
+	public void shutdown();
+
+	/**
+	 * Updates the value of the last usage timestamp by setting it to the
+	 * current time. Used when the instance is handed out after it was kept in
+	 * spare.
+	 */
+	public void updateLastUsage();
+}
@@ -0,0 +1,79 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.Collection;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+
+/**
+ * Interface for backends that create the instances of a {@link DriverShard}.
+ * The backend is only used by the thread of its shard, it does not need to be
+ * thread-safe. Call {@link #initialize()} before using it.<br>
+ * <br>
+ * Backends and their instances report failed operations by throwing a
+ * {@link ChatBackendException}, specific errors of the underlying technology
+ * do not leave the backend.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IChatBackend {
+	/**
+	 * Creates a new instance. It is not initialized yet.
+	 * 
+	 * @return The created instance
+	 * @throws ChatBackendException
+	 *             If the backend failed to create the instance
+	 */
+	public IBrainInstance createInstance() throws ChatBackendException;
+
+	/**
+	 * Gets the maximal amount of instances the backend can serve at the same
+	 * time.
+	 * 
+	 * @return The maximal amount of instances
+	 */
+	public int getMaxInstances();
+
+	/**
+	 * Initializes the backend. Call this method prior to using the backend.
+	 */
+	public void initialize();
+
+	/**
+	 * Whether the backend is still able to serve its instances. A backend that
+	 * is not healthy, for example because its browser crashed, fails all
+	 * further operations.
+	 * 
+	 * @return <tt>True</tt> if the backend is healthy, <tt>false</tt> otherwise
+	 */
+	public boolean isHealthy();
+
+	/**
+	 * Performs periodic maintenance of the backend, like replacing resources
+	 * that wore out. It is called regularly, right before checking whether
+	 * the backend is healthy, and after an operation of an instance failed
+	 * while the backend is still healthy.
+	 * 
+	 * @return The instances that can not be used anymore since the resources
+	 *         they used were released, for example a crashed or worn out
+	 *         browser. They have to be created again, all other instances stay
+	 *         valid.
+	 */
+	public Collection<IBrainInstance> maintain();
+
+	/**
+	 * Quits the backend and frees all used resources. Afterwards the backend
+	 * can not be used anymore.
+	 */
+	public void quit();
+
+	/**
+	 * Recovers the backend after it became unhealthy, for example by replacing
+	 * its crashed browser with a fresh one. All instances created before are
+	 * invalid afterwards and have to be created again.
+	 * 
+	 * @throws ChatBackendException
+	 *             If the backend could not be recovered
+	 */
+	public void recover() throws ChatBackendException;
+}
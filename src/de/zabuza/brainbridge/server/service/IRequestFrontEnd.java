@@ -0,0 +1,54 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for front ends of the {@link Service} that accept clients and read
+ * their requests. Every completely read request is handed to the service which
+ * serves it. Call {@link #start()} to start the front end and
+ * {@link #stopFrontEnd()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IRequestFrontEnd {
+	/**
+	 * Releases the client of the given request, which was handed to the
+	 * service by this front end. The front end does not read from the client
+	 * anymore and the caller takes the connection over, which is in blocking
+	 * mode afterwards. Used for connections that switch to another protocol.
+	 * 
+	 * @param request
+	 *            The request whose client to release
+	 * @return Data that was already read from the client but does not belong
+	 *         to the request, ready for getting read
+	 * @throws IOException
+	 *             If an I/O-Exception occurred while releasing the client
+	 */
+	public ByteBuffer releaseClient(final ClientRequest request) throws IOException;
+
+	/**
+	 * Notifies the front end that the given request, which was handed to the
+	 * service by this front end, was served. If the connection of the request
+	 * is kept alive the front end may continue reading further requests of the
+	 * client.
+	 * 
+	 * @param request
+	 *            The request that was served
+	 */
+	public void requestServed(final ClientRequest request);
+
+	/**
+	 * Starts the front end. It will accept clients and read their requests
+	 * until {@link #stopFrontEnd()} is called.
+	 */
+	public void start();
+
+	/**
+	 * Requests the front end to stop. It will not accept clients anymore and
+	 * close all connections that still wait for their request to be read.
+	 * Requests that were already handed to the service are not affected.
+	 */
+	public void stopFrontEnd();
+}
@@ -0,0 +1,261 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Thread that watches kept alive connections of the
+ * {@link PooledRequestAcceptor} while their clients do not send a request.
+ * Such connections do thus not occupy a thread of the acceptor. Once a client
+ * sends its next request its worker is handed back to the executor of the
+ * acceptor, connections that are idle for too long get closed. Call
+ * {@link #start()} to start the watcher and {@link #stopWatcher()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class IdleConnectionWatcher extends Thread {
+	/**
+	 * Internal flag whether the watcher should run or not. If set to
+	 * <tt>false</tt> the watcher will close all watched connections and stop.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The executor to hand workers to whose client sent a request.
+	 */
+	private final Executor mExecutor;
+	/**
+	 * The time in milliseconds after which connections without activity get
+	 * closed.
+	 */
+	private final long mIdleTimeout;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * Workers of connections to watch that are not registered at the selector
+	 * yet.
+	 */
+	private final Queue<ConnectionWorker> mNewWorkers;
+	/**
+	 * The selector used to wait for requests of the watched connections.
+	 */
+	private final Selector mSelector;
+
+	/**
+	 * Creates a new watcher that hands workers to the given executor once
+	 * their client sent a request. Call {@link #start()} to start the watcher
+	 * and {@link #stopWatcher()} to stop it.
+	 * 
+	 * @param idleTimeout
+	 *            The time in milliseconds after which connections without
+	 *            activity get closed
+	 * @param executor
+	 *            The executor to hand workers to whose client sent a request
+	 * @throws IOException
+	 *             If an I/O-Exception occurs while opening the selector
+	 */
+	public IdleConnectionWatcher(final long idleTimeout, final Executor executor) throws IOException {
+		super(IdleConnectionWatcher.class.getSimpleName());
+		this.mIdleTimeout = idleTimeout;
+		this.mExecutor = executor;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mNewWorkers = new ConcurrentLinkedQueue<>();
+		this.mSelector = Selector.open();
+		this.mDoRun = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (this.mDoRun) {
+				this.mSelector.select(this.mIdleTimeout);
+				registerNewWorkers();
+
+				// Hand workers whose client sent data back to the executor
+				final List<SelectionKey> readableKeys = new ArrayList<>();
+				final Iterator<SelectionKey> keyIter = this.mSelector.selectedKeys().iterator();
+				while (keyIter.hasNext()) {
+					final SelectionKey key = keyIter.next();
+					keyIter.remove();
+					if (key.isValid() && key.isReadable()) {
+						readableKeys.add(key);
+					}
+				}
+				if (!readableKeys.isEmpty()) {
+					resumeWorkers(readableKeys);
+				}
+
+				closeIdleConnections();
+			}
+		} catch (final IOException e) {
+			this.mLogger.logError("Error while watching idle connections, stopping: " + LoggerUtil.getStackTrace(e));
+			this.mDoRun = false;
+		} finally {
+			closeAll();
+		}
+	}
+
+	/**
+	 * Stops the watcher. Watched connections get closed.
+	 */
+	public void stopWatcher() {
+		this.mDoRun = false;
+		this.mSelector.wakeup();
+	}
+
+	/**
+	 * Watches the connection of the given worker until its client sends the
+	 * next request. The worker is then handed to the executor of the watcher
+	 * to serve it. The worker must not read from its connection meanwhile.
+	 * 
+	 * @param worker
+	 *            The worker whose connection to watch
+	 */
+	public void watch(final ConnectionWorker worker) {
+		if (!this.mDoRun) {
+			closeChannel(worker.getChannel());
+			return;
+		}
+		this.mNewWorkers.add(worker);
+		this.mSelector.wakeup();
+		if (!this.mDoRun) {
+			// The watcher may have stopped before the worker was added
+			closeNewWorkers();
+		}
+	}
+
+	/**
+	 * Closes all watched connections and the selector.
+	 */
+	private void closeAll() {
+		closeNewWorkers();
+		for (final SelectionKey key : this.mSelector.keys()) {
+			closeChannel(key.channel());
+		}
+		try {
+			this.mSelector.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing selector: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes the given channel.
+	 * 
+	 * @param channel
+	 *            The channel to close
+	 */
+	private void closeChannel(final Channel channel) {
+		try {
+			channel.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes all watched connections whose client did not send a request for
+	 * longer than the idle timeout.
+	 */
+	private void closeIdleConnections() {
+		final long now = System.currentTimeMillis();
+		for (final SelectionKey key : this.mSelector.keys()) {
+			final ConnectionWorker worker = (ConnectionWorker) key.attachment();
+			if (key.isValid() && now - worker.getLastActivity() >= this.mIdleTimeout) {
+				closeChannel(key.channel());
+			}
+		}
+	}
+
+	/**
+	 * Closes the connections of all workers that are not registered at the
+	 * selector yet.
+	 */
+	private void closeNewWorkers() {
+		while (true) {
+			final ConnectionWorker worker = this.mNewWorkers.poll();
+			if (worker == null) {
+				return;
+			}
+			closeChannel(worker.getChannel());
+		}
+	}
+
+	/**
+	 * Registers the connections of all new workers at the selector.
+	 */
+	private void registerNewWorkers() {
+		while (true) {
+			final ConnectionWorker worker = this.mNewWorkers.poll();
+			if (worker == null) {
+				return;
+			}
+			final SocketChannel channel = worker.getChannel();
+			try {
+				channel.configureBlocking(false);
+				channel.register(this.mSelector, SelectionKey.OP_READ, worker);
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeChannel(channel);
+			}
+		}
+	}
+
+	/**
+	 * Stops watching the connections of the given keys and hands their workers
+	 * back to the executor.
+	 * 
+	 * @param keys
+	 *            The keys of the connections whose client sent data
+	 * @throws IOException
+	 *             If an I/O-Exception occurs while using the selector
+	 */
+	private void resumeWorkers(final List<SelectionKey> keys) throws IOException {
+		// Channels need to be deregistered before they can block again, this
+		// happens at the next selection after the keys were cancelled
+		for (final SelectionKey key : keys) {
+			key.cancel();
+		}
+		this.mSelector.selectNow();
+
+		for (final SelectionKey key : keys) {
+			final ConnectionWorker worker = (ConnectionWorker) key.attachment();
+			final SocketChannel channel = worker.getChannel();
+			try {
+				channel.configureBlocking(true);
+				this.mExecutor.execute(worker);
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeChannel(channel);
+			} catch (final RejectedExecutionException e) {
+				// The acceptor was stopped meanwhile
+				closeChannel(channel);
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Front end of the {@link Service} that hands every accepted client to its own
+ * thread. The thread reads the requests of the client and serves them directly,
+ * clients do thus not wait for each other unless they need the driver.
+ * Connections are kept alive if the client wants it until they are idle for too
+ * long. While a client of a kept alive connection has not sent its next request
+ * the connection is watched by an {@link IdleConnectionWatcher} and does not
+ * occupy a thread. Virtual threads are used if the runtime supports them, a
+ * pool of threads that grows with the amount of clients that are served at the
+ * same time otherwise. Call {@link #start()} to start the acceptor and
+ * {@link #stopFrontEnd()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class PooledRequestAcceptor extends Thread implements IRequestFrontEnd {
+	/**
+	 * Name of the factory method for executors that start a new virtual thread
+	 * for every task. It is only available at runtimes that support virtual
+	 * threads.
+	 */
+	private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+	/**
+	 * Creates the executor to use for serving clients. If the runtime supports
+	 * virtual threads it starts a new virtual thread for every client,
+	 * otherwise it uses a pool of threads that grows if all threads are busy
+	 * and shrinks again once threads are unused for a while.
+	 * 
+	 * @return The executor to use for serving clients
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+			return (ExecutorService) factory.invoke(null);
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			// Virtual threads are not supported, use a pool instead. Threads are
+			// only occupied while serving a request, connections that wait for
+			// the next request are watched by the idle connection watcher.
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Internal flag whether the acceptor should run or not. If set to
+	 * <tt>false</tt> the acceptor will stop accepting clients.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The executor that serves accepted clients.
+	 */
+	private final ExecutorService mExecutor;
+	/**
+	 * The time in milliseconds after which connections without activity get
+	 * closed.
+	 */
+	private final long mIdleTimeout;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The server socket used to listen for clients.
+	 */
+	private final ServerSocket mServerSocket;
+	/**
+	 * The service to serve the requests of clients with.
+	 */
+	private final Service mService;
+	/**
+	 * The watcher of kept alive connections whose client has not sent its
+	 * next request.
+	 */
+	private final IdleConnectionWatcher mWatcher;
+
+	/**
+	 * Creates a new acceptor that listens for clients on the given port. Call
+	 * {@link #start()} to start the acceptor and {@link #stopFrontEnd()} to
+	 * stop it.
+	 * 
+	 * @param port
+	 *            The port to listen for clients on
+	 * @param idleTimeout
+	 *            The time in milliseconds after which connections without
+	 *            activity get closed
+	 * @param service
+	 *            The service to serve the requests of clients with
+	 * @throws IOException
+	 *             If an I/O-Exception occurs while opening the port or the
+	 *             selector of the idle connection watcher
+	 */
+	public PooledRequestAcceptor(final int port, final long idleTimeout, final Service service) throws IOException {
+		super(PooledRequestAcceptor.class.getSimpleName());
+		this.mIdleTimeout = idleTimeout;
+		this.mService = service;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mDoRun = true;
+
+		// Open the socket by a channel to be able to write answers to accepted
+		// clients by their channels
+		this.mServerSocket = ServerSocketChannel.open().socket();
+		try {
+			this.mServerSocket.bind(new InetSocketAddress(port));
+		} catch (final IOException e) {
+			this.mServerSocket.close();
+			throw e;
+		}
+		this.mExecutor = createExecutor();
+		try {
+			this.mWatcher = new IdleConnectionWatcher(idleTimeout, this.mExecutor);
+		} catch (final IOException e) {
+			this.mExecutor.shutdown();
+			this.mServerSocket.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#releaseClient(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public ByteBuffer releaseClient(final ClientRequest request) {
+		// The client is in blocking mode and its worker waits until the
+		// connection was closed by the caller, a client must await the
+		// answer to the request before sending further data
+		return ByteBuffer.allocate(0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#requestServed(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public void requestServed(final ClientRequest request) {
+		// Workers read the next request of their client once the previous one
+		// was served, nothing to do
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		this.mWatcher.start();
+		while (this.mDoRun) {
+			// Wait for a client to connect
+			final Socket clientSocket;
+			try {
+				clientSocket = this.mServerSocket.accept();
+			} catch (final IOException e) {
+				if (this.mDoRun) {
+					this.mLogger.logError("Error while accepting clients, stopping: " + LoggerUtil.getStackTrace(e));
+					this.mDoRun = false;
+				}
+				break;
+			}
+			this.mLogger.logInfo("Connected with " + clientSocket.getInetAddress());
+
+			try {
+				this.mExecutor.execute(
+						new ConnectionWorker(clientSocket, this.mIdleTimeout, this.mService, this.mWatcher));
+			} catch (final RejectedExecutionException e) {
+				// The acceptor was stopped meanwhile
+				closeClient(clientSocket);
+			}
+		}
+
+		this.mWatcher.stopWatcher();
+		this.mExecutor.shutdown();
+		try {
+			this.mServerSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing server socket: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#stopFrontEnd()
+	 */
+	@Override
+	public void stopFrontEnd() {
+		this.mDoRun = false;
+		this.mWatcher.stopWatcher();
+		this.mExecutor.shutdown();
+		try {
+			// Unblocks the acceptor if it waits for a client to connect
+			this.mServerSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing server socket: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes the given client.
+	 * 
+	 * @param clientSocket
+	 *            The client to close
+	 */
+	private void closeClient(final Socket clientSocket) {
+		try {
+			clientSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+}
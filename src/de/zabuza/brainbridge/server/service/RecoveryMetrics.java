@@ -0,0 +1,150 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the recoveries of the backend of a {@link DriverShard}. They
+ * count how often the backend was recovered after it became unhealthy, how
+ * long that took and how many instances were re-created or lost on the way.
+ * The class is thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RecoveryMetrics {
+	/**
+	 * The amount of recoveries that failed.
+	 */
+	private final AtomicLong mFailedRecoveries;
+	/**
+	 * The time in milliseconds the latest successful recovery took.
+	 */
+	private final AtomicLong mLastRecoveryTime;
+	/**
+	 * The amount of instances that could not be re-created.
+	 */
+	private final AtomicLong mLostInstances;
+	/**
+	 * The amount of instances that were re-created under their existing ids.
+	 */
+	private final AtomicLong mRecreatedInstances;
+	/**
+	 * The amount of successful recoveries.
+	 */
+	private final AtomicLong mRecoveries;
+	/**
+	 * The total time in milliseconds all successful recoveries took.
+	 */
+	private final AtomicLong mRecoveryTime;
+
+	/**
+	 * Creates new metrics that start counting now.
+	 */
+	public RecoveryMetrics() {
+		this.mFailedRecoveries = new AtomicLong(0L);
+		this.mLastRecoveryTime = new AtomicLong(0L);
+		this.mLostInstances = new AtomicLong(0L);
+		this.mRecreatedInstances = new AtomicLong(0L);
+		this.mRecoveries = new AtomicLong(0L);
+		this.mRecoveryTime = new AtomicLong(0L);
+	}
+
+	/**
+	 * Gets the average time in milliseconds a successful recovery took.
+	 * 
+	 * @return The average recovery time or <tt>0</tt> if there was no
+	 *         recovery yet
+	 */
+	public long getAverageRecoveryTime() {
+		final long recoveries = getRecoveries();
+		if (recoveries == 0L) {
+			return 0L;
+		}
+		return this.mRecoveryTime.get() / recoveries;
+	}
+
+	/**
+	 * Gets the amount of recoveries that failed.
+	 * 
+	 * @return The amount of failed recoveries
+	 */
+	public long getFailedRecoveries() {
+		return this.mFailedRecoveries.get();
+	}
+
+	/**
+	 * Gets the time in milliseconds the latest successful recovery took.
+	 * 
+	 * @return The time of the latest recovery or <tt>0</tt> if there was no
+	 *         recovery yet
+	 */
+	public long getLastRecoveryTime() {
+		return this.mLastRecoveryTime.get();
+	}
+
+	/**
+	 * Gets the amount of instances that could not be re-created.
+	 * 
+	 * @return The amount of lost instances
+	 */
+	public long getLostInstances() {
+		return this.mLostInstances.get();
+	}
+
+	/**
+	 * Gets the amount of instances that were re-created under their existing
+	 * ids.
+	 * 
+	 * @return The amount of re-created instances
+	 */
+	public long getRecreatedInstances() {
+		return this.mRecreatedInstances.get();
+	}
+
+	/**
+	 * Gets the amount of successful recoveries.
+	 * 
+	 * @return The amount of recoveries
+	 */
+	public long getRecoveries() {
+		return this.mRecoveries.get();
+	}
+
+	/**
+	 * Counts a recovery that failed.
+	 */
+	public void recordFailedRecovery() {
+		this.mFailedRecoveries.incrementAndGet();
+	}
+
+	/**
+	 * Counts a successful recovery.
+	 * 
+	 * @param recoveryTime
+	 *            The time in milliseconds the recovery took
+	 * @param recreatedInstances
+	 *            The amount of instances that were re-created
+	 * @param lostInstances
+	 *            The amount of instances that could not be re-created
+	 */
+	public void recordRecovery(final long recoveryTime, final int recreatedInstances, final int lostInstances) {
+		this.mRecoveries.incrementAndGet();
+		this.mRecoveryTime.addAndGet(recoveryTime);
+		this.mLastRecoveryTime.set(recoveryTime);
+		this.mRecreatedInstances.addAndGet(recreatedInstances);
+		this.mLostInstances.addAndGet(lostInstances);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "recoveries=" + getRecoveries() + ", failedRecoveries=" + getFailedRecoveries()
+				+ ", recreatedInstances=" + getRecreatedInstances() + ", lostInstances=" + getLostInstances()
+				+ ", averageRecoveryTime=" + getAverageRecoveryTime() + " ms, lastRecoveryTime="
+				+ getLastRecoveryTime() + " ms";
+	}
+}
@@ -0,0 +1,186 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Front end of the {@link Service} that accepts one client at a time and blocks
+ * on reading its request. Every completely read request is offered to the
+ * given queue where it waits for getting served. Connections are not kept
+ * alive since a waiting client would block all others. Call {@link #start()} to
+ * start the acceptor and {@link #stopFrontEnd()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RequestAcceptor extends Thread implements IRequestFrontEnd {
+	/**
+	 * The time in milliseconds to wait for a connected client to send its
+	 * request.
+	 */
+	private static final int CLIENT_READ_TIMEOUT = 10_000;
+
+	/**
+	 * Internal flag whether the acceptor should run or not. If set to
+	 * <tt>false</tt> the acceptor will stop accepting clients.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The queue to offer completely read requests to.
+	 */
+	private final BlockingQueue<ClientRequest> mRequests;
+	/**
+	 * The server socket used to listen for clients.
+	 */
+	private final ServerSocket mServerSocket;
+
+	/**
+	 * Creates a new acceptor that listens for clients on the given port. Call
+	 * {@link #start()} to start the acceptor and {@link #stopFrontEnd()} to
+	 * stop it.
+	 * 
+	 * @param port
+	 *            The port to listen for clients on
+	 * @param requests
+	 *            The queue to offer completely read requests to
+	 * @throws IOException
+	 *             If an I/O-Exception occurs while opening the port
+	 */
+	public RequestAcceptor(final int port, final BlockingQueue<ClientRequest> requests) throws IOException {
+		super(RequestAcceptor.class.getSimpleName());
+		this.mRequests = requests;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mDoRun = true;
+
+		// Open the socket by a channel to be able to write answers to accepted
+		// clients by their channels
+		this.mServerSocket = ServerSocketChannel.open().socket();
+		try {
+			this.mServerSocket.bind(new InetSocketAddress(port));
+		} catch (final IOException e) {
+			this.mServerSocket.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		while (this.mDoRun) {
+			// Wait for a client to connect
+			final Socket clientSocket;
+			try {
+				clientSocket = this.mServerSocket.accept();
+			} catch (final IOException e) {
+				if (this.mDoRun) {
+					this.mLogger.logError("Error while accepting clients, stopping: " + LoggerUtil.getStackTrace(e));
+					this.mDoRun = false;
+				}
+				break;
+			}
+			this.mLogger.logInfo("Connected with " + clientSocket.getInetAddress());
+
+			// Read the request, the reader is not closed as this would close
+			// the client which still needs to get served
+			try {
+				clientSocket.setSoTimeout(CLIENT_READ_TIMEOUT);
+				final BufferedReader br = new BufferedReader(
+						new InputStreamReader(clientSocket.getInputStream(), HttpUtil.TEXT_CHARSET));
+				final Map<String, String> headers = new HashMap<>();
+				final String request = HttpUtil.readRequestHead(br, headers);
+				this.mRequests.add(new ClientRequest(request, headers, false, clientSocket.getChannel()));
+			} catch (final IOException e) {
+				// Log the error but continue
+				this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+				closeClient(clientSocket);
+			}
+		}
+
+		try {
+			this.mServerSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing server socket: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#releaseClient(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public ByteBuffer releaseClient(final ClientRequest request) {
+		// The client is in blocking mode, a client must await the answer to
+		// the request before sending further data
+		return ByteBuffer.allocate(0);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#requestServed(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public void requestServed(final ClientRequest request) {
+		// Connections are not kept alive, nothing to do
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#stopFrontEnd()
+	 */
+	@Override
+	public void stopFrontEnd() {
+		this.mDoRun = false;
+		try {
+			// Unblocks the acceptor if it waits for a client to connect
+			this.mServerSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing server socket: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes the given client.
+	 * 
+	 * @param clientSocket
+	 *            The client to close
+	 */
+	private void closeClient(final Socket clientSocket) {
+		try {
+			clientSocket.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+}
@@ -0,0 +1,571 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Front end of the {@link Service} that accepts clients and reads their
+ * requests without blocking by using a {@link Selector}. Many clients can be
+ * connected at the same time, every completely read request is offered to the
+ * given queue where it waits for getting served. Connections are kept alive if
+ * the client wants it and may pipeline requests. The requests of a connection
+ * are offered one after another, the next one once the previous one was served.
+ * That keeps the answers in order, even if a request is parked by the service.
+ * Answers the client does not accept right away are queued and written once it
+ * is ready, see {@link ClientOutput}. Connections that are idle for too long
+ * get closed. Clients that switch to another protocol can be released from the
+ * selector. Call {@link #start()} to start the selector and
+ * {@link #stopFrontEnd()} to stop it.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RequestSelector extends Thread implements IRequestFrontEnd {
+	/**
+	 * Pattern that matches line separators in a request head.
+	 */
+	private static final String LINE_SEPARATOR_PATTERN = "\r?\n";
+	/**
+	 * The maximal length of a request head in bytes. Clients sending longer
+	 * request heads are rejected.
+	 */
+	private static final int MAX_REQUEST_HEAD_LENGTH = 8_192;
+	/**
+	 * The maximal time in milliseconds to wait for the selector to release a
+	 * client.
+	 */
+	private static final long RELEASE_TIMEOUT = 5_000L;
+
+	/**
+	 * Searches the end of the first request head in the given buffer. A head
+	 * ends with an empty line.
+	 * 
+	 * @param buffer
+	 *            The buffer to search in, the search covers all bytes from the
+	 *            start up to its current position
+	 * @return The index of the first byte after the head or <tt>-1</tt> if
+	 *         the head is not complete yet
+	 */
+	private static int indexOfHeadEnd(final ByteBuffer buffer) {
+		final int end = buffer.position();
+		for (int i = 0; i < end; i++) {
+			if (buffer.get(i) != '\n') {
+				continue;
+			}
+			if (i + 1 < end && buffer.get(i + 1) == '\n') {
+				return i + 2;
+			}
+			if (i + 2 < end && buffer.get(i + 1) == '\r' && buffer.get(i + 2) == '\n') {
+				return i + 3;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Queue of clients whose output queued data that waits for getting
+	 * written.
+	 */
+	private final Queue<SocketChannel> mClientsToWrite;
+	/**
+	 * Internal flag whether the selector should run or not. If set to
+	 * <tt>false</tt> the selector will stop and close all connections that do
+	 * not wait for a request to be served.
+	 */
+	private volatile boolean mDoRun;
+	/**
+	 * The time in milliseconds after which connections without activity get
+	 * closed.
+	 */
+	private final long mIdleTimeout;
+	/**
+	 * Queue of keys whose clients wait for getting released from the
+	 * selector.
+	 */
+	private final Queue<SelectionKey> mKeysToRelease;
+	/**
+	 * Queue of keys whose clients had a request served and may continue with
+	 * their next request.
+	 */
+	private final Queue<SelectionKey> mKeysToResume;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * The queue to offer completely read requests to.
+	 */
+	private final BlockingQueue<ClientRequest> mRequests;
+	/**
+	 * The selector used to multiplex all connections.
+	 */
+	private final Selector mSelector;
+	/**
+	 * The server channel used to listen for clients.
+	 */
+	private final ServerSocketChannel mServerChannel;
+
+	/**
+	 * Creates a new selector that listens for clients on the given port. Call
+	 * {@link #start()} to start the selector and {@link #stopFrontEnd()} to
+	 * stop it.
+	 * 
+	 * @param port
+	 *            The port to listen for clients on
+	 * @param idleTimeout
+	 *            The time in milliseconds after which connections without
+	 *            activity get closed
+	 * @param requests
+	 *            The queue to offer completely read requests to
+	 * @throws IOException
+	 *             If an I/O-Exception occurs while opening the port
+	 */
+	public RequestSelector(final int port, final long idleTimeout, final BlockingQueue<ClientRequest> requests)
+			throws IOException {
+		super(RequestSelector.class.getSimpleName());
+		this.mIdleTimeout = idleTimeout;
+		this.mRequests = requests;
+		this.mKeysToRelease = new ConcurrentLinkedQueue<>();
+		this.mKeysToResume = new ConcurrentLinkedQueue<>();
+		this.mClientsToWrite = new ConcurrentLinkedQueue<>();
+		this.mLogger = LoggerFactory.getLogger();
+		this.mDoRun = true;
+
+		this.mSelector = Selector.open();
+		this.mServerChannel = ServerSocketChannel.open();
+		try {
+			this.mServerChannel.bind(new InetSocketAddress(port));
+			this.mServerChannel.configureBlocking(false);
+			this.mServerChannel.register(this.mSelector, SelectionKey.OP_ACCEPT);
+		} catch (final IOException e) {
+			this.mServerChannel.close();
+			this.mSelector.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Notifies the selector that the output of the given client queued data.
+	 * The selector writes it once the client is ready. The method is
+	 * thread-safe.
+	 * 
+	 * @param client
+	 *            The client whose output queued data
+	 */
+	public void outputQueued(final SocketChannel client) {
+		this.mClientsToWrite.add(client);
+		this.mSelector.wakeup();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#releaseClient(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public ByteBuffer releaseClient(final ClientRequest request) throws IOException {
+		final SelectionKey key = request.getClient().keyFor(this.mSelector);
+		if (key == null) {
+			throw new IOException("Client is not registered at the selector");
+		}
+		final ClientConnection connection = (ClientConnection) key.attachment();
+
+		// Keys may only be deregistered by the selector thread
+		this.mKeysToRelease.add(key);
+		this.mSelector.wakeup();
+		if (!connection.awaitRelease(RELEASE_TIMEOUT)) {
+			throw new IOException("Client was not released by the selector in time");
+		}
+		// The client is in blocking mode now, previous answers are written
+		// before the new owner uses it
+		connection.getOutput().flush();
+		return connection.getBuffer();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#requestServed(de.
+	 * zabuza.brainbridge.server.service.ClientRequest)
+	 */
+	@Override
+	public void requestServed(final ClientRequest request) {
+		final SelectionKey key = request.getClient().keyFor(this.mSelector);
+		if (key == null) {
+			return;
+		}
+		final ClientConnection connection = (ClientConnection) key.attachment();
+		if (connection != null) {
+			connection.requestServed();
+			// Keys may only be changed by the selector thread
+			this.mKeysToResume.add(key);
+			this.mSelector.wakeup();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			long nextIdleCheck = System.currentTimeMillis() + this.mIdleTimeout;
+			while (this.mDoRun) {
+				// Blocks until a client is ready, the selector gets woken up or
+				// idle connections need to be checked
+				this.mSelector.select(this.mIdleTimeout);
+				releaseClients();
+				registerWrites();
+				resumeClients();
+
+				final Iterator<SelectionKey> selectedKeys = this.mSelector.selectedKeys().iterator();
+				while (selectedKeys.hasNext()) {
+					final SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					if (key.isWritable()) {
+						write(key);
+					}
+					if (key.isValid() && key.isReadable()) {
+						read(key);
+					}
+				}
+
+				final long timeNow = System.currentTimeMillis();
+				if (timeNow >= nextIdleCheck) {
+					closeIdleConnections(timeNow);
+					nextIdleCheck = timeNow + this.mIdleTimeout;
+				}
+			}
+		} catch (final IOException | ClosedSelectorException e) {
+			this.mLogger.logError("Error while selecting clients, stopping: " + LoggerUtil.getStackTrace(e));
+		} finally {
+			close();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IRequestFrontEnd#stopFrontEnd()
+	 */
+	@Override
+	public void stopFrontEnd() {
+		this.mDoRun = false;
+		this.mSelector.wakeup();
+	}
+
+	/**
+	 * Accepts a pending client and registers it for reading its requests.
+	 */
+	private void accept() {
+		try {
+			final SocketChannel client = this.mServerChannel.accept();
+			if (client == null) {
+				return;
+			}
+			this.mLogger.logInfo("Connected with " + client.socket().getInetAddress());
+
+			client.configureBlocking(false);
+			client.register(this.mSelector, SelectionKey.OP_READ,
+					new ClientConnection(MAX_REQUEST_HEAD_LENGTH, new ClientOutput(client, this)));
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while accepting client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes the selector, the server channel and all connections that do not
+	 * wait for a request to be served.
+	 */
+	private void close() {
+		try {
+			releaseClients();
+			for (final SelectionKey key : this.mSelector.keys()) {
+				// Connections that wait for getting served stay open
+				final ClientConnection connection = (ClientConnection) key.attachment();
+				if (connection != null && connection.hasPendingRequests()) {
+					continue;
+				}
+				closeChannel(key);
+			}
+			this.mSelector.close();
+		} catch (final IOException | ClosedSelectorException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing selector: " + LoggerUtil.getStackTrace(e));
+		}
+		try {
+			this.mServerChannel.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("Error while closing server channel: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Cancels the given key and closes its channel.
+	 * 
+	 * @param key
+	 *            The key to close
+	 */
+	private void closeChannel(final SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Closes all connections that are idle for longer than the idle timeout.
+	 * 
+	 * @param timeNow
+	 *            The current time in milliseconds
+	 */
+	private void closeIdleConnections(final long timeNow) {
+		for (final SelectionKey key : this.mSelector.keys()) {
+			final ClientConnection connection = (ClientConnection) key.attachment();
+			if (connection != null && connection.isIdle(this.mIdleTimeout, timeNow)) {
+				closeChannel(key);
+			}
+		}
+	}
+
+	/**
+	 * Offers the given request to the queue of requests that wait for getting
+	 * served.
+	 * 
+	 * @param connection
+	 *            The connection the request was read from
+	 * @param request
+	 *            The request to offer
+	 */
+	private void offerRequest(final ClientConnection connection, final ClientRequest request) {
+		connection.requestQueued();
+		this.mRequests.add(request);
+	}
+
+	/**
+	 * Releases the clients of all keys that wait for it. The keys get
+	 * cancelled and their clients switched to blocking mode, the selector does
+	 * not read from them anymore.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred while selecting
+	 */
+	private void releaseClients() throws IOException {
+		if (this.mKeysToRelease.isEmpty()) {
+			return;
+		}
+
+		final List<SelectionKey> keys = new ArrayList<>();
+		SelectionKey key = this.mKeysToRelease.poll();
+		while (key != null) {
+			key.cancel();
+			keys.add(key);
+			key = this.mKeysToRelease.poll();
+		}
+		// Cancelled keys are deregistered by the next selection, ready keys
+		// are kept and processed afterwards
+		this.mSelector.selectNow();
+
+		for (final SelectionKey releasedKey : keys) {
+			try {
+				releasedKey.channel().configureBlocking(true);
+			} catch (final IOException e) {
+				// Log the error but continue, the new owner notices the error
+				// once using the client
+				this.mLogger.logError("I/O error while releasing client: " + LoggerUtil.getStackTrace(e));
+			} finally {
+				((ClientConnection) releasedKey.attachment()).released();
+			}
+		}
+	}
+
+	/**
+	 * Offers the next complete request the client given by its key sent to
+	 * the queue, if it has no request waiting for getting served. While a
+	 * request waits, the key is not interested in reading, further requests
+	 * are offered once it was served. If the client does not want to keep the
+	 * connection alive, reading ends with its request and data sent after it
+	 * is ignored.
+	 * 
+	 * @param key
+	 *            The key of the client to offer the request of
+	 */
+	private void offerNextRequest(final SelectionKey key) {
+		final SocketChannel client = (SocketChannel) key.channel();
+		final ClientConnection connection = (ClientConnection) key.attachment();
+		final ByteBuffer buffer = connection.getBuffer();
+		if (connection.isReadingEnded() || connection.hasPendingRequests()) {
+			return;
+		}
+
+		final int headEnd = indexOfHeadEnd(buffer);
+		if (headEnd < 0) {
+			if (!buffer.hasRemaining()) {
+				// Request head is too long, let the service reject it
+				connection.endReading();
+				stopReading(key);
+				offerRequest(connection, new ClientRequest(null, new HashMap<String, String>(), false, client,
+						connection.getOutput()));
+			} else {
+				// Wait for the rest of the request
+				key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+			}
+			return;
+		}
+
+		final String[] lines = new String(buffer.array(), 0, headEnd, HttpUtil.TEXT_CHARSET)
+				.split(LINE_SEPARATOR_PATTERN);
+		final Map<String, String> headers = new HashMap<>();
+		for (int i = 1; i < lines.length; i++) {
+			HttpUtil.parseHeaderField(lines[i], headers);
+		}
+		final String request = lines[0];
+		final boolean keepAlive = HttpUtil.isKeepAliveRequested(request, headers);
+
+		// Remove the head from the buffer
+		buffer.flip();
+		buffer.position(headEnd);
+		buffer.compact();
+
+		if (!keepAlive) {
+			connection.endReading();
+		}
+		stopReading(key);
+		offerRequest(connection, new ClientRequest(request, headers, keepAlive, client, connection.getOutput()));
+	}
+
+	/**
+	 * Reads available data of the client given by its key and offers its next
+	 * complete request to the queue, see
+	 * {@link #offerNextRequest(SelectionKey)}.
+	 * 
+	 * @param key
+	 *            The key of the client to read from
+	 */
+	private void read(final SelectionKey key) {
+		final SocketChannel client = (SocketChannel) key.channel();
+		final ClientConnection connection = (ClientConnection) key.attachment();
+
+		final int readBytes;
+		try {
+			readBytes = client.read(connection.getBuffer());
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+			closeChannel(key);
+			return;
+		}
+		if (readBytes < 0) {
+			// Client does not send further requests, answer pending ones
+			// before the connection gets closed as idle
+			connection.endReading();
+			if (connection.hasPendingRequests()) {
+				stopReading(key);
+			} else {
+				closeChannel(key);
+			}
+			return;
+		}
+		connection.updateLastActivity();
+
+		offerNextRequest(key);
+	}
+
+	/**
+	 * Registers the keys of all clients whose output queued data for writing.
+	 */
+	private void registerWrites() {
+		SocketChannel client = this.mClientsToWrite.poll();
+		while (client != null) {
+			final SelectionKey key = client.keyFor(this.mSelector);
+			if (key != null && key.isValid()) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			}
+			client = this.mClientsToWrite.poll();
+		}
+	}
+
+	/**
+	 * Continues with the next request of all clients whose request was
+	 * served, see {@link #offerNextRequest(SelectionKey)}.
+	 */
+	private void resumeClients() {
+		SelectionKey key = this.mKeysToResume.poll();
+		while (key != null) {
+			if (key.isValid()) {
+				offerNextRequest(key);
+			}
+			key = this.mKeysToResume.poll();
+		}
+	}
+
+	/**
+	 * Stops reading from the client given by its key. Queued data is still
+	 * written to it.
+	 * 
+	 * @param key
+	 *            The key of the client to stop reading from
+	 */
+	private void stopReading(final SelectionKey key) {
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Writes queued data to the client given by its key. Once all data was
+	 * written the key is not interested in writing anymore.
+	 * 
+	 * @param key
+	 *            The key of the client to write to
+	 */
+	private void write(final SelectionKey key) {
+		final ClientConnection connection = (ClientConnection) key.attachment();
+		try {
+			final boolean isFlushed = connection.getOutput().flush();
+			connection.updateLastActivity();
+			if (isFlushed && key.isValid()) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+			closeChannel(key);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package de.zabuza.brainbridge.server.service;
+
+/**
+ * The target of a GET request, given by its path and query. Request lines are
+ * parsed in a single pass and query parameters are looked up directly in the
+ * request line, only the path and the values of requested parameters are
+ * extracted as strings. Use {@link #parseGetRequest(String)} to create
+ * instances.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RequestTarget {
+	/**
+	 * The prefix which every GET request line begins with.
+	 */
+	private static final String GET_METHOD_PREFIX = "GET ";
+	/**
+	 * Separator between two parameters of a query.
+	 */
+	private static final char PARAMETER_SEPARATOR = '&';
+	/**
+	 * The name of the protocol every request line ends with, optionally
+	 * followed by a version.
+	 */
+	private static final String PROTOCOL_NAME = "HTTP";
+	/**
+	 * Separator between the path and the query of a target.
+	 */
+	private static final char QUERY_SEPARATOR = '?';
+	/**
+	 * Separator between the name and the value of a query parameter.
+	 */
+	private static final char VALUE_SEPARATOR = '=';
+
+	/**
+	 * Parses the target of the given GET request line. The line has the format
+	 * <tt>GET target HTTP/version</tt>.
+	 * 
+	 * @param request
+	 *            The request line to parse
+	 * @return The target of the request or <tt>null</tt> if the given line is
+	 *         no valid GET request line
+	 */
+	public static RequestTarget parseGetRequest(final String request) {
+		if (request == null || !request.startsWith(GET_METHOD_PREFIX)) {
+			return null;
+		}
+
+		// The target may contain spaces, the protocol follows the last one
+		final int targetStart = GET_METHOD_PREFIX.length();
+		final int targetEnd = request.lastIndexOf(' ');
+		if (targetEnd <= targetStart || !isProtocol(request, targetEnd + 1)) {
+			return null;
+		}
+
+		int queryStart = -1;
+		for (int i = targetStart; i < targetEnd; i++) {
+			if (request.charAt(i) == QUERY_SEPARATOR) {
+				queryStart = i + 1;
+				break;
+			}
+		}
+
+		final int pathEnd;
+		if (queryStart == -1) {
+			pathEnd = targetEnd;
+			queryStart = targetEnd;
+		} else {
+			pathEnd = queryStart - 1;
+		}
+		return new RequestTarget(request, request.substring(targetStart, pathEnd), queryStart, targetEnd);
+	}
+
+	/**
+	 * Whether the given request line ends with a protocol, starting at the
+	 * given index. That is the name of the protocol, optionally followed by a
+	 * slash and a version consisting of digits and dots.
+	 * 
+	 * @param request
+	 *            The request line to check
+	 * @param protocolStart
+	 *            The index the protocol starts at
+	 * @return <tt>True</tt> if the line ends with a protocol, <tt>false</tt>
+	 *         otherwise
+	 */
+	private static boolean isProtocol(final String request, final int protocolStart) {
+		if (!request.startsWith(PROTOCOL_NAME, protocolStart)) {
+			return false;
+		}
+		int i = protocolStart + PROTOCOL_NAME.length();
+		if (i < request.length() && request.charAt(i) == '/') {
+			i++;
+		}
+		for (; i < request.length(); i++) {
+			final char versionChar = request.charAt(i);
+			if (versionChar != '.' && (versionChar < '0' || versionChar > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The path of the target.
+	 */
+	private final String mPath;
+	/**
+	 * The index in the request line where the query ends.
+	 */
+	private final int mQueryEnd;
+	/**
+	 * The index in the request line where the query starts.
+	 */
+	private final int mQueryStart;
+	/**
+	 * The request line that contains the target.
+	 */
+	private final String mRequest;
+
+	/**
+	 * Creates a new target of the given request line.
+	 * 
+	 * @param request
+	 *            The request line that contains the target
+	 * @param path
+	 *            The path of the target
+	 * @param queryStart
+	 *            The index in the request line where the query starts
+	 * @param queryEnd
+	 *            The index in the request line where the query ends
+	 */
+	private RequestTarget(final String request, final String path, final int queryStart, final int queryEnd) {
+		this.mRequest = request;
+		this.mPath = path;
+		this.mQueryStart = queryStart;
+		this.mQueryEnd = queryEnd;
+	}
+
+	/**
+	 * Gets the value of the query parameter with the given name. If the
+	 * parameter occurs several times the first occurrence is used. The value
+	 * is not decoded.
+	 * 
+	 * @param name
+	 *            The name of the parameter
+	 * @return The value of the parameter or <tt>null</tt> if the query does
+	 *         not contain the parameter or its value is empty
+	 */
+	public String getParameter(final String name) {
+		final int nameLength = name.length();
+		int parameterStart = this.mQueryStart;
+		while (parameterStart < this.mQueryEnd) {
+			int parameterEnd = this.mRequest.indexOf(PARAMETER_SEPARATOR, parameterStart);
+			if (parameterEnd == -1 || parameterEnd > this.mQueryEnd) {
+				parameterEnd = this.mQueryEnd;
+			}
+
+			final int valueStart = parameterStart + nameLength + 1;
+			if (valueStart <= parameterEnd && this.mRequest.startsWith(name, parameterStart)
+					&& this.mRequest.charAt(valueStart - 1) == VALUE_SEPARATOR) {
+				if (valueStart == parameterEnd) {
+					return null;
+				}
+				return this.mRequest.substring(valueStart, parameterEnd);
+			}
+
+			parameterStart = parameterEnd + 1;
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the path of the target.
+	 * 
+	 * @return The path of the target
+	 */
+	public String getPath() {
+		return this.mPath;
+	}
+}
@@ -1,146 +1,252 @@
 package de.zabuza.brainbridge.server.service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.NoSuchElementException;
-import org.openqa.selenium.NoSuchFrameException;
-import org.openqa.selenium.StaleElementReferenceException;
-import org.openqa.selenium.TimeoutException;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebDriverException;
 
 import de.zabuza.brainbridge.server.BrainBridge;
-import de.zabuza.brainbridge.server.exceptions.DriverNewWindowUnsupportedException;
-import de.zabuza.brainbridge.server.exceptions.UnexpectedUnsupportedEncodingException;
-import de.zabuza.brainbridge.server.exceptions.WindowHandleNotFoundException;
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+import de.zabuza.brainbridge.server.exceptions.InstanceNotFoundException;
 import de.zabuza.brainbridge.server.logging.ILogger;
 import de.zabuza.brainbridge.server.logging.LoggerFactory;
 import de.zabuza.brainbridge.server.logging.LoggerUtil;
-import de.zabuza.brainbridge.server.webdriver.IWrapsWebDriver;
+import de.zabuza.brainbridge.server.webdriver.StaleRefresherWebElement;
+import de.zabuza.brainbridge.server.webdriver.wait.AConditionalWait;
 
 /**
  * Actual service thread of the tool. Call {@link #start()} to start the service
  * and {@link #stopService()} to stop it. If the service leaves its life cycle
- * abnormally it will request the parent tool to also shutdown.
+ * abnormally it will request the parent tool to also shutdown.<br>
+ * <br>
+ * The life cycle is event-driven. Clients are accepted and their requests are
+ * read by a front end, given by the {@link EServiceMode}, which hands them to
+ * the service. The service serves requests as soon as they arrive and cleans up
+ * abandoned instances whenever the corresponding interval has passed.<br>
+ * <br>
+ * Instances are distributed over a pool of chat backends, new instances are
+ * placed on the least loaded one. A backend either drives a browser or speaks
+ * the protocol of the chat service directly. Requests may also be served
+ * concurrently by other threads, as done by the {@link EServiceMode#POOLED}
+ * mode. Every backend is therefore only accessed by the thread of its
+ * {@link DriverShard}, which executes the commands submitted by the service in
+ * order. Only requests for instances on the same backend wait for each other.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
  */
 public final class Service extends Thread {
+	/**
+	 * The time in milliseconds between two checks for abandoned instances.
+	 */
+	private final static long ABANDONED_INSTANCE_CHECK_INTERVAL = 10_000L;
 	/**
 	 * Time after when an instance is declared as abandoned and will get
 	 * automatically shutdown in milliseconds.
 	 */
 	private final static long ABANDONED_INSTANCE_INTERVAL = 300_000L;
 	/**
-	 * The pattern which matches the id argument in a request. It can be
-	 * accessed by the group 1.
+	 * The name of the id argument in a request.
+	 */
+	private static final String ARGUMENT_ID = "id";
+	/**
+	 * The name of the message argument in a request.
+	 */
+	private static final String ARGUMENT_MESSAGE = "msg";
+	/**
+	 * The name of the argument in a request that holds the answer the client
+	 * already knows.
+	 */
+	private static final String ARGUMENT_SINCE = "since";
+	/**
+	 * The name of the timeout argument in a request.
 	 */
-	private static final String ARGUMENT_ID_PATTERN = "(?:^|.+&)id=([A-Za-z0-9]+)(?:$|&.+)";
+	private static final String ARGUMENT_TIMEOUT = "timeout";
 	/**
-	 * The pattern which matches the message argument in a request. It can be
-	 * accessed by the group 1.
+	 * The path of ask requests.
 	 */
-	private static final String ARGUMENT_MESSAGE_PATTERN = "(?:^|.+&)msg=(.+)(?:$|&.+)";
+	private static final String ASK_REQUEST = "/ask";
 	/**
-	 * The keyword which every create request begins with.
+	 * The path of await message requests.
+	 */
+	private static final String AWAIT_MESSAGE_REQUEST = "/await";
+	/**
+	 * The path of create requests.
 	 */
 	private static final String CREATE_REQUEST = "/create";
 	/**
-	 * Time in seconds a driver waits for a page to fully load until throwing a
-	 * {@link TimeoutException}.
+	 * The time in milliseconds an await message request waits for a new
+	 * answer if the client does not specify a timeout.
+	 */
+	private final static long DEFAULT_AWAIT_TIMEOUT = 15_000L;
+	/**
+	 * The path of get message requests.
+	 */
+	private static final String GET_MESSAGE_REQUEST = "/get";
+	/**
+	 * The name of the header field that requests to switch the protocol, in
+	 * lower case.
+	 */
+	private static final String HEADER_UPGRADE = "upgrade";
+	/**
+	 * The name of the header field that carries the key of a WebSocket
+	 * handshake, in lower case.
 	 */
-	private final static int DRIVER_PAGE_LOAD_TIMEOUT = 3;
+	private static final String HEADER_WEBSOCKET_KEY = "sec-websocket-key";
 	/**
-	 * The keyword which every get message request begins with.
+	 * The name of the header field that carries the protocol version of a
+	 * WebSocket handshake, in lower case.
 	 */
-	private static final String GET_MESSAGE_REQUEST = "/get?";
+	private static final String HEADER_WEBSOCKET_VERSION = "sec-websocket-version";
 	/**
-	 * The pattern which every GET request matches. Group 1 holds the content of
-	 * the GET request.
+	 * The maximal time in milliseconds an await message request may wait for
+	 * a new answer.
 	 */
-	private static final String GET_REQUEST_PATTERN = "GET (.+) HTTP/?[\\d\\.]*";
+	private final static long MAX_AWAIT_TIMEOUT = 60_000L;
 	/**
-	 * The maximal amount of instances that can be served at the same time. If
-	 * the limit is reached incoming create requests will be rejected.
+	 * The path of post message requests.
 	 */
-	private final static int MAX_INSTANCES = 20;
+	private static final String POST_MESSAGE_REQUEST = "/post";
 	/**
-	 * The keyword which every post message request begins with.
+	 * The path of shutdown requests.
 	 */
-	private static final String POST_MESSAGE_REQUEST = "/post?";
+	private static final String SHUTDOWN_REQUEST = "/shutdown";
 	/**
-	 * The time in milliseconds to wait for the next iteration of the life
-	 * cycle.
+	 * The path of socket requests.
 	 */
-	private final static long SERVICE_INTERVAL = 200L;
+	private static final String SOCKET_REQUEST = "/socket";
 	/**
-	 * The keyword which every shutdown request begins with.
+	 * The path of stream requests.
 	 */
-	private static final String SHUTDOWN_REQUEST = "/shutdown?";
+	private static final String STREAM_REQUEST = "/stream";
 	/**
-	 * The time in milliseconds to wait for a client to connect.
+	 * Value of the upgrade header field requesting to switch to the WebSocket
+	 * protocol.
 	 */
-	private final static int SOCKET_WAIT_TIMEOUT = 10_000;
+	private static final String UPGRADE_WEBSOCKET = "websocket";
+	/**
+	 * The version of the WebSocket protocol that is supported.
+	 */
+	private static final String WEBSOCKET_VERSION = "13";
 
 	/**
-	 * The unique window handle for the blank control window.
+	 * Parses the given timeout of a request that waits for an answer.
+	 * 
+	 * @param timeoutText
+	 *            The timeout to parse in milliseconds or <tt>null</tt> if the
+	 *            client did not specify it
+	 * @return The timeout to use in milliseconds, limited to the allowed
+	 *         maximum
+	 * @throws NumberFormatException
+	 *             If the given timeout is no number
 	 */
-	private String mControlWindowHandle;
+	private static long parseAwaitTimeout(final String timeoutText) throws NumberFormatException {
+		if (timeoutText == null) {
+			return DEFAULT_AWAIT_TIMEOUT;
+		}
+		return Math.min(Math.max(0L, Long.parseLong(timeoutText)), MAX_AWAIT_TIMEOUT);
+	}
+
+	/**
+	 * Whether the given id is valid, i.e. it is not empty and only consists of
+	 * latin letters and digits.
+	 * 
+	 * @param id
+	 *            The id to check
+	 * @return <tt>True</tt> if the id is valid, <tt>false</tt> otherwise
+	 */
+	private static boolean isValidId(final String id) {
+		if (id == null || id.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < id.length(); i++) {
+			final char idChar = id.charAt(i);
+			final boolean isLetter = (idChar >= 'a' && idChar <= 'z') || (idChar >= 'A' && idChar <= 'Z');
+			if (!isLetter && (idChar < '0' || idChar > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The observer that watches answers of instances for parked requests.
+	 */
+	private final AnswerObserver mAnswerObserver;
 	/**
 	 * Internal flag whether the service should run or not. If set to
 	 * <tt>false</tt> the service will not enter the next iteration of its life
 	 * cycle and shutdown.
 	 */
-	private boolean mDoRun;
+	private volatile boolean mDoRun;
 	/**
-	 * The driver to use for accessing browsers contents.
+	 * The front end that accepts clients and reads their requests.
 	 */
-	private final WebDriver mDriver;
+	private IRequestFrontEnd mFrontEnd;
 	/**
-	 * Data-structure that maps ids to their corresponding brain instances.
+	 * The time in milliseconds after which kept alive connections without
+	 * activity get closed.
 	 */
-	private final Map<String, BrainInstance> mIdToBrainInstance;
+	private final long mIdleTimeout;
+	/**
+	 * Data-structure that maps ids of instances to the shards they are placed
+	 * on.
+	 */
+	private final Map<String, DriverShard> mIdToShard;
 	/**
 	 * The logger to use for logging.
 	 */
 	private final ILogger mLogger;
+	/**
+	 * Timestamp of when the next check for abandoned instances is due in
+	 * milliseconds.
+	 */
+	private long mNextAbandonedInstanceCheck;
 	/**
 	 * The parent object that controls the service. If the service shuts down it
 	 * will request its parent to also shutdown.
 	 */
 	private final BrainBridge mParent;
+	/**
+	 * Table that maps the paths of requests to their type, used for routing
+	 * requests.
+	 */
+	private final Map<String, ERequestType> mPathToRequestType;
 	/**
 	 * The port to use for communication.
 	 */
 	private final int mPort;
 	/**
-	 * The server socket used to listen for requests.
+	 * Queue of requests that were read by the front end and wait for getting
+	 * served.
 	 */
-	private ServerSocket mServerSocket;
+	private final BlockingQueue<ClientRequest> mRequests;
 	/**
-	 * Whether the service should stop or not. If set to <tt>true</tt> the
-	 * service will try to leave its life cycle in a normal way and shutdown.
+	 * The mode to use for accepting clients and reading their requests.
 	 */
-	private boolean mShouldStopService;
+	private final EServiceMode mServiceMode;
 	/**
-	 * Set that contains all assigned window handles.
+	 * The shards of the backend pool, one per backend.
 	 */
-	private final Set<String> mWindowHandles;
+	private final List<DriverShard> mShards;
+	/**
+	 * Signal that is released once the service was requested to stop. The
+	 * service will then try to leave its life cycle in a normal way and
+	 * shutdown.
+	 */
+	private final CountDownLatch mStopSignal;
 
 	/**
 	 * Creates a new Service instance. Call {@link #start()} to start the
@@ -148,26 +254,110 @@ public final class Service extends Thread {
 	 * 
 	 * @param port
 	 *            The port to use for communication
-	 * @param driver
-	 *            The driver to use for accessing browsers contents
+	 * @param serviceMode
+	 *            The mode to use for accepting clients and reading their
+	 *            requests
+	 * @param idleTimeout
+	 *            The time in milliseconds after which kept alive connections
+	 *            without activity get closed
+	 * @param backends
+	 *            The pool of chat backends to use, instances are distributed
+	 *            over them. If the limit of instances is reached for all
+	 *            backends incoming create requests will be rejected.
+	 * @param spareInstances
+	 *            The amount of already initialized instances every backend
+	 *            keeps in spare for serving create requests
 	 * @param parent
 	 *            The parent object that controls the service. If the service
 	 *            shuts down in an abnormal way it will request its parent to
 	 *            also shutdown.
+	 * @throws IllegalArgumentException
+	 *             If no backend is given, the idle timeout is not positive or
+	 *             the amount of spare instances is negative
 	 */
-	public Service(final int port, final WebDriver driver, final BrainBridge parent) {
+	public Service(final int port, final EServiceMode serviceMode, final long idleTimeout,
+			final List<IChatBackend> backends, final int spareInstances, final BrainBridge parent)
+			throws IllegalArgumentException {
+		if (backends.isEmpty()) {
+			throw new IllegalArgumentException("At least one backend is required");
+		}
+		if (idleTimeout <= 0) {
+			throw new IllegalArgumentException("The idle timeout must be positive: " + idleTimeout);
+		}
+		if (spareInstances < 0) {
+			throw new IllegalArgumentException("The amount of spare instances must not be negative: " + spareInstances);
+		}
 		this.mPort = port;
-		this.mDriver = driver;
+		this.mServiceMode = serviceMode;
+		this.mIdleTimeout = idleTimeout;
+		this.mShards = new ArrayList<>(backends.size());
+		for (final IChatBackend backend : backends) {
+			this.mShards.add(new DriverShard(backend, spareInstances, ABANDONED_INSTANCE_INTERVAL));
+		}
 		this.mParent = parent;
-		this.mServerSocket = null;
+		this.mFrontEnd = null;
+		this.mRequests = new LinkedBlockingQueue<>();
 		this.mLogger = LoggerFactory.getLogger();
 
 		this.mDoRun = true;
-		this.mShouldStopService = false;
+		this.mStopSignal = new CountDownLatch(1);
+		this.mNextAbandonedInstanceCheck = 0L;
+
+		this.mIdToShard = new ConcurrentHashMap<>();
+		this.mAnswerObserver = new AnswerObserver(this.mIdToShard);
+
+		this.mPathToRequestType = new HashMap<>();
+		this.mPathToRequestType.put(ASK_REQUEST, ERequestType.ASK);
+		this.mPathToRequestType.put(AWAIT_MESSAGE_REQUEST, ERequestType.AWAIT_MESSAGE);
+		this.mPathToRequestType.put(CREATE_REQUEST, ERequestType.CREATE);
+		this.mPathToRequestType.put(GET_MESSAGE_REQUEST, ERequestType.GET_MESSAGE);
+		this.mPathToRequestType.put(POST_MESSAGE_REQUEST, ERequestType.POST_MESSAGE);
+		this.mPathToRequestType.put(SHUTDOWN_REQUEST, ERequestType.SHUTDOWN);
+		this.mPathToRequestType.put(SOCKET_REQUEST, ERequestType.SOCKET);
+		this.mPathToRequestType.put(STREAM_REQUEST, ERequestType.STREAM);
+	}
 
-		this.mWindowHandles = new HashSet<>();
-		this.mIdToBrainInstance = new HashMap<>();
-		this.mControlWindowHandle = null;
+	/**
+	 * Sends the given answer to the client of the given request. The client is
+	 * closed afterwards unless the connection is kept alive. Used to answer
+	 * requests that were parked by the service. The method is thread-safe.
+	 * 
+	 * @param answerText
+	 *            The answer to send
+	 * @param status
+	 *            The status of the answer to send
+	 * @param clientRequest
+	 *            The request to answer
+	 */
+	public void answerClientRequest(final String answerText, final EHttpStatus status,
+			final ClientRequest clientRequest) {
+		try {
+			HttpUtil.sendHttpAnswer(answerText, EHttpContentType.TEXT, status, clientRequest);
+			if (!clientRequest.isKeepAlive()) {
+				clientRequest.getOutput().close();
+			}
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+			closeClient(clientRequest.getClient());
+		} finally {
+			this.mFrontEnd.requestServed(clientRequest);
+		}
+	}
+
+	/**
+	 * Closes the client of the given request. Used to finish requests whose
+	 * answer was streamed by the service. The method is thread-safe.
+	 * 
+	 * @param clientRequest
+	 *            The request to finish
+	 */
+	public void closeClientRequest(final ClientRequest clientRequest) {
+		try {
+			closeClient(clientRequest.getOutput());
+		} finally {
+			this.mFrontEnd.requestServed(clientRequest);
+		}
 	}
 
 	/**
@@ -180,6 +370,26 @@ public final class Service extends Thread {
 		return this.mDoRun;
 	}
 
+	/**
+	 * Posts the given message to the instance with the given id. The method is
+	 * thread-safe.
+	 * 
+	 * @param id
+	 *            The id of the instance to post to
+	 * @param message
+	 *            The message to post
+	 * @return <tt>True</tt> if the message was posted, <tt>false</tt> if there
+	 *         is no instance with the given id
+	 */
+	public boolean postMessage(final String id, final String message) {
+		final DriverShard shard = this.mIdToShard.get(id);
+		if (shard == null) {
+			return false;
+		}
+
+		return DriverShard.awaitResult(shard.postMessage(id, message)).booleanValue();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -189,17 +399,23 @@ public final class Service extends Thread {
 	public void run() {
 		boolean terminateParent = false;
 		try {
-			this.mServerSocket = new ServerSocket(this.mPort);
-			this.mServerSocket.setSoTimeout(SOCKET_WAIT_TIMEOUT);
-			try {
-				this.mDriver.manage().timeouts().pageLoadTimeout(DRIVER_PAGE_LOAD_TIMEOUT, TimeUnit.SECONDS);
-			} catch (final WebDriverException e) {
-				// Page load timeouts are not supported by the driver, simply
-				// ignore it and try to continue without
+			for (final DriverShard shard : this.mShards) {
+				shard.start();
+			}
+			for (final DriverShard shard : this.mShards) {
+				DriverShard.awaitResult(shard.initialize());
 			}
 
-			this.mControlWindowHandle = this.mDriver.getWindowHandle();
-			this.mWindowHandles.add(this.mControlWindowHandle);
+			if (this.mServiceMode == EServiceMode.SELECTOR) {
+				this.mFrontEnd = new RequestSelector(this.mPort, this.mIdleTimeout, this.mRequests);
+			} else if (this.mServiceMode == EServiceMode.POOLED) {
+				this.mFrontEnd = new PooledRequestAcceptor(this.mPort, this.mIdleTimeout, this);
+			} else {
+				this.mFrontEnd = new RequestAcceptor(this.mPort, this.mRequests);
+			}
+			this.mAnswerObserver.start();
+			this.mFrontEnd.start();
+			this.mNextAbandonedInstanceCheck = System.currentTimeMillis() + ABANDONED_INSTANCE_CHECK_INTERVAL;
 		} catch (final Exception e) {
 			// Do not enter the service loop
 			this.mLogger.logError("Error while starting service, not entering: " + LoggerUtil.getStackTrace(e));
@@ -210,37 +426,26 @@ public final class Service extends Thread {
 		// Enter the life cycle
 		while (this.mDoRun) {
 			try {
-				if (this.mShouldStopService) {
+				if (isStopRequested()) {
 					this.mDoRun = false;
+					break;
 				}
 
-				// Clean up abandoned instances
-				cleanAbandonedInstance();
-
-				// Wait for a client to connect
-				try (final Socket clientSocket = this.mServerSocket.accept();
-						final BufferedReader br = new BufferedReader(
-								new InputStreamReader(clientSocket.getInputStream(), HttpUtil.TEXT_CHARSET))) {
-					final InetAddress clientIp = clientSocket.getInetAddress();
-					this.mLogger.logInfo("Connected with " + clientIp);
-
-					// Serve the request
-					final String request = br.readLine();
-					serveRequest(request, clientSocket);
-				} catch (final SocketTimeoutException e) {
-					// Ignore the exception and continue with the next iteration
-				} catch (final IOException e) {
-					// Log the error but continue
-					this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
-				}
-
-				// Delay the next iteration
-				waitToNextIteration();
+				serveNextEvent();
+			} catch (final InterruptedException e) {
+				// The service was requested to stop while waiting
+				this.mDoRun = false;
 			} catch (final Exception e) {
-				this.mLogger.logError("Error while running service, shutting down: " + LoggerUtil.getStackTrace(e));
-				// Try to shutdown
 				this.mDoRun = false;
-				terminateParent = true;
+				if (isStopRequested()) {
+					// The exception was provoked by interrupting the service
+					this.mLogger.logInfo("Service was stopped while serving: " + e);
+				} else {
+					this.mLogger
+							.logError("Error while running service, shutting down: " + LoggerUtil.getStackTrace(e));
+					// Try to shutdown
+					terminateParent = true;
+				}
 			}
 		}
 
@@ -253,317 +458,712 @@ public final class Service extends Thread {
 		}
 	}
 
+	/**
+	 * Serves the given request. The client is closed afterwards unless the
+	 * connection is kept alive. Requests that wait for an event, like a new
+	 * answer, are parked and answered later. If the service was requested to
+	 * stop the request gets rejected instead. The method is thread-safe and
+	 * may be called by threads other than the service.
+	 * 
+	 * @param clientRequest
+	 *            The request to serve
+	 */
+	public void serveClientRequest(final ClientRequest clientRequest) {
+		if (isStopRequested()) {
+			rejectClientRequest(clientRequest);
+			return;
+		}
+
+		final SocketChannel client = clientRequest.getClient();
+		if (!client.isOpen()) {
+			// The connection was closed meanwhile, for example due to an error
+			// while serving a previous request of the client
+			return;
+		}
+
+		boolean wasAnswered = true;
+		try {
+			wasAnswered = serveRequest(clientRequest);
+			if (wasAnswered && !clientRequest.isKeepAlive()) {
+				clientRequest.getOutput().close();
+			}
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+			closeClient(client);
+		} finally {
+			// Parked requests are finished once they get answered
+			if (wasAnswered) {
+				this.mFrontEnd.requestServed(clientRequest);
+			}
+		}
+	}
+
 	/**
 	 * Requests the service to stop. It will try to end its life cycle in a
-	 * normal way and shutdown.
+	 * normal way and shutdown. If the service currently waits for an event it
+	 * gets interrupted.
 	 */
 	public void stopService() {
-		this.mShouldStopService = true;
+		this.mStopSignal.countDown();
+		interrupt();
+	}
+
+	/**
+	 * Checks whether the backends of all shards are healthy and logs the ones
+	 * that are not. New instances are only placed on healthy backends.
+	 */
+	private void checkBackendHealth() {
+		// Submit the check to all shards first such that they work in parallel
+		final List<CompletableFuture<Boolean>> healthResults = new ArrayList<>(this.mShards.size());
+		for (final DriverShard shard : this.mShards) {
+			healthResults.add(shard.checkHealth());
+		}
+
+		for (int i = 0; i < healthResults.size(); i++) {
+			if (!DriverShard.awaitResult(healthResults.get(i)).booleanValue()) {
+				this.mLogger.logError("Backend " + i + " is not healthy");
+			}
+		}
 	}
 
 	/**
 	 * Shuts abandoned instances down and removes them from the pool.
 	 */
 	private void cleanAbandonedInstance() {
-		final long timeNow = System.currentTimeMillis();
-		final Set<String> idsToRemove = new HashSet<>();
-		for (final BrainInstance instance : this.mIdToBrainInstance.values()) {
-			if (timeNow - instance.getLastUsage() > ABANDONED_INSTANCE_INTERVAL) {
-				// Instance is abandoned
-				final String id = instance.getId();
-				final String windowHandle = instance.getWindowHandle();
-
-				// Shut it down
-				instance.shutdown();
-				this.mWindowHandles.remove(windowHandle);
-				idsToRemove.add(id);
+		// Submit the removal to all shards first such that they work in parallel
+		final List<CompletableFuture<Collection<String>>> removedIdsResults = new ArrayList<>(this.mShards.size());
+		for (final DriverShard shard : this.mShards) {
+			removedIdsResults.add(shard.removeAbandonedInstances());
+		}
+
+		for (final CompletableFuture<Collection<String>> removedIdsResult : removedIdsResults) {
+			for (final String id : DriverShard.awaitResult(removedIdsResult)) {
+				this.mIdToShard.remove(id);
 			}
 		}
+	}
 
-		for (final String id : idsToRemove) {
-			this.mIdToBrainInstance.remove(id);
+	/**
+	 * Closes the given client.
+	 * 
+	 * @param client
+	 *            The client to close
+	 */
+	private void closeClient(final Channel client) {
+		try {
+			client.close();
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error while closing client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Gets the shard with the least instances placed on it. Shards with a
+	 * healthy backend are preferred.
+	 * 
+	 * @return The least loaded shard
+	 */
+	private DriverShard getLeastLoadedShard() {
+		DriverShard leastLoadedShard = null;
+		for (final DriverShard shard : this.mShards) {
+			if (leastLoadedShard == null) {
+				leastLoadedShard = shard;
+				continue;
+			}
+			if (shard.isHealthy() != leastLoadedShard.isHealthy()) {
+				if (shard.isHealthy()) {
+					leastLoadedShard = shard;
+				}
+				continue;
+			}
+			if (shard.getLoad() < leastLoadedShard.getLoad()) {
+				leastLoadedShard = shard;
+			}
+		}
+		return leastLoadedShard;
+	}
+
+	/**
+	 * Whether the service was requested to stop by {@link #stopService()}.
+	 * 
+	 * @return <tt>True</tt> if the service was requested to stop,
+	 *         <tt>false</tt> otherwise
+	 */
+	private boolean isStopRequested() {
+		return this.mStopSignal.getCount() == 0;
+	}
+
+	/**
+	 * Logs the metrics of the spare instances and recoveries of every backend,
+	 * the metrics of the waits for browser contents and the refreshes of
+	 * staled elements.
+	 */
+	private void logMetrics() {
+		for (int i = 0; i < this.mShards.size(); i++) {
+			this.mLogger.logInfo("Spare instances of backend " + i + ": " + this.mShards.get(i).getSpareMetrics());
+			this.mLogger.logInfo("Recoveries of backend " + i + ": " + this.mShards.get(i).getRecoveryMetrics());
+		}
+		this.mLogger.logInfo("Waits for browser contents: " + AConditionalWait.getMetrics());
+		this.mLogger.logInfo("Staled elements: refreshes=" + StaleRefresherWebElement.getRefreshes()
+				+ ", failedRefreshes=" + StaleRefresherWebElement.getFailedRefreshes());
+	}
+
+	/**
+	 * Parks the given request until a new answer of the given instance is
+	 * observed or the timeout expires. If the service serves requests
+	 * concurrently, as done by the {@link EServiceMode#POOLED} mode, the
+	 * calling thread waits until the request was answered.
+	 * 
+	 * @param id
+	 *            The id of the instance whose answer is awaited
+	 * @param since
+	 *            The answer the client already knows, as text without HTML
+	 *            entities, or <tt>null</tt> if it knows no answer
+	 * @param timeout
+	 *            The maximal time to wait for a new answer in milliseconds
+	 * @param clientRequest
+	 *            The request of the client to park
+	 */
+	private void parkUntilNewAnswer(final String id, final String since, final long timeout,
+			final ClientRequest clientRequest) {
+		final AnswerAwait await = new AnswerAwait(id, since, true, timeout, clientRequest, this);
+		this.mAnswerObserver.watch(await);
+		if (this.mServiceMode == EServiceMode.POOLED) {
+			await.awaitEnd();
 		}
 	}
 
 	/**
-	 * Serves the given create request of the given client
+	 * Rejects the given request since the service is not available anymore and
+	 * closes the client.
 	 * 
-	 * @param clientSocket
-	 *            Client to serve
-	 * @throws WindowHandleNotFoundException
-	 *             If a window handle could not be found
+	 * @param clientRequest
+	 *            The request to reject
+	 */
+	private void rejectClientRequest(final ClientRequest clientRequest) {
+		try (final GatheringByteChannel client = clientRequest.getOutput()) {
+			HttpUtil.sendHttpAnswer(EHttpStatus.SERVICE_UNAVAILABLE.toString(), EHttpContentType.TEXT,
+					EHttpStatus.SERVICE_UNAVAILABLE, false, client);
+		} catch (final IOException e) {
+			// Log the error but continue
+			this.mLogger.logError("I/O error with client: " + LoggerUtil.getStackTrace(e));
+		}
+	}
+
+	/**
+	 * Serves the given ask request of a client. The request is parked until
+	 * the answer to the message is observed or the timeout expires, the
+	 * message is posted once the watching of the answers started. If the
+	 * service serves requests concurrently, as done by the
+	 * {@link EServiceMode#POOLED} mode, the calling thread waits until the
+	 * request was answered.
+	 * 
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @return <tt>True</tt> if the request was answered directly,
+	 *         <tt>false</tt> if it was parked and gets answered later
 	 * @throws IOException
 	 *             If an I/O-Exception occurs
 	 */
-	private void serveCreateRequest(final Socket clientSocket) throws WindowHandleNotFoundException, IOException {
+	private boolean serveAskRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
 		if (this.mLogger.isDebugEnabled()) {
-			this.mLogger.logDebug("Serving create request.");
+			this.mLogger.logDebug("Serving ask request.");
 		}
 
-		// Check if limit is reached
-		if (this.mIdToBrainInstance.size() >= MAX_INSTANCES) {
-			HttpUtil.sendError(EHttpStatus.SERVICE_UNAVAILABLE, clientSocket);
-			this.mLogger.logInfo("Rejected create request, limit reached.");
-			return;
+		// Id Argument
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
 		}
 
-		// Create a window handle for a new brain instance
-		String windowHandle = null;
+		// Message argument
+		final String encodedMessage = target.getParameter(ARGUMENT_MESSAGE);
+		if (encodedMessage == null) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
+		final String message = HttpUtil.decodeUrlToUtf8(encodedMessage);
 
-		// Create a new blank window
-		WebDriver rawDriver = this.mDriver;
-		while (rawDriver instanceof IWrapsWebDriver) {
-			rawDriver = ((IWrapsWebDriver) rawDriver).getRawDriver();
+		// Timeout argument
+		final long timeout;
+		try {
+			timeout = parseAwaitTimeout(target.getParameter(ARGUMENT_TIMEOUT));
+		} catch (final NumberFormatException e) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
 		}
 
-		if (!(rawDriver instanceof JavascriptExecutor)) {
-			throw new DriverNewWindowUnsupportedException(rawDriver);
+		if (!this.mIdToShard.containsKey(id)) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return true;
 		}
-		final JavascriptExecutor executor = (JavascriptExecutor) rawDriver;
-		this.mDriver.switchTo().window(this.mControlWindowHandle);
-		executor.executeScript("window.open();");
 
-		// Find the window
-		for (final String windowHandleCandidate : this.mDriver.getWindowHandles()) {
-			if (!this.mWindowHandles.contains(windowHandleCandidate)) {
-				windowHandle = windowHandleCandidate;
-				this.mWindowHandles.add(windowHandleCandidate);
-				break;
+		// Start watching before posting, the answer to the message is the first
+		// answer that arrives afterwards
+		final AnswerAwait await = new AnswerAwait(id, null, false, timeout, clientRequest, this);
+		DriverShard.awaitResult(this.mAnswerObserver.watch(await));
+		final boolean wasPosted;
+		try {
+			wasPosted = postMessage(id, message);
+		} catch (final RuntimeException e) {
+			if (await.cancel()) {
+				throw e;
+			}
+			// The await already answered the client
+			return false;
+		}
+		if (!wasPosted) {
+			if (await.cancel()) {
+				HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+				return true;
 			}
+			return false;
 		}
 
-		if (windowHandle == null) {
-			throw new WindowHandleNotFoundException();
+		this.mLogger.logInfo("Ask for " + id + ": " + message);
+		if (this.mServiceMode == EServiceMode.POOLED) {
+			await.awaitEnd();
+		}
+		return false;
+	}
+
+	/**
+	 * Serves the given await message request of a client. The request is
+	 * parked until a new answer of the instance is observed or the timeout
+	 * expires.
+	 * 
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @return <tt>True</tt> if the request was answered directly,
+	 *         <tt>false</tt> if it was parked and gets answered later
+	 * @throws IOException
+	 *             If an I/O-Exception occurs
+	 */
+	private boolean serveAwaitMessageRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Serving await message request.");
 		}
 
-		// Create a new brain instance
-		final BrainInstance instance = new BrainInstance(this.mDriver, windowHandle);
-		instance.initialize();
-		final String id = instance.getId();
+		// Id Argument
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
 
-		if (id == null) {
-			// Instance is invalid, throw it away
-			instance.shutdown();
-			this.mWindowHandles.remove(windowHandle);
+		// Since argument
+		final String encodedSince = target.getParameter(ARGUMENT_SINCE);
+		String since = null;
+		if (encodedSince != null) {
+			since = HttpUtil.decodeUrlToUtf8(encodedSince);
+		}
+
+		// Timeout argument
+		final long timeout;
+		try {
+			timeout = parseAwaitTimeout(target.getParameter(ARGUMENT_TIMEOUT));
+		} catch (final NumberFormatException e) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
 
-			this.mLogger.logError("Instance can not be created since id is null: " + id);
-			HttpUtil.sendError(EHttpStatus.INTERNAL_SERVER_ERROR, clientSocket);
+		if (!this.mIdToShard.containsKey(id)) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return true;
+		}
+
+		parkUntilNewAnswer(id, since, timeout, clientRequest);
+		return false;
+	}
+
+	/**
+	 * Serves the given create request of a client
+	 * 
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @throws ChatBackendException
+	 *             If the backend failed to create the instance
+	 * @throws IOException
+	 *             If an I/O-Exception occurs
+	 */
+	private void serveCreateRequest(final ClientRequest clientRequest) throws ChatBackendException, IOException {
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Serving create request.");
+		}
+
+		// Place the instance on the least loaded backend, the shard rejects it
+		// if the limit is reached
+		final DriverShard shard = getLeastLoadedShard();
+		final CompletableFuture<String> idResult = shard.createInstance();
+		if (idResult == null) {
+			HttpUtil.sendError(EHttpStatus.SERVICE_UNAVAILABLE, clientRequest);
+			this.mLogger.logInfo("Rejected create request, limit reached.");
 			return;
 		}
 
-		this.mIdToBrainInstance.put(id, instance);
+		final String id = DriverShard.awaitResult(idResult);
+		if (id == null) {
+			HttpUtil.sendError(EHttpStatus.INTERNAL_SERVER_ERROR, clientRequest);
+			return;
+		}
+		this.mIdToShard.put(id, shard);
 
 		this.mLogger.logInfo("Created instance: " + id);
-		HttpUtil.sendHttpAnswer(id, EHttpContentType.TEXT, EHttpStatus.OK, clientSocket);
+		HttpUtil.sendHttpAnswer(id, EHttpContentType.TEXT, EHttpStatus.OK, clientRequest);
 	}
 
 	/**
-	 * Serves the given get message request of the given client.
+	 * Serves the given get message request of a client.
 	 * 
-	 * @param requestContent
-	 *            The content of the request
-	 * @param clientSocket
-	 *            The client to serve
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
 	 * @throws IOException
 	 *             If an I/O-Exception occurs
 	 */
-	private void serveGetMessageRequest(final String requestContent, final Socket clientSocket) throws IOException {
+	private void serveGetMessageRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
 		if (this.mLogger.isDebugEnabled()) {
 			this.mLogger.logDebug("Serving get message request.");
 		}
 
-		// Extract the arguments
-		final String arguments = requestContent.substring(GET_MESSAGE_REQUEST.length());
-
 		// Id Argument
-		final Pattern idPattern = Pattern.compile(ARGUMENT_ID_PATTERN);
-		final Matcher idMatcher = idPattern.matcher(arguments);
-		if (!idMatcher.matches()) {
-			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return;
+		}
+
+		final String latestAnswer;
+		final DriverShard shard = this.mIdToShard.get(id);
+		if (shard == null) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
 			return;
 		}
-		final String id = idMatcher.group(1);
 
-		if (!this.mIdToBrainInstance.containsKey(id)) {
-			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientSocket);
+		try {
+			latestAnswer = DriverShard.awaitResult(shard.readAnswer(id));
+		} catch (final InstanceNotFoundException e) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
 			return;
 		}
 
-		// Get the brain instance corresponding to the requested id
-		final BrainInstance instance = this.mIdToBrainInstance.get(id);
-		final String latestAnswer = instance.getLatestAnswer();
 		if (latestAnswer == null) {
 			this.mLogger.logInfo("Get for " + id + " has returned no answer.");
-			HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientSocket);
+			HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientRequest);
 			return;
 		}
 
 		this.mLogger.logInfo("Get for " + id + ": " + latestAnswer);
-		HttpUtil.sendHttpAnswer(latestAnswer, EHttpContentType.TEXT, EHttpStatus.OK, clientSocket);
+		HttpUtil.sendHttpAnswer(latestAnswer, EHttpContentType.TEXT, EHttpStatus.OK, clientRequest);
+	}
+
+	/**
+	 * Waits for the next event of the life cycle and handles it. That is either
+	 * a request which arrives from the front end and gets served or the check
+	 * for abandoned instances which gets due.
+	 * 
+	 * @throws InterruptedException
+	 *             If the service got interrupted while waiting for an event
+	 */
+	private void serveNextEvent() throws InterruptedException {
+		final long timeUntilCheck = this.mNextAbandonedInstanceCheck - System.currentTimeMillis();
+		if (timeUntilCheck <= 0) {
+			// Clean up abandoned instances
+			cleanAbandonedInstance();
+			checkBackendHealth();
+			if (this.mLogger.isDebugEnabled()) {
+				logMetrics();
+			}
+			this.mNextAbandonedInstanceCheck = System.currentTimeMillis() + ABANDONED_INSTANCE_CHECK_INTERVAL;
+			return;
+		}
+
+		final ClientRequest clientRequest = this.mRequests.poll(timeUntilCheck, TimeUnit.MILLISECONDS);
+		if (clientRequest == null) {
+			return;
+		}
+
+		serveClientRequest(clientRequest);
 	}
 
 	/**
-	 * Serves the given post message request of the given client.
+	 * Serves the given post message request of a client.
 	 * 
-	 * @param requestContent
-	 *            The content of the request
-	 * @param clientSocket
-	 *            The client to serve
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
 	 * @throws IOException
 	 *             If an I/O-Exception occurs
 	 */
-	private void servePostMessageRequest(final String requestContent, final Socket clientSocket) throws IOException {
+	private void servePostMessageRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
 		if (this.mLogger.isDebugEnabled()) {
 			this.mLogger.logDebug("Serving post message request.");
 		}
 
-		// Extract the arguments
-		final String arguments = requestContent.substring(POST_MESSAGE_REQUEST.length());
-
 		// Id Argument
-		final Pattern idPattern = Pattern.compile(ARGUMENT_ID_PATTERN);
-		final Matcher idMatcher = idPattern.matcher(arguments);
-		if (!idMatcher.matches()) {
-			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
 			return;
 		}
-		final String id = idMatcher.group(1);
 
 		// Message argument
-		final Pattern messagePattern = Pattern.compile(ARGUMENT_MESSAGE_PATTERN);
-		final Matcher messageMatcher = messagePattern.matcher(arguments);
-		if (!messageMatcher.matches()) {
-			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
+		final String encodedMessage = target.getParameter(ARGUMENT_MESSAGE);
+		if (encodedMessage == null) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
 			return;
 		}
-		final String message = HttpUtil.decodeUrlToUtf8(messageMatcher.group(1));
+		final String message = HttpUtil.decodeUrlToUtf8(encodedMessage);
 
-		if (!this.mIdToBrainInstance.containsKey(id)) {
-			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientSocket);
+		if (!postMessage(id, message)) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
 			return;
 		}
 
-		// Get the brain instance corresponding to the requested id
-		final BrainInstance instance = this.mIdToBrainInstance.get(id);
-		instance.postMessage(message);
-
 		this.mLogger.logInfo("Post for " + id + ": " + message);
 
-		HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientSocket);
+		HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientRequest);
 	}
 
 	/**
-	 * Serves the given request of the given client.
+	 * Serves the given request of a client.
 	 * 
-	 * @param request
-	 *            The request to serve
-	 * @param clientSocket
-	 *            The client to serve
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @return <tt>True</tt> if the request was answered, <tt>false</tt> if it
+	 *         was parked and gets answered later
 	 * @throws IOException
 	 *             If an I/O-Exception occurs
-	 * @throws WindowHandleNotFoundException
-	 *             If a window handle could not be found
 	 */
-	private void serveRequest(final String request, final Socket clientSocket) throws IOException {
+	private boolean serveRequest(final ClientRequest clientRequest) throws IOException {
 		try {
+			final String request = clientRequest.getRequest();
+
 			// Reject the request if empty
 			if (request == null || request.trim().length() <= 0) {
-				HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
-				return;
+				HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+				return true;
 			}
 
 			// Reject the request if not a GET request
-			final Pattern requestPattern = Pattern.compile(GET_REQUEST_PATTERN);
-			final Matcher requestMatcher = requestPattern.matcher(request);
-			if (!requestMatcher.matches()) {
-				HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
-				return;
+			final RequestTarget target = RequestTarget.parseGetRequest(request);
+			if (target == null) {
+				HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+				return true;
 			}
 
-			// Strip the content of the GET request
-			final String requestContent = requestMatcher.group(1);
-
-			// Serve create requests
-			final boolean isCreateRequest = requestContent.startsWith(CREATE_REQUEST);
-			if (isCreateRequest) {
-				serveCreateRequest(clientSocket);
-				return;
+			// Route the request by its path
+			final ERequestType requestType = this.mPathToRequestType.get(target.getPath());
+			if (requestType == ERequestType.CREATE) {
+				serveCreateRequest(clientRequest);
+				return true;
 			}
-
-			// Serve post message requests
-			final boolean isPostMessageRequest = requestContent.startsWith(POST_MESSAGE_REQUEST);
-			if (isPostMessageRequest) {
-				servePostMessageRequest(requestContent, clientSocket);
-				return;
+			if (requestType == ERequestType.ASK) {
+				return serveAskRequest(target, clientRequest);
 			}
-
-			// Serve get message requests
-			final boolean isGetMessageRequest = requestContent.startsWith(GET_MESSAGE_REQUEST);
-			if (isGetMessageRequest) {
-				serveGetMessageRequest(requestContent, clientSocket);
-				return;
+			if (requestType == ERequestType.AWAIT_MESSAGE) {
+				return serveAwaitMessageRequest(target, clientRequest);
 			}
-
-			// Serve shutdown requests
-			final boolean isShutdownRequest = requestContent.startsWith(SHUTDOWN_REQUEST);
-			if (isShutdownRequest) {
-				serveShutdownRequest(requestContent, clientSocket);
-				return;
+			if (requestType == ERequestType.POST_MESSAGE) {
+				servePostMessageRequest(target, clientRequest);
+				return true;
+			}
+			if (requestType == ERequestType.GET_MESSAGE) {
+				serveGetMessageRequest(target, clientRequest);
+				return true;
+			}
+			if (requestType == ERequestType.SHUTDOWN) {
+				serveShutdownRequest(target, clientRequest);
+				return true;
+			}
+			if (requestType == ERequestType.SOCKET) {
+				return serveSocketRequest(target, clientRequest);
+			}
+			if (requestType == ERequestType.STREAM) {
+				return serveStreamRequest(target, clientRequest);
 			}
 
 			// Request type not supported
-			HttpUtil.sendError(EHttpStatus.NOT_IMPLEMENTED, clientSocket);
-		} catch (final WindowHandleNotFoundException | StaleElementReferenceException | TimeoutException
-				| NoSuchElementException | NoSuchFrameException | UnexpectedUnsupportedEncodingException e) {
-			// Log the error and reject the request
+			HttpUtil.sendError(EHttpStatus.NOT_IMPLEMENTED, clientRequest);
+			return true;
+		} catch (final IllegalArgumentException e) {
+			// The arguments of the client are malformed, for example an invalid
+			// escape sequence or number
+			this.mLogger.logInfo("Rejected malformed request: " + e);
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		} catch (final InstanceNotFoundException e) {
+			// The instance was removed while serving the request
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return true;
+		} catch (final RuntimeException e) {
+			// Log the error and reject the request, the service keeps running
 			this.mLogger.logError("Server error while serving request: " + LoggerUtil.getStackTrace(e));
-			HttpUtil.sendError(EHttpStatus.INTERNAL_SERVER_ERROR, clientSocket);
+			HttpUtil.sendError(EHttpStatus.INTERNAL_SERVER_ERROR, clientRequest);
+			return true;
 		}
 	}
 
 	/**
-	 * Serves the given shutdown request of the given client.
+	 * Serves the given shutdown request of a client.
 	 * 
-	 * @param requestContent
-	 *            The content of the request
-	 * @param clientSocket
-	 *            The client to serve
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
 	 * @throws IOException
 	 *             If an I/O-Exception occurs
 	 */
-	private void serveShutdownRequest(final String requestContent, final Socket clientSocket) throws IOException {
+	private void serveShutdownRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
 		if (this.mLogger.isDebugEnabled()) {
 			this.mLogger.logDebug("Serving shutdown request.");
 		}
 
-		// Extract the arguments
-		final String arguments = requestContent.substring(SHUTDOWN_REQUEST.length());
-
 		// Id Argument
-		final Pattern idPattern = Pattern.compile(ARGUMENT_ID_PATTERN);
-		final Matcher idMatcher = idPattern.matcher(arguments);
-		if (!idMatcher.matches()) {
-			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientSocket);
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
 			return;
 		}
-		final String id = idMatcher.group(1);
 
-		if (!this.mIdToBrainInstance.containsKey(id)) {
-			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientSocket);
+		final DriverShard shard = this.mIdToShard.get(id);
+		if (shard == null) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
 			return;
 		}
 
-		// Get the brain instance corresponding to the requested id
-		final BrainInstance instance = this.mIdToBrainInstance.get(id);
-		final String windowHandle = instance.getWindowHandle();
-
-		instance.shutdown();
-		this.mWindowHandles.remove(windowHandle);
-		this.mIdToBrainInstance.remove(id);
+		// Shut the brain instance corresponding to the requested id down
+		this.mIdToShard.remove(id);
+		if (!DriverShard.awaitResult(shard.removeInstance(id)).booleanValue()) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return;
+		}
 
 		this.mLogger.logInfo("Shutdown instance: " + id);
 
-		HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientSocket);
+		HttpUtil.sendHttpAnswer(EHttpContentType.TEXT, EHttpStatus.NO_CONTENT, clientRequest);
+	}
+
+	/**
+	 * Serves the given socket request of a client. The connection is switched
+	 * to the WebSocket protocol and carries the messages of the client, which
+	 * are posted to the instance, and every new answer of the instance until
+	 * the client is gone, the instance is shutdown or the service stops. The
+	 * connection is released from the front end and the session sends the
+	 * handshake once the watching of the answers started, every answer that
+	 * arrives afterwards is sent. The messages of the client are read by a
+	 * thread of the session. If the service serves requests concurrently, as
+	 * done by the {@link EServiceMode#POOLED} mode, the calling thread reads
+	 * them instead and waits until the session ended.
+	 * 
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @return <tt>True</tt> if the request was answered directly,
+	 *         <tt>false</tt> if the connection was switched to the WebSocket
+	 *         protocol and gets finished later
+	 * @throws IOException
+	 *             If an I/O-Exception occurs
+	 */
+	private boolean serveSocketRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Serving socket request.");
+		}
+
+		// Id Argument
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
+
+		// Handshake header fields
+		final String upgrade = clientRequest.getHeader(HEADER_UPGRADE);
+		final String key = clientRequest.getHeader(HEADER_WEBSOCKET_KEY);
+		if (upgrade == null || !upgrade.equalsIgnoreCase(UPGRADE_WEBSOCKET) || key == null
+				|| !WEBSOCKET_VERSION.equals(clientRequest.getHeader(HEADER_WEBSOCKET_VERSION))) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
+
+		if (!this.mIdToShard.containsKey(id)) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return true;
+		}
+
+		// Take the connection over, the session switches the protocol once the
+		// answers present before are known
+		final ByteBuffer pendingData = this.mFrontEnd.releaseClient(clientRequest);
+		final WebSocketSession session = new WebSocketSession(id, key, pendingData, clientRequest, this);
+		this.mAnswerObserver.watch(session);
+		if (this.mServiceMode == EServiceMode.POOLED) {
+			session.run();
+		} else {
+			final Thread sessionThread = new Thread(session, WebSocketSession.class.getSimpleName());
+			sessionThread.setDaemon(true);
+			sessionThread.start();
+		}
+		return false;
+	}
+
+	/**
+	 * Serves the given stream request of a client. Every answer of the
+	 * instance that arrives after the head of the stream was sent is pushed to
+	 * the client as Server-Sent Event until the client is gone, the instance
+	 * is shutdown or the service stops. If the service serves requests
+	 * concurrently, as done by the {@link EServiceMode#POOLED} mode, the
+	 * calling thread waits until the stream ended.
+	 * 
+	 * @param target
+	 *            The target of the request
+	 * @param clientRequest
+	 *            The request of the client to serve
+	 * @return <tt>True</tt> if the request was answered directly,
+	 *         <tt>false</tt> if it streams and gets finished later
+	 * @throws IOException
+	 *             If an I/O-Exception occurs
+	 */
+	private boolean serveStreamRequest(final RequestTarget target, final ClientRequest clientRequest)
+			throws IOException {
+		if (this.mLogger.isDebugEnabled()) {
+			this.mLogger.logDebug("Serving stream request.");
+		}
+
+		// Id Argument
+		final String id = target.getParameter(ARGUMENT_ID);
+		if (!isValidId(id)) {
+			HttpUtil.sendError(EHttpStatus.BAD_REQUEST, clientRequest);
+			return true;
+		}
+
+		if (!this.mIdToShard.containsKey(id)) {
+			HttpUtil.sendError(EHttpStatus.UNPROCESSABLE_ENTITY, clientRequest);
+			return true;
+		}
+
+		// The stream sends its head once the answers present before are known
+		final AnswerStream stream = new AnswerStream(id, clientRequest, this);
+		this.mAnswerObserver.watch(stream);
+		if (this.mServiceMode == EServiceMode.POOLED) {
+			stream.awaitEnd();
+		}
+		return false;
 	}
 
 	/**
@@ -572,24 +1172,40 @@ public final class Service extends Thread {
 	 */
 	private void shutdown() {
 		this.mLogger.logInfo("Shutting down service");
-		try {
-			this.mDriver.quit();
-		} catch (final Exception e) {
-			// Log the error but continue
-			this.mLogger.logError("Error while shutting down driver: " + LoggerUtil.getStackTrace(e));
+		if (this.mFrontEnd != null) {
+			this.mFrontEnd.stopFrontEnd();
 		}
-	}
 
-	/**
-	 * Waits a given time before executing the next iteration of the services
-	 * life cycle.
-	 */
-	private void waitToNextIteration() {
+		// Answer parked requests
+		this.mAnswerObserver.stopObserver();
 		try {
-			sleep(SERVICE_INTERVAL);
+			this.mAnswerObserver.join();
 		} catch (final InterruptedException e) {
 			// Log the error but continue
-			this.mLogger.logError("Service wait got interrupted: " + LoggerUtil.getStackTrace(e));
+			this.mLogger.logError("Interrupted while waiting for the answer observer: " + LoggerUtil.getStackTrace(e));
+		}
+
+		// Reject requests that did not get served anymore
+		ClientRequest clientRequest = this.mRequests.poll();
+		while (clientRequest != null) {
+			rejectClientRequest(clientRequest);
+			clientRequest = this.mRequests.poll();
+		}
+
+		logMetrics();
+
+		// Submit quitting to all shards first such that they work in parallel
+		final List<CompletableFuture<Void>> quitResults = new ArrayList<>(this.mShards.size());
+		for (final DriverShard shard : this.mShards) {
+			quitResults.add(shard.quit());
+		}
+		for (final CompletableFuture<Void> quitResult : quitResults) {
+			try {
+				DriverShard.awaitResult(quitResult);
+			} catch (final Exception e) {
+				// Log the error but continue
+				this.mLogger.logError("Error while shutting down backend: " + LoggerUtil.getStackTrace(e));
+			}
 		}
 	}
 }
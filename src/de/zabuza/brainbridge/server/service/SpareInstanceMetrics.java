@@ -0,0 +1,120 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the spare instances of a {@link DriverShard}. They count how many
+ * created instances were handed out from the spare instances, how many had to
+ * be created on demand and how many spare instances were created in the
+ * background. The class is thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class SpareInstanceMetrics {
+	/**
+	 * The amount of milliseconds per minute.
+	 */
+	private static final double MILLIS_PER_MINUTE = 60_000.0;
+
+	/**
+	 * The amount of created instances that were handed out from the spare
+	 * instances.
+	 */
+	private final AtomicLong mHits;
+	/**
+	 * The amount of created instances that had to be created on demand since
+	 * no spare instance was available.
+	 */
+	private final AtomicLong mMisses;
+	/**
+	 * The amount of spare instances that were created in the background.
+	 */
+	private final AtomicLong mRefills;
+	/**
+	 * Timestamp of when the metrics started counting in milliseconds.
+	 */
+	private final long mStartTime;
+
+	/**
+	 * Creates new metrics that start counting now.
+	 */
+	public SpareInstanceMetrics() {
+		this.mHits = new AtomicLong(0L);
+		this.mMisses = new AtomicLong(0L);
+		this.mRefills = new AtomicLong(0L);
+		this.mStartTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the amount of created instances that were handed out from the
+	 * spare instances.
+	 * 
+	 * @return The amount of hits
+	 */
+	public long getHits() {
+		return this.mHits.get();
+	}
+
+	/**
+	 * Gets the amount of created instances that had to be created on demand
+	 * since no spare instance was available.
+	 * 
+	 * @return The amount of misses
+	 */
+	public long getMisses() {
+		return this.mMisses.get();
+	}
+
+	/**
+	 * Gets the average amount of spare instances that were created per minute
+	 * since the metrics started counting.
+	 * 
+	 * @return The amount of refills per minute
+	 */
+	public double getRefillRate() {
+		final long elapsedTime = Math.max(1L, System.currentTimeMillis() - this.mStartTime);
+		return this.mRefills.get() * MILLIS_PER_MINUTE / elapsedTime;
+	}
+
+	/**
+	 * Gets the amount of spare instances that were created in the background.
+	 * 
+	 * @return The amount of refills
+	 */
+	public long getRefills() {
+		return this.mRefills.get();
+	}
+
+	/**
+	 * Counts a created instance that was handed out from the spare instances.
+	 */
+	public void recordHit() {
+		this.mHits.incrementAndGet();
+	}
+
+	/**
+	 * Counts a created instance that had to be created on demand.
+	 */
+	public void recordMiss() {
+		this.mMisses.incrementAndGet();
+	}
+
+	/**
+	 * Counts a spare instance that was created in the background.
+	 */
+	public void recordRefill() {
+		this.mRefills.incrementAndGet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "hits=" + getHits() + ", misses=" + getMisses() + ", refills=" + getRefills() + ", refillsPerMinute="
+				+ String.format("%.2f", Double.valueOf(getRefillRate()));
+	}
+}
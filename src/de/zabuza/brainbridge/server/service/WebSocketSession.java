@@ -0,0 +1,421 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+import de.zabuza.brainbridge.server.logging.ILogger;
+import de.zabuza.brainbridge.server.logging.LoggerFactory;
+import de.zabuza.brainbridge.server.logging.LoggerUtil;
+
+/**
+ * Session of a client that is connected to a brain instance by the WebSocket
+ * protocol. Every text message of the client is posted to the instance and
+ * every new answer of the instance is sent back as text message, over the same
+ * persistent connection.<br>
+ * <br>
+ * The session watches the answers by using an {@link AnswerObserver}. It sends
+ * the handshake once its watching started, such that every answer that arrives
+ * after the handshake is sent. Its {@link #run()} method reads the messages of
+ * the client until the session ends. That is if the client closes the
+ * connection, the instance does not exist anymore or the observer stops. The
+ * connection must be in blocking mode.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WebSocketSession implements IAnswerWatcher, Runnable {
+	/**
+	 * Flag of the second byte of a frame that marks its payload as masked.
+	 */
+	private static final int MASK_FLAG = 0x80;
+	/**
+	 * The maximal length of a message of the client in bytes. Clients sending
+	 * longer messages get disconnected.
+	 */
+	private static final int MAX_MESSAGE_LENGTH = 65_536;
+	/**
+	 * Mask of the first byte of a frame that extracts the opcode.
+	 */
+	private static final int OPCODE_MASK = 0x0F;
+	/**
+	 * Mask of the second byte of a frame that extracts the payload length.
+	 */
+	private static final int PAYLOAD_LENGTH_MASK = 0x7F;
+	/**
+	 * Mask of the first byte of a frame that extracts the reserved bits.
+	 */
+	private static final int RESERVED_BITS_MASK = 0x70;
+
+	/**
+	 * The request of the client that opened the session.
+	 */
+	private final ClientRequest mClientRequest;
+	/**
+	 * Whether the session already ended.
+	 */
+	private final AtomicBoolean mEnded;
+	/**
+	 * The id of the instance the session is connected to.
+	 */
+	private final String mId;
+	/**
+	 * Whether the handshake was sent to the client.
+	 */
+	private volatile boolean mIsOpen;
+	/**
+	 * The key the client sent to open the session.
+	 */
+	private final String mKey;
+	/**
+	 * The logger to use for logging.
+	 */
+	private final ILogger mLogger;
+	/**
+	 * Data that was already read from the client but not consumed yet.
+	 */
+	private final ByteBuffer mPendingData;
+	/**
+	 * The service that posts the messages of the client and finishes the
+	 * request once the session ended.
+	 */
+	private final Service mService;
+
+	/**
+	 * Creates a new session of a client that is connected to the given
+	 * instance. Let the {@link AnswerObserver} watch it to send the handshake
+	 * and call {@link #run()} to read the messages of the client.
+	 * 
+	 * @param id
+	 *            The id of the instance the session is connected to
+	 * @param key
+	 *            The key the client sent to open the session
+	 * @param pendingData
+	 *            Data that was already read from the client but not consumed
+	 *            yet, ready for getting read
+	 * @param clientRequest
+	 *            The request of the client that opened the session, its
+	 *            connection must be in blocking mode
+	 * @param service
+	 *            The service that posts the messages of the client and
+	 *            finishes the request once the session ended
+	 */
+	public WebSocketSession(final String id, final String key, final ByteBuffer pendingData,
+			final ClientRequest clientRequest, final Service service) {
+		this.mId = id;
+		this.mKey = key;
+		this.mPendingData = pendingData;
+		this.mClientRequest = clientRequest;
+		this.mService = service;
+		this.mLogger = LoggerFactory.getLogger();
+		this.mEnded = new AtomicBoolean(false);
+		this.mIsOpen = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#answersObserved(java.
+	 * util.List)
+	 */
+	@Override
+	public boolean answersObserved(final List<String> answers) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+
+		try {
+			for (final String answer : answers) {
+				sendFrame(WebSocketUtil.OPCODE_TEXT, answer.getBytes(HttpUtil.TEXT_CHARSET));
+			}
+		} catch (final IOException e) {
+			// The client is gone
+			if (this.mLogger.isDebugEnabled()) {
+				this.mLogger.logDebug("Session of " + this.mId + " ended: " + LoggerUtil.getStackTrace(e));
+			}
+			end(WebSocketUtil.CLOSE_GOING_AWAY);
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#end()
+	 */
+	@Override
+	public void end() {
+		end(WebSocketUtil.CLOSE_GOING_AWAY);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#getInstanceId()
+	 */
+	@Override
+	public String getInstanceId() {
+		return this.mId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.service.IAnswerWatcher#isExpired(long)
+	 */
+	@Override
+	public boolean isExpired(final long timeNow) {
+		// Sessions do not expire, they end once the client is gone
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		final ByteBuffer head = ByteBuffer.allocate(8);
+		ByteArrayOutputStream message = null;
+		int closeStatus = WebSocketUtil.CLOSE_NORMAL;
+		try {
+			while (!this.mEnded.get()) {
+				head.clear().limit(2);
+				if (!readFully(head)) {
+					// Client closed the connection
+					break;
+				}
+				final int firstByte = head.get(0) & 0xFF;
+				final int secondByte = head.get(1) & 0xFF;
+				final boolean isFinalFragment = (firstByte & WebSocketUtil.FINAL_FRAGMENT_FLAG) != 0;
+				final int opcode = firstByte & OPCODE_MASK;
+				final boolean isControlFrame = (opcode & WebSocketUtil.OPCODE_CLOSE) != 0;
+
+				// Frames of clients must be masked, extensions are not
+				// supported
+				if ((firstByte & RESERVED_BITS_MASK) != 0 || (secondByte & MASK_FLAG) == 0) {
+					closeStatus = WebSocketUtil.CLOSE_PROTOCOL_ERROR;
+					break;
+				}
+
+				// Payload length
+				long payloadLength = secondByte & PAYLOAD_LENGTH_MASK;
+				if (payloadLength == WebSocketUtil.PAYLOAD_LENGTH_16_BIT) {
+					head.clear().limit(2);
+					if (!readFully(head)) {
+						break;
+					}
+					payloadLength = head.getShort(0) & 0xFFFF;
+				} else if (payloadLength == WebSocketUtil.PAYLOAD_LENGTH_64_BIT) {
+					head.clear().limit(8);
+					if (!readFully(head)) {
+						break;
+					}
+					payloadLength = head.getLong(0);
+				}
+				if (isControlFrame && (!isFinalFragment || payloadLength > WebSocketUtil.MAX_CONTROL_PAYLOAD_LENGTH)) {
+					closeStatus = WebSocketUtil.CLOSE_PROTOCOL_ERROR;
+					break;
+				}
+				final int messageLength;
+				if (message == null) {
+					messageLength = 0;
+				} else {
+					messageLength = message.size();
+				}
+				if (payloadLength < 0 || payloadLength > MAX_MESSAGE_LENGTH - messageLength) {
+					closeStatus = WebSocketUtil.CLOSE_MESSAGE_TOO_BIG;
+					break;
+				}
+
+				// Masking key and payload
+				head.clear().limit(4);
+				final ByteBuffer payload = ByteBuffer.allocate((int) payloadLength);
+				if (!readFully(head) || !readFully(payload)) {
+					break;
+				}
+				final byte[] payloadBytes = payload.array();
+				for (int i = 0; i < payloadBytes.length; i++) {
+					payloadBytes[i] ^= head.get(i % 4);
+				}
+
+				// Control frames may appear in between fragments of a message
+				if (opcode == WebSocketUtil.OPCODE_CLOSE) {
+					if (payloadBytes.length >= 2) {
+						closeStatus = ((payloadBytes[0] & 0xFF) << 8) | (payloadBytes[1] & 0xFF);
+					}
+					break;
+				}
+				if (opcode == WebSocketUtil.OPCODE_PING) {
+					sendFrame(WebSocketUtil.OPCODE_PONG, payloadBytes);
+					continue;
+				}
+				if (opcode == WebSocketUtil.OPCODE_PONG) {
+					continue;
+				}
+
+				// Data frames, only text is accepted
+				if (opcode == WebSocketUtil.OPCODE_BINARY) {
+					closeStatus = WebSocketUtil.CLOSE_UNSUPPORTED_DATA;
+					break;
+				}
+				final boolean isContinuation = opcode == WebSocketUtil.OPCODE_CONTINUATION;
+				if ((opcode != WebSocketUtil.OPCODE_TEXT && !isContinuation) || isContinuation == (message == null)) {
+					closeStatus = WebSocketUtil.CLOSE_PROTOCOL_ERROR;
+					break;
+				}
+				if (message == null) {
+					message = new ByteArrayOutputStream(payloadBytes.length);
+				}
+				message.write(payloadBytes, 0, payloadBytes.length);
+
+				if (isFinalFragment) {
+					final String messageText = new String(message.toByteArray(), HttpUtil.TEXT_CHARSET);
+					message = null;
+					if (!postMessage(messageText)) {
+						closeStatus = WebSocketUtil.CLOSE_GOING_AWAY;
+						break;
+					}
+				}
+			}
+		} catch (final IOException e) {
+			// The client is gone or the session ended meanwhile
+			if (this.mLogger.isDebugEnabled()) {
+				this.mLogger.logDebug("Session of " + this.mId + " ended: " + LoggerUtil.getStackTrace(e));
+			}
+		} finally {
+			end(closeStatus);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.service.IAnswerWatcher#watchStarted(java.
+	 * lang.String)
+	 */
+	@Override
+	public boolean watchStarted(final String latestAnswer) {
+		if (this.mEnded.get()) {
+			return true;
+		}
+
+		try {
+			sendHandshake();
+		} catch (final IOException e) {
+			// The client is gone
+			if (this.mLogger.isDebugEnabled()) {
+				this.mLogger.logDebug("Session of " + this.mId + " ended: " + LoggerUtil.getStackTrace(e));
+			}
+			end(WebSocketUtil.CLOSE_GOING_AWAY);
+			return true;
+		}
+		this.mLogger.logInfo("Opened socket of " + this.mId);
+		return false;
+	}
+
+	/**
+	 * Ends the session by sending a close frame with the given status code to
+	 * the client and closing the connection afterwards. The close frame is
+	 * only sent if the handshake was sent before. Does nothing if the session
+	 * already ended.
+	 * 
+	 * @param statusCode
+	 *            The status code of the close frame
+	 */
+	private void end(final int statusCode) {
+		if (!this.mEnded.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			if (this.mIsOpen) {
+				sendFrame(WebSocketUtil.OPCODE_CLOSE, new byte[] { (byte) (statusCode >>> 8), (byte) statusCode });
+			}
+		} catch (final IOException e) {
+			// The client is already gone, simply ignore it
+		} finally {
+			this.mService.closeClientRequest(this.mClientRequest);
+		}
+	}
+
+	/**
+	 * Posts the given message of the client to the instance of the session.
+	 * 
+	 * @param message
+	 *            The message to post
+	 * @return <tt>True</tt> if the session continues, <tt>false</tt> if the
+	 *         instance does not exist anymore
+	 */
+	private boolean postMessage(final String message) {
+		try {
+			if (!this.mService.postMessage(this.mId, message)) {
+				return false;
+			}
+			this.mLogger.logInfo("Post for " + this.mId + " by session: " + message);
+		} catch (final ChatBackendException e) {
+			// Log the error but continue, the client may retry
+			this.mLogger.logError("Server error while posting message: " + LoggerUtil.getStackTrace(e));
+		}
+		return true;
+	}
+
+	/**
+	 * Reads data of the client until the given buffer is full. Data that was
+	 * already read but not consumed is used first.
+	 * 
+	 * @param buffer
+	 *            The buffer to read into
+	 * @return <tt>True</tt> if the buffer is full, <tt>false</tt> if the
+	 *         client closed the connection before
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private boolean readFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining() && this.mPendingData.hasRemaining()) {
+			buffer.put(this.mPendingData.get());
+		}
+		final SocketChannel client = this.mClientRequest.getClient();
+		while (buffer.hasRemaining()) {
+			if (client.read(buffer) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sends an unfragmented frame with the given opcode and payload to the
+	 * client. The method is thread-safe.
+	 * 
+	 * @param opcode
+	 *            The opcode of the frame
+	 * @param payload
+	 *            The payload of the frame
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private synchronized void sendFrame(final int opcode, final byte[] payload) throws IOException {
+		WebSocketUtil.sendFrame(opcode, payload, this.mClientRequest.getClient());
+	}
+
+	/**
+	 * Sends the handshake to the client, which switches the connection to the
+	 * WebSocket protocol. The method is thread-safe.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private synchronized void sendHandshake() throws IOException {
+		// Set before sending, the client may answer before the method returns
+		this.mIsOpen = true;
+		WebSocketUtil.sendHandshake(this.mKey, this.mClientRequest.getClient());
+	}
+}
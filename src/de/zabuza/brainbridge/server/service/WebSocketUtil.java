@@ -0,0 +1,213 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import de.zabuza.brainbridge.server.exceptions.UnexpectedNoSuchAlgorithmException;
+
+/**
+ * Utility class that provides methods for the WebSocket protocol as specified
+ * by RFC 6455. Frames sent by the server are never masked.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WebSocketUtil {
+	/**
+	 * Status code of close frames for connections that are closed since the
+	 * server goes away or the instance does not exist anymore.
+	 */
+	public static final int CLOSE_GOING_AWAY = 1001;
+	/**
+	 * Status code of close frames for connections that are closed since a
+	 * message was too big to process.
+	 */
+	public static final int CLOSE_MESSAGE_TOO_BIG = 1009;
+	/**
+	 * Status code of close frames for connections that are closed normally.
+	 */
+	public static final int CLOSE_NORMAL = 1000;
+	/**
+	 * Status code of close frames for connections that are closed since the
+	 * peer violated the protocol.
+	 */
+	public static final int CLOSE_PROTOCOL_ERROR = 1002;
+	/**
+	 * Status code of close frames for connections that are closed since the
+	 * peer sent data of a type that is not accepted.
+	 */
+	public static final int CLOSE_UNSUPPORTED_DATA = 1003;
+	/**
+	 * Flag of the first byte of a frame that marks it as final fragment of a
+	 * message.
+	 */
+	public static final int FINAL_FRAGMENT_FLAG = 0x80;
+	/**
+	 * The maximal length of the payload of control frames in bytes.
+	 */
+	public static final int MAX_CONTROL_PAYLOAD_LENGTH = 125;
+	/**
+	 * Opcode of frames that carry binary data.
+	 */
+	public static final int OPCODE_BINARY = 0x2;
+	/**
+	 * Opcode of frames that close the connection.
+	 */
+	public static final int OPCODE_CLOSE = 0x8;
+	/**
+	 * Opcode of frames that continue a fragmented message.
+	 */
+	public static final int OPCODE_CONTINUATION = 0x0;
+	/**
+	 * Opcode of frames that request a pong.
+	 */
+	public static final int OPCODE_PING = 0x9;
+	/**
+	 * Opcode of frames that answer a ping.
+	 */
+	public static final int OPCODE_PONG = 0xA;
+	/**
+	 * Opcode of frames that carry text.
+	 */
+	public static final int OPCODE_TEXT = 0x1;
+	/**
+	 * Payload length indicating that the actual length follows as unsigned
+	 * 16-bit number.
+	 */
+	public static final int PAYLOAD_LENGTH_16_BIT = 126;
+	/**
+	 * Payload length indicating that the actual length follows as unsigned
+	 * 64-bit number.
+	 */
+	public static final int PAYLOAD_LENGTH_64_BIT = 127;
+	/**
+	 * The algorithm used to compute the accept key of a handshake.
+	 */
+	private static final String ACCEPT_KEY_ALGORITHM = "SHA-1";
+	/**
+	 * The globally unique identifier that is appended to the key of a client
+	 * in order to compute the accept key of a handshake.
+	 */
+	private static final String ACCEPT_KEY_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	/**
+	 * Pre-encoded beginning of the answer that completes a handshake. That is
+	 * the status line and the header fields up to the accept key.
+	 */
+	private static final byte[] HANDSHAKE_HEAD_PREFIX;
+	/**
+	 * Pre-encoded end of the answer that completes a handshake. That is the
+	 * end of the accept key header field followed by the empty line.
+	 */
+	private static final byte[] HANDSHAKE_HEAD_SUFFIX;
+
+	static {
+		HANDSHAKE_HEAD_PREFIX = ("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+				+ "Sec-WebSocket-Accept: ").getBytes(HttpUtil.TEXT_CHARSET);
+		HANDSHAKE_HEAD_SUFFIX = "\r\n\r\n".getBytes(HttpUtil.TEXT_CHARSET);
+	}
+
+	/**
+	 * Computes the key that accepts the handshake of a client which sent the
+	 * given key.
+	 * 
+	 * @param key
+	 *            The key sent by the client
+	 * @return The accept key to send back
+	 * @throws UnexpectedNoSuchAlgorithmException
+	 *             If the SHA-1 algorithm is unexpectedly not supported
+	 */
+	public static String computeAcceptKey(final String key) throws UnexpectedNoSuchAlgorithmException {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance(ACCEPT_KEY_ALGORITHM);
+			final byte[] hash = digest.digest((key.trim() + ACCEPT_KEY_GUID).getBytes(HttpUtil.TEXT_CHARSET));
+			return Base64.getEncoder().encodeToString(hash);
+		} catch (final NoSuchAlgorithmException e) {
+			// Re-throw new exception
+			throw new UnexpectedNoSuchAlgorithmException(e);
+		}
+	}
+
+	/**
+	 * Sends an unfragmented frame with the given opcode and payload to the
+	 * given client.
+	 * 
+	 * @param opcode
+	 *            The opcode of the frame
+	 * @param payload
+	 *            The payload of the frame
+	 * @param client
+	 *            Client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static void sendFrame(final int opcode, final byte[] payload, final GatheringByteChannel client)
+			throws IOException {
+		final ByteBuffer head = ByteBuffer.allocate(10);
+		head.put((byte) (FINAL_FRAGMENT_FLAG | opcode));
+		if (payload.length < PAYLOAD_LENGTH_16_BIT) {
+			head.put((byte) payload.length);
+		} else if (payload.length <= 0xFFFF) {
+			head.put((byte) PAYLOAD_LENGTH_16_BIT);
+			head.putShort((short) payload.length);
+		} else {
+			head.put((byte) PAYLOAD_LENGTH_64_BIT);
+			head.putLong(payload.length);
+		}
+		head.flip();
+
+		writeFully(new ByteBuffer[] { head, ByteBuffer.wrap(payload) }, client);
+	}
+
+	/**
+	 * Sends the answer that completes the handshake of a client which sent the
+	 * given key. Frames can be exchanged afterwards.
+	 * 
+	 * @param key
+	 *            The key sent by the client
+	 * @param client
+	 *            Client to send to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 * @throws UnexpectedNoSuchAlgorithmException
+	 *             If the SHA-1 algorithm is unexpectedly not supported
+	 */
+	public static void sendHandshake(final String key, final GatheringByteChannel client)
+			throws IOException, UnexpectedNoSuchAlgorithmException {
+		final byte[] acceptKey = computeAcceptKey(key).getBytes(HttpUtil.TEXT_CHARSET);
+		writeFully(new ByteBuffer[] { ByteBuffer.wrap(HANDSHAKE_HEAD_PREFIX), ByteBuffer.wrap(acceptKey),
+				ByteBuffer.wrap(HANDSHAKE_HEAD_SUFFIX) }, client);
+	}
+
+	/**
+	 * Writes the remaining content of the given buffers, in order, to the
+	 * given client. The client must be in blocking mode.
+	 * 
+	 * @param buffers
+	 *            The buffers to write
+	 * @param client
+	 *            Client to write to
+	 * @throws IOException
+	 *             If an I/O-Exception occurred.
+	 */
+	private static void writeFully(final ByteBuffer[] buffers, final GatheringByteChannel client)
+			throws IOException {
+		long remaining = 0;
+		for (final ByteBuffer buffer : buffers) {
+			remaining += buffer.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= client.write(buffers);
+		}
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private WebSocketUtil() {
+
+	}
+}
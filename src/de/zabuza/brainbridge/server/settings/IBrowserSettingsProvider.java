@@ -9,6 +9,14 @@ import de.zabuza.brainbridge.server.webdriver.EBrowser;
  *
  */
 public interface IBrowserSettingsProvider {
+	/**
+	 * Gets whether the browser should block resources that are not needed for
+	 * chatting, like images, fonts, media and third-party hosts.
+	 * 
+	 * @return Whether resources should be blocked or <tt>null</tt> if not set
+	 */
+	public Boolean getBlockResources();
+
 	/**
 	 * Gets the browser to use.
 	 * 
@@ -32,6 +40,30 @@ public interface IBrowserSettingsProvider {
 	 */
 	public String getDriverForBrowser(final EBrowser browser);
 
+	/**
+	 * Gets the amount of resident memory in megabytes after which a browser
+	 * gets replaced by a fresh one, <tt>0</tt> disables the limit.
+	 * 
+	 * @return The memory limit or <tt>null</tt> if not set
+	 */
+	public Integer getRecycleAfterMemory();
+
+	/**
+	 * Gets the uptime in minutes after which a browser gets replaced by a
+	 * fresh one, <tt>0</tt> disables the limit.
+	 * 
+	 * @return The uptime limit or <tt>null</tt> if not set
+	 */
+	public Integer getRecycleAfterMinutes();
+
+	/**
+	 * Gets the amount of served chat windows after which a browser gets
+	 * replaced by a fresh one, <tt>0</tt> disables the limit.
+	 * 
+	 * @return The limit of served windows or <tt>null</tt> if not set
+	 */
+	public Integer getRecycleAfterWindows();
+
 	/**
 	 * Gets the path to the user profile to use.
 	 * 
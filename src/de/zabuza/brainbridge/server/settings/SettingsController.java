@@ -6,6 +6,8 @@ import java.util.Map;
 import de.zabuza.brainbridge.server.logging.ILogger;
 import de.zabuza.brainbridge.server.logging.LoggerFactory;
 import de.zabuza.brainbridge.server.logging.LoggerUtil;
+import de.zabuza.brainbridge.server.service.EChatBackend;
+import de.zabuza.brainbridge.server.service.EServiceMode;
 import de.zabuza.brainbridge.server.webdriver.EBrowser;
 
 /**
@@ -19,10 +21,19 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 	 * Text to save for a value if a key is unknown.
 	 */
 	public static final String UNKNOWN_KEY_VALUE = "";
+	/**
+	 * Key identifier for the selected chat backend.
+	 */
+	private static final String KEY_IDENTIFIER_BACKEND = "backend";
 	/**
 	 * Key identifier for binary setting.
 	 */
 	private static final String KEY_IDENTIFIER_BINARY = "binary";
+	/**
+	 * Key identifier for whether browsers block resources not needed for
+	 * chatting.
+	 */
+	private static final String KEY_IDENTIFIER_BLOCK_RESOURCES = "blockResources";
 	/**
 	 * Key identifier for the selected browser.
 	 */
@@ -31,10 +42,45 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 	 * Key identifier for driver settings.
 	 */
 	private static final String KEY_IDENTIFIER_DRIVER = "driver";
+	/**
+	 * Key identifier for the amount of drivers the service uses.
+	 */
+	private static final String KEY_IDENTIFIER_DRIVER_POOL_SIZE = "driverPoolSize";
+	/**
+	 * Key identifier for whether the tool runs headless.
+	 */
+	private static final String KEY_IDENTIFIER_HEADLESS = "headless";
+	/**
+	 * Key identifier for the idle timeout of kept alive connections.
+	 */
+	private static final String KEY_IDENTIFIER_IDLE_TIMEOUT = "idleTimeout";
 	/**
 	 * Key identifier for port settings.
 	 */
 	private static final String KEY_IDENTIFIER_PORT = "port";
+	/**
+	 * Key identifier for the memory limit in megabytes after which browsers get
+	 * replaced.
+	 */
+	private static final String KEY_IDENTIFIER_RECYCLE_AFTER_MEMORY = "recycleAfterMemory";
+	/**
+	 * Key identifier for the uptime limit in minutes after which browsers get
+	 * replaced.
+	 */
+	private static final String KEY_IDENTIFIER_RECYCLE_AFTER_MINUTES = "recycleAfterMinutes";
+	/**
+	 * Key identifier for the limit of served windows after which browsers get
+	 * replaced.
+	 */
+	private static final String KEY_IDENTIFIER_RECYCLE_AFTER_WINDOWS = "recycleAfterWindows";
+	/**
+	 * Key identifier for the selected service mode.
+	 */
+	private static final String KEY_IDENTIFIER_SERVICE_MODE = "serviceMode";
+	/**
+	 * Key identifier for the amount of spare instances every driver keeps.
+	 */
+	private static final String KEY_IDENTIFIER_SPARE_INSTANCES = "spareInstances";
 	/**
 	 * Key identifier for user profile setting.
 	 */
@@ -43,6 +89,10 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 	 * Separator which separates several information in a key.
 	 */
 	private static final String KEY_INFO_SEPARATOR = "@";
+	/**
+	 * The greatest valid port.
+	 */
+	private static final int MAX_PORT = 65_535;
 
 	/**
 	 * Utility main method to create settings.
@@ -55,6 +105,16 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		settings.initialize();
 
 		settings.setPort(8110);
+		settings.setServiceMode(EServiceMode.BLOCKING);
+		settings.setBackend(EChatBackend.BROWSER);
+		settings.setIdleTimeout(15_000L);
+		settings.setDriverPoolSize(1);
+		settings.setSpareInstances(2);
+		settings.setHeadless(false);
+		settings.setBlockResources(true);
+		settings.setRecycleAfterMemory(2048);
+		settings.setRecycleAfterMinutes(1440);
+		settings.setRecycleAfterWindows(1000);
 		settings.setBrowser(EBrowser.CHROME);
 		settings.setBinary("C:\\Program Files (x86)\\Google\\Chrome\\Application\\chrome.exe");
 		settings.setDriverForBrowser(
@@ -99,6 +159,39 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		return this.mSettingsStore;
 	}
 
+	/**
+	 * Gets the set chat backend.
+	 * 
+	 * @return The set chat backend or <tt>null</tt> if there is no
+	 */
+	public EChatBackend getBackend() {
+		final String value = getSetting(KEY_IDENTIFIER_BACKEND);
+		if (value.equals(UNKNOWN_KEY_VALUE)) {
+			return null;
+		}
+		try {
+			return EChatBackend.valueOf(value);
+		} catch (final IllegalArgumentException e) {
+			this.mLogger.logError("Ignoring setting " + KEY_IDENTIFIER_BACKEND + ", unknown backend: " + value);
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.settings.IBrowserSettingsProvider#getBlockResources()
+	 */
+	@Override
+	public Boolean getBlockResources() {
+		final String value = getSetting(KEY_IDENTIFIER_BLOCK_RESOURCES);
+		if (value.equals(UNKNOWN_KEY_VALUE)) {
+			return null;
+		}
+		return Boolean.valueOf(value);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -145,17 +238,95 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		return driver;
 	}
 
+	/**
+	 * Gets the set amount of drivers the service uses.
+	 * 
+	 * @return The set amount of drivers or <tt>null</tt> if there is no
+	 */
+	public Integer getDriverPoolSize() {
+		return getIntegerSetting(KEY_IDENTIFIER_DRIVER_POOL_SIZE, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets whether the tool is set to run headless.
+	 * 
+	 * @return Whether the tool runs headless or <tt>null</tt> if there is no
+	 */
+	public Boolean getHeadless() {
+		final String value = getSetting(KEY_IDENTIFIER_HEADLESS);
+		if (value.equals(UNKNOWN_KEY_VALUE)) {
+			return null;
+		}
+		return Boolean.valueOf(value);
+	}
+
+	/**
+	 * Gets the set idle timeout of kept alive connections in milliseconds.
+	 * 
+	 * @return The set idle timeout or <tt>null</tt> if there is no
+	 */
+	public Long getIdleTimeout() {
+		return getLongSetting(KEY_IDENTIFIER_IDLE_TIMEOUT, 1L);
+	}
+
 	/**
 	 * Gets the set port.
 	 * 
 	 * @return The set port or <tt>null</tt> if there is no
 	 */
 	public Integer getPort() {
-		final String value = getSetting(KEY_IDENTIFIER_PORT);
-		if (value != null) {
-			return Integer.valueOf(value);
+		return getIntegerSetting(KEY_IDENTIFIER_PORT, 1, MAX_PORT);
+	}
+
+	/**
+	 * Gets the set service mode.
+	 * 
+	 * @return The set service mode or <tt>null</tt> if there is no
+	 */
+	public EServiceMode getServiceMode() {
+		final String value = getSetting(KEY_IDENTIFIER_SERVICE_MODE);
+		if (value.equals(UNKNOWN_KEY_VALUE)) {
+			return null;
 		}
-		return null;
+		try {
+			return EServiceMode.valueOf(value);
+		} catch (final IllegalArgumentException e) {
+			this.mLogger.logError("Ignoring setting " + KEY_IDENTIFIER_SERVICE_MODE + ", unknown mode: " + value);
+			return null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.settings.IBrowserSettingsProvider#
+	 * getRecycleAfterMemory()
+	 */
+	@Override
+	public Integer getRecycleAfterMemory() {
+		return getIntegerSetting(KEY_IDENTIFIER_RECYCLE_AFTER_MEMORY, 0, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.settings.IBrowserSettingsProvider#
+	 * getRecycleAfterMinutes()
+	 */
+	@Override
+	public Integer getRecycleAfterMinutes() {
+		return getIntegerSetting(KEY_IDENTIFIER_RECYCLE_AFTER_MINUTES, 0, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.settings.IBrowserSettingsProvider#
+	 * getRecycleAfterWindows()
+	 */
+	@Override
+	public Integer getRecycleAfterWindows() {
+		return getIntegerSetting(KEY_IDENTIFIER_RECYCLE_AFTER_WINDOWS, 0, Integer.MAX_VALUE);
 	}
 
 	/*
@@ -174,6 +345,16 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		return value;
 	}
 
+	/**
+	 * Gets the set amount of spare instances every driver keeps.
+	 * 
+	 * @return The set amount of spare instances or <tt>null</tt> if there is
+	 *         no
+	 */
+	public Integer getSpareInstances() {
+		return getIntegerSetting(KEY_IDENTIFIER_SPARE_INSTANCES, 0, Integer.MAX_VALUE);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -214,6 +395,19 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		}
 	}
 
+	/**
+	 * Sets the chat backend to use for the instances.
+	 * 
+	 * @param backend
+	 *            The chat backend to use
+	 */
+	public void setBackend(final EChatBackend backend) {
+		if (backend != null) {
+			final String key = KEY_IDENTIFIER_BACKEND;
+			setSetting(key, backend.toString());
+		}
+	}
+
 	/**
 	 * Sets the path to the executable binary to use for the browser.
 	 * 
@@ -227,6 +421,18 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		}
 	}
 
+	/**
+	 * Sets whether browsers block resources that are not needed for chatting,
+	 * like images, fonts, media and third-party hosts.
+	 * 
+	 * @param blockResources
+	 *            Whether browsers block resources
+	 */
+	public void setBlockResources(final boolean blockResources) {
+		final String key = KEY_IDENTIFIER_BLOCK_RESOURCES;
+		setSetting(key, Boolean.toString(blockResources));
+	}
+
 	/**
 	 * Sets the browser to use.
 	 * 
@@ -255,6 +461,48 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		}
 	}
 
+	/**
+	 * Sets the amount of drivers the service uses. Instances are distributed
+	 * over the drivers, which serve them in parallel. Every driver serves its
+	 * own instances one call at a time, which limits the throughput of the
+	 * HTTP backend in particular.
+	 * 
+	 * @param driverPoolSize
+	 *            The amount of drivers to use
+	 */
+	public void setDriverPoolSize(final int driverPoolSize) {
+		if (driverPoolSize > 0) {
+			final String key = KEY_IDENTIFIER_DRIVER_POOL_SIZE;
+			setSetting(key, Integer.toString(driverPoolSize));
+		}
+	}
+
+	/**
+	 * Sets whether the tool runs headless. A headless tool does not use the
+	 * system tray and launches the browsers without a window.
+	 * 
+	 * @param headless
+	 *            Whether the tool runs headless
+	 */
+	public void setHeadless(final boolean headless) {
+		final String key = KEY_IDENTIFIER_HEADLESS;
+		setSetting(key, Boolean.toString(headless));
+	}
+
+	/**
+	 * Sets the time after which kept alive connections without activity get
+	 * closed.
+	 * 
+	 * @param idleTimeout
+	 *            The idle timeout to use in milliseconds
+	 */
+	public void setIdleTimeout(final long idleTimeout) {
+		if (idleTimeout > 0) {
+			final String key = KEY_IDENTIFIER_IDLE_TIMEOUT;
+			setSetting(key, Long.toString(idleTimeout));
+		}
+	}
+
 	/**
 	 * Sets the port to use for communication.
 	 * 
@@ -268,6 +516,62 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		}
 	}
 
+	/**
+	 * Sets the amount of resident memory in megabytes after which a browser
+	 * gets replaced by a fresh one. <tt>0</tt> disables the limit.
+	 * 
+	 * @param recycleAfterMemory
+	 *            The memory limit in megabytes
+	 */
+	public void setRecycleAfterMemory(final int recycleAfterMemory) {
+		if (recycleAfterMemory >= 0) {
+			final String key = KEY_IDENTIFIER_RECYCLE_AFTER_MEMORY;
+			setSetting(key, Integer.toString(recycleAfterMemory));
+		}
+	}
+
+	/**
+	 * Sets the uptime in minutes after which a browser gets replaced by a
+	 * fresh one. <tt>0</tt> disables the limit.
+	 * 
+	 * @param recycleAfterMinutes
+	 *            The uptime limit in minutes
+	 */
+	public void setRecycleAfterMinutes(final int recycleAfterMinutes) {
+		if (recycleAfterMinutes >= 0) {
+			final String key = KEY_IDENTIFIER_RECYCLE_AFTER_MINUTES;
+			setSetting(key, Integer.toString(recycleAfterMinutes));
+		}
+	}
+
+	/**
+	 * Sets the amount of served chat windows after which a browser gets
+	 * replaced by a fresh one. <tt>0</tt> disables the limit.
+	 * 
+	 * @param recycleAfterWindows
+	 *            The limit of served windows
+	 */
+	public void setRecycleAfterWindows(final int recycleAfterWindows) {
+		if (recycleAfterWindows >= 0) {
+			final String key = KEY_IDENTIFIER_RECYCLE_AFTER_WINDOWS;
+			setSetting(key, Integer.toString(recycleAfterWindows));
+		}
+	}
+
+	/**
+	 * Sets the mode the service uses for accepting clients and reading their
+	 * requests.
+	 * 
+	 * @param serviceMode
+	 *            The service mode to use
+	 */
+	public void setServiceMode(final EServiceMode serviceMode) {
+		if (serviceMode != null) {
+			final String key = KEY_IDENTIFIER_SERVICE_MODE;
+			setSetting(key, serviceMode.toString());
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -280,6 +584,21 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 		this.mSettingsStore.put(key, value);
 	}
 
+	/**
+	 * Sets the amount of already initialized instances every driver keeps in
+	 * spare. Create requests are served by handing out a spare instance, the
+	 * drivers refill them in the background.
+	 * 
+	 * @param spareInstances
+	 *            The amount of spare instances to keep, <tt>0</tt> disables it
+	 */
+	public void setSpareInstances(final int spareInstances) {
+		if (spareInstances >= 0) {
+			final String key = KEY_IDENTIFIER_SPARE_INSTANCES;
+			setSetting(key, Integer.toString(spareInstances));
+		}
+	}
+
 	/**
 	 * Sets the user profile to use.
 	 * 
@@ -292,4 +611,60 @@ public final class SettingsController implements ISettingsProvider, IBrowserSett
 			setSetting(key, userProfile);
 		}
 	}
+
+	/**
+	 * Gets the integer value of the setting with the given key. Values that
+	 * are no number or out of the given range are logged and ignored.
+	 * 
+	 * @param key
+	 *            The key of the setting
+	 * @param minValue
+	 *            The smallest valid value
+	 * @param maxValue
+	 *            The greatest valid value
+	 * @return The value of the setting or <tt>null</tt> if there is no valid
+	 *         one
+	 */
+	private Integer getIntegerSetting(final String key, final int minValue, final int maxValue) {
+		final Long value = getLongSetting(key, minValue);
+		if (value == null) {
+			return null;
+		}
+		if (value.longValue() > maxValue) {
+			this.mLogger.logError("Ignoring setting " + key + ", it must be at most " + maxValue + ": " + value);
+			return null;
+		}
+		return Integer.valueOf(value.intValue());
+	}
+
+	/**
+	 * Gets the long value of the setting with the given key. Values that are
+	 * no number or smaller than the given minimum are logged and ignored.
+	 * 
+	 * @param key
+	 *            The key of the setting
+	 * @param minValue
+	 *            The smallest valid value
+	 * @return The value of the setting or <tt>null</tt> if there is no valid
+	 *         one
+	 */
+	private Long getLongSetting(final String key, final long minValue) {
+		final String value = getSetting(key).trim();
+		if (value.equals(UNKNOWN_KEY_VALUE)) {
+			return null;
+		}
+
+		final long parsedValue;
+		try {
+			parsedValue = Long.parseLong(value);
+		} catch (final NumberFormatException e) {
+			this.mLogger.logError("Ignoring setting " + key + ", it is no number: " + value);
+			return null;
+		}
+		if (parsedValue < minValue) {
+			this.mLogger.logError("Ignoring setting " + key + ", it must be at least " + minValue + ": " + value);
+			return null;
+		}
+		return Long.valueOf(parsedValue);
+	}
 }
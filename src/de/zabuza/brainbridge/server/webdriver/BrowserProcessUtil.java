@@ -0,0 +1,170 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Utility class that inspects the operating system processes of browsers. The
+ * memory of a process is read from the <tt>/proc</tt> file system, it is thus
+ * only available on Linux.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class BrowserProcessUtil {
+	/**
+	 * Capability in which Firefox reports the id of its process.
+	 */
+	private static final String CAPABILITY_FIREFOX_PROCESS_ID = "moz:processID";
+	/**
+	 * Factor to convert kilobytes to bytes, if multiplied with.
+	 */
+	private static final long KILOBYTES_TO_BYTES = 1_024L;
+	/**
+	 * Path to the directory of the process file system.
+	 */
+	private static final Path PROC = Paths.get("/proc");
+	/**
+	 * Prefix of the line in the status file of a process which contains its
+	 * resident memory.
+	 */
+	private static final String STATUS_RESIDENT_MEMORY_PREFIX = "VmRSS:";
+
+	/**
+	 * Gets the id of the process of the browser the given driver uses. Only
+	 * supported for browsers that report it, like Firefox.
+	 * 
+	 * @param driver
+	 *            The driver of the browser, it may be wrapped
+	 * @return The id of the process or <tt>-1</tt> if unknown
+	 */
+	public static long getProcessId(final WebDriver driver) {
+		WebDriver rawDriver = driver;
+		while (!(rawDriver instanceof HasCapabilities) && rawDriver instanceof IWrapsWebDriver) {
+			rawDriver = ((IWrapsWebDriver) rawDriver).getRawDriver();
+		}
+		if (!(rawDriver instanceof HasCapabilities)) {
+			return -1L;
+		}
+
+		final Capabilities capabilities = ((HasCapabilities) rawDriver).getCapabilities();
+		final Object processId = capabilities.getCapability(CAPABILITY_FIREFOX_PROCESS_ID);
+		if (processId instanceof Number) {
+			return ((Number) processId).longValue();
+		}
+		return -1L;
+	}
+
+	/**
+	 * Gets the resident memory of the process with the given id together with
+	 * all of its descendants, browsers typically render their content in child
+	 * processes.
+	 * 
+	 * @param processId
+	 *            The id of the process
+	 * @return The resident memory in bytes or <tt>-1</tt> if unknown, for
+	 *         example because the process does not exist or the system has no
+	 *         process file system
+	 */
+	public static long getResidentMemory(final long processId) {
+		if (processId < 0 || !Files.isDirectory(PROC.resolve(Long.toString(processId)))) {
+			return -1L;
+		}
+
+		// Collect the children of all processes
+		final Map<Long, List<Long>> processToChildren = new HashMap<>();
+		try (final DirectoryStream<Path> processes = Files.newDirectoryStream(PROC, "[0-9]*")) {
+			for (final Path process : processes) {
+				final long parentId = readParentProcessId(process);
+				if (parentId < 0) {
+					continue;
+				}
+				List<Long> children = processToChildren.get(Long.valueOf(parentId));
+				if (children == null) {
+					children = new ArrayList<>();
+					processToChildren.put(Long.valueOf(parentId), children);
+				}
+				children.add(Long.valueOf(process.getFileName().toString()));
+			}
+		} catch (final IOException e) {
+			return -1L;
+		}
+
+		long residentMemory = 0L;
+		final Deque<Long> processesToVisit = new ArrayDeque<>();
+		processesToVisit.add(Long.valueOf(processId));
+		while (!processesToVisit.isEmpty()) {
+			final Long process = processesToVisit.poll();
+			residentMemory += readResidentMemory(PROC.resolve(process.toString()));
+			final List<Long> children = processToChildren.get(process);
+			if (children != null) {
+				processesToVisit.addAll(children);
+			}
+		}
+		return residentMemory;
+	}
+
+	/**
+	 * Reads the id of the parent of the given process.
+	 * 
+	 * @param process
+	 *            The directory of the process in the process file system
+	 * @return The id of the parent process or <tt>-1</tt> if it could not be
+	 *         read, for example because the process ended
+	 */
+	private static long readParentProcessId(final Path process) {
+		try {
+			final String stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.US_ASCII);
+			// The name of the process is in parentheses and may contain spaces,
+			// the state and the parent id follow after it
+			final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+			return Long.parseLong(fields[1]);
+		} catch (final IOException | RuntimeException e) {
+			return -1L;
+		}
+	}
+
+	/**
+	 * Reads the resident memory of the given process.
+	 * 
+	 * @param process
+	 *            The directory of the process in the process file system
+	 * @return The resident memory in bytes, <tt>0</tt> if it could not be read,
+	 *         for example because the process ended
+	 */
+	private static long readResidentMemory(final Path process) {
+		try {
+			for (final String line : Files.readAllLines(process.resolve("status"), StandardCharsets.US_ASCII)) {
+				if (line.startsWith(STATUS_RESIDENT_MEMORY_PREFIX)) {
+					final String kilobytes = line.substring(STATUS_RESIDENT_MEMORY_PREFIX.length()).trim()
+							.split("\\s+")[0];
+					return Long.parseLong(kilobytes) * KILOBYTES_TO_BYTES;
+				}
+			}
+		} catch (final IOException | RuntimeException e) {
+			// The process ended or the file has an unexpected format
+		}
+		return 0L;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private BrowserProcessUtil() {
+
+	}
+}
@@ -0,0 +1,121 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriver.TargetLocator;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Target locator of a {@link ContextTrackingWebDriver}. Switches are passed to
+ * the driver which decides whether they need to be sent to the browser.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ContextTrackingTargetLocator implements TargetLocator {
+
+	/**
+	 * The driver whose context is switched.
+	 */
+	private final ContextTrackingWebDriver mDriver;
+
+	/**
+	 * Creates a new target locator that switches the context of the given
+	 * driver.
+	 * 
+	 * @param driver
+	 *            The driver whose context is switched
+	 */
+	public ContextTrackingTargetLocator(final ContextTrackingWebDriver driver) {
+		this.mDriver = driver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#activeElement()
+	 */
+	@Override
+	public WebElement activeElement() {
+		return this.mDriver.switchToActiveElement();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#alert()
+	 */
+	@Override
+	public Alert alert() {
+		return this.mDriver.getRawDriver().switchTo().alert();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#defaultContent()
+	 */
+	@Override
+	public WebDriver defaultContent() {
+		this.mDriver.switchToDefaultContent();
+		return this.mDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#frame(int)
+	 */
+	@Override
+	public WebDriver frame(final int index) {
+		this.mDriver.switchToFrame(index);
+		return this.mDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#frame(java.lang.String)
+	 */
+	@Override
+	public WebDriver frame(final String nameOrId) {
+		this.mDriver.switchToFrame(nameOrId);
+		return this.mDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.openqa.selenium.WebDriver.TargetLocator#frame(org.openqa.selenium.
+	 * WebElement)
+	 */
+	@Override
+	public WebDriver frame(final WebElement frameElement) {
+		this.mDriver.switchToFrame(frameElement);
+		return this.mDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#parentFrame()
+	 */
+	@Override
+	public WebDriver parentFrame() {
+		this.mDriver.switchToParentFrame();
+		return this.mDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver.TargetLocator#window(java.lang.String)
+	 */
+	@Override
+	public WebDriver window(final String nameOrHandle) {
+		this.mDriver.switchToWindow(nameOrHandle);
+		return this.mDriver;
+	}
+
+}
@@ -0,0 +1,426 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Wrapper for web driver objects that tracks the current window and frame of
+ * the driver and skips switches that would not change the context. Every
+ * switch is a round trip to the browser, this is noticeable if the same
+ * context is selected before every operation.<br>
+ * <br>
+ * Switches to the parent frame and switches to a window that already is the
+ * current one are deferred. They are dropped if a following switch selects the
+ * frame again, else they are applied before the next operation that depends
+ * on the context. Elements found before such a switch thus may still be used
+ * until then. The tracked context is invalidated by navigation, closing and
+ * switches by index, the next switch is then always sent to the browser.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ContextTrackingWebDriver implements JavascriptExecutor, WebDriver, IWrapsWebDriver {
+
+	/**
+	 * Names or elements of the frames, from the top-level document downwards,
+	 * that lead to the current frame of the driver or <tt>null</tt> if
+	 * unknown. Empty if the top-level document is the current frame.
+	 */
+	private List<Object> mFramePath;
+	/**
+	 * Amount of deferred switches to the parent frame that were not sent to the
+	 * driver yet.
+	 */
+	private int mPendingParentFrames;
+	/**
+	 * Web driver to wrap for context tracking.
+	 */
+	private final WebDriver mWebDriver;
+	/**
+	 * The handle of the current window of the driver or <tt>null</tt> if
+	 * unknown.
+	 */
+	private String mWindowHandle;
+
+	/**
+	 * Creates a new instance of this object with a given web driver. The
+	 * context of the driver is unknown at first.
+	 * 
+	 * @param driver
+	 *            Driver to wrap for context tracking
+	 */
+	public ContextTrackingWebDriver(final WebDriver driver) {
+		this.mWebDriver = driver;
+		invalidateContext();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#close()
+	 */
+	@Override
+	public void close() {
+		// The current window is gone afterwards, no matter if closing succeeds
+		invalidateContext();
+		this.mWebDriver.close();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.openqa.selenium.JavascriptExecutor#executeAsyncScript(java.lang.
+	 * String, java.lang.Object[])
+	 */
+	@Override
+	public Object executeAsyncScript(final String script, final Object... args) {
+		applyPendingSwitches();
+		return getExecutor().executeAsyncScript(script, args);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.openqa.selenium.JavascriptExecutor#executeScript(java.lang.String,
+	 * java.lang.Object[])
+	 */
+	@Override
+	public Object executeScript(final String script, final Object... args) {
+		applyPendingSwitches();
+		return getExecutor().executeScript(script, args);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#findElement(org.openqa.selenium.By)
+	 */
+	@Override
+	public WebElement findElement(final By by) {
+		applyPendingSwitches();
+		return this.mWebDriver.findElement(by);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#findElements(org.openqa.selenium.By)
+	 */
+	@Override
+	public List<WebElement> findElements(final By by) {
+		applyPendingSwitches();
+		return this.mWebDriver.findElements(by);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#get(java.lang.String)
+	 */
+	@Override
+	public void get(final String url) {
+		// Loading a page always selects the top-level document of the window
+		final String windowHandle = this.mWindowHandle;
+		invalidateContext();
+		this.mWebDriver.get(url);
+		this.mWindowHandle = windowHandle;
+		this.mFramePath = new ArrayList<>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#getCurrentUrl()
+	 */
+	@Override
+	public String getCurrentUrl() {
+		applyPendingSwitches();
+		return this.mWebDriver.getCurrentUrl();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#getPageSource()
+	 */
+	@Override
+	public String getPageSource() {
+		applyPendingSwitches();
+		return this.mWebDriver.getPageSource();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.zabuza.brainbridge.server.webdriver.IWrapsWebDriver#getRawDriver()
+	 */
+	@Override
+	public WebDriver getRawDriver() {
+		return this.mWebDriver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#getTitle()
+	 */
+	@Override
+	public String getTitle() {
+		return this.mWebDriver.getTitle();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#getWindowHandle()
+	 */
+	@Override
+	public String getWindowHandle() {
+		return this.mWebDriver.getWindowHandle();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#getWindowHandles()
+	 */
+	@Override
+	public Set<String> getWindowHandles() {
+		return this.mWebDriver.getWindowHandles();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#manage()
+	 */
+	@Override
+	public Options manage() {
+		return this.mWebDriver.manage();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#navigate()
+	 */
+	@Override
+	public Navigation navigate() {
+		// The navigation is not visible to the wrapper, the context can not be
+		// tracked anymore
+		invalidateContext();
+		return this.mWebDriver.navigate();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#quit()
+	 */
+	@Override
+	public void quit() {
+		invalidateContext();
+		this.mWebDriver.quit();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.WebDriver#switchTo()
+	 */
+	@Override
+	public TargetLocator switchTo() {
+		return new ContextTrackingTargetLocator(this);
+	}
+
+	/**
+	 * Switches to the element that has the focus in the current frame.
+	 * 
+	 * @return The element that has the focus
+	 */
+	WebElement switchToActiveElement() {
+		applyPendingSwitches();
+		return this.mWebDriver.switchTo().activeElement();
+	}
+
+	/**
+	 * Switches the context of the driver to the top-level document of the
+	 * current window. Skipped if it already is the current frame, else
+	 * deferred until the next operation that depends on the context.
+	 */
+	void switchToDefaultContent() {
+		if (this.mFramePath != null) {
+			this.mPendingParentFrames = this.mFramePath.size();
+			return;
+		}
+
+		this.mWebDriver.switchTo().defaultContent();
+		this.mFramePath = new ArrayList<>();
+	}
+
+	/**
+	 * Switches the context of the driver to the frame with the given index in
+	 * the current frame. The frame can not be tracked, the context is unknown
+	 * afterwards.
+	 * 
+	 * @param index
+	 *            The index of the frame to switch to
+	 */
+	void switchToFrame(final int index) {
+		applyPendingSwitches();
+		this.mFramePath = null;
+		this.mWebDriver.switchTo().frame(index);
+	}
+
+	/**
+	 * Switches the context of the driver to the frame with the given name or
+	 * id in the current frame.
+	 * 
+	 * @param nameOrId
+	 *            The name or id of the frame to switch to
+	 */
+	void switchToFrame(final String nameOrId) {
+		switchToTrackedFrame(nameOrId);
+	}
+
+	/**
+	 * Switches the context of the driver to the given frame element.
+	 * 
+	 * @param frameElement
+	 *            The element of the frame to switch to
+	 */
+	void switchToFrame(final WebElement frameElement) {
+		switchToTrackedFrame(frameElement);
+	}
+
+	/**
+	 * Switches the context of the driver to the parent of the current frame.
+	 * Skipped if the top-level document is the current frame, else deferred
+	 * until the next operation that depends on the context.
+	 */
+	void switchToParentFrame() {
+		if (this.mFramePath == null) {
+			this.mWebDriver.switchTo().parentFrame();
+			return;
+		}
+
+		if (this.mPendingParentFrames < this.mFramePath.size()) {
+			this.mPendingParentFrames++;
+		}
+	}
+
+	/**
+	 * Switches the driver to the window with the given handle, which selects
+	 * its top-level document. If the window already is the current one only
+	 * the switch to the top-level document is deferred.
+	 * 
+	 * @param nameOrHandle
+	 *            The name or handle of the window to switch to
+	 */
+	void switchToWindow(final String nameOrHandle) {
+		if (this.mFramePath != null && nameOrHandle.equals(this.mWindowHandle)) {
+			this.mPendingParentFrames = this.mFramePath.size();
+			return;
+		}
+
+		invalidateContext();
+		this.mWebDriver.switchTo().window(nameOrHandle);
+		this.mWindowHandle = nameOrHandle;
+		this.mFramePath = new ArrayList<>();
+	}
+
+	/**
+	 * Sends the deferred switches to the parent frame to the driver. The
+	 * context is unknown if a switch fails.
+	 */
+	private void applyPendingSwitches() {
+		if (this.mPendingParentFrames == 0) {
+			return;
+		}
+
+		final int depth = this.mFramePath.size();
+		final int pendingParentFrames = this.mPendingParentFrames;
+		final List<Object> framePath = this.mFramePath;
+		this.mPendingParentFrames = 0;
+		this.mFramePath = null;
+		if (pendingParentFrames == depth) {
+			this.mWebDriver.switchTo().defaultContent();
+		} else {
+			for (int i = 0; i < pendingParentFrames; i++) {
+				this.mWebDriver.switchTo().parentFrame();
+			}
+		}
+		this.mFramePath = new ArrayList<>(framePath.subList(0, depth - pendingParentFrames));
+	}
+
+	/**
+	 * Gets the first driver in the chain of wrapped drivers that can execute
+	 * scripts.
+	 * 
+	 * @return The driver to execute scripts with
+	 * @throws UnsupportedOperationException
+	 *             If no wrapped driver can execute scripts
+	 */
+	private JavascriptExecutor getExecutor() throws UnsupportedOperationException {
+		WebDriver driver = this.mWebDriver;
+		while (!(driver instanceof JavascriptExecutor) && driver instanceof IWrapsWebDriver) {
+			driver = ((IWrapsWebDriver) driver).getRawDriver();
+		}
+
+		if (!(driver instanceof JavascriptExecutor)) {
+			throw new UnsupportedOperationException("The wrapped driver can not execute scripts: " + driver);
+		}
+		return (JavascriptExecutor) driver;
+	}
+
+	/**
+	 * Forgets the tracked context, the next switch is always sent to the
+	 * driver.
+	 */
+	private void invalidateContext() {
+		this.mWindowHandle = null;
+		this.mFramePath = null;
+		this.mPendingParentFrames = 0;
+	}
+
+	/**
+	 * Switches the context of the driver to the given frame of the current
+	 * frame. Skipped if deferred switches to the parent frame left exactly
+	 * that frame.
+	 * 
+	 * @param frame
+	 *            The name, id or element of the frame to switch to
+	 */
+	private void switchToTrackedFrame(final Object frame) {
+		if (this.mPendingParentFrames > 0) {
+			final int targetDepth = this.mFramePath.size() - this.mPendingParentFrames;
+			if (this.mFramePath.get(targetDepth).equals(frame)) {
+				// Return into the frame that was left by a deferred switch
+				this.mPendingParentFrames--;
+				return;
+			}
+			applyPendingSwitches();
+		}
+
+		final List<Object> framePath = this.mFramePath;
+		this.mFramePath = null;
+		if (frame instanceof WebElement) {
+			this.mWebDriver.switchTo().frame((WebElement) frame);
+		} else {
+			this.mWebDriver.switchTo().frame((String) frame);
+		}
+		if (framePath != null) {
+			framePath.add(frame);
+			this.mFramePath = framePath;
+		}
+	}
+
+}
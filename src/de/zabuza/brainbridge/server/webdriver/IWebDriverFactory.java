@@ -0,0 +1,20 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Interface for objects that start browsers and create {@link WebDriver}s for
+ * them.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IWebDriverFactory {
+
+	/**
+	 * Starts a new browser and creates a driver for it.
+	 * 
+	 * @return The driver of the new browser
+	 */
+	public WebDriver createWebDriver();
+}
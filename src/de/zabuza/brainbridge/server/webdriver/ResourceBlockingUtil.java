@@ -0,0 +1,125 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+/**
+ * Utility class that configures browsers to not load resources which are not
+ * needed for chatting. Images, fonts, media and plugins are blocked, as well as
+ * every host that does not belong to the domain of the chat service. That are
+ * mostly ads and tracking scripts which otherwise delay the page load.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ResourceBlockingUtil {
+	/**
+	 * Address of a proxy that refuses all connections. Requests to blocked
+	 * hosts are sent to it and fail immediately.
+	 */
+	private static final String BLOCKING_PROXY = "127.0.0.1:9";
+	/**
+	 * Value of a Chrome content setting that blocks the content.
+	 */
+	private static final int CHROME_CONTENT_SETTING_BLOCK = 2;
+	/**
+	 * Value of the Firefox image permission that blocks all images.
+	 */
+	private static final int FIREFOX_IMAGE_PERMISSION_BLOCK = 2;
+	/**
+	 * Value of the Firefox proxy type that uses a proxy auto-config script.
+	 */
+	private static final int FIREFOX_PROXY_TYPE_AUTO_CONFIG = 2;
+	/**
+	 * Prefix of a host name that is not part of its domain.
+	 */
+	private static final String WWW_PREFIX = "www.";
+
+	/**
+	 * Configures the given Chrome options to block resources not needed for
+	 * chatting. Hosts outside of the domain of the given URL can not be
+	 * resolved anymore, fonts are thus only loaded from the domain itself.
+	 * 
+	 * @param options
+	 *            The options to configure
+	 * @param serviceUrl
+	 *            The URL of the service whose domain is not blocked
+	 */
+	public static void blockResources(final ChromeOptions options, final String serviceUrl) {
+		final String domain = getDomain(serviceUrl);
+
+		final Map<String, Object> prefs = new HashMap<>();
+		prefs.put("profile.managed_default_content_settings.images", Integer.valueOf(CHROME_CONTENT_SETTING_BLOCK));
+		prefs.put("profile.managed_default_content_settings.plugins", Integer.valueOf(CHROME_CONTENT_SETTING_BLOCK));
+		options.setExperimentalOption("prefs", prefs);
+
+		options.addArguments("blink-settings=imagesEnabled=false", "autoplay-policy=user-gesture-required",
+				"host-resolver-rules=MAP * ~NOTFOUND , EXCLUDE " + domain + " , EXCLUDE *." + domain
+						+ " , EXCLUDE localhost");
+	}
+
+	/**
+	 * Configures the given Firefox options to block resources not needed for
+	 * chatting. Requests to hosts outside of the domain of the given URL are
+	 * sent to a proxy that refuses them.
+	 * 
+	 * @param options
+	 *            The options to configure
+	 * @param serviceUrl
+	 *            The URL of the service whose domain is not blocked
+	 */
+	public static void blockResources(final FirefoxOptions options, final String serviceUrl) {
+		final String domain = getDomain(serviceUrl);
+
+		options.addPreference("permissions.default.image", FIREFOX_IMAGE_PERMISSION_BLOCK);
+		options.addPreference("browser.display.use_document_fonts", 0);
+		options.addPreference("gfx.downloadable_fonts.enabled", false);
+		options.addPreference("media.autoplay.enabled", false);
+		options.addPreference("plugin.state.flash", 0);
+
+		final String proxyAutoConfig = "function FindProxyForURL(url, host) {if (host == 'localhost' || host == '"
+				+ domain + "' || dnsDomainIs(host, '." + domain + "')) return 'DIRECT'; return 'PROXY "
+				+ BLOCKING_PROXY + "';}";
+		options.addPreference("network.proxy.type", FIREFOX_PROXY_TYPE_AUTO_CONFIG);
+		options.addPreference("network.proxy.autoconfig_url", "data:application/x-ns-proxy-autoconfig;base64,"
+				+ Base64.getEncoder().encodeToString(proxyAutoConfig.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/**
+	 * Gets the domain of the host of the given URL, a leading <tt>www</tt> is
+	 * removed.
+	 * 
+	 * @param url
+	 *            The URL to get the domain of
+	 * @return The domain of the URL
+	 * @throws IllegalArgumentException
+	 *             If the URL is malformed
+	 */
+	private static String getDomain(final String url) throws IllegalArgumentException {
+		final String host;
+		try {
+			host = new URL(url).getHost();
+		} catch (final MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		if (host.startsWith(WWW_PREFIX)) {
+			return host.substring(WWW_PREFIX.length());
+		}
+		return host;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ResourceBlockingUtil() {
+
+	}
+}
@@ -2,9 +2,12 @@ package de.zabuza.brainbridge.server.webdriver;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.Point;
 import org.openqa.selenium.Rectangle;
@@ -12,26 +15,67 @@ import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsElement;
 
 import de.zabuza.brainbridge.server.exceptions.ErrorMessages;
 
 /**
  * Wrapper for web element objects to automatically handle staled states that
  * would otherwise throw {@link StaleElementReferenceException}s when used.
+ * Operations are sent to the underlying element right away. Only if one fails
+ * due to a staled reference, the element is found again with its context and
+ * the operation is retried, with growing pauses until a deadline passes.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
  */
-public final class StaleRefresherWebElement implements WebElement {
+public final class StaleRefresherWebElement implements WebElement, WrapsElement {
 
 	/**
-	 * Maximal tries to exchange a staled web element reference.
+	 * The amount of staled references that could not be exchanged in time, by
+	 * all elements.
 	 */
-	private static final int MAX_STALED_EXCHANGE_TRIES = 10;
+	private static final AtomicLong FAILED_REFRESHES = new AtomicLong(0L);
 	/**
-	 * Time to wait before exchanging a staled reference in milliseconds.
+	 * The amount of staled references that were exchanged, by all elements.
 	 */
-	private static final int STALE_EXCHANGE_WAIT = 1000;
+	private static final AtomicLong REFRESHES = new AtomicLong(0L);
+	/**
+	 * Time in milliseconds after the first failure of an operation due to a
+	 * staled reference, after which it is not retried anymore.
+	 */
+	private static final long STALE_EXCHANGE_DEADLINE = 5_000L;
+	/**
+	 * Maximal time to wait before exchanging a staled reference again in
+	 * milliseconds.
+	 */
+	private static final long STALE_EXCHANGE_MAX_WAIT = 500L;
+	/**
+	 * Minimal time to wait before exchanging a staled reference again in
+	 * milliseconds.
+	 */
+	private static final long STALE_EXCHANGE_MIN_WAIT = 10L;
+
+	/**
+	 * Gets the amount of staled references that could not be exchanged in
+	 * time, by all elements.
+	 * 
+	 * @return The amount of failed refreshes
+	 */
+	public static long getFailedRefreshes() {
+		return FAILED_REFRESHES.get();
+	}
+
+	/**
+	 * Gets the amount of staled references that were exchanged, by all
+	 * elements.
+	 * 
+	 * @return The amount of refreshes
+	 */
+	public static long getRefreshes() {
+		return REFRESHES.get();
+	}
+
 	/**
 	 * Context of the element to find itself again if staled
 	 */
@@ -168,8 +212,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public void clear() {
-		ensureReferenceNotStaled();
-		this.mElement.clear();
+		withRefresh(() -> this.mElement.clear());
 	}
 
 	/*
@@ -179,8 +222,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public void click() {
-		ensureReferenceNotStaled();
-		this.mElement.click();
+		withRefresh(() -> this.mElement.click());
 	}
 
 	/*
@@ -190,8 +232,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public WebElement findElement(final By by) {
-		ensureReferenceNotStaled();
-		return new StaleRefresherWebElement(this.mElement.findElement(by), by, this.mElement);
+		return withRefresh(() -> new StaleRefresherWebElement(this.mElement.findElement(by), by, this.mElement));
 	}
 
 	/*
@@ -201,16 +242,17 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public List<WebElement> findElements(final By by) {
-		ensureReferenceNotStaled();
-		final List<WebElement> elements = this.mElement.findElements(by);
-		final List<WebElement> staleRefresherElements = new LinkedList<>();
-		int i = 0;
-		for (final WebElement element : elements) {
-			staleRefresherElements.add(new StaleRefresherWebElement(element, by, this.mElement, i));
-			i++;
-		}
+		return withRefresh(() -> {
+			final List<WebElement> elements = this.mElement.findElements(by);
+			final List<WebElement> staleRefresherElements = new LinkedList<>();
+			int i = 0;
+			for (final WebElement element : elements) {
+				staleRefresherElements.add(new StaleRefresherWebElement(element, by, this.mElement, i));
+				i++;
+			}
 
-		return staleRefresherElements;
+			return staleRefresherElements;
+		});
 	}
 
 	/*
@@ -220,8 +262,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public String getAttribute(final String name) {
-		ensureReferenceNotStaled();
-		return this.mElement.getAttribute(name);
+		return withRefresh(() -> this.mElement.getAttribute(name));
 	}
 
 	/*
@@ -231,8 +272,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public String getCssValue(final String propertyName) {
-		ensureReferenceNotStaled();
-		return this.mElement.getCssValue(propertyName);
+		return withRefresh(() -> this.mElement.getCssValue(propertyName));
 	}
 
 	/*
@@ -242,8 +282,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public Point getLocation() {
-		ensureReferenceNotStaled();
-		return this.mElement.getLocation();
+		return withRefresh(() -> this.mElement.getLocation());
 	}
 
 	/*
@@ -253,8 +292,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public Rectangle getRect() {
-		ensureReferenceNotStaled();
-		return this.mElement.getRect();
+		return withRefresh(() -> this.mElement.getRect());
 	}
 
 	/*
@@ -266,8 +304,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public <X> X getScreenshotAs(final OutputType<X> target) throws WebDriverException {
-		ensureReferenceNotStaled();
-		return this.mElement.getScreenshotAs(target);
+		return withRefresh(() -> this.mElement.getScreenshotAs(target));
 	}
 
 	/*
@@ -277,8 +314,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public Dimension getSize() {
-		ensureReferenceNotStaled();
-		return this.mElement.getSize();
+		return withRefresh(() -> this.mElement.getSize());
 	}
 
 	/*
@@ -288,8 +324,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public String getTagName() {
-		ensureReferenceNotStaled();
-		return this.mElement.getTagName();
+		return withRefresh(() -> this.mElement.getTagName());
 	}
 
 	/*
@@ -299,8 +334,19 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public String getText() {
-		ensureReferenceNotStaled();
-		return this.mElement.getText();
+		return withRefresh(() -> this.mElement.getText());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.openqa.selenium.internal.WrapsElement#getWrappedElement()
+	 */
+	@Override
+	public WebElement getWrappedElement() {
+		// Allows drivers to send the element, for example when switching to a
+		// frame. The reference is not checked, drivers report staled elements.
+		return this.mElement;
 	}
 
 	/*
@@ -310,8 +356,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public boolean isDisplayed() {
-		ensureReferenceNotStaled();
-		return this.mElement.isDisplayed();
+		return withRefresh(() -> this.mElement.isDisplayed());
 	}
 
 	/*
@@ -321,8 +366,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public boolean isEnabled() {
-		ensureReferenceNotStaled();
-		return this.mElement.isEnabled();
+		return withRefresh(() -> this.mElement.isEnabled());
 	}
 
 	/*
@@ -332,8 +376,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public boolean isSelected() {
-		ensureReferenceNotStaled();
-		return this.mElement.isSelected();
+		return withRefresh(() -> this.mElement.isSelected());
 	}
 
 	/*
@@ -343,8 +386,7 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public void sendKeys(final CharSequence... keysToSend) {
-		ensureReferenceNotStaled();
-		this.mElement.sendKeys(keysToSend);
+		withRefresh(() -> this.mElement.sendKeys(keysToSend));
 	}
 
 	/*
@@ -354,83 +396,152 @@ public final class StaleRefresherWebElement implements WebElement {
 	 */
 	@Override
 	public void submit() {
-		ensureReferenceNotStaled();
-		this.mElement.submit();
+		withRefresh(() -> this.mElement.submit());
 	}
 
 	/**
-	 * Tries to exchange the underlying web element if it is in a staled state.
+	 * Exchanges a staled reference to the underlying web element by finding it
+	 * again with its context. If the element could not be find again it will
+	 * not exchange the reference.
 	 * 
-	 * @throws StaleElementReferenceException
-	 *             When the element is staled and resolving was unsuccessful.
+	 * @return <tt>True</tt> if the reference was exchanged, <tt>false</tt>
+	 *         otherwise
 	 */
-	private void ensureReferenceNotStaled() throws StaleElementReferenceException {
-		int tries = 0;
-		boolean resolvedIssue = false;
-		StaleElementReferenceException latestException = null;
-
-		while (!resolvedIssue && tries < MAX_STALED_EXCHANGE_TRIES) {
-			try {
-				// Check if element is staled by provoking the exception
-				this.mElement.getTagName();
+	private boolean exchangeStaledReference() {
+		final WebElement element;
+		try {
+			// Element is not contained in a list of elements
+			if (this.mIndex < 0) {
+				if (this.mParentAsDriver != null) {
+					element = this.mParentAsDriver.findElement(this.mContext);
+				} else {
+					element = this.mParentAsElement.findElement(this.mContext);
+				}
+			} else {
+				final List<WebElement> elements;
+				if (this.mParentAsDriver != null) {
+					elements = this.mParentAsDriver.findElements(this.mContext);
+				} else {
+					elements = this.mParentAsElement.findElements(this.mContext);
+				}
 
-				// Element is not staled if exception got not thrown
-				resolvedIssue = true;
-			} catch (final StaleElementReferenceException e) {
-				resolvedIssue = false;
-				latestException = e;
-				try {
-					Thread.sleep(STALE_EXCHANGE_WAIT);
-				} catch (final InterruptedException interrupt) {
-					// Just ignore the interrupt and continue with the next
-					// iteration
+				// Assume element stayed at its index
+				if (this.mIndex < elements.size()) {
+					element = elements.get(this.mIndex);
+				} else {
+					// List is to small so issue can not be resolved
+					return false;
 				}
-				exchangeStaledReference();
 			}
-			tries++;
-		}
 
-		if (!resolvedIssue) {
-			throw new StaleElementReferenceException(ErrorMessages.STALE_REFRESHER_STALED_STATE_NOT_SOLVED,
-					latestException);
+			// Compare some attributes to ensure false positive elements
+			if (!this.mElementTag.equals(element.getTagName())) {
+				return false;
+			}
+		} catch (final NotFoundException | StaleElementReferenceException e) {
+			// The element or its parent is not available again yet
+			return false;
 		}
+
+		// Exchange the underlying reference to the element
+		this.mElement = element;
+		return true;
 	}
 
 	/**
-	 * Exchanges a staled reference to the underlying web element by finding it
-	 * again with its context. If the element could not be find again it will
-	 * not exchange the reference.
-	 */
-	private void exchangeStaledReference() {
-		final WebElement element;
-		// Element is not contained in a list of elements
-		if (this.mIndex < 0) {
-			if (this.mParentAsDriver != null) {
-				element = this.mParentAsDriver.findElement(this.mContext);
-			} else {
-				element = this.mParentAsElement.findElement(this.mContext);
-			}
+	 * Handles a staled reference to the underlying web element, which was
+	 * detected by an operation that failed. The first time the reference is
+	 * exchanged immediately, every further time only after sleeping, where the
+	 * sleep grows with the time spent since the first failure. The operation
+	 * should be retried afterwards, until the deadline passed.
+	 * 
+	 * @param exception
+	 *            The exception the operation failed with
+	 * @param deadline
+	 *            The deadline returned by the previous call for the same
+	 *            operation or <tt>0</tt> if the operation failed the first
+	 *            time
+	 * @return The deadline to pass with the next call for the same operation
+	 * @throws StaleElementReferenceException
+	 *             If the deadline passed without the reference getting
+	 *             resolved
+	 */
+	private long refreshStaledReference(final StaleElementReferenceException exception, final long deadline)
+			throws StaleElementReferenceException {
+		final long now = System.currentTimeMillis();
+		final long nextDeadline;
+		if (deadline == 0L) {
+			nextDeadline = now + STALE_EXCHANGE_DEADLINE;
 		} else {
-			final List<WebElement> elements;
-			if (this.mParentAsDriver != null) {
-				elements = this.mParentAsDriver.findElements(this.mContext);
-			} else {
-				elements = this.mParentAsElement.findElements(this.mContext);
+			if (now >= deadline) {
+				FAILED_REFRESHES.incrementAndGet();
+				throw new StaleElementReferenceException(ErrorMessages.STALE_REFRESHER_STALED_STATE_NOT_SOLVED,
+						exception);
 			}
 
-			// Assume element stayed at its index
-			if (this.mIndex < elements.size()) {
-				element = elements.get(this.mIndex);
-			} else {
-				// List is to small so issue can not be resolved
-				return;
+			final long timeSinceFirstFailure = now - (deadline - STALE_EXCHANGE_DEADLINE);
+			final long sleep = Math.min(Math.max(STALE_EXCHANGE_MIN_WAIT, timeSinceFirstFailure),
+					Math.min(STALE_EXCHANGE_MAX_WAIT, deadline - now));
+			try {
+				Thread.sleep(sleep);
+			} catch (final InterruptedException interrupt) {
+				Thread.currentThread().interrupt();
+				throw new StaleElementReferenceException(ErrorMessages.STALE_REFRESHER_STALED_STATE_NOT_SOLVED,
+						exception);
 			}
+			nextDeadline = deadline;
 		}
 
-		// Compare some attributes to ensure false positive elements
-		if (this.mElementTag.equals(element.getTagName())) {
-			// Exchange the underlying reference to the element
-			this.mElement = element;
+		if (exchangeStaledReference()) {
+			REFRESHES.incrementAndGet();
+		}
+		return nextDeadline;
+	}
+
+	/**
+	 * Executes the given operation on the underlying web element. If it fails
+	 * due to a staled reference, the reference is refreshed and the operation
+	 * is retried until the deadline passed, see
+	 * {@link #refreshStaledReference(StaleElementReferenceException, long)}.
+	 * 
+	 * @param operation
+	 *            The operation to execute, it must access the element by
+	 *            {@link #mElement} to see refreshed references
+	 * @throws StaleElementReferenceException
+	 *             If the deadline passed without the reference getting
+	 *             resolved
+	 */
+	private void withRefresh(final Runnable operation) throws StaleElementReferenceException {
+		withRefresh(() -> {
+			operation.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Executes the given operation on the underlying web element and returns
+	 * its result. If it fails due to a staled reference, the reference is
+	 * refreshed and the operation is retried until the deadline passed, see
+	 * {@link #refreshStaledReference(StaleElementReferenceException, long)}.
+	 * 
+	 * @param <T>
+	 *            The type of the result of the operation
+	 * @param operation
+	 *            The operation to execute, it must access the element by
+	 *            {@link #mElement} to see refreshed references
+	 * @return The result of the operation
+	 * @throws StaleElementReferenceException
+	 *             If the deadline passed without the reference getting
+	 *             resolved
+	 */
+	private <T> T withRefresh(final Supplier<T> operation) throws StaleElementReferenceException {
+		long deadline = 0L;
+		while (true) {
+			try {
+				return operation.get();
+			} catch (final StaleElementReferenceException e) {
+				deadline = refreshStaledReference(e, deadline);
+			}
 		}
 	}
 }
@@ -0,0 +1,73 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+/**
+ * Factory that starts browsers of a given type with given capabilities. The
+ * created drivers handle staled elements and skip redundant switches of their
+ * context, see {@link StaleRefresherWebDriver} and
+ * {@link ContextTrackingWebDriver}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WebDriverFactory implements IWebDriverFactory {
+	/**
+	 * Browser to use for the drivers.
+	 */
+	private final EBrowser mBrowser;
+	/**
+	 * The desired capabilities for the drivers or <tt>null</tt> if not used.
+	 */
+	private final DesiredCapabilities mCapabilities;
+
+	/**
+	 * Creates a new factory for drivers that use the given browser.
+	 * 
+	 * @param browser
+	 *            Browser to use for the drivers
+	 * @param capabilities
+	 *            The desired capabilities for the drivers or <tt>null</tt> if
+	 *            not used
+	 */
+	public WebDriverFactory(final EBrowser browser, final DesiredCapabilities capabilities) {
+		this.mBrowser = browser;
+		this.mCapabilities = capabilities;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.webdriver.IWebDriverFactory#createWebDriver()
+	 */
+	@Override
+	public WebDriver createWebDriver() {
+		WebDriver driver;
+		if (this.mBrowser == EBrowser.FIREFOX) {
+			if (this.mCapabilities != null) {
+				driver = new FirefoxDriver(this.mCapabilities);
+			} else {
+				driver = new FirefoxDriver();
+			}
+		} else if (this.mBrowser == EBrowser.CHROME) {
+			if (this.mCapabilities != null) {
+				driver = new ChromeDriver(this.mCapabilities);
+			} else {
+				driver = new ChromeDriver();
+			}
+		} else {
+			throw new IllegalArgumentException("The given browser is not supported: " + this.mBrowser);
+		}
+
+		// Wrap a stale refresher driver around
+		driver = new StaleRefresherWebDriver(driver);
+		// Skip switches to the window and frame the driver already is in
+		driver = new ContextTrackingWebDriver(driver);
+
+		return driver;
+	}
+}
@@ -1,14 +1,22 @@
 package de.zabuza.brainbridge.server.webdriver.wait;
 
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.support.ui.ExpectedCondition;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
 /**
  * Abstract class for waiting for a given condition. By using
  * {@link #waitUntilCondition()} the method returns as soon as the condition
- * given by {@link #getCondition()} resolves to <tt>true</tt>.
+ * given by {@link #getCondition()} resolves to <tt>true</tt>.<br>
+ * <br>
+ * The condition is checked immediately and then again after the intervals
+ * given by the {@link IPollingStrategy} of the wait. The amount of checks and
+ * the time waited are recorded in the metrics available by
+ * {@link #getMetrics()}.
  * 
  * @author Zabuza {@literal <zabuza.dev@gmail.com>}
  *
@@ -22,15 +30,52 @@ public abstract class AConditionalWait<V> {
 	 * <tt>true</tt> until a {@link TimeoutException} is thrown.
 	 */
 	protected static final int STANDARD_TIMEOUT = 6;
+	/**
+	 * Default polling strategy, it starts with a few milliseconds and backs off
+	 * up to a quarter of a second.
+	 */
+	protected static final IPollingStrategy STANDARD_POLLING_STRATEGY = new ExponentialBackoffPollingStrategy(5L,
+			250L);
+	/**
+	 * The metrics of all waits.
+	 */
+	private static final WaitMetrics METRICS = new WaitMetrics();
+
+	/**
+	 * Gets the metrics of all waits.
+	 * 
+	 * @return The metrics of all waits
+	 */
+	public static WaitMetrics getMetrics() {
+		return METRICS;
+	}
 
 	/**
 	 * Web driver to use for waiting.
 	 */
-	private final WebDriverWait mWait;
+	private final WebDriver mDriver;
+	/**
+	 * The amount of checks of the condition in the latest wait.
+	 */
+	private int mPolls;
+	/**
+	 * Strategy that decides how long to sleep between checks of the condition.
+	 */
+	private final IPollingStrategy mPollingStrategy;
+	/**
+	 * Timeout in milliseconds to wait for the condition to resolve to
+	 * <tt>true</tt>.
+	 */
+	private final long mTimeout;
+	/**
+	 * The time waited in the latest wait in milliseconds.
+	 */
+	private long mTimeWaited;
 
 	/**
-	 * Creates a new conditional wait object that uses a given web driver and
-	 * the default timeout of {@link #STANDARD_TIMEOUT}.
+	 * Creates a new conditional wait object that uses a given web driver, the
+	 * default timeout of {@link #STANDARD_TIMEOUT} and the default polling
+	 * strategy {@link #STANDARD_POLLING_STRATEGY}.
 	 * 
 	 * @param driver
 	 *            Web driver to use for waiting
@@ -40,8 +85,9 @@ public abstract class AConditionalWait<V> {
 	}
 
 	/**
-	 * Creates a new conditional wait object that uses a given web driver and a
-	 * given timeout.
+	 * Creates a new conditional wait object that uses a given web driver, a
+	 * given timeout and the default polling strategy
+	 * {@link #STANDARD_POLLING_STRATEGY}.
 	 * 
 	 * @param driver
 	 *            Web driver to use for waiting
@@ -50,17 +96,97 @@ public abstract class AConditionalWait<V> {
 	 *            <tt>true</tt> until a {@link TimeoutException} is thrown.
 	 */
 	public AConditionalWait(final WebDriver driver, final long timeOutInSeconds) {
-		this.mWait = new WebDriverWait(driver, timeOutInSeconds);
+		this(driver, timeOutInSeconds, STANDARD_POLLING_STRATEGY);
+	}
+
+	/**
+	 * Creates a new conditional wait object that uses a given web driver, a
+	 * given timeout and a given polling strategy.
+	 * 
+	 * @param driver
+	 *            Web driver to use for waiting
+	 * @param timeOutInSeconds
+	 *            Timeout in seconds to wait for the condition to resolve to
+	 *            <tt>true</tt> until a {@link TimeoutException} is thrown.
+	 * @param pollingStrategy
+	 *            Strategy that decides how long to sleep between checks of the
+	 *            condition
+	 */
+	public AConditionalWait(final WebDriver driver, final long timeOutInSeconds,
+			final IPollingStrategy pollingStrategy) {
+		this.mDriver = driver;
+		this.mTimeout = TimeUnit.SECONDS.toMillis(timeOutInSeconds);
+		this.mPollingStrategy = pollingStrategy;
+		this.mPolls = 0;
+		this.mTimeWaited = 0L;
+	}
+
+	/**
+	 * Gets the amount of checks of the condition in the latest wait.
+	 * 
+	 * @return The amount of polls
+	 */
+	public int getPolls() {
+		return this.mPolls;
+	}
+
+	/**
+	 * Gets the time waited in the latest wait.
+	 * 
+	 * @return The time waited in milliseconds
+	 */
+	public long getTimeWaited() {
+		return this.mTimeWaited;
 	}
 
 	/**
 	 * Waits for the condition given by {@link #getCondition()} and returns as
-	 * soon as it resolves to <tt>true</tt>.
+	 * soon as it resolves to <tt>true</tt>. Like a
+	 * {@link org.openqa.selenium.support.ui.WebDriverWait} it treats a
+	 * {@link NotFoundException} as unresolved condition.
 	 * 
 	 * @return The object specified by {@link ExpectedCondition}.
+	 * @throws TimeoutException
+	 *             If the condition did not resolve to <tt>true</tt> in time
 	 */
-	public V waitUntilCondition() {
-		return this.mWait.until(getCondition());
+	public V waitUntilCondition() throws TimeoutException {
+		final ExpectedCondition<V> condition = getCondition();
+		final long start = System.currentTimeMillis();
+		final long end = start + this.mTimeout;
+		this.mPolls = 0;
+		boolean timedOut = false;
+		NotFoundException lastException = null;
+		try {
+			while (true) {
+				this.mPolls++;
+				try {
+					final V value = condition.apply(this.mDriver);
+					if (value != null && !Boolean.FALSE.equals(value)) {
+						return value;
+					}
+				} catch (final NotFoundException e) {
+					lastException = e;
+				}
+
+				final long remainingTime = end - System.currentTimeMillis();
+				if (remainingTime <= 0) {
+					timedOut = true;
+					throw new TimeoutException("Expected condition failed: waiting for " + condition + " (tried for "
+							+ TimeUnit.MILLISECONDS.toSeconds(this.mTimeout) + " second(s) with " + this.mPolls
+							+ " polls, " + this.mPollingStrategy + ")", lastException);
+				}
+
+				try {
+					Thread.sleep(Math.min(this.mPollingStrategy.getPollInterval(this.mPolls), remainingTime));
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new WebDriverException(e);
+				}
+			}
+		} finally {
+			this.mTimeWaited = System.currentTimeMillis() - start;
+			METRICS.recordWait(this.mPolls, this.mTimeWaited, timedOut);
+		}
 	}
 
 	/**
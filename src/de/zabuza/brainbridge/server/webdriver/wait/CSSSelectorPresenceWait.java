@@ -30,7 +30,25 @@ public class CSSSelectorPresenceWait extends AConditionalWait<WebElement> {
 	 *            presence
 	 */
 	public CSSSelectorPresenceWait(final WebDriver driver, final String cssSelector) {
-		super(driver);
+		this(driver, cssSelector, STANDARD_POLLING_STRATEGY);
+	}
+
+	/**
+	 * Creates a new instance of this object using a given web driver, CSS
+	 * selector and polling strategy.
+	 * 
+	 * @param driver
+	 *            Driver to use for waiting
+	 * @param cssSelector
+	 *            CSS selector that corresponds to the element to wait for its
+	 *            presence
+	 * @param pollingStrategy
+	 *            Strategy that decides how long to sleep between checks for
+	 *            the element
+	 */
+	public CSSSelectorPresenceWait(final WebDriver driver, final String cssSelector,
+			final IPollingStrategy pollingStrategy) {
+		super(driver, STANDARD_TIMEOUT, pollingStrategy);
 		this.mCondition = ExpectedConditions.presenceOfElementLocated(By.cssSelector(cssSelector));
 	}
 
@@ -0,0 +1,67 @@
+package de.zabuza.brainbridge.server.webdriver.wait;
+
+/**
+ * Polling strategy that starts with a short interval and doubles it after
+ * every failed check until it reaches a maximum. Conditions that resolve
+ * quickly are thus noticed quickly, while long waits do not flood the driver
+ * with checks.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ExponentialBackoffPollingStrategy implements IPollingStrategy {
+	/**
+	 * The interval to sleep after the first failed check in milliseconds.
+	 */
+	private final long mInitialInterval;
+	/**
+	 * The maximal interval to sleep in milliseconds.
+	 */
+	private final long mMaxInterval;
+
+	/**
+	 * Creates a new polling strategy that starts with the given interval and
+	 * doubles it up to the given maximum.
+	 * 
+	 * @param initialInterval
+	 *            The interval to sleep after the first failed check in
+	 *            milliseconds, must be positive
+	 * @param maxInterval
+	 *            The maximal interval to sleep in milliseconds, must not be
+	 *            smaller than the initial interval
+	 */
+	public ExponentialBackoffPollingStrategy(final long initialInterval, final long maxInterval) {
+		if (initialInterval <= 0 || maxInterval < initialInterval) {
+			throw new IllegalArgumentException(
+					"Invalid polling intervals, initial: " + initialInterval + ", max: " + maxInterval);
+		}
+		this.mInitialInterval = initialInterval;
+		this.mMaxInterval = maxInterval;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.webdriver.wait.IPollingStrategy#getPollInterval(
+	 * int)
+	 */
+	@Override
+	public long getPollInterval(final int poll) {
+		long interval = this.mInitialInterval;
+		for (int i = 1; i < poll && interval < this.mMaxInterval; i++) {
+			interval *= 2;
+		}
+		return Math.min(interval, this.mMaxInterval);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "exponential backoff from " + this.mInitialInterval + "ms to " + this.mMaxInterval + "ms";
+	}
+}
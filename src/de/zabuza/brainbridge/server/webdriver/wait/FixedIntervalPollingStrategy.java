@@ -0,0 +1,47 @@
+package de.zabuza.brainbridge.server.webdriver.wait;
+
+/**
+ * Polling strategy that always sleeps the same interval between two checks.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FixedIntervalPollingStrategy implements IPollingStrategy {
+	/**
+	 * The interval to sleep after every failed check in milliseconds.
+	 */
+	private final long mInterval;
+
+	/**
+	 * Creates a new polling strategy that always sleeps the given interval.
+	 * 
+	 * @param interval
+	 *            The interval to sleep after every failed check in
+	 *            milliseconds, negative intervals are treated as <tt>0</tt>
+	 */
+	public FixedIntervalPollingStrategy(final long interval) {
+		this.mInterval = Math.max(interval, 0L);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.zabuza.brainbridge.server.webdriver.wait.IPollingStrategy#getPollInterval(
+	 * int)
+	 */
+	@Override
+	public long getPollInterval(final int poll) {
+		return this.mInterval;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "fixed interval of " + this.mInterval + "ms";
+	}
+}
@@ -22,4 +22,20 @@ public final class FramePresenceWait extends NamePresenceWait {
 	public FramePresenceWait(final WebDriver driver, final String frameName) {
 		super(driver, frameName);
 	}
+
+	/**
+	 * Creates a new instance of this object using a given web driver, frame
+	 * name and polling strategy.
+	 * 
+	 * @param driver
+	 *            Driver to use for waiting
+	 * @param frameName
+	 *            Name of the frame to wait for its presence
+	 * @param pollingStrategy
+	 *            Strategy that decides how long to sleep between checks for
+	 *            the frame
+	 */
+	public FramePresenceWait(final WebDriver driver, final String frameName, final IPollingStrategy pollingStrategy) {
+		super(driver, frameName, pollingStrategy);
+	}
 }
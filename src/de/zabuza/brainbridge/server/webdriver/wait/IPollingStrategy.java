@@ -0,0 +1,20 @@
+package de.zabuza.brainbridge.server.webdriver.wait;
+
+/**
+ * Strategy that decides how long an {@link AConditionalWait} sleeps between
+ * two checks of its condition. The first check is always done immediately.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public interface IPollingStrategy {
+	/**
+	 * Gets the time to sleep after the given check of the condition failed.
+	 * 
+	 * @param poll
+	 *            The number of the check that failed, starting with
+	 *            <tt>1</tt> for the first check
+	 * @return The time to sleep in milliseconds
+	 */
+	public long getPollInterval(int poll);
+}
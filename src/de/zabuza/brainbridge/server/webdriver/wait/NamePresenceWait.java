@@ -28,7 +28,23 @@ public class NamePresenceWait extends AConditionalWait<WebElement> {
 	 *            Name of the element to wait for its presence
 	 */
 	public NamePresenceWait(final WebDriver driver, final String name) {
-		super(driver);
+		this(driver, name, STANDARD_POLLING_STRATEGY);
+	}
+
+	/**
+	 * Creates a new instance of this object using a given web driver, name and
+	 * polling strategy.
+	 * 
+	 * @param driver
+	 *            Driver to use for waiting
+	 * @param name
+	 *            Name of the element to wait for its presence
+	 * @param pollingStrategy
+	 *            Strategy that decides how long to sleep between checks for
+	 *            the element
+	 */
+	public NamePresenceWait(final WebDriver driver, final String name, final IPollingStrategy pollingStrategy) {
+		super(driver, STANDARD_TIMEOUT, pollingStrategy);
 		this.mCondition = ExpectedConditions.presenceOfElementLocated(By.name(name));
 	}
 
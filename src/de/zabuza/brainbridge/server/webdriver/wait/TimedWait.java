@@ -38,7 +38,10 @@ public class TimedWait extends AConditionalWait<Boolean> {
 	 *            Time period in milliseconds to wait for it to pass
 	 */
 	public TimedWait(final WebDriver driver, final long timeToWait) {
-		super(driver, (timeToWait / SECONDS_TO_MILLIS) + TIMEOUT_OFFSET);
+		// Checking before the time passed is pointless, sleep it all at once.
+		// The condition requires the time to be strictly exceeded.
+		super(driver, (timeToWait / SECONDS_TO_MILLIS) + TIMEOUT_OFFSET,
+				new FixedIntervalPollingStrategy(timeToWait + 1));
 		this.mCondition = new TimedCondition(timeToWait);
 	}
 
@@ -0,0 +1,116 @@
+package de.zabuza.brainbridge.server.webdriver.wait;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of {@link AConditionalWait}s. They count how many waits were done,
+ * how often their conditions were checked, how long they waited in total and
+ * how many of them timed out. The class is thread-safe.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WaitMetrics {
+	/**
+	 * The amount of checks of the conditions.
+	 */
+	private final AtomicLong mPolls;
+	/**
+	 * The total time waited in milliseconds.
+	 */
+	private final AtomicLong mTimeWaited;
+	/**
+	 * The amount of waits that timed out.
+	 */
+	private final AtomicLong mTimeouts;
+	/**
+	 * The amount of waits done.
+	 */
+	private final AtomicLong mWaits;
+
+	/**
+	 * Creates new metrics that start counting now.
+	 */
+	public WaitMetrics() {
+		this.mPolls = new AtomicLong(0L);
+		this.mTimeWaited = new AtomicLong(0L);
+		this.mTimeouts = new AtomicLong(0L);
+		this.mWaits = new AtomicLong(0L);
+	}
+
+	/**
+	 * Gets the average time a wait took in milliseconds.
+	 * 
+	 * @return The average time waited
+	 */
+	public double getAverageTimeWaited() {
+		return (double) this.mTimeWaited.get() / Math.max(1L, this.mWaits.get());
+	}
+
+	/**
+	 * Gets the amount of checks of the conditions.
+	 * 
+	 * @return The amount of polls
+	 */
+	public long getPolls() {
+		return this.mPolls.get();
+	}
+
+	/**
+	 * Gets the amount of waits that timed out.
+	 * 
+	 * @return The amount of timeouts
+	 */
+	public long getTimeouts() {
+		return this.mTimeouts.get();
+	}
+
+	/**
+	 * Gets the total time waited in milliseconds.
+	 * 
+	 * @return The total time waited
+	 */
+	public long getTimeWaited() {
+		return this.mTimeWaited.get();
+	}
+
+	/**
+	 * Gets the amount of waits done.
+	 * 
+	 * @return The amount of waits
+	 */
+	public long getWaits() {
+		return this.mWaits.get();
+	}
+
+	/**
+	 * Counts a finished wait.
+	 * 
+	 * @param polls
+	 *            The amount of checks of the condition
+	 * @param timeWaited
+	 *            The time waited in milliseconds
+	 * @param timedOut
+	 *            Whether the wait timed out
+	 */
+	public void recordWait(final int polls, final long timeWaited, final boolean timedOut) {
+		this.mWaits.incrementAndGet();
+		this.mPolls.addAndGet(polls);
+		this.mTimeWaited.addAndGet(timeWaited);
+		if (timedOut) {
+			this.mTimeouts.incrementAndGet();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "waits=" + getWaits() + ", polls=" + getPolls() + ", timeouts=" + getTimeouts() + ", timeWaited="
+				+ getTimeWaited() + "ms, averageTimeWaited="
+				+ String.format("%.2f", Double.valueOf(getAverageTimeWaited())) + "ms";
+	}
+}
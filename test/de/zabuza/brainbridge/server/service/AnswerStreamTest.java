@@ -0,0 +1,164 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests for {@link AnswerStream}. Streams are opened at a {@link Service} with
+ * a {@link FakeChatBackend}, which answers every message with the message
+ * itself. The tests are run for every {@link EServiceMode}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@RunWith(Parameterized.class)
+public final class AnswerStreamTest {
+	/**
+	 * The time in milliseconds after which kept alive connections without
+	 * activity get closed.
+	 */
+	private static final long IDLE_TIMEOUT = 5_000L;
+	/**
+	 * The time in milliseconds to wait for events of the service.
+	 */
+	private static final int READ_TIMEOUT = 10_000;
+	/**
+	 * The time in milliseconds to wait for the service to stop.
+	 */
+	private static final long STOP_TIMEOUT = 15_000L;
+	/**
+	 * The time in milliseconds after which a test fails.
+	 */
+	private static final long TEST_TIMEOUT = 30_000L;
+
+	/**
+	 * Gets the service modes to run the tests for.
+	 * 
+	 * @return The service modes to run the tests for
+	 */
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> getServiceModes() {
+		return Arrays.asList(new Object[][] { { EServiceMode.BLOCKING }, { EServiceMode.POOLED },
+				{ EServiceMode.SELECTOR } });
+	}
+
+	/**
+	 * The id of the instance the streams get opened for.
+	 */
+	private String mId;
+	/**
+	 * The port the service listens on.
+	 */
+	private int mPort;
+	/**
+	 * The service to open streams at.
+	 */
+	private Service mService;
+	/**
+	 * The mode of the service to open streams at.
+	 */
+	private final EServiceMode mServiceMode;
+
+	/**
+	 * Creates a new test that opens streams at a service with the given mode.
+	 * 
+	 * @param serviceMode
+	 *            The mode of the service to open streams at
+	 */
+	public AnswerStreamTest(final EServiceMode serviceMode) {
+		this.mServiceMode = serviceMode;
+	}
+
+	/**
+	 * Starts the service and creates an instance to open streams for.
+	 * 
+	 * @throws Exception
+	 *             If the service could not be started
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.mPort = ServiceTestUtil.findFreePort();
+		this.mService = new Service(this.mPort, this.mServiceMode, IDLE_TIMEOUT,
+				Collections.<IChatBackend>singletonList(new FakeChatBackend()), 0, null);
+		this.mService.start();
+		ServiceTestUtil.awaitListening(this.mPort);
+		this.mId = ServiceTestUtil.sendRequest(this.mPort, "/create", HttpURLConnection.HTTP_OK);
+	}
+
+	/**
+	 * Stops the service.
+	 * 
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the service
+	 *             to stop
+	 */
+	@After
+	public void tearDown() throws InterruptedException {
+		this.mService.stopService();
+		this.mService.join(STOP_TIMEOUT);
+	}
+
+	/**
+	 * Test method for a stream that gets answers right after its head was
+	 * sent. Answers that arrived before are not sent, every answer that
+	 * arrives afterwards is sent, also if it repeats the previous one.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testAnswersAfterHead() throws IOException {
+		post("Before");
+		try (final Socket client = new Socket("localhost", this.mPort)) {
+			client.setSoTimeout(READ_TIMEOUT);
+			final OutputStream output = client.getOutputStream();
+			output.write(("GET /stream?id=" + this.mId + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+					.getBytes(HttpUtil.TEXT_CHARSET));
+			output.flush();
+
+			final BufferedReader input = new BufferedReader(
+					new InputStreamReader(client.getInputStream(), HttpUtil.TEXT_CHARSET));
+			final String statusLine = input.readLine();
+			Assert.assertTrue(statusLine, statusLine.startsWith("HTTP/1.1 200 "));
+			String headLine = input.readLine();
+			while (!headLine.isEmpty()) {
+				headLine = input.readLine();
+			}
+
+			post("Hello");
+			post("Hello");
+			for (int i = 0; i < 2; i++) {
+				Assert.assertEquals("data: Hello", input.readLine());
+				Assert.assertEquals("", input.readLine());
+			}
+		}
+	}
+
+	/**
+	 * Posts the given message to the instance.
+	 * 
+	 * @param message
+	 *            The message to post, it must not need URL encoding
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private void post(final String message) throws IOException {
+		ServiceTestUtil.sendRequest(this.mPort, "/post?id=" + this.mId + "&msg=" + message,
+				HttpURLConnection.HTTP_NO_CONTENT);
+	}
+}
@@ -0,0 +1,128 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.zabuza.brainbridge.server.exceptions.ChatBackendException;
+
+/**
+ * Tests for {@link FakeChatBackend} and its {@link FakeBrainInstance}s.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class FakeChatBackendTest {
+	/**
+	 * Creates an instance of a new backend and initializes it.
+	 * 
+	 * @return The initialized instance
+	 */
+	private static IBrainInstance createInstance() {
+		final IBrainInstance instance = new FakeChatBackend().createInstance();
+		instance.initialize();
+		return instance;
+	}
+
+	/**
+	 * Test method for {@link FakeChatBackend#createInstance()}. Every instance
+	 * gets a unique alphanumeric id once it is initialized.
+	 */
+	@Test
+	public void testCreateInstance() {
+		final FakeChatBackend backend = new FakeChatBackend();
+		final IBrainInstance first = backend.createInstance();
+		final IBrainInstance second = new FakeChatBackend().createInstance();
+		Assert.assertNull(first.getId());
+
+		first.initialize();
+		second.initialize();
+		Assert.assertTrue(first.getId(), first.getId().matches("[A-Za-z0-9]+"));
+		Assert.assertTrue(second.getId(), second.getId().matches("[A-Za-z0-9]+"));
+		Assert.assertNotEquals(first.getId(), second.getId());
+	}
+
+	/**
+	 * Test method for {@link FakeBrainInstance#getLatestAnswers()}. Every
+	 * answer is returned once, also if it equals the previous answer, and
+	 * nothing is returned if there are no new answers.
+	 */
+	@Test
+	public void testGetLatestAnswersDrain() {
+		final IBrainInstance instance = createInstance();
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+
+		instance.postMessage("Hello");
+		instance.postMessage("Hello");
+		Assert.assertEquals(Arrays.asList("Hello", "Hello"), instance.getLatestAnswers());
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+
+		instance.postMessage("Hello");
+		Assert.assertEquals(Collections.singletonList("Hello"), instance.getLatestAnswers());
+		Assert.assertEquals("Hello", instance.getLatestAnswer());
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link FakeBrainInstance#getLatestAnswers()} with more
+	 * new answers than are kept. Only the most recent ones are returned.
+	 */
+	@Test
+	public void testGetLatestAnswersOverflow() {
+		final IBrainInstance instance = createInstance();
+		for (int i = 0; i < 105; i++) {
+			instance.postMessage(Integer.toString(i));
+		}
+
+		final List<String> answers = instance.getLatestAnswers();
+		Assert.assertEquals(100, answers.size());
+		Assert.assertEquals("5", answers.get(0));
+		Assert.assertEquals("104", answers.get(answers.size() - 1));
+	}
+
+	/**
+	 * Test method for {@link FakeChatBackend#isHealthy()}. The backend is
+	 * healthy until it quits.
+	 */
+	@Test
+	public void testIsHealthy() {
+		final FakeChatBackend backend = new FakeChatBackend();
+		backend.initialize();
+		Assert.assertTrue(backend.isHealthy());
+		Assert.assertTrue(backend.maintain().isEmpty());
+
+		backend.quit();
+		Assert.assertFalse(backend.isHealthy());
+	}
+
+	/**
+	 * Test method for {@link FakeBrainInstance#postMessage(String)}. Every
+	 * message is answered with itself, escaped the way the chat service
+	 * escapes its answers.
+	 */
+	@Test
+	public void testPostMessageEcho() {
+		final IBrainInstance instance = createInstance();
+		Assert.assertNull(instance.getLatestAnswer());
+
+		instance.postMessage("Hello");
+		Assert.assertEquals("Hello", instance.getLatestAnswer());
+		instance.postMessage("Tom & Jerry <\u00FC>");
+		Assert.assertEquals("Tom &amp; Jerry &lt;&uuml;&gt;", instance.getLatestAnswer());
+		Assert.assertEquals(Arrays.asList("Hello", "Tom &amp; Jerry &lt;&uuml;&gt;"), instance.getLatestAnswers());
+	}
+
+	/**
+	 * Test method for {@link FakeBrainInstance#shutdown()}. The instance can
+	 * not be used afterwards.
+	 */
+	@Test(expected = ChatBackendException.class)
+	public void testShutdown() {
+		final IBrainInstance instance = createInstance();
+		instance.shutdown();
+		instance.postMessage("Hello");
+	}
+}
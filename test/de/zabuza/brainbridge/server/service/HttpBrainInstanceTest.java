@@ -0,0 +1,386 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.zabuza.brainbridge.server.exceptions.ChatProtocolException;
+
+/**
+ * Tests for {@link HttpBrainInstance}. The instance talks to a local stub of
+ * the chat service which serves the service page, the chat page with its
+ * frames, the input form and the output frame. The pages are spread over
+ * several directories and are reached by a redirect, such that links must be
+ * resolved against the page they came from. The input form is served with
+ * another charset than the output frame.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HttpBrainInstanceTest {
+	/**
+	 * The charset of the input form.
+	 */
+	private static final Charset FORM_CHARSET = StandardCharsets.ISO_8859_1;
+	/**
+	 * The id of the chat session the stub assigns.
+	 */
+	private static final String ID = "abc123";
+	/**
+	 * The cookie the stub sets with its service page if the login is on
+	 * another host.
+	 */
+	private static final String HOME_COOKIE = "home=h1";
+	/**
+	 * The charset of the output frame.
+	 */
+	private static final Charset OUTPUT_CHARSET = StandardCharsets.UTF_8;
+	/**
+	 * The cookie the stub sets for the chat session.
+	 */
+	private static final String SESSION_COOKIE = "session=s42";
+
+	/**
+	 * Creates the content of an input page with a form that contains the
+	 * given token.
+	 * 
+	 * @param token
+	 *            The token of the form
+	 * @return The content of the input page
+	 */
+	private static String createInputPage(final String token) {
+		return "<html><body><form action=\"send.php\" method=\"post\">"
+				+ "<input type=\"hidden\" name=\"token\" value=\"" + token + "\">"
+				+ "<input type=\"text\" name=\"editMsg\"><input type=\"submit\" name=\"send\" value=\"Send\">"
+				+ "</form><a class=\"btn btnChat_beenden\" href=\"../logout.php\">Leave</a></body></html>";
+	}
+
+	/**
+	 * Reads the body of the request of the given exchange.
+	 * 
+	 * @param exchange
+	 *            The exchange to read from
+	 * @return The body of the request, decoded as ASCII
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static String readBody(final HttpExchange exchange) throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (final InputStream input = exchange.getRequestBody()) {
+			final byte[] buffer = new byte[1_024];
+			int read = input.read(buffer);
+			while (read != -1) {
+				body.write(buffer, 0, read);
+				read = input.read(buffer);
+			}
+		}
+		return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Sends the given page as answer of the given exchange.
+	 * 
+	 * @param exchange
+	 *            The exchange to answer
+	 * @param content
+	 *            The content of the page
+	 * @param charset
+	 *            The charset to encode the page with
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void sendPage(final HttpExchange exchange, final String content, final Charset charset)
+			throws IOException {
+		final byte[] bytes = content.getBytes(charset);
+		exchange.getResponseHeaders().set("Content-Type", "text/html; charset=" + charset.name());
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (final OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * The answers of the stub in order of their appearance.
+	 */
+	private final List<String> mAnswers;
+	/**
+	 * Whether the service page of the stub contains a login anchor.
+	 */
+	private volatile boolean mHasLoginAnchor;
+	/**
+	 * Whether the stub answers every request with an error.
+	 */
+	private volatile boolean mIsFailing;
+	/**
+	 * Whether the login anchor of the service page links to another host
+	 * than the service page.
+	 */
+	private volatile boolean mIsLoginOnOtherHost;
+	/**
+	 * The requests the stub received, given by their method, URI, cookie
+	 * header and body.
+	 */
+	private final List<String> mRequests;
+	/**
+	 * The stub of the chat service.
+	 */
+	private HttpServer mServer;
+	/**
+	 * The URL of the service page of the stub.
+	 */
+	private String mServiceUrl;
+
+	/**
+	 * Creates a new test.
+	 */
+	public HttpBrainInstanceTest() {
+		this.mAnswers = Collections.synchronizedList(new ArrayList<>());
+		this.mRequests = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	/**
+	 * Starts the stub of the chat service.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Before
+	public void setUp() throws IOException {
+		this.mIsFailing = false;
+		this.mHasLoginAnchor = true;
+		this.mIsLoginOnOtherHost = false;
+		this.mServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.mServer.createContext("/", this::handle);
+		this.mServer.start();
+		this.mServiceUrl = "http://localhost:" + this.mServer.getAddress().getPort() + "/";
+	}
+
+	/**
+	 * Stops the stub of the chat service.
+	 */
+	@After
+	public void tearDown() {
+		this.mServer.stop(0);
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#getLatestAnswer()} and
+	 * {@link HttpBrainInstance#getLatestAnswers()} before any message was
+	 * posted.
+	 */
+	@Test
+	public void testGetLatestAnswerWithoutAnswer() {
+		final HttpBrainInstance instance = createInstance();
+		Assert.assertNull(instance.getLatestAnswer());
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#getLatestAnswers()}. Every
+	 * answer is returned once, also if it equals the previous answer.
+	 */
+	@Test
+	public void testGetLatestAnswersRepeated() {
+		final HttpBrainInstance instance = createInstance();
+		this.mAnswers.add("Hello");
+		this.mAnswers.add("Hello");
+		Assert.assertEquals(Arrays.asList("Hello", "Hello"), instance.getLatestAnswers());
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+
+		this.mAnswers.add("Hello");
+		Assert.assertEquals(Collections.singletonList("Hello"), instance.getLatestAnswers());
+		Assert.assertEquals("Hello", instance.getLatestAnswer());
+		Assert.assertTrue(instance.getLatestAnswers().isEmpty());
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#initialize()}. Links are
+	 * resolved against the pages they came from and the cookie of the session
+	 * is sent with every request after it was set.
+	 */
+	@Test
+	public void testInitialize() {
+		final HttpBrainInstance instance = createInstance();
+		Assert.assertEquals(ID, instance.getId());
+		Assert.assertEquals(
+				"[GET / | null | , GET /chat/start.php | null | , GET /chat/room/index.php | " + SESSION_COOKIE
+						+ " | , GET /chat/in/input.php | " + SESSION_COOKIE + " | ]",
+				this.mRequests.toString());
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#initialize()} with a login on
+	 * another host. Cookies are only sent back to the host that set them.
+	 */
+	@Test
+	public void testInitializeCookiesByHost() {
+		this.mIsLoginOnOtherHost = true;
+		createInstance();
+		Assert.assertEquals(
+				"[GET / | null | , GET /chat/start.php | null | , GET /chat/room/index.php | " + SESSION_COOKIE
+						+ " | , GET /chat/in/input.php | " + SESSION_COOKIE + " | ]",
+				this.mRequests.toString());
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#initialize()} with a chat
+	 * service that answers with an error.
+	 */
+	@Test(expected = ChatProtocolException.class)
+	public void testInitializeErrorAnswer() {
+		this.mIsFailing = true;
+		createInstance();
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#initialize()} with a service
+	 * page that has no login anchor.
+	 */
+	@Test(expected = ChatProtocolException.class)
+	public void testInitializeWithoutLoginAnchor() {
+		this.mHasLoginAnchor = false;
+		createInstance();
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#postMessage(String)}. The
+	 * message is encoded with the charset of the input form, the answer is
+	 * decoded with the charset of the output frame and the state of the form
+	 * in the answer page is used for the next message.
+	 */
+	@Test
+	public void testPostMessage() {
+		final HttpBrainInstance instance = createInstance();
+		this.mRequests.clear();
+
+		instance.postMessage("Gr\u00FC\u00DFe & more");
+		Assert.assertEquals("Hallo \u00FC\u20AC", instance.getLatestAnswer());
+		instance.postMessage("Bye");
+		Assert.assertEquals(Arrays.asList("Hallo \u00FC\u20AC", "Hallo \u00FC\u20AC 2"), instance.getLatestAnswers());
+
+		final String cookie = " | " + SESSION_COOKIE + " | ";
+		Assert.assertEquals("[POST /chat/in/send.php" + cookie + "token=t1&editMsg=Gr%FC%DFe+%26+more, "
+				+ "GET /chat/room/out.php?id=" + ID + cookie + ", POST /chat/in/send.php" + cookie
+				+ "token=t2&editMsg=Bye, GET /chat/room/out.php?id=" + ID + cookie + "]", this.mRequests.toString());
+	}
+
+	/**
+	 * Test method for {@link HttpBrainInstance#shutdown()}. It follows the
+	 * logout anchor of the input page.
+	 */
+	@Test
+	public void testShutdown() {
+		final HttpBrainInstance instance = createInstance();
+		this.mRequests.clear();
+		instance.shutdown();
+		Assert.assertEquals("[GET /chat/logout.php | " + SESSION_COOKIE + " | ]", this.mRequests.toString());
+	}
+
+	/**
+	 * Creates and initializes an instance that uses the stub.
+	 * 
+	 * @return The initialized instance
+	 */
+	private HttpBrainInstance createInstance() {
+		final HttpBrainInstance instance = new HttpBrainInstance(this.mServiceUrl);
+		instance.initialize();
+		return instance;
+	}
+
+	/**
+	 * Creates the content of the output frame containing all answers.
+	 * 
+	 * @return The content of the output frame
+	 */
+	private String createOutputPage() {
+		final StringBuilder page = new StringBuilder("<html><body>Welcome<br>");
+		synchronized (this.mAnswers) {
+			for (final String answer : this.mAnswers) {
+				page.append("<font color=\"#800000\"><b>Brain:</b></font>").append(answer).append("<br>");
+			}
+		}
+		return page.append("\n</body></html>").toString();
+	}
+
+	/**
+	 * Handles a request to the stub of the chat service.
+	 * 
+	 * @param exchange
+	 *            The exchange of the request
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private void handle(final HttpExchange exchange) throws IOException {
+		final String body = readBody(exchange);
+		this.mRequests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " | "
+				+ exchange.getRequestHeaders().getFirst("Cookie") + " | " + body);
+		if (this.mIsFailing) {
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+			return;
+		}
+
+		switch (exchange.getRequestURI().getPath()) {
+		case "/":
+			if (this.mIsLoginOnOtherHost) {
+				exchange.getResponseHeaders().add("Set-Cookie", HOME_COOKIE + "; Path=/");
+				sendPage(exchange, "<html><body><a class=\"btn btnAls_Gast\" href=\"http://127.0.0.1:"
+						+ this.mServer.getAddress().getPort() + "/chat/start.php\">Guest</a></body></html>",
+						FORM_CHARSET);
+			} else if (this.mHasLoginAnchor) {
+				sendPage(exchange, "<html><body><a class=\"btn btnAls_Gast\" href=\"chat/start.php\">Guest</a>"
+						+ "</body></html>", FORM_CHARSET);
+			} else {
+				sendPage(exchange, "<html><body>Closed</body></html>", FORM_CHARSET);
+			}
+			break;
+		case "/chat/start.php":
+			exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "; Path=/");
+			exchange.getResponseHeaders().set("Location", "room/index.php");
+			exchange.sendResponseHeaders(302, -1);
+			exchange.close();
+			break;
+		case "/chat/room/index.php":
+			sendPage(exchange, "<html><frameset><frame name=\"frout\" src=\"out.php?id=" + ID + "\">"
+					+ "<frame name=\"frin\" src=\"../in/input.php\"></frameset></html>", OUTPUT_CHARSET);
+			break;
+		case "/chat/room/out.php":
+			sendPage(exchange, createOutputPage(), OUTPUT_CHARSET);
+			break;
+		case "/chat/in/input.php":
+			sendPage(exchange, createInputPage("t1"), FORM_CHARSET);
+			break;
+		case "/chat/in/send.php":
+			if (this.mAnswers.isEmpty()) {
+				this.mAnswers.add("Hallo \u00FC\u20AC");
+			} else {
+				this.mAnswers.add("Hallo \u00FC\u20AC " + (this.mAnswers.size() + 1));
+			}
+			sendPage(exchange, createInputPage("t" + (this.mAnswers.size() + 1)), FORM_CHARSET);
+			break;
+		case "/chat/logout.php":
+			sendPage(exchange, "<html><body>Bye</body></html>", FORM_CHARSET);
+			break;
+		default:
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			break;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link HttpUtil}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class HttpUtilTest {
+	/**
+	 * Asserts that decoding the given text is rejected.
+	 * 
+	 * @param encodedUrl
+	 *            The malformed text to decode
+	 */
+	private static void assertMalformed(final String encodedUrl) {
+		try {
+			HttpUtil.decodeUrlToUtf8(encodedUrl);
+			Assert.fail("Decoding was not rejected: " + encodedUrl);
+		} catch (final IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Test method for {@link HttpUtil#decodeUrlToUtf8(String)}.
+	 */
+	@Test
+	public void testDecodeUrlToUtf8() {
+		Assert.assertEquals("", HttpUtil.decodeUrlToUtf8(""));
+		Assert.assertEquals("Hello World", HttpUtil.decodeUrlToUtf8("Hello+World"));
+		Assert.assertEquals("a&b=c", HttpUtil.decodeUrlToUtf8("a%26b%3dc"));
+		Assert.assertEquals("\u20AC \u00FC", HttpUtil.decodeUrlToUtf8("%E2%82%AC%20%C3%BC"));
+	}
+
+	/**
+	 * Test method for {@link HttpUtil#decodeUrlToUtf8(String)} with malformed
+	 * escape sequences.
+	 */
+	@Test
+	public void testDecodeUrlToUtf8Malformed() {
+		assertMalformed("%");
+		assertMalformed("abc%");
+		assertMalformed("abc%2");
+		assertMalformed("%zz");
+		assertMalformed("%-1");
+		assertMalformed("100%");
+	}
+
+	/**
+	 * Test method for
+	 * {@link HttpUtil#isKeepAliveRequested(String, java.util.Map)}.
+	 */
+	@Test
+	public void testIsKeepAliveRequested() {
+		final Map<String, String> headers = new HashMap<>();
+		Assert.assertTrue(HttpUtil.isKeepAliveRequested("GET / HTTP/1.1", headers));
+		Assert.assertFalse(HttpUtil.isKeepAliveRequested("GET / HTTP/1.0", headers));
+		Assert.assertFalse(HttpUtil.isKeepAliveRequested(null, headers));
+
+		headers.put("connection", "close");
+		Assert.assertFalse(HttpUtil.isKeepAliveRequested("GET / HTTP/1.1", headers));
+
+		headers.put("connection", "Keep-Alive");
+		Assert.assertTrue(HttpUtil.isKeepAliveRequested("GET / HTTP/1.0", headers));
+	}
+
+	/**
+	 * Test method for
+	 * {@link HttpUtil#readRequestHead(BufferedReader, java.util.Map)} with
+	 * several pipelined request heads.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test
+	public void testReadRequestHeadPipelined() throws IOException {
+		final BufferedReader reader = new BufferedReader(new StringReader("\r\nGET /create HTTP/1.1\r\nHost: x\r\n\r\n"
+				+ "GET /post?id=a&msg=b HTTP/1.1\r\nHOST : y\r\nInvalid\r\n\r\n"
+				+ "GET /get?id=a HTTP/1.1\r\nConnection: close\r\n\r\n"));
+
+		final Map<String, String> firstHeaders = new HashMap<>();
+		Assert.assertEquals("GET /create HTTP/1.1", HttpUtil.readRequestHead(reader, firstHeaders));
+		Assert.assertEquals(1, firstHeaders.size());
+		Assert.assertEquals("x", firstHeaders.get("host"));
+
+		final Map<String, String> secondHeaders = new HashMap<>();
+		Assert.assertEquals("GET /post?id=a&msg=b HTTP/1.1", HttpUtil.readRequestHead(reader, secondHeaders));
+		Assert.assertEquals(1, secondHeaders.size());
+		Assert.assertEquals("y", secondHeaders.get("host"));
+
+		final Map<String, String> thirdHeaders = new HashMap<>();
+		final String thirdRequest = HttpUtil.readRequestHead(reader, thirdHeaders);
+		Assert.assertEquals("GET /get?id=a HTTP/1.1", thirdRequest);
+		Assert.assertFalse(HttpUtil.isKeepAliveRequested(thirdRequest, thirdHeaders));
+
+		Assert.assertNull(HttpUtil.readRequestHead(reader, new HashMap<>()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link HttpUtil#readRequestHead(BufferedReader, java.util.Map)} with a
+	 * head that ends before its empty line.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test
+	public void testReadRequestHeadTruncated() throws IOException {
+		final BufferedReader reader = new BufferedReader(new StringReader("GET /get?id=a HTTP/1.1\nHost: x"));
+		final Map<String, String> headers = new HashMap<>();
+		Assert.assertEquals("GET /get?id=a HTTP/1.1", HttpUtil.readRequestHead(reader, headers));
+		Assert.assertEquals("x", headers.get("host"));
+		Assert.assertNull(HttpUtil.readRequestHead(reader, headers));
+		Assert.assertNull(HttpUtil.readRequestHead(new BufferedReader(new StringReader("\r\n\r\n")), headers));
+	}
+}
@@ -0,0 +1,265 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RequestTarget}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class RequestTargetTest {
+	/**
+	 * The post request line parsed by the timed comparison.
+	 */
+	private static final String COMPARISON_REQUEST = "GET /post?id=a1b2c3d4e5f6&msg=How%20are%20you%20doing%20today"
+			+ "%3F%20I%20wanted%20to%20ask%20you%20something%20about%20the%20weather HTTP/1.1";
+	/**
+	 * The amount of request lines parsed per round of the timed comparison.
+	 */
+	private static final int COMPARISON_REQUESTS = 20_000;
+	/**
+	 * The amount of rounds of the timed comparison, the fastest round of each
+	 * parser is compared.
+	 */
+	private static final int COMPARISON_ROUNDS = 5;
+	/**
+	 * The pattern of the former parser which matches the id argument in a
+	 * request. It can be accessed by group 1.
+	 */
+	private static final String REGEX_ARGUMENT_ID_PATTERN = "(?:^|.+&)id=([A-Za-z0-9]+)(?:$|&.+)";
+	/**
+	 * The pattern of the former parser which matches the message argument in
+	 * a request. It can be accessed by group 1.
+	 */
+	private static final String REGEX_ARGUMENT_MESSAGE_PATTERN = "(?:^|.+&)msg=(.+)(?:$|&.+)";
+	/**
+	 * The pattern of the former parser which every GET request matches. Group
+	 * 1 holds the content of the request.
+	 */
+	private static final String REGEX_GET_REQUEST_PATTERN = "GET (.+) HTTP/?[\\d\\.]*";
+	/**
+	 * The prefix of post requests in the former parser.
+	 */
+	private static final String REGEX_POST_MESSAGE_REQUEST = "/post?";
+
+	/**
+	 * Parses the given request line and asserts that it is a valid GET request
+	 * line.
+	 * 
+	 * @param request
+	 *            The request line to parse
+	 * @return The target of the request
+	 */
+	private static RequestTarget parse(final String request) {
+		final RequestTarget target = RequestTarget.parseGetRequest(request);
+		Assert.assertNotNull(request, target);
+		return target;
+	}
+
+	/**
+	 * Parses the given post request line the way the service did before
+	 * {@link RequestTarget} existed, by compiling and matching regular
+	 * expressions for every request.
+	 * 
+	 * @param request
+	 *            The request line to parse
+	 * @return The id followed by the message of the request or <tt>null</tt>
+	 *         if it is no valid post request
+	 */
+	private static String parsePostWithRegularExpressions(final String request) {
+		final Matcher requestMatcher = Pattern.compile(REGEX_GET_REQUEST_PATTERN).matcher(request);
+		if (!requestMatcher.matches()) {
+			return null;
+		}
+		final String requestContent = requestMatcher.group(1);
+		if (!requestContent.startsWith(REGEX_POST_MESSAGE_REQUEST)) {
+			return null;
+		}
+
+		final String arguments = requestContent.substring(REGEX_POST_MESSAGE_REQUEST.length());
+		final Matcher idMatcher = Pattern.compile(REGEX_ARGUMENT_ID_PATTERN).matcher(arguments);
+		if (!idMatcher.matches()) {
+			return null;
+		}
+		final Matcher messageMatcher = Pattern.compile(REGEX_ARGUMENT_MESSAGE_PATTERN).matcher(arguments);
+		if (!messageMatcher.matches()) {
+			return null;
+		}
+		return idMatcher.group(1) + messageMatcher.group(1);
+	}
+
+	/**
+	 * Parses the given post request line with {@link RequestTarget}.
+	 * 
+	 * @param request
+	 *            The request line to parse
+	 * @return The id followed by the message of the request or <tt>null</tt>
+	 *         if it is no valid post request
+	 */
+	private static String parsePostWithRequestTarget(final String request) {
+		final RequestTarget target = RequestTarget.parseGetRequest(request);
+		if (target == null || !target.getPath().equals("/post")) {
+			return null;
+		}
+
+		final String id = target.getParameter("id");
+		final String message = target.getParameter("msg");
+		if (id == null || message == null) {
+			return null;
+		}
+		return id + message;
+	}
+
+	/**
+	 * Lets the given parser parse {@link #COMPARISON_REQUEST} for several
+	 * rounds and gets the time of the fastest round. The first rounds also
+	 * warm up the parser.
+	 * 
+	 * @param parser
+	 *            The parser to time, it gets the request line and returns the
+	 *            id followed by the message of the request
+	 * @return The time of the fastest round in nanoseconds
+	 */
+	private static long timeFastestRound(final Function<String, String> parser) {
+		final String expectedResult = parser.apply(COMPARISON_REQUEST);
+		Assert.assertNotNull(expectedResult);
+
+		long fastestRound = Long.MAX_VALUE;
+		for (int round = 0; round < COMPARISON_ROUNDS; round++) {
+			final long start = System.nanoTime();
+			for (int i = 0; i < COMPARISON_REQUESTS; i++) {
+				if (!expectedResult.equals(parser.apply(COMPARISON_REQUEST))) {
+					Assert.fail("The result of the parser changed");
+				}
+			}
+			fastestRound = Math.min(fastestRound, System.nanoTime() - start);
+		}
+		return fastestRound;
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with an
+	 * encoded ampersand inside a value.
+	 */
+	@Test
+	public void testGetParameterEncodedSeparator() {
+		final RequestTarget target = parse("GET /post?id=abc&msg=Tom%20%26%20Jerry%3D HTTP/1.1");
+		Assert.assertEquals("Tom%20%26%20Jerry%3D", target.getParameter("msg"));
+		Assert.assertEquals("Tom & Jerry=", HttpUtil.decodeUrlToUtf8(target.getParameter("msg")));
+		Assert.assertEquals("abc", target.getParameter("id"));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with empty
+	 * values and parameters without value.
+	 */
+	@Test
+	public void testGetParameterEmptyValue() {
+		final RequestTarget target = parse("GET /post?id=&msg&flag=1&&last= HTTP/1.1");
+		Assert.assertNull(target.getParameter("id"));
+		Assert.assertNull(target.getParameter("msg"));
+		Assert.assertNull(target.getParameter("last"));
+		Assert.assertEquals("1", target.getParameter("flag"));
+		Assert.assertNull(target.getParameter(""));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with names
+	 * that are prefixes or suffixes of other names.
+	 */
+	@Test
+	public void testGetParameterSimilarNames() {
+		final RequestTarget target = parse("GET /get?identity=1&xid=2&id=3 HTTP/1.1");
+		Assert.assertEquals("3", target.getParameter("id"));
+		Assert.assertEquals("1", target.getParameter("identity"));
+		Assert.assertEquals("2", target.getParameter("xid"));
+		Assert.assertNull(target.getParameter("ident"));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with a raw
+	 * ampersand inside a value, it separates the value.
+	 */
+	@Test
+	public void testGetParameterRawSeparator() {
+		final RequestTarget target = parse("GET /post?msg=Tom&Jerry&id=abc HTTP/1.1");
+		Assert.assertEquals("Tom", target.getParameter("msg"));
+		Assert.assertNull(target.getParameter("Jerry"));
+		Assert.assertEquals("abc", target.getParameter("id"));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with a name
+	 * that occurs several times, the first occurrence is used.
+	 */
+	@Test
+	public void testGetParameterRepeatedName() {
+		Assert.assertEquals("first", parse("GET /get?id=first&id=second HTTP/1.1").getParameter("id"));
+		Assert.assertEquals("second", parse("GET /get?x=1&id=second&id=third HTTP/1.1").getParameter("id"));
+		Assert.assertNull(parse("GET /get?id=&id=second HTTP/1.1").getParameter("id"));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getParameter(String)} with values
+	 * that contain spaces and question marks.
+	 */
+	@Test
+	public void testGetParameterSpecialCharacters() {
+		final RequestTarget target = parse("GET /post?msg=How are you? Fine&id=a?b HTTP/1.1");
+		Assert.assertEquals("/post", target.getPath());
+		Assert.assertEquals("How are you? Fine", target.getParameter("msg"));
+		Assert.assertEquals("a?b", target.getParameter("id"));
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#getPath()}.
+	 */
+	@Test
+	public void testGetPath() {
+		Assert.assertEquals("/create", parse("GET /create HTTP/1.1").getPath());
+		Assert.assertEquals("/get", parse("GET /get?id=abc HTTP/1.1").getPath());
+		Assert.assertEquals("/get", parse("GET /get? HTTP/1.0").getPath());
+		Assert.assertEquals("/", parse("GET / HTTP").getPath());
+		Assert.assertNull(parse("GET /create HTTP/1.1").getParameter("id"));
+		Assert.assertNull(parse("GET /get? HTTP/1.1").getParameter("id"));
+	}
+
+	/**
+	 * Timed comparison of {@link RequestTarget#parseGetRequest(String)}
+	 * against the regular expressions the service used before. Both parse
+	 * the same post request line into its id and message.
+	 */
+	@Test
+	public void testParseGetRequestFasterThanRegularExpressions() {
+		Assert.assertEquals(parsePostWithRegularExpressions(COMPARISON_REQUEST),
+				parsePostWithRequestTarget(COMPARISON_REQUEST));
+
+		final long regexTime = timeFastestRound(RequestTargetTest::parsePostWithRegularExpressions);
+		final long singlePassTime = timeFastestRound(RequestTargetTest::parsePostWithRequestTarget);
+		Assert.assertTrue("Single pass took " + singlePassTime + " ns, regular expressions took " + regexTime + " ns",
+				singlePassTime < regexTime);
+	}
+
+	/**
+	 * Test method for {@link RequestTarget#parseGetRequest(String)} with
+	 * request lines that are no valid GET request lines.
+	 */
+	@Test
+	public void testParseGetRequestInvalid() {
+		Assert.assertNull(RequestTarget.parseGetRequest(null));
+		Assert.assertNull(RequestTarget.parseGetRequest(""));
+		Assert.assertNull(RequestTarget.parseGetRequest("POST /post HTTP/1.1"));
+		Assert.assertNull(RequestTarget.parseGetRequest("get /get HTTP/1.1"));
+		Assert.assertNull(RequestTarget.parseGetRequest("GET /get"));
+		Assert.assertNull(RequestTarget.parseGetRequest("GET  HTTP/1.1"));
+		Assert.assertNull(RequestTarget.parseGetRequest("GET /get FTP/1.1"));
+		Assert.assertNull(RequestTarget.parseGetRequest("GET /get HTTP/1.1x"));
+		Assert.assertNull(RequestTarget.parseGetRequest("GET /get HTTP/1.1 "));
+	}
+}
@@ -0,0 +1,151 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Stress test for the {@link Service} that fires create, post and get
+ * requests of many clients in parallel against a {@link FakeChatBackend} and
+ * checks every answer. It is run for every {@link EServiceMode}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ServiceStressTest {
+	/**
+	 * The amount of clients that send requests in parallel.
+	 */
+	private static final int CLIENTS = 48;
+	/**
+	 * The time in milliseconds after which kept alive connections without
+	 * activity get closed.
+	 */
+	private static final long IDLE_TIMEOUT = 5_000L;
+	/**
+	 * The amount of messages every client posts and reads.
+	 */
+	private static final int ROUNDS = 25;
+	/**
+	 * The time in milliseconds to wait for the service to stop.
+	 */
+	private static final long STOP_TIMEOUT = 15_000L;
+	/**
+	 * The time in milliseconds after which a test fails.
+	 */
+	private static final long TEST_TIMEOUT = 120_000L;
+
+	/**
+	 * Stress test for the blocking service mode.
+	 * 
+	 * @throws Exception
+	 *             If a request could not be sent or answered
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testBlockingMode() throws Exception {
+		stressService(EServiceMode.BLOCKING);
+	}
+
+	/**
+	 * Stress test for the pooled service mode.
+	 * 
+	 * @throws Exception
+	 *             If a request could not be sent or answered
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testPooledMode() throws Exception {
+		stressService(EServiceMode.POOLED);
+	}
+
+	/**
+	 * Stress test for the selector service mode.
+	 * 
+	 * @throws Exception
+	 *             If a request could not be sent or answered
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testSelectorMode() throws Exception {
+		stressService(EServiceMode.SELECTOR);
+	}
+
+	/**
+	 * Serves a single client of the stress test. It creates an instance and
+	 * then posts messages to it, checking that every message is answered.
+	 * 
+	 * @param port
+	 *            The port the service listens on
+	 * @param client
+	 *            The number of the client
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private void runClient(final int port, final int client) throws IOException {
+		final String id = ServiceTestUtil.sendRequest(port, "/create", HttpURLConnection.HTTP_OK);
+		Assert.assertFalse("Id of client " + client, id.isEmpty());
+
+		for (int round = 0; round < ROUNDS; round++) {
+			final String message = "Client " + client + " & round " + round + " <\u00FC>";
+			final String encodedMessage = URLEncoder.encode(message, HttpUtil.TEXT_CHARSET.name());
+			ServiceTestUtil.sendRequest(port, "/post?id=" + id + "&msg=" + encodedMessage,
+					HttpURLConnection.HTTP_NO_CONTENT);
+			final String answer = ServiceTestUtil.sendRequest(port, "/get?id=" + id, HttpURLConnection.HTTP_OK);
+			Assert.assertEquals(StringEscapeUtils.escapeHtml4(message), answer);
+		}
+	}
+
+	/**
+	 * Starts a service in the given mode and lets all clients send their
+	 * requests to it in parallel.
+	 * 
+	 * @param serviceMode
+	 *            The mode of the service to stress
+	 * @throws Exception
+	 *             If a request could not be sent or answered
+	 */
+	private void stressService(final EServiceMode serviceMode) throws Exception {
+		final int port = ServiceTestUtil.findFreePort();
+		final Service service = new Service(port, serviceMode, IDLE_TIMEOUT,
+				Collections.<IChatBackend>singletonList(new FakeChatBackend()), 2, null);
+		service.start();
+		final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			ServiceTestUtil.awaitListening(port);
+
+			final List<Future<?>> results = new ArrayList<>(CLIENTS);
+			for (int i = 0; i < CLIENTS; i++) {
+				final int client = i;
+				results.add(clients.submit(() -> {
+					runClient(port, client);
+					return null;
+				}));
+			}
+			for (final Future<?> result : results) {
+				try {
+					result.get();
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof AssertionError) {
+						throw (AssertionError) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			clients.shutdownNow();
+			clients.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+			service.stopService();
+			service.join(STOP_TIMEOUT);
+		}
+	}
+}
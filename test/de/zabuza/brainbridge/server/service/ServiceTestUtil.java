@@ -0,0 +1,123 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+
+import org.junit.Assert;
+
+/**
+ * Utility class that provides methods for tests that send requests to a
+ * running {@link Service}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ServiceTestUtil {
+	/**
+	 * The time in milliseconds to wait for the service to listen for clients.
+	 */
+	private static final long LISTEN_TIMEOUT = 10_000L;
+
+	/**
+	 * Waits until the service listens for clients on the given port.
+	 * 
+	 * @param port
+	 *            The port the service listens on
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting
+	 */
+	public static void awaitListening(final int port) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + LISTEN_TIMEOUT;
+		while (true) {
+			try (final Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress("localhost", port));
+				return;
+			} catch (final IOException e) {
+				if (System.currentTimeMillis() > deadline) {
+					Assert.fail("Service does not listen on port " + port);
+				}
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	/**
+	 * Finds a port that is currently not in use.
+	 * 
+	 * @return A port that is currently not in use
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static int findFreePort() throws IOException {
+		try (final ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Reads the given stream completely as text.
+	 * 
+	 * @param input
+	 *            The stream to read, may be <tt>null</tt>
+	 * @return The text of the stream, empty if the stream is <tt>null</tt>
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static String readFully(final InputStream input) throws IOException {
+		if (input == null) {
+			return "";
+		}
+		try (final InputStream in = input) {
+			final ByteArrayOutputStream content = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1_024];
+			int read = in.read(buffer);
+			while (read != -1) {
+				content.write(buffer, 0, read);
+				read = in.read(buffer);
+			}
+			return new String(content.toByteArray(), HttpUtil.TEXT_CHARSET);
+		}
+	}
+
+	/**
+	 * Sends a GET request with the given target to the service and checks the
+	 * status of its answer.
+	 * 
+	 * @param port
+	 *            The port the service listens on
+	 * @param target
+	 *            The target of the request
+	 * @param expectedStatus
+	 *            The status the answer must have
+	 * @return The content of the answer
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	public static String sendRequest(final int port, final String target, final int expectedStatus)
+			throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + target)
+				.openConnection();
+		final int status = connection.getResponseCode();
+		final String content;
+		if (status >= 400) {
+			content = readFully(connection.getErrorStream());
+		} else {
+			content = readFully(connection.getInputStream());
+		}
+		Assert.assertEquals("Status of " + target + ": " + content, expectedStatus, status);
+		return content;
+	}
+
+	/**
+	 * Utility class. No implementation.
+	 */
+	private ServiceTestUtil() {
+
+	}
+}
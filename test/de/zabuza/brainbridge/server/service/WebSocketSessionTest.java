@@ -0,0 +1,556 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests for {@link WebSocketSession}. Sessions are opened at a {@link Service}
+ * with a {@link FakeChatBackend}, which answers every message with the
+ * message itself. The tests are run for every {@link EServiceMode}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+@RunWith(Parameterized.class)
+public final class WebSocketSessionTest {
+	/**
+	 * Frame of the WebSocket protocol sent by the service.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class Frame {
+		/**
+		 * The opcode of the frame.
+		 */
+		private final int mOpcode;
+		/**
+		 * The payload of the frame.
+		 */
+		private final byte[] mPayload;
+
+		/**
+		 * Creates a new frame.
+		 * 
+		 * @param opcode
+		 *            The opcode of the frame
+		 * @param payload
+		 *            The payload of the frame
+		 */
+		public Frame(final int opcode, final byte[] payload) {
+			this.mOpcode = opcode;
+			this.mPayload = payload;
+		}
+
+		/**
+		 * Gets the status code of the frame, if it is a close frame.
+		 * 
+		 * @return The status code of the frame
+		 */
+		public int getCloseStatus() {
+			Assert.assertEquals(WebSocketUtil.OPCODE_CLOSE, this.mOpcode);
+			Assert.assertEquals(2, this.mPayload.length);
+			return ((this.mPayload[0] & 0xFF) << 8) | (this.mPayload[1] & 0xFF);
+		}
+
+		/**
+		 * Gets the opcode of the frame.
+		 * 
+		 * @return The opcode of the frame
+		 */
+		public int getOpcode() {
+			return this.mOpcode;
+		}
+
+		/**
+		 * Gets the payload of the frame.
+		 * 
+		 * @return The payload of the frame
+		 */
+		public byte[] getPayload() {
+			return this.mPayload;
+		}
+
+		/**
+		 * Gets the payload of the frame as text.
+		 * 
+		 * @return The payload of the frame as text
+		 */
+		public String getText() {
+			return new String(this.mPayload, HttpUtil.TEXT_CHARSET);
+		}
+	}
+
+	/**
+	 * The key sent by the client to open a session, taken from RFC 6455.
+	 */
+	private static final String HANDSHAKE_KEY = "dGhlIHNhbXBsZSBub25jZQ==";
+	/**
+	 * The time in milliseconds after which kept alive connections without
+	 * activity get closed.
+	 */
+	private static final long IDLE_TIMEOUT = 5_000L;
+	/**
+	 * The masking key used for frames of the client.
+	 */
+	private static final byte[] MASKING_KEY = new byte[] { 0x12, 0x34, 0x56, 0x78 };
+	/**
+	 * The time in milliseconds to wait for frames of the service.
+	 */
+	private static final int READ_TIMEOUT = 10_000;
+	/**
+	 * The time in milliseconds to wait for the service to stop.
+	 */
+	private static final long STOP_TIMEOUT = 15_000L;
+	/**
+	 * The time in milliseconds after which a test fails.
+	 */
+	private static final long TEST_TIMEOUT = 30_000L;
+
+	/**
+	 * Gets the service modes to run the tests for.
+	 * 
+	 * @return The service modes to run the tests for
+	 */
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> getServiceModes() {
+		return Arrays.asList(new Object[][] { { EServiceMode.BLOCKING }, { EServiceMode.POOLED },
+				{ EServiceMode.SELECTOR } });
+	}
+
+	/**
+	 * Asserts that the service closed the connection of the given client.
+	 * 
+	 * @param client
+	 *            The client whose connection to check
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void assertClosed(final Socket client) throws IOException {
+		Assert.assertEquals(-1, client.getInputStream().read());
+	}
+
+	/**
+	 * Reads the next frame sent by the service.
+	 * 
+	 * @param client
+	 *            The client to read from
+	 * @return The frame sent by the service
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static Frame readFrame(final Socket client) throws IOException {
+		final DataInputStream input = new DataInputStream(client.getInputStream());
+		final int firstByte = input.readUnsignedByte();
+		final int secondByte = input.readUnsignedByte();
+		Assert.assertTrue("Frame is fragmented", (firstByte & WebSocketUtil.FINAL_FRAGMENT_FLAG) != 0);
+		Assert.assertEquals("Frame is masked", 0, secondByte & 0x80);
+
+		long payloadLength = secondByte;
+		if (payloadLength == WebSocketUtil.PAYLOAD_LENGTH_16_BIT) {
+			payloadLength = input.readUnsignedShort();
+		} else if (payloadLength == WebSocketUtil.PAYLOAD_LENGTH_64_BIT) {
+			payloadLength = input.readLong();
+		}
+		final byte[] payload = new byte[(int) payloadLength];
+		input.readFully(payload);
+		return new Frame(firstByte & 0x0F, payload);
+	}
+
+	/**
+	 * Reads the head of the answer to a request.
+	 * 
+	 * @param client
+	 *            The client to read from
+	 * @return The head of the answer
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static String readHead(final Socket client) throws IOException {
+		final InputStream input = client.getInputStream();
+		final ByteArrayOutputStream head = new ByteArrayOutputStream();
+		int matchedEnd = 0;
+		while (matchedEnd < 4) {
+			final int read = input.read();
+			Assert.assertNotEquals("Connection closed while reading head", -1, read);
+			head.write(read);
+			if (read == '\r' && matchedEnd % 2 == 0 || read == '\n' && matchedEnd % 2 == 1) {
+				matchedEnd++;
+			} else {
+				matchedEnd = 0;
+			}
+		}
+		return new String(head.toByteArray(), HttpUtil.TEXT_CHARSET);
+	}
+
+	/**
+	 * Sends a masked frame to the service.
+	 * 
+	 * @param client
+	 *            The client to send from
+	 * @param isFinalFragment
+	 *            Whether the frame is the final fragment of its message
+	 * @param opcode
+	 *            The opcode of the frame
+	 * @param payload
+	 *            The payload of the frame
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void sendFrame(final Socket client, final boolean isFinalFragment, final int opcode,
+			final byte[] payload) throws IOException {
+		sendFrame(client, isFinalFragment, opcode, payload, true);
+	}
+
+	/**
+	 * Sends a frame to the service.
+	 * 
+	 * @param client
+	 *            The client to send from
+	 * @param isFinalFragment
+	 *            Whether the frame is the final fragment of its message
+	 * @param opcode
+	 *            The opcode of the frame
+	 * @param payload
+	 *            The payload of the frame
+	 * @param isMasked
+	 *            Whether the payload gets masked, clients must mask it
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void sendFrame(final Socket client, final boolean isFinalFragment, final int opcode,
+			final byte[] payload, final boolean isMasked) throws IOException {
+		final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+		int firstByte = opcode;
+		if (isFinalFragment) {
+			firstByte |= WebSocketUtil.FINAL_FRAGMENT_FLAG;
+		}
+		frame.write(firstByte);
+
+		final int maskFlag;
+		if (isMasked) {
+			maskFlag = 0x80;
+		} else {
+			maskFlag = 0;
+		}
+		if (payload.length < WebSocketUtil.PAYLOAD_LENGTH_16_BIT) {
+			frame.write(maskFlag | payload.length);
+		} else {
+			frame.write(maskFlag | WebSocketUtil.PAYLOAD_LENGTH_16_BIT);
+			frame.write(payload.length >>> 8);
+			frame.write(payload.length);
+		}
+
+		if (isMasked) {
+			frame.write(MASKING_KEY, 0, MASKING_KEY.length);
+			for (int i = 0; i < payload.length; i++) {
+				frame.write(payload[i] ^ MASKING_KEY[i % MASKING_KEY.length]);
+			}
+		} else {
+			frame.write(payload, 0, payload.length);
+		}
+
+		final OutputStream output = client.getOutputStream();
+		frame.writeTo(output);
+		output.flush();
+	}
+
+	/**
+	 * Sends a masked, unfragmented text frame to the service.
+	 * 
+	 * @param client
+	 *            The client to send from
+	 * @param text
+	 *            The text to send
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void sendText(final Socket client, final String text) throws IOException {
+		sendFrame(client, true, WebSocketUtil.OPCODE_TEXT, text.getBytes(HttpUtil.TEXT_CHARSET));
+	}
+
+	/**
+	 * The id of the instance the sessions get opened for.
+	 */
+	private String mId;
+	/**
+	 * The port the service listens on.
+	 */
+	private int mPort;
+	/**
+	 * The service to open sessions at.
+	 */
+	private Service mService;
+	/**
+	 * The mode of the service to open sessions at.
+	 */
+	private final EServiceMode mServiceMode;
+
+	/**
+	 * Creates a new test that opens sessions at a service with the given mode.
+	 * 
+	 * @param serviceMode
+	 *            The mode of the service to open sessions at
+	 */
+	public WebSocketSessionTest(final EServiceMode serviceMode) {
+		this.mServiceMode = serviceMode;
+	}
+
+	/**
+	 * Starts the service and creates an instance to open sessions for.
+	 * 
+	 * @throws Exception
+	 *             If the service could not be started
+	 */
+	@Before
+	public void setUp() throws Exception {
+		this.mPort = ServiceTestUtil.findFreePort();
+		this.mService = new Service(this.mPort, this.mServiceMode, IDLE_TIMEOUT,
+				Collections.<IChatBackend>singletonList(new FakeChatBackend()), 0, null);
+		this.mService.start();
+		ServiceTestUtil.awaitListening(this.mPort);
+		this.mId = ServiceTestUtil.sendRequest(this.mPort, "/create", HttpURLConnection.HTTP_OK);
+	}
+
+	/**
+	 * Stops the service.
+	 * 
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the service
+	 *             to stop
+	 */
+	@After
+	public void tearDown() throws InterruptedException {
+		this.mService.stopService();
+		this.mService.join(STOP_TIMEOUT);
+	}
+
+	/**
+	 * Test method for a session that gets answers right after the handshake.
+	 * Answers that arrived before the handshake are not sent, every answer
+	 * that arrives afterwards is sent, also if it repeats the previous one.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testAnswersAfterHandshake() throws IOException {
+		ServiceTestUtil.sendRequest(this.mPort, "/post?id=" + this.mId + "&msg=Before",
+				HttpURLConnection.HTTP_NO_CONTENT);
+		try (final Socket client = openSession()) {
+			ServiceTestUtil.sendRequest(this.mPort, "/post?id=" + this.mId + "&msg=Hello",
+					HttpURLConnection.HTTP_NO_CONTENT);
+			sendText(client, "Hello");
+			for (int i = 0; i < 2; i++) {
+				final Frame answer = readFrame(client);
+				Assert.assertEquals(WebSocketUtil.OPCODE_TEXT, answer.getOpcode());
+				Assert.assertEquals("Hello", answer.getText());
+			}
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends a binary message, it gets
+	 * rejected.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testBinaryMessage() throws IOException {
+		try (final Socket client = openSession()) {
+			sendFrame(client, true, WebSocketUtil.OPCODE_BINARY, new byte[] { 1, 2, 3 });
+			Assert.assertEquals(WebSocketUtil.CLOSE_UNSUPPORTED_DATA, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Test method for a session whose client closes it, the service answers
+	 * the close frame and closes the connection.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testClientClose() throws IOException {
+		try (final Socket client = openSession()) {
+			sendFrame(client, true, WebSocketUtil.OPCODE_CLOSE, new byte[] { 0x03, (byte) 0xE8 });
+			Assert.assertEquals(WebSocketUtil.CLOSE_NORMAL, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends a continuation frame
+	 * without starting a message first, it gets rejected.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testContinuationWithoutMessage() throws IOException {
+		try (final Socket client = openSession()) {
+			sendFrame(client, true, WebSocketUtil.OPCODE_CONTINUATION, "Hello".getBytes(HttpUtil.TEXT_CHARSET));
+			Assert.assertEquals(WebSocketUtil.CLOSE_PROTOCOL_ERROR, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends a fragmented message with
+	 * a ping in between the fragments.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testFragmentedMessage() throws IOException {
+		try (final Socket client = openSession()) {
+			sendFrame(client, false, WebSocketUtil.OPCODE_TEXT, "Hel".getBytes(HttpUtil.TEXT_CHARSET));
+			sendFrame(client, true, WebSocketUtil.OPCODE_PING, "beat".getBytes(HttpUtil.TEXT_CHARSET));
+			final Frame pong = readFrame(client);
+			Assert.assertEquals(WebSocketUtil.OPCODE_PONG, pong.getOpcode());
+			Assert.assertEquals("beat", pong.getText());
+
+			sendFrame(client, false, WebSocketUtil.OPCODE_CONTINUATION, "lo Wor".getBytes(HttpUtil.TEXT_CHARSET));
+			sendFrame(client, true, WebSocketUtil.OPCODE_CONTINUATION, "ld".getBytes(HttpUtil.TEXT_CHARSET));
+			final Frame answer = readFrame(client);
+			Assert.assertEquals(WebSocketUtil.OPCODE_TEXT, answer.getOpcode());
+			Assert.assertEquals("Hello World", answer.getText());
+		}
+	}
+
+	/**
+	 * Test method for requests that fail to open a session.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testInvalidHandshake() throws IOException {
+		try (final Socket client = new Socket("localhost", this.mPort)) {
+			client.setSoTimeout(READ_TIMEOUT);
+			final OutputStream output = client.getOutputStream();
+			output.write(("GET /socket?id=" + this.mId + " HTTP/1.1\r\nUpgrade: websocket\r\n"
+					+ "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(HttpUtil.TEXT_CHARSET));
+			output.flush();
+			Assert.assertTrue(readHead(client).startsWith("HTTP/1.1 400 "));
+		}
+		try (final Socket client = new Socket("localhost", this.mPort)) {
+			client.setSoTimeout(READ_TIMEOUT);
+			final OutputStream output = client.getOutputStream();
+			output.write(("GET /socket?id=unknown HTTP/1.1\r\nUpgrade: websocket\r\nSec-WebSocket-Key: "
+					+ HANDSHAKE_KEY + "\r\nSec-WebSocket-Version: 13\r\n\r\n").getBytes(HttpUtil.TEXT_CHARSET));
+			output.flush();
+			Assert.assertTrue(readHead(client).startsWith("HTTP/1.1 422 "));
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends a message that exceeds
+	 * the maximal message length, it gets rejected.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testMessageTooBig() throws IOException {
+		try (final Socket client = openSession()) {
+			final OutputStream output = client.getOutputStream();
+			// Only the head of the frame, announcing a payload of 2^20 bytes
+			output.write(new byte[] { (byte) (WebSocketUtil.FINAL_FRAGMENT_FLAG | WebSocketUtil.OPCODE_TEXT),
+					(byte) (0x80 | WebSocketUtil.PAYLOAD_LENGTH_64_BIT), 0, 0, 0, 0, 0, 0x10, 0, 0 });
+			output.flush();
+			Assert.assertEquals(WebSocketUtil.CLOSE_MESSAGE_TOO_BIG, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends text messages, every
+	 * answer is sent back. Longer answers use the 16-bit length encoding.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testTextMessages() throws IOException {
+		try (final Socket client = openSession()) {
+			sendText(client, "Hello <World> & \u00FC");
+			Frame answer = readFrame(client);
+			Assert.assertEquals(WebSocketUtil.OPCODE_TEXT, answer.getOpcode());
+			Assert.assertEquals("Hello &lt;World&gt; &amp; &uuml;", answer.getText());
+
+			final char[] longText = new char[300];
+			Arrays.fill(longText, 'a');
+			sendText(client, new String(longText));
+			answer = readFrame(client);
+			Assert.assertEquals(WebSocketUtil.OPCODE_TEXT, answer.getOpcode());
+			Assert.assertEquals(longText.length, answer.getPayload().length);
+			Assert.assertEquals(new String(longText), answer.getText());
+
+			sendFrame(client, true, WebSocketUtil.OPCODE_CLOSE, new byte[0]);
+			Assert.assertEquals(WebSocketUtil.CLOSE_NORMAL, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Test method for a session whose client sends an unmasked frame, it gets
+	 * rejected.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test(timeout = TEST_TIMEOUT)
+	public void testUnmaskedFrame() throws IOException {
+		try (final Socket client = openSession()) {
+			// Without payload, unread data would reset the connection once it
+			// gets closed
+			sendFrame(client, true, WebSocketUtil.OPCODE_TEXT, new byte[0], false);
+			Assert.assertEquals(WebSocketUtil.CLOSE_PROTOCOL_ERROR, readFrame(client).getCloseStatus());
+			assertClosed(client);
+		}
+	}
+
+	/**
+	 * Opens a session for the instance and checks the handshake of the
+	 * service.
+	 * 
+	 * @return The client connected to the session
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private Socket openSession() throws IOException {
+		final Socket client = new Socket("localhost", this.mPort);
+		client.setSoTimeout(READ_TIMEOUT);
+		final OutputStream output = client.getOutputStream();
+		final String request = "GET /socket?id=" + this.mId + " HTTP/1.1\r\nHost: localhost\r\n"
+				+ "Upgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Key: " + HANDSHAKE_KEY
+				+ "\r\nSec-WebSocket-Version: 13\r\n\r\n";
+		output.write(request.getBytes(HttpUtil.TEXT_CHARSET));
+		output.flush();
+
+		final String head = readHead(client);
+		Assert.assertTrue(head, head.startsWith("HTTP/1.1 101 "));
+		Assert.assertTrue(head, head.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n"));
+		return client;
+	}
+}
@@ -0,0 +1,206 @@
+package de.zabuza.brainbridge.server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link WebSocketUtil}.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class WebSocketUtilTest {
+	/**
+	 * Channel that collects all written data in memory. It accepts at most a
+	 * given amount of bytes per write operation to simulate partial writes.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class MemoryChannel implements GatheringByteChannel {
+		/**
+		 * The data written to the channel.
+		 */
+		private final ByteArrayOutputStream mContent;
+		/**
+		 * The maximal amount of bytes accepted per write operation.
+		 */
+		private final int mMaxBytesPerWrite;
+
+		/**
+		 * Creates a new empty channel.
+		 * 
+		 * @param maxBytesPerWrite
+		 *            The maximal amount of bytes accepted per write operation
+		 */
+		public MemoryChannel(final int maxBytesPerWrite) {
+			this.mMaxBytesPerWrite = maxBytesPerWrite;
+			this.mContent = new ByteArrayOutputStream();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.nio.channels.Channel#close()
+		 */
+		@Override
+		public void close() {
+			// Nothing to close
+		}
+
+		/**
+		 * Gets the data written to the channel.
+		 * 
+		 * @return The data written to the channel
+		 */
+		public byte[] getContent() {
+			return this.mContent.toByteArray();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.nio.channels.Channel#isOpen()
+		 */
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+		 */
+		@Override
+		public int write(final ByteBuffer src) {
+			final int amount = Math.min(src.remaining(), this.mMaxBytesPerWrite);
+			for (int i = 0; i < amount; i++) {
+				this.mContent.write(src.get());
+			}
+			return amount;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[])
+		 */
+		@Override
+		public long write(final ByteBuffer[] srcs) {
+			return write(srcs, 0, srcs.length);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * java.nio.channels.GatheringByteChannel#write(java.nio.ByteBuffer[],
+		 * int, int)
+		 */
+		@Override
+		public long write(final ByteBuffer[] srcs, final int offset, final int length) {
+			for (int i = offset; i < offset + length; i++) {
+				if (srcs[i].hasRemaining()) {
+					return write(srcs[i]);
+				}
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Sends a frame with a payload of the given length and asserts that it
+	 * has the expected head and payload.
+	 * 
+	 * @param payloadLength
+	 *            The length of the payload to send
+	 * @param expectedHead
+	 *            The expected head of the frame
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	private static void assertFrame(final int payloadLength, final byte[] expectedHead) throws IOException {
+		final byte[] payload = new byte[payloadLength];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) i;
+		}
+		final MemoryChannel channel = new MemoryChannel(1_000);
+		WebSocketUtil.sendFrame(WebSocketUtil.OPCODE_TEXT, payload, channel);
+
+		final byte[] content = channel.getContent();
+		Assert.assertEquals(expectedHead.length + payloadLength, content.length);
+		Assert.assertArrayEquals(expectedHead, Arrays.copyOf(content, expectedHead.length));
+		Assert.assertArrayEquals(payload, Arrays.copyOfRange(content, expectedHead.length, content.length));
+	}
+
+	/**
+	 * Test method for {@link WebSocketUtil#computeAcceptKey(String)}, by using
+	 * the example of RFC 6455.
+	 */
+	@Test
+	public void testComputeAcceptKey() {
+		Assert.assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=",
+				WebSocketUtil.computeAcceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+		Assert.assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=",
+				WebSocketUtil.computeAcceptKey(" dGhlIHNhbXBsZSBub25jZQ== "));
+	}
+
+	/**
+	 * Test method for
+	 * {@link WebSocketUtil#sendFrame(int, byte[], GatheringByteChannel)} with
+	 * payloads whose length needs the different length encodings.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test
+	public void testSendFrameLengths() throws IOException {
+		assertFrame(0, new byte[] { (byte) 0x81, 0 });
+		assertFrame(125, new byte[] { (byte) 0x81, 125 });
+		assertFrame(126, new byte[] { (byte) 0x81, 126, 0, 126 });
+		assertFrame(65_535, new byte[] { (byte) 0x81, 126, (byte) 0xFF, (byte) 0xFF });
+		assertFrame(65_536, new byte[] { (byte) 0x81, 127, 0, 0, 0, 0, 0, 1, 0, 0 });
+	}
+
+	/**
+	 * Test method for
+	 * {@link WebSocketUtil#sendFrame(int, byte[], GatheringByteChannel)} with
+	 * a channel that only accepts parts of the frame per write operation.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test
+	public void testSendFramePartialWrites() throws IOException {
+		final MemoryChannel channel = new MemoryChannel(3);
+		WebSocketUtil.sendFrame(WebSocketUtil.OPCODE_CLOSE, new byte[] { 0x03, (byte) 0xE8 }, channel);
+		WebSocketUtil.sendFrame(WebSocketUtil.OPCODE_PONG, "ping".getBytes(HttpUtil.TEXT_CHARSET), channel);
+		Assert.assertArrayEquals(new byte[] { (byte) 0x88, 2, 0x03, (byte) 0xE8, (byte) 0x8A, 4, 'p', 'i', 'n', 'g' },
+				channel.getContent());
+	}
+
+	/**
+	 * Test method for
+	 * {@link WebSocketUtil#sendHandshake(String, GatheringByteChannel)}.
+	 * 
+	 * @throws IOException
+	 *             If an I/O-Exception occurred
+	 */
+	@Test
+	public void testSendHandshake() throws IOException {
+		final MemoryChannel channel = new MemoryChannel(7);
+		WebSocketUtil.sendHandshake("dGhlIHNhbXBsZSBub25jZQ==", channel);
+		Assert.assertEquals(
+				"HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+						+ "Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n\r\n",
+				new String(channel.getContent(), HttpUtil.TEXT_CHARSET));
+	}
+}
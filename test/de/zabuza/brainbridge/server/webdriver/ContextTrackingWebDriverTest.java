@@ -0,0 +1,543 @@
+package de.zabuza.brainbridge.server.webdriver;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Tests for {@link ContextTrackingWebDriver}. The wrapped driver is a stub
+ * that records every call it receives, so the tests can check which switches
+ * are actually sent to the browser.
+ * 
+ * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+ *
+ */
+public final class ContextTrackingWebDriverTest {
+	/**
+	 * Navigation of a {@link RecordingWebDriver} that records every call.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class RecordingNavigation implements WebDriver.Navigation {
+		/**
+		 * The calls received by the driver in order of their arrival.
+		 */
+		private final List<String> mCalls;
+
+		/**
+		 * Creates a new navigation that records its calls to the given list.
+		 * 
+		 * @param calls
+		 *            The list to record the calls to
+		 */
+		public RecordingNavigation(final List<String> calls) {
+			this.mCalls = calls;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.Navigation#back()
+		 */
+		@Override
+		public void back() {
+			this.mCalls.add("back");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.Navigation#forward()
+		 */
+		@Override
+		public void forward() {
+			this.mCalls.add("forward");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.Navigation#refresh()
+		 */
+		@Override
+		public void refresh() {
+			this.mCalls.add("refresh");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.Navigation#to(java.lang.String)
+		 */
+		@Override
+		public void to(final String url) {
+			this.mCalls.add("to " + url);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.Navigation#to(java.net.URL)
+		 */
+		@Override
+		public void to(final URL url) {
+			this.mCalls.add("to " + url);
+		}
+	}
+
+	/**
+	 * Target locator of a {@link RecordingWebDriver} that records every call.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class RecordingTargetLocator implements WebDriver.TargetLocator {
+		/**
+		 * The calls received by the driver in order of their arrival.
+		 */
+		private final List<String> mCalls;
+		/**
+		 * The driver the locator belongs to.
+		 */
+		private final WebDriver mDriver;
+
+		/**
+		 * Creates a new target locator that records its calls to the given
+		 * list.
+		 * 
+		 * @param driver
+		 *            The driver the locator belongs to
+		 * @param calls
+		 *            The list to record the calls to
+		 */
+		public RecordingTargetLocator(final WebDriver driver, final List<String> calls) {
+			this.mDriver = driver;
+			this.mCalls = calls;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#activeElement()
+		 */
+		@Override
+		public WebElement activeElement() {
+			this.mCalls.add("activeElement");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#alert()
+		 */
+		@Override
+		public Alert alert() {
+			this.mCalls.add("alert");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#defaultContent()
+		 */
+		@Override
+		public WebDriver defaultContent() {
+			this.mCalls.add("defaultContent");
+			return this.mDriver;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#frame(int)
+		 */
+		@Override
+		public WebDriver frame(final int index) {
+			this.mCalls.add("frame " + index);
+			return this.mDriver;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#frame(java.lang.
+		 * String)
+		 */
+		@Override
+		public WebDriver frame(final String nameOrId) {
+			this.mCalls.add("frame " + nameOrId);
+			return this.mDriver;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.openqa.selenium.WebDriver.TargetLocator#frame(org.openqa.selenium
+		 * .WebElement)
+		 */
+		@Override
+		public WebDriver frame(final WebElement frameElement) {
+			this.mCalls.add("frame " + frameElement);
+			return this.mDriver;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#parentFrame()
+		 */
+		@Override
+		public WebDriver parentFrame() {
+			this.mCalls.add("parentFrame");
+			return this.mDriver;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver.TargetLocator#window(java.lang.
+		 * String)
+		 */
+		@Override
+		public WebDriver window(final String nameOrHandle) {
+			this.mCalls.add("window " + nameOrHandle);
+			return this.mDriver;
+		}
+	}
+
+	/**
+	 * Stub of a web driver that records every call it receives instead of
+	 * talking to a browser.
+	 * 
+	 * @author Zabuza {@literal <zabuza.dev@gmail.com>}
+	 *
+	 */
+	private static final class RecordingWebDriver implements WebDriver {
+		/**
+		 * The calls received by the driver in order of their arrival.
+		 */
+		private final List<String> mCalls;
+
+		/**
+		 * Creates a new driver that records its calls to the given list.
+		 * 
+		 * @param calls
+		 *            The list to record the calls to
+		 */
+		public RecordingWebDriver(final List<String> calls) {
+			this.mCalls = calls;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#close()
+		 */
+		@Override
+		public void close() {
+			this.mCalls.add("close");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#findElement(org.openqa.selenium.By)
+		 */
+		@Override
+		public WebElement findElement(final By by) {
+			this.mCalls.add("findElement " + by);
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.openqa.selenium.WebDriver#findElements(org.openqa.selenium.By)
+		 */
+		@Override
+		public List<WebElement> findElements(final By by) {
+			this.mCalls.add("findElements " + by);
+			return Collections.emptyList();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#get(java.lang.String)
+		 */
+		@Override
+		public void get(final String url) {
+			this.mCalls.add("get " + url);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#getCurrentUrl()
+		 */
+		@Override
+		public String getCurrentUrl() {
+			this.mCalls.add("getCurrentUrl");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#getPageSource()
+		 */
+		@Override
+		public String getPageSource() {
+			this.mCalls.add("getPageSource");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#getTitle()
+		 */
+		@Override
+		public String getTitle() {
+			this.mCalls.add("getTitle");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#getWindowHandle()
+		 */
+		@Override
+		public String getWindowHandle() {
+			this.mCalls.add("getWindowHandle");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#getWindowHandles()
+		 */
+		@Override
+		public Set<String> getWindowHandles() {
+			this.mCalls.add("getWindowHandles");
+			return Collections.emptySet();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#manage()
+		 */
+		@Override
+		public Options manage() {
+			this.mCalls.add("manage");
+			return null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#navigate()
+		 */
+		@Override
+		public Navigation navigate() {
+			return new RecordingNavigation(this.mCalls);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#quit()
+		 */
+		@Override
+		public void quit() {
+			this.mCalls.add("quit");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.openqa.selenium.WebDriver#switchTo()
+		 */
+		@Override
+		public TargetLocator switchTo() {
+			return new RecordingTargetLocator(this, this.mCalls);
+		}
+	}
+
+	/**
+	 * The locator of the element every test finds.
+	 */
+	private static final By ELEMENT = By.id("element");
+
+	/**
+	 * The calls received by the wrapped driver in order of their arrival.
+	 */
+	private List<String> mCalls;
+	/**
+	 * The driver to test, it wraps a {@link RecordingWebDriver}.
+	 */
+	private ContextTrackingWebDriver mDriver;
+
+	/**
+	 * Creates the driver to test and selects the frame <tt>inner</tt> in the
+	 * frame <tt>outer</tt> of the window <tt>main</tt>. The calls of the
+	 * selection are not recorded.
+	 */
+	@Before
+	public void setUp() {
+		this.mCalls = new ArrayList<>();
+		this.mDriver = new ContextTrackingWebDriver(new RecordingWebDriver(this.mCalls));
+		this.mDriver.switchTo().window("main");
+		this.mDriver.switchTo().frame("outer");
+		this.mDriver.switchTo().frame("inner");
+		Assert.assertEquals(Arrays.asList("window main", "frame outer", "frame inner"), this.mCalls);
+		this.mCalls.clear();
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingWebDriver#close()}. The context is
+	 * unknown afterwards, the next switches are all sent.
+	 */
+	@Test
+	public void testCloseInvalidatesContext() {
+		this.mDriver.close();
+		selectInnerFrame();
+		Assert.assertEquals(
+				Arrays.asList("close", "window main", "frame outer", "frame inner", "findElement " + ELEMENT),
+				this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingTargetLocator#frame(int)}. The
+	 * frame can not be tracked, the next switches are all sent.
+	 */
+	@Test
+	public void testFrameByIndexMakesContextUnknown() {
+		this.mDriver.switchTo().frame(0);
+		this.mDriver.switchTo().parentFrame();
+		selectInnerFrame();
+		Assert.assertEquals(Arrays.asList("frame 0", "parentFrame", "window main", "frame outer", "frame inner",
+				"findElement " + ELEMENT), this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingWebDriver#get(String)}. The page
+	 * is loaded into the current window, so only its frames are unknown
+	 * afterwards.
+	 */
+	@Test
+	public void testGetInvalidatesFrames() {
+		this.mDriver.get("http://localhost/");
+		selectInnerFrame();
+		Assert.assertEquals(Arrays.asList("get http://localhost/", "frame outer", "frame inner",
+				"findElement " + ELEMENT), this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingWebDriver#navigate()}. The
+	 * navigation is not visible to the driver, the next switches are all
+	 * sent.
+	 */
+	@Test
+	public void testNavigateInvalidatesContext() {
+		this.mDriver.navigate().refresh();
+		selectInnerFrame();
+		Assert.assertEquals(
+				Arrays.asList("refresh", "window main", "frame outer", "frame inner", "findElement " + ELEMENT),
+				this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingTargetLocator#parentFrame()}
+	 * followed by a switch to another frame than the one that was left. The
+	 * deferred switches are sent first and the new frame is tracked.
+	 */
+	@Test
+	public void testPendingParentFrameThenOtherFrame() {
+		this.mDriver.switchTo().parentFrame();
+		this.mDriver.switchTo().frame("other");
+		Assert.assertEquals(Arrays.asList("parentFrame", "frame other"), this.mCalls);
+		this.mCalls.clear();
+
+		this.mDriver.switchTo().defaultContent();
+		this.mDriver.switchTo().frame("outer");
+		this.mDriver.switchTo().frame("other");
+		this.mDriver.findElement(ELEMENT);
+		Assert.assertEquals(Collections.singletonList("findElement " + ELEMENT), this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingTargetLocator#parentFrame()}. The
+	 * deferred switches are sent before the next operation that depends on
+	 * the context.
+	 */
+	@Test
+	public void testPendingParentFramesBeforeOperation() {
+		this.mDriver.switchTo().parentFrame();
+		Assert.assertTrue(this.mCalls.isEmpty());
+		this.mDriver.findElements(ELEMENT);
+		this.mDriver.switchTo().parentFrame();
+		this.mDriver.getPageSource();
+		Assert.assertEquals(Arrays.asList("parentFrame", "findElements " + ELEMENT, "defaultContent", "getPageSource"),
+				this.mCalls);
+	}
+
+	/**
+	 * Test method for {@link ContextTrackingTargetLocator#defaultContent()}
+	 * followed by a switch to another frame than the one that was left. The
+	 * deferred switches are sent at once.
+	 */
+	@Test
+	public void testPendingParentFramesThenOtherFrame() {
+		this.mDriver.switchTo().parentFrame();
+		this.mDriver.switchTo().parentFrame();
+		this.mDriver.switchTo().frame("other");
+		Assert.assertEquals(Arrays.asList("defaultContent", "frame other"), this.mCalls);
+	}
+
+	/**
+	 * Test method for re-selecting the current window and frame. No switch is
+	 * sent to the browser.
+	 */
+	@Test
+	public void testReselectSameContext() {
+		selectInnerFrame();
+		this.mDriver.switchTo().parentFrame();
+		this.mDriver.switchTo().frame("inner");
+		this.mDriver.switchTo().defaultContent();
+		this.mDriver.switchTo().frame("outer");
+		this.mDriver.switchTo().frame("inner");
+		this.mDriver.findElement(ELEMENT);
+		Assert.assertEquals(Arrays.asList("findElement " + ELEMENT, "findElement " + ELEMENT), this.mCalls);
+	}
+
+	/**
+	 * Selects the frame <tt>inner</tt> in the frame <tt>outer</tt> of the
+	 * window <tt>main</tt> and finds an element in it.
+	 */
+	private void selectInnerFrame() {
+		this.mDriver.switchTo().window("main");
+		this.mDriver.switchTo().frame("outer");
+		this.mDriver.switchTo().frame("inner");
+		this.mDriver.findElement(ELEMENT);
+	}
+}